@@ -0,0 +1,78 @@
+package com.minpad;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ActionExecutor.executeAction 的分发开销（查表 + 调用 + 日志），动作本身为空操作；
+ * 以及经 ActionDispatcher 环形缓冲区发布再消费的开销，和外加 {@link KeyMetrics} 统计后的开销。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class ActionDispatchBenchmark {
+
+    private ActionExecutor executor;
+    private ActionDispatcher dispatcher;
+    private ActionDispatcher instrumentedDispatcher;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.useTemporaryConfigDir();
+        BenchmarkSupport.silenceConsole();
+        executor = new ActionExecutor();
+        for (int i = 0; i < 16; i++) {
+            executor.setAction(i, new ActionExecutor.ActionConfig("noop-" + i, null) {
+                @Override
+                public CompletableFuture<?> execute() {
+                    return null;
+                }
+            });
+        }
+        dispatcher = new ActionDispatcher(1024, (actionIndex, vkCode, flags, timestamp) ->
+            executor.executeAction(actionIndex));
+        // 同一处理器外加按键统计，两者之差即统计的开销
+        instrumentedDispatcher = new ActionDispatcher(1024, new KeyMetrics().instrument(
+            (actionIndex, vkCode, flags, timestamp) -> executor.executeAction(actionIndex)));
+    }
+
+    @Benchmark
+    public void executeAction() {
+        executor.executeAction(cursor++ & 15);
+    }
+
+    @Benchmark
+    public void executeUnmappedAction() {
+        executor.executeAction(16 + (cursor++ & 15));
+    }
+
+    @Benchmark
+    public void publishAndDrain(Blackhole blackhole) {
+        int actionIndex = cursor++ & 15;
+        dispatcher.publish(actionIndex, 0x60 + actionIndex, 0, System.nanoTime());
+        blackhole.consume(dispatcher.drain());
+    }
+
+    @Benchmark
+    public void publishAndDrainInstrumented(Blackhole blackhole) {
+        int actionIndex = cursor++ & 15;
+        instrumentedDispatcher.publish(actionIndex, 0x60 + actionIndex, 0, System.nanoTime());
+        blackhole.consume(instrumentedDispatcher.drain());
+    }
+}
@@ -0,0 +1,81 @@
+package com.minpad;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 动作快照的并发读写压力测试：一个线程不断用 setAction 增删层动作 "0+5" 并更换其重复策略，
+ * 三个线程同时读取快照并检查动作、键位和重复策略是否属于同一版本。发现不一致时抛出异常，
+ * JMH 会把该基准标记为失败。读取一侧的耗时即按键路径查询动作的开销。
+ * 撕裂、过时和配置档落后的断言见行为检查 {@link ActionSnapshotCheck}。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Group)
+public class ActionSnapshotBenchmark {
+
+    private static final int HOLD_KEY = 0;
+    private static final int KEY = 5;
+    private static final int SLOT = Keymap.layerSlot(HOLD_KEY, KEY);
+
+    private ActionExecutor executor;
+    private long generation;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.useTemporaryConfigDir();
+        BenchmarkSupport.silenceConsole();
+        executor = new ActionExecutor();
+    }
+
+    @Benchmark
+    @Group("swap")
+    @GroupThreads(1)
+    public void writer() {
+        long next = ++generation;
+        if (next % 3 == 0) {
+            executor.setAction(SLOT, null);
+        } else {
+            ActionExecutor.ActionConfig config = new ActionExecutor.ActionConfig("层动作 " + next, null, null, "ctrl+c");
+            config.setRepeatPolicy(new RepeatPolicy(300, 20 + next % 50, 1.0, 20));
+            executor.setAction(SLOT, config);
+        }
+    }
+
+    @Benchmark
+    @Group("swap")
+    @GroupThreads(3)
+    public ActionExecutor.ActionConfig reader() {
+        ActionBindings bindings = executor.getBindings();
+        ActionExecutor.ActionConfig action = bindings.getAction(SLOT);
+        Keymap keymap = bindings.getKeymap();
+        int root = keymap.layerRoot(HOLD_KEY);
+        boolean layerBound = root >= 0 && Keymap.isAction(keymap.transition(root, KEY));
+        if ((action != null) != layerBound) {
+            throw new IllegalStateException("键位与动作表不一致: action=" + action + ", layer=" + layerBound);
+        }
+        RepeatPolicy expected = action != null ? action.getEffectiveRepeatPolicy() : RepeatPolicy.NONE;
+        if (bindings.getRepeatPolicy(SLOT) != expected) {
+            throw new IllegalStateException("重复策略与动作不一致: " + action);
+        }
+        if (bindings.getActions().get(SLOT) != action) {
+            throw new IllegalStateException("动作表视图与槽位数组不一致: " + action);
+        }
+        return action;
+    }
+}
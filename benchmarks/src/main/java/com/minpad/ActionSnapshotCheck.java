@@ -0,0 +1,159 @@
+package com.minpad;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 动作快照的并发读写：一个线程不断用 setAction 增删层动作 "0+5"（每代的名称和重复策略都不同），
+ * 同时有 IDE 配置档生效；读取线程经 {@link ActionExecutor#getBindings()} 和生效配置档的
+ * {@link Profile#getBindings()} 取快照，核对：
+ * <ul>
+ *   <li>不撕裂：同一快照中的动作、键位和重复策略属于同一代，配置档覆盖的动作不丢失</li>
+ *   <li>不过时：读取前已发布的一代必须可见，快照的代数落在读取前后已发布的代数之间</li>
+ *   <li>配置档不落后：发布时先重建配置档再替换全局快照，读到的配置档不早于之前读到的全局快照</li>
+ * </ul>
+ * 性能见 {@link ActionSnapshotBenchmark}。
+ */
+final class ActionSnapshotCheck {
+
+    private static final int HOLD_KEY = 0;
+    private static final int KEY = 5;
+    private static final int SLOT = Keymap.layerSlot(HOLD_KEY, KEY);
+    private static final String PREFIX = "层动作 ";
+    private static final int GENERATIONS = 20_000;
+    private static final int READERS = 3;
+    private static final long TIMEOUT_SECONDS = 60;
+
+    private static final String CONFIG = "{'actions':{"
+        + "'1':{'name':'复制','keyCombination':'ctrl+c'},"
+        + "'5':{'name':'运行','keyCombination':'shift+f10'}"
+        + "},'profiles':[{'name':'IDE','process':['idea64.exe'],'actions':{"
+        + "'5':{'name':'调试','keyCombination':'shift+f9'}"
+        + "}}]}";
+
+    private ActionSnapshotCheck() {
+    }
+
+    static String run() throws Exception {
+        BenchmarkSupport.writeConfig(CONFIG);
+        ActionExecutor executor = new ActionExecutor();
+        SyntheticForegroundSource source = new SyntheticForegroundSource();
+        ForegroundTracker tracker = new ForegroundTracker(source);
+        executor.setForegroundTracker(tracker);
+        source.activate("idea64.exe", null);
+        tracker.start();
+        Checks.expect(executor.getActiveProfile() != null, "IDE 配置档应已生效");
+
+        // setAction 返回后才更新，此前发布的代数对之后的读取必须可见
+        AtomicLong published = new AtomicLong();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicLong reads = new AtomicLong();
+        AtomicLong observed = new AtomicLong();
+        Thread[] readers = new Thread[READERS];
+        for (int i = 0; i < READERS; i++) {
+            readers[i] = new Thread(() -> {
+                long count = 0;
+                long lastGeneration = -1;
+                long changes = 0;
+                try {
+                    while (failure.get() == null && published.get() < GENERATIONS) {
+                        long floor = published.get();
+                        long global = generation(executor.getBindings(), false);
+                        long ceiling = published.get() + 1;
+                        expectWithin(global, floor, ceiling, "全局快照");
+
+                        Profile profile = executor.getActiveProfile();
+                        long profileGeneration = generation(profile.getBindings(), true);
+                        expectWithin(profileGeneration, global >= 0 ? global : floor, published.get() + 1,
+                            "配置档快照（不早于刚读到的全局快照）");
+                        if (global != lastGeneration) {
+                            lastGeneration = global;
+                            changes++;
+                        }
+                        count++;
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+                reads.addAndGet(count);
+                observed.addAndGet(changes);
+            }, "minpad-snapshot-reader-" + i);
+            readers[i].start();
+        }
+
+        try {
+            for (long next = 1; next <= GENERATIONS && failure.get() == null; next++) {
+                if (next % 3 == 0) {
+                    executor.setAction(SLOT, null);
+                } else {
+                    ActionExecutor.ActionConfig config = new ActionExecutor.ActionConfig(PREFIX + next, null, null, "ctrl+c");
+                    config.setRepeatPolicy(repeatPolicy(next));
+                    executor.setAction(SLOT, config);
+                }
+                published.set(next);
+            }
+        } finally {
+            published.set(GENERATIONS);
+            for (Thread reader : readers) {
+                reader.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+            }
+            tracker.stop();
+        }
+        Throwable error = failure.get();
+        if (error instanceof AssertionError) {
+            throw (AssertionError) error;
+        } else if (error != null) {
+            throw new AssertionError("读取线程异常", error);
+        }
+        for (Thread reader : readers) {
+            Checks.expect(!reader.isAlive(), "读取线程在 %d 秒内没有结束", TIMEOUT_SECONDS);
+        }
+        Checks.expect(observed.get() > READERS, "读取线程应看到写入线程发布的新快照");
+        return GENERATIONS + " 次发布、" + reads.get() + " 次读取，快照未撕裂、未过时";
+    }
+
+    /**
+     * 核对快照内部一致并取出层动作的代数
+     *
+     * @return 代数；层动作已移除时为 -1（只能确定是 3 的倍数的某一代）
+     */
+    private static long generation(ActionBindings bindings, boolean profile) {
+        ActionExecutor.ActionConfig action = bindings.getAction(SLOT);
+        Keymap keymap = bindings.getKeymap();
+        int root = keymap.layerRoot(HOLD_KEY);
+        boolean layerBound = root >= 0 && Keymap.isAction(keymap.transition(root, KEY));
+        String what = profile ? "配置档" : "全局";
+        Checks.expect((action != null) == layerBound, "%s键位与动作表不一致: action=%s, layer=%s",
+            what, action, layerBound);
+        Checks.expect(bindings.getActions().get(SLOT) == action, "%s动作表视图与槽位数组不一致: %s", what, action);
+        Checks.expectEquals(profile ? "调试" : "运行", bindings.getAction(KEY).getName(), what + "槽位 5 的动作");
+        if (action == null) {
+            Checks.expect(bindings.getRepeatPolicy(SLOT) == RepeatPolicy.NONE, "%s已移除的层动作仍有重复策略", what);
+            return -1;
+        }
+        long generation = Long.parseLong(action.getName().substring(PREFIX.length()));
+        Checks.expect(generation % 3 != 0, "%s快照中第 %d 代的层动作应已移除", what, generation);
+        Checks.expect(bindings.getRepeatPolicy(SLOT) == action.getEffectiveRepeatPolicy()
+                && action.getRepeatPolicy().equals(repeatPolicy(generation)),
+            "%s重复策略与第 %d 代的动作不一致: %s", what, generation, bindings.getRepeatPolicy(SLOT));
+        return generation;
+    }
+
+    /**
+     * 快照的代数应在 [floor, ceiling] 内；已移除时区间内应有一代是移除
+     */
+    private static void expectWithin(long generation, long floor, long ceiling, String what) {
+        if (generation >= 0) {
+            Checks.expect(generation >= floor && generation <= ceiling, "%s为第 %d 代，读取时已发布到第 %d ~ %d 代",
+                what, generation, floor, ceiling);
+        } else {
+            Checks.expect(ceiling / 3 * 3 >= floor, "%s的层动作已移除，但第 %d ~ %d 代都没有移除",
+                what, floor, ceiling);
+        }
+    }
+
+    private static RepeatPolicy repeatPolicy(long generation) {
+        return new RepeatPolicy(300, 20 + generation % 50, 1.0, 20);
+    }
+}
@@ -0,0 +1,59 @@
+package com.minpad;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 基准测试公共工具
+ */
+final class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * 把配置目录指向临时目录，必须在首次访问 ConfigManager 之前调用。
+     */
+    static Path useTemporaryConfigDir() {
+        String existing = System.getProperty("minpad.home");
+        if (existing != null) {
+            return Path.of(existing);
+        }
+        try {
+            Path dir = Files.createTempDirectory("minpad-bench");
+            System.setProperty("minpad.home", dir.toString());
+            return dir;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 屏蔽热路径上的控制台输出，避免把 I/O 计入结果、刷屏。
+     */
+    static void silenceConsole() {
+        PrintStream sink = new PrintStream(OutputStream.nullOutputStream());
+        System.setOut(sink);
+        System.setErr(sink);
+    }
+
+    /**
+     * 用给定内容替换临时配置目录中的 config.json 并丢弃内存快照，之后创建的 ActionExecutor 按它加载。
+     * 单引号替换为双引号，便于在 Java 字符串中书写 JSON。
+     */
+    static void writeConfig(String json) {
+        ConfigManager.reloadSnapshot();
+        try {
+            Path configFile = useTemporaryConfigDir().resolve("config.json");
+            Files.write(configFile, json.replace('\'', '"').getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ConfigManager.reloadSnapshot();
+    }
+}
@@ -0,0 +1,111 @@
+package com.minpad;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 行为检查：在无显示器的 Linux 上驱动核心组件，断言事件序列、时序、分配和并发一致性。
+ * 不是 JMH 基准，每项检查只运行一次，任一项失败时以非零状态退出。
+ *
+ * <p>{@code mvn -f benchmarks/pom.xml verify} 在打包后运行全部检查，也可以只运行指定的检查：
+ * {@code java -Djava.awt.headless=true -cp benchmarks/target/benchmarks.jar com.minpad.Checks hook-allocation}</p>
+ */
+public final class Checks {
+
+    /**
+     * 一项检查，返回一行结果摘要；不满足预期时抛出 {@link AssertionError}
+     */
+    interface Check {
+        String run() throws Exception;
+    }
+
+    private static final Map<String, Check> CHECKS = new LinkedHashMap<>();
+
+    static {
+        CHECKS.put("hook-allocation", HookAllocationCheck::run);
+        CHECKS.put("input-pipeline", InputPipelineCheck::run);
+        CHECKS.put("key-injection", KeyInjectionCheck::run);
+        CHECKS.put("sequence-timing", SequenceTimingCheck::run);
+        CHECKS.put("repeat-timing", RepeatTimingCheck::run);
+        CHECKS.put("process-launcher", ProcessLauncherCheck::run);
+        CHECKS.put("volume-control", VolumeControlCheck::run);
+        CHECKS.put("foreground-profiles", ForegroundProfileCheck::run);
+        CHECKS.put("action-snapshot", ActionSnapshotCheck::run);
+        CHECKS.put("hook-watchdog", HookWatchdogCheck::run);
+        CHECKS.put("key-metrics", KeyMetricsCheck::run);
+    }
+
+    private Checks() {
+    }
+
+    public static void main(String[] args) {
+        // 必须在首次访问 Log、ConfigManager 之前设置
+        if (System.getProperty("minpad.logConsole") == null) {
+            System.setProperty("minpad.logConsole", "false");
+        }
+        BenchmarkSupport.useTemporaryConfigDir();
+
+        List<String> names = args.length > 0 ? Arrays.asList(args) : new ArrayList<>(CHECKS.keySet());
+        int failed = 0;
+        for (String name : names) {
+            Check check = CHECKS.get(name);
+            if (check == null) {
+                System.out.println("[失败] " + name + ": 没有这项检查，可用: " + CHECKS.keySet());
+                failed++;
+                continue;
+            }
+            long start = System.nanoTime();
+            try {
+                String summary = check.run();
+                System.out.printf(Locale.ROOT, "[通过] %-20s %6d ms  %s%n",
+                    name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), summary);
+            } catch (AssertionError e) {
+                System.out.println("[失败] " + name + ": " + e.getMessage());
+                failed++;
+            } catch (Exception | Error e) {
+                System.out.println("[失败] " + name + ": " + e);
+                e.printStackTrace(System.out);
+                failed++;
+            }
+        }
+        Log.flush();
+        System.out.println(failed == 0 ? "全部 " + names.size() + " 项检查通过" : failed + " 项检查失败");
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    /**
+     * 条件不成立时以格式化的消息失败
+     */
+    static void expect(boolean condition, String format, Object... args) {
+        if (!condition) {
+            throw new AssertionError(String.format(Locale.ROOT, format, args));
+        }
+    }
+
+    static void expectEquals(Object expected, Object actual, String what) {
+        if (!Objects.equals(expected, actual)) {
+            throw new AssertionError(what + ": 期望 " + expected + "，实际 " + actual);
+        }
+    }
+
+    /**
+     * 等待异步结果，超时后失败
+     */
+    static void await(BooleanSupplier condition, long timeout, TimeUnit unit, String what)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() - deadline > 0) {
+                throw new AssertionError(what + "（等待 " + unit.toMillis(timeout) + " ms 超时）");
+            }
+            Thread.sleep(5);
+        }
+    }
+}
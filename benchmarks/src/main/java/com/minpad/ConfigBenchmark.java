@@ -0,0 +1,103 @@
+package com.minpad;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 配置加载与保存，映射数量从 16 到 10000。
+ * 冷启动两项丢弃内存快照后重新读取动作和配置档，分别走 config.json 解析和键位缓存。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Benchmark)
+public class ConfigBenchmark {
+
+    @Param({"16", "256", "1000", "10000"})
+    public int mappings;
+
+    private Map<Integer, ActionExecutor.ActionConfig> actions;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BenchmarkSupport.useTemporaryConfigDir();
+        BenchmarkSupport.silenceConsole();
+        actions = createActions(mappings);
+        ConfigManager.saveConfig(actions);
+        ConfigManager.flush();
+        // 解析一次生成键位缓存
+        ConfigManager.reloadSnapshot();
+        ConfigManager.loadProfiles(ConfigManager.loadConfig());
+        ConfigManager.flush();
+    }
+
+    static Map<Integer, ActionExecutor.ActionConfig> createActions(int count) {
+        Map<Integer, ActionExecutor.ActionConfig> map = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            ActionExecutor.ActionConfig config;
+            switch (i % 3) {
+                case 0:
+                    config = new ActionExecutor.ActionConfig("打开程序 " + i, "notepad.exe");
+                    break;
+                case 1:
+                    config = new ActionExecutor.ActionConfig("打开网页 " + i, "explorer.exe",
+                        "https://example.com/" + i);
+                    break;
+                default:
+                    config = new ActionExecutor.ActionConfig("组合键 " + i, null, null, "ctrl+shift+" + (char) ('a' + i % 26));
+                    break;
+            }
+            map.put(i, config);
+        }
+        return map;
+    }
+
+    @Benchmark
+    public Map<Integer, ActionExecutor.ActionConfig> loadConfig() {
+        return ConfigManager.loadConfig();
+    }
+
+    @Benchmark
+    public void saveConfig() {
+        // 写入默认延后合并，立即写盘才能测到序列化和文件写入
+        ConfigManager.saveConfig(actions);
+        ConfigManager.flush();
+    }
+
+    @Benchmark
+    public List<Profile> coldStartFromJson() {
+        ConfigManager.setKeymapCacheEnabled(false);
+        try {
+            return coldStart();
+        } finally {
+            ConfigManager.setKeymapCacheEnabled(true);
+        }
+    }
+
+    @Benchmark
+    public List<Profile> coldStartFromCache() {
+        return coldStart();
+    }
+
+    private static List<Profile> coldStart() {
+        ConfigManager.reloadSnapshot();
+        return ConfigManager.loadProfiles(ConfigManager.loadConfig());
+    }
+}
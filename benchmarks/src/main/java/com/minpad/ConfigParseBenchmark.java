@@ -0,0 +1,80 @@
+package com.minpad;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 大型 config.json 的解析，条目数从 1000 到 50000（全部是有效的引导序列）。
+ * streamingLoad 在 32MB 堆上限内运行，证明流式读取不需要整棵 JSON 树；treeParse 是旧做法的第一步
+ * （整个文件读成字符串再建树）作为对照。加 -prof gc 查看每次操作的分配字节数。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Benchmark)
+public class ConfigParseBenchmark {
+
+    @Param({"1000", "50000"})
+    public int entries;
+
+    private Path configFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Path dir = BenchmarkSupport.useTemporaryConfigDir();
+        BenchmarkSupport.silenceConsole();
+        ConfigManager.setKeymapCacheEnabled(false);
+        configFile = dir.resolve("config.json");
+        Files.write(configFile, createConfig(entries).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 每个条目绑定到一个 4 键引导序列，互不为前缀，全部能通过冲突检查
+     */
+    static String createConfig(int count) {
+        StringBuilder json = new StringBuilder(count * 80);
+        json.append("{\"themeMode\":\"dark\",\"actions\":{");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append('"').append(i % 16).append(' ').append(i / 16 % 16).append(' ')
+                .append(i / 256 % 16).append(' ').append(i / 4096 % 16).append("\":{\"name\":\"动作 ").append(i)
+                .append("\",\"keyCombination\":\"ctrl+shift+").append((char) ('a' + i % 26)).append("\"}");
+        }
+        return json.append("}}").toString();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx32m"})
+    public Map<Integer, ActionExecutor.ActionConfig> streamingLoad() {
+        ConfigManager.reloadSnapshot();
+        return ConfigManager.loadConfig();
+    }
+
+    @Benchmark
+    public JsonElement treeParse() throws IOException {
+        return JsonParser.parseString(new String(Files.readAllBytes(configFile), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,124 @@
+package com.minpad;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 应用配置档切换：用 {@link SyntheticForegroundSource} 模拟前台窗口变化，核对 {@link ForegroundTracker}
+ * 的解析规则（进程名不区分大小写、可带路径和 .exe，窗口类区分大小写，进程名优先于窗口类，同类按声明顺序），
+ * 替换配置档时按当前前台窗口重新解析、只在生效配置档变化时计入切换次数；
+ * 再从 config.json 加载配置档接入 {@link ActionExecutor}，核对动作、键位和重复策略随前台切换，
+ * 未覆盖的键沿用全局动作，修改全局动作后配置档随之重建。
+ */
+final class ForegroundProfileCheck {
+
+    private static final String CONFIG = "{'actions':{"
+        + "'1':{'name':'复制','keyCombination':'ctrl+c'},"
+        + "'5':{'name':'运行','keyCombination':'shift+f10'},"
+        + "'10':{'name':'增加音量','command':'__volume_up'}"
+        + "},'profiles':[{'name':'IDE','process':['idea64.exe'],'actions':{"
+        + "'5':{'name':'调试','keyCombination':'shift+f9'},"
+        + "'0+1':{'name':'格式化','keyCombination':'ctrl+alt+l'},"
+        + "'10':{'name':'增加音量','command':'__volume_up','repeat':false}"
+        + "}}]}";
+
+    private ForegroundProfileCheck() {
+    }
+
+    static String run() throws Exception {
+        checkResolution();
+        checkExecutor();
+        return "解析规则、重新解析和切换次数正确，动作、键位和重复策略随前台切换";
+    }
+
+    private static void checkResolution() {
+        Profile ide = new Profile("IDE", List.of("C:\\Program Files\\JetBrains\\IDEA64.EXE"),
+            List.of("SunAwtFrame"), Collections.emptyMap());
+        Profile browser = new Profile("浏览器", List.of("chrome", "firefox.exe"), List.of(), Collections.emptyMap());
+        Profile terminal = new Profile("终端", List.of(), List.of("ConsoleWindowClass", "SunAwtFrame"),
+            Collections.emptyMap());
+
+        SyntheticForegroundSource source = new SyntheticForegroundSource();
+        ForegroundTracker tracker = new ForegroundTracker(source);
+        // 启动前的前台窗口在启动时推送
+        source.activate("idea64.exe", null);
+        tracker.start();
+        expectActive(tracker, null, "没有配置档时");
+        tracker.setProfiles(List.of(ide, browser, terminal));
+        expectActive(tracker, ide, "设置配置档后按当前前台窗口重新解析");
+        Checks.expectEquals(1L, tracker.getSwitchCount(), "切换次数");
+
+        source.activate("/usr/lib/jvm/bin/Idea64", "other");
+        expectActive(tracker, ide, "带路径、不带 .exe、大小写不同的进程名");
+        Checks.expectEquals(1L, tracker.getSwitchCount(), "生效配置档未变时的切换次数");
+
+        source.activate("FIREFOX.EXE", "SunAwtFrame");
+        expectActive(tracker, browser, "进程名和窗口类匹配不同配置档（进程名优先）");
+        source.activate("java.exe", "SunAwtFrame");
+        expectActive(tracker, ide, "多个配置档匹配同一窗口类（按声明顺序）");
+        source.activate("cmd.exe", "ConsoleWindowClass");
+        expectActive(tracker, terminal, "只按窗口类匹配");
+        source.activate("cmd.exe", "consolewindowclass");
+        expectActive(tracker, null, "窗口类大小写不同");
+        source.activate(null, null);
+        expectActive(tracker, null, "前台窗口未知");
+        Checks.expectEquals(5L, tracker.getSwitchCount(), "切换次数");
+
+        // 替换配置档：当前窗口在新列表中匹配到排在前面的配置档
+        source.activate("java.exe", "SunAwtFrame");
+        tracker.setProfiles(List.of(terminal, ide));
+        expectActive(tracker, terminal, "调换顺序后按窗口类匹配");
+        tracker.setProfiles(Collections.emptyList());
+        expectActive(tracker, null, "清空配置档后");
+        Checks.expectEquals(8L, tracker.getSwitchCount(), "切换次数");
+
+        // 停止后不再接收前台变化
+        tracker.stop();
+        source.activate("chrome.exe", null);
+        tracker.setProfiles(List.of(browser));
+        expectActive(tracker, null, "停止后的前台变化");
+    }
+
+    private static void checkExecutor() throws Exception {
+        BenchmarkSupport.writeConfig(CONFIG);
+        ActionExecutor executor = new ActionExecutor();
+        Checks.expectEquals(1, executor.getProfiles().size(), "加载的配置档数");
+        Keymap globalKeymap = executor.getKeymap();
+
+        SyntheticForegroundSource source = new SyntheticForegroundSource();
+        ForegroundTracker tracker = new ForegroundTracker(source);
+        source.activate("notepad.exe", "Notepad");
+        executor.setForegroundTracker(tracker);
+        tracker.start();
+        Checks.expect(executor.getActiveProfile() == null, "记事本前台时不应有生效的配置档");
+        Checks.expectEquals(RepeatPolicy.VOLUME, executor.getRepeatPolicy(10), "全局音量键的重复策略");
+        Checks.expect(executor.getKeymap() == globalKeymap, "记事本前台时应使用全局键位");
+        Checks.expectEquals(0, globalKeymap.getBindingCount(), "全局键位的层绑定数");
+
+        source.activate("C:\\JetBrains\\bin\\idea64.exe", "SunAwtFrame");
+        Profile ide = executor.getActiveProfile();
+        Checks.expect(ide != null && ide.getName().equals("IDE"), "IDEA 前台时应生效 IDE 配置档，实际 %s", ide);
+        Checks.expectEquals("调试", ide.getAction(5).getName(), "配置档覆盖的动作");
+        Checks.expectEquals("复制", ide.getAction(1).getName(), "配置档未覆盖的键沿用全局动作");
+        Checks.expectEquals("运行", executor.getAction(5).getName(), "全局动作不受配置档影响");
+        Checks.expectEquals(RepeatPolicy.NONE, executor.getRepeatPolicy(10), "配置档关闭重复后音量键的重复策略");
+        Checks.expectEquals(1, executor.getKeymap().getBindingCount(), "配置档键位的层绑定数");
+
+        // 修改全局动作：配置档重建后未覆盖的键随之更新，覆盖的键不变
+        executor.setAction(1, new ActionExecutor.ActionConfig("剪切", null, null, "ctrl+x"));
+        Checks.expectEquals("剪切", ide.getAction(1).getName(), "修改全局动作后配置档未覆盖的键");
+        Checks.expectEquals("调试", ide.getAction(5).getName(), "修改全局动作后配置档覆盖的键");
+
+        source.activate("notepad.exe", "Notepad");
+        Checks.expect(executor.getActiveProfile() == null, "切回记事本后不应有生效的配置档");
+        Checks.expectEquals(RepeatPolicy.VOLUME, executor.getRepeatPolicy(10), "切回后音量键的重复策略");
+        Checks.expectEquals(2L, tracker.getSwitchCount(), "执行器的切换次数");
+        tracker.stop();
+    }
+
+    private static void expectActive(ForegroundTracker tracker, Profile expected, String when) {
+        Profile actual = tracker.getActiveProfile();
+        Checks.expect(actual == expected, "%s生效的配置档：期望 %s，实际 %s", when,
+            expected != null ? expected : "全局", actual != null ? actual : "全局");
+    }
+}
@@ -0,0 +1,79 @@
+package com.minpad;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 钩子回调路径不分配内存：按生产中的组合（{@link HookWatchdog} → {@link KeyRouter} → {@link ActionDispatcher}，
+ * 消费线程和长按重复线程在运行）在当前线程投递按键，用 ThreadMXBean.getThreadAllocatedBytes
+ * 统计本线程分配的字节数。预热后按事件平均仍有分配即失败。
+ *
+ * <p>按键包括数字键盘各键、会启动长按重复的 + / -、数字键盘 Enter 和直接放行的普通键。
+ * Win32 回调本身（从 KBDLLHOOKSTRUCT 读取字段、CallNextHookEx）只能在 Windows 上运行，不在检查范围内。</p>
+ */
+final class HookAllocationCheck {
+
+    private static final int[] VK_CODES = {
+        0x60, 0x61, 0x62, 0x63, 0x64, 0x65, 0x66, 0x67, 0x68, 0x69,
+        KeyRouter.VK_MULTIPLY, KeyRouter.VK_ADD, KeyRouter.VK_SUBTRACT, KeyRouter.VK_DECIMAL, KeyRouter.VK_DIVIDE,
+        KeyRouter.VK_RETURN, KeyRouter.VK_RETURN, 0x41, 0x20
+    };
+    private static final int[] FLAGS = {
+        0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+        0, 0, 0, 0, 0,
+        KeyRouter.LLKHF_EXTENDED, 0, 0, 0
+    };
+
+    private static final int WARMUP_PRESSES = 200_000;
+    private static final int MEASURED_PRESSES = 1_000_000;
+    // JIT 去优化等一次性事件可能带来几百字节，与事件数无关；哪怕每几千个事件分配一次也会超出
+    private static final double TOLERANCE_BYTES_PER_EVENT = 0.001;
+
+    private HookAllocationCheck() {
+    }
+
+    static String run() {
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Checks.expect(threads.isThreadAllocatedMemorySupported(), "当前 JVM 不支持统计线程分配字节数");
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        AtomicLong handled = new AtomicLong();
+        ActionDispatcher dispatcher = new ActionDispatcher((actionIndex, vkCode, flags, timestamp) ->
+            handled.incrementAndGet());
+        RepeatEngine repeatEngine = new RepeatEngine(RepeatEngine.PolicySource.DEFAULT);
+        KeyRouter router = new KeyRouter(dispatcher, repeatEngine, () -> Keymap.BASE);
+        HookWatchdog watchdog = new HookWatchdog(router, HookWatchdog.KeyStateProbe.NONE);
+        dispatcher.start();
+        try {
+            press(watchdog, WARMUP_PRESSES);
+
+            long threadId = Thread.currentThread().getId();
+            long before = threads.getThreadAllocatedBytes(threadId);
+            int events = press(watchdog, MEASURED_PRESSES);
+            long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+            Checks.expect(handled.get() + dispatcher.getDroppedCount() > 0, "没有按键到达分发器");
+            double perEvent = (double) allocated / events;
+            Checks.expect(perEvent <= TOLERANCE_BYTES_PER_EVENT, "钩子回调路径分配了 %d 字节（%d 个事件，%.4f 字节/事件）",
+                allocated, events, perEvent);
+            return String.format(Locale.ROOT, "%d 个事件共分配 %d 字节（%.5f 字节/事件）", events, allocated, perEvent);
+        } finally {
+            router.shutdown();
+            dispatcher.stop();
+        }
+    }
+
+    /**
+     * @return 投递的事件数（按下和抬起分别计数）
+     */
+    private static int press(InputSource.Sink sink, int presses) {
+        for (int i = 0; i < presses; i++) {
+            int k = i % VK_CODES.length;
+            sink.onKeyEvent(VK_CODES[k], FLAGS[k], true);
+            sink.onKeyEvent(VK_CODES[k], FLAGS[k], false);
+        }
+        return presses * 2;
+    }
+}
@@ -0,0 +1,304 @@
+package com.minpad;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 钩子看门狗：用 {@link VirtualClock} 驱动不启动线程的 {@link HookWatchdog}，{@link HookWatchdog.KeyStateProbe}
+ * 返回模拟的系统按键状态，由调用方调用 {@link HookWatchdog#check()}，核对回调超时、卡在回调中、
+ * 钩子失效（系统显示按下却收不到事件）时重装钩子并清空按下状态，两次重装至少间隔
+ * {@link HookWatchdog#MIN_REINSTALL_INTERVAL_NANOS}，以及抬起丢失的键由检查或再次按下时补发抬起。
+ * 输入线程上的任务在 {@link Harness#runTasks()} 时才执行，与真实的消息循环一样晚于检查。
+ */
+final class HookWatchdogCheck {
+
+    private static final int VK_NUMPAD1 = 0x61;
+    private static final int VK_NUMPAD2 = 0x62;
+    private static final int VK_NUMPAD3 = 0x63;
+    private static final int VK_NUMPAD5 = 0x65;
+    private static final int VK_NUMPAD6 = 0x66;
+    private static final long OVERRUN_MS = TimeUnit.NANOSECONDS.toMillis(HookWatchdog.DEFAULT_OVERRUN_NANOS);
+    private static final long STUCK_MS = TimeUnit.NANOSECONDS.toMillis(HookWatchdog.STUCK_NANOS);
+    private static final long GRACE_MS = TimeUnit.NANOSECONDS.toMillis(HookWatchdog.LOST_GRACE_NANOS);
+    private static final long THROTTLE_MS = TimeUnit.NANOSECONDS.toMillis(HookWatchdog.MIN_REINSTALL_INTERVAL_NANOS);
+
+    private HookWatchdogCheck() {
+    }
+
+    static String run() {
+        checkOverrunAndThrottle();
+        checkHungCallback();
+        checkLostHook();
+        checkStuckKey();
+        return "回调超时、卡在回调中、钩子失效、重装间隔和抬起丢失的处理一致";
+    }
+
+    /** 回调超时后重装钩子，重装间隔内的再次超时推迟到间隔结束 */
+    private static void checkOverrunAndThrottle() {
+        Harness h = new Harness();
+        h.press(0x60);
+        h.release(0x60);
+        h.check();
+        expectCounts(h, "正常按键", 0, 0, 0, 0);
+        Checks.expectEquals(2L, h.watchdog.getCallbackCount(), "回调次数");
+
+        // 回调耗时恰好等于阈值不算超时
+        h.slowNanos = HookWatchdog.DEFAULT_OVERRUN_NANOS;
+        h.press(VK_NUMPAD1);
+        h.release(VK_NUMPAD1);
+        h.check();
+        expectCounts(h, "回调耗时等于阈值", 0, 0, 0, 0);
+
+        // 按下时超时：下一次检查重装钩子，输入线程随后清空按下状态
+        h.slowNanos = HookWatchdog.DEFAULT_OVERRUN_NANOS + 1;
+        h.press(VK_NUMPAD1);
+        Checks.expectEquals(1L, h.watchdog.getOverrunCount(), "超时的回调数");
+        h.check();
+        long reinstalledAt = h.clock.nanoTime();
+        Checks.expectEquals(1, h.reinstalls, "超时后重装钩子的次数");
+        h.events.clear();
+        h.runTasks();
+        Checks.expectEquals(List.of("停止"), h.events, "重装后输入线程上的处理");
+        expectCounts(h, "超时重装后", 1, 0, 1, 1);
+        Checks.expect(h.watchdog.getMaxCallbackMicros() > OVERRUN_MS * 1000, "最长回调耗时应超过阈值");
+
+        // 重装后 1 秒再次超时：间隔内只记录原因，不重装
+        h.clock.advance(1, TimeUnit.SECONDS);
+        h.press(VK_NUMPAD2);
+        h.check();
+        Checks.expectEquals(1, h.reinstalls, "重装间隔内的重装次数");
+        h.slowNanos = 0;
+        h.release(VK_NUMPAD2);
+        h.clock.advance(reinstalledAt + HookWatchdog.MIN_REINSTALL_INTERVAL_NANOS - 1 - h.clock.nanoTime(),
+            TimeUnit.NANOSECONDS);
+        h.check();
+        Checks.expectEquals(1, h.reinstalls, "重装间隔结束前 1ns 的重装次数");
+        // 推迟的原因保留到间隔结束，不重复计数
+        h.clock.advance(1, TimeUnit.NANOSECONDS);
+        h.check();
+        Checks.expectEquals(2, h.reinstalls, "重装间隔结束时的重装次数");
+        h.runTasks();
+        expectCounts(h, "推迟的重装后", 2, 0, 2, 1);
+        h.clock.advance(1, TimeUnit.MINUTES);
+        h.check();
+        Checks.expectEquals(2, h.reinstalls, "没有新原因时的重装次数");
+    }
+
+    /** 卡在回调中：检查时即重装，回调返回后不重复计数 */
+    private static void checkHungCallback() {
+        Harness h = new Harness();
+        h.onCallback = () -> {
+            h.clock.advance(OVERRUN_MS + 50, TimeUnit.MILLISECONDS);
+            h.check();
+            Checks.expectEquals(1L, h.watchdog.getOverrunCount(), "卡在回调中时的超时次数");
+            Checks.expectEquals(1, h.reinstalls, "卡在回调中时的重装次数");
+            h.clock.advance(1, TimeUnit.SECONDS);
+        };
+        h.press(VK_NUMPAD3);
+        h.onCallback = null;
+        h.check();
+        expectCounts(h, "卡住的回调返回后", 1, 0, 1, 0);
+        Checks.expectEquals(1, h.reinstalls, "卡住的回调返回后的重装次数");
+        h.runTasks();
+        Checks.expectEquals(List.of("63↓", "停止"), h.events, "卡住的回调");
+        Checks.expectEquals(1L, h.watchdog.getStuckKeyCount(), "重装时清空的按下键数");
+    }
+
+    /** 系统显示按下却收不到事件：超过宽限期判定失效；系统状态过时时不误判 */
+    private static void checkLostHook() {
+        Harness h = new Harness();
+        h.systemDown[VK_NUMPAD5] = true;
+        h.check();
+        h.clock.advance(GRACE_MS - 1, TimeUnit.MILLISECONDS);
+        h.check();
+        expectCounts(h, "宽限期内", 0, 0, 0, 0);
+        h.clock.advance(1, TimeUnit.MILLISECONDS);
+        h.check();
+        expectCounts(h, "超过宽限期", 0, 1, 1, 0);
+        Checks.expectEquals(1, h.reinstalls, "钩子失效后重装钩子的次数");
+        h.runTasks();
+
+        // 重装前就按下的键：新钩子吞掉其抬起，系统状态一直显示按下，不再判定失效
+        h.clock.advance(1, TimeUnit.MINUTES);
+        h.check();
+        expectCounts(h, "重装前按下的键", 0, 1, 1, 0);
+        // 系统状态变为抬起后重新检测
+        h.systemDown[VK_NUMPAD5] = false;
+        h.check();
+        h.systemDown[VK_NUMPAD5] = true;
+        h.check();
+        h.clock.advance(GRACE_MS, TimeUnit.MILLISECONDS);
+        h.check();
+        expectCounts(h, "再次收不到事件", 0, 2, 2, 0);
+        h.systemDown[VK_NUMPAD5] = false;
+        h.clock.advance(1, TimeUnit.MINUTES);
+        h.check();
+
+        // 钩子收到了按下和抬起，但系统状态仍显示按下（抬起被吞掉）：不是失效
+        h.press(VK_NUMPAD6);
+        h.systemDown[VK_NUMPAD6] = true;
+        h.check();
+        h.clock.advance(10, TimeUnit.MILLISECONDS);
+        h.release(VK_NUMPAD6);
+        h.clock.advance(1, TimeUnit.SECONDS);
+        h.check();
+        h.clock.advance(1, TimeUnit.MINUTES);
+        h.check();
+        expectCounts(h, "系统状态过时", 0, 2, 2, 0);
+
+        // 失效与重装间隔：间隔内检测到的失效在间隔结束时重装
+        h.systemDown[VK_NUMPAD6] = false;
+        h.check();
+        h.systemDown[0x60] = true;
+        h.check();
+        h.clock.advance(GRACE_MS, TimeUnit.MILLISECONDS);
+        h.check();
+        Checks.expectEquals(3, h.reinstalls, "间隔外再次失效后的重装次数");
+        h.systemDown[0x60] = false;
+        h.check();
+        h.systemDown[VK_NUMPAD1] = true;
+        h.check();
+        h.clock.advance(GRACE_MS, TimeUnit.MILLISECONDS);
+        h.check();
+        Checks.expectEquals(4L, h.watchdog.getLostHookCount(), "间隔内失效的检测次数");
+        Checks.expectEquals(3, h.reinstalls, "间隔内失效的重装次数");
+        h.clock.advance(THROTTLE_MS - GRACE_MS, TimeUnit.MILLISECONDS);
+        h.check();
+        Checks.expectEquals(4, h.reinstalls, "间隔结束后的重装次数");
+    }
+
+    /** 抬起丢失：检查时补发，或该键下次按下时先补发 */
+    private static void checkStuckKey() {
+        Harness h = new Harness();
+        // 按住时系统自动重复持续产生按下事件，不算卡住
+        h.press(VK_NUMPAD2);
+        for (int i = 0; i < 10; i++) {
+            h.clock.advance(STUCK_MS / 2, TimeUnit.MILLISECONDS);
+            h.press(VK_NUMPAD2);
+            h.check();
+            h.runTasks();
+        }
+        h.release(VK_NUMPAD2);
+        expectCounts(h, "自动重复", 0, 0, 0, 0);
+        h.events.clear();
+
+        // 恰好 STUCK_NANOS 时不补发，超过后由检查交给输入线程补发
+        h.press(VK_NUMPAD2);
+        h.clock.advance(STUCK_MS, TimeUnit.MILLISECONDS);
+        h.check();
+        h.runTasks();
+        Checks.expectEquals(0L, h.watchdog.getStuckKeyCount(), "恰好到期时补发的抬起数");
+        h.clock.advance(1, TimeUnit.MILLISECONDS);
+        h.check();
+        Checks.expectEquals(List.of("62↓"), h.events, "输入线程执行前的事件");
+        h.runTasks();
+        Checks.expectEquals(List.of("62↓", "62↑"), h.events, "检查补发的抬起");
+        Checks.expectEquals(1L, h.watchdog.getStuckKeyCount(), "检查补发的抬起数");
+        // 抬起随后到达：只是转交，不再补发
+        h.release(VK_NUMPAD2);
+        h.clock.advance(1, TimeUnit.MINUTES);
+        h.check();
+        h.runTasks();
+        Checks.expectEquals(1L, h.watchdog.getStuckKeyCount(), "已补发后的抬起数");
+        h.events.clear();
+
+        // 检查交给输入线程后、执行前抬起到达：重新确认后不补发
+        h.press(VK_NUMPAD2);
+        h.clock.advance(STUCK_MS + 1, TimeUnit.MILLISECONDS);
+        h.check();
+        h.release(VK_NUMPAD2);
+        h.runTasks();
+        Checks.expectEquals(List.of("62↓", "62↑"), h.events, "重新确认时的事件");
+        Checks.expectEquals(1L, h.watchdog.getStuckKeyCount(), "重新确认后的补发数");
+        h.events.clear();
+
+        // 之后又按过其他键：自动重复已停止，检查无法判断；该键再次按下时先补发抬起
+        h.press(VK_NUMPAD2);
+        h.press(VK_NUMPAD3);
+        h.release(VK_NUMPAD3);
+        h.clock.advance(1, TimeUnit.MINUTES);
+        h.check();
+        h.runTasks();
+        Checks.expectEquals(1L, h.watchdog.getStuckKeyCount(), "按过其他键后检查补发的抬起数");
+        h.press(VK_NUMPAD2);
+        h.release(VK_NUMPAD2);
+        Checks.expectEquals(List.of("62↓", "63↓", "63↑", "62↑", "62↓", "62↑"), h.events, "再次按下时补发的抬起");
+        expectCounts(h, "抬起丢失", 0, 0, 0, 2);
+    }
+
+    private static void expectCounts(Harness h, String when, long overruns, long lostHooks, long reinstalls,
+                                     long stuckKeys) {
+        HookWatchdog watchdog = h.watchdog;
+        Checks.expectEquals(overruns, watchdog.getOverrunCount(), when + "的超时次数");
+        Checks.expectEquals(lostHooks, watchdog.getLostHookCount(), when + "的钩子失效次数");
+        Checks.expectEquals(reinstalls, watchdog.getReinstallCount(), when + "的重装次数");
+        Checks.expectEquals(stuckKeys, watchdog.getStuckKeyCount(), when + "补发的抬起数");
+    }
+
+    /**
+     * 看门狗及其替身：路由器记录转交的事件，钩子记录重装并暂存输入线程任务，系统按键状态可直接设置
+     */
+    private static final class Harness implements InputSource.Sink, HookWatchdog.Target {
+        final VirtualClock clock = new VirtualClock();
+        final boolean[] systemDown = new boolean[256];
+        final HookWatchdog watchdog = new HookWatchdog(this, clock, vkCode -> systemDown[vkCode],
+            HookWatchdog.DEFAULT_OVERRUN_NANOS);
+        final List<String> events = new ArrayList<>();
+        final List<Runnable> tasks = new ArrayList<>();
+        // 每次回调中时钟前进的时长，模拟耗时的回调
+        long slowNanos;
+        // 回调中执行，模拟看门狗线程在回调期间检查
+        Runnable onCallback;
+        int reinstalls;
+
+        Harness() {
+            watchdog.start(this);
+        }
+
+        void press(int vkCode) {
+            watchdog.onKeyEvent(vkCode, 0, true);
+        }
+
+        void release(int vkCode) {
+            watchdog.onKeyEvent(vkCode, 0, false);
+        }
+
+        void check() {
+            watchdog.check();
+        }
+
+        void runTasks() {
+            List<Runnable> pending = new ArrayList<>(tasks);
+            tasks.clear();
+            pending.forEach(Runnable::run);
+        }
+
+        @Override
+        public boolean onKeyEvent(int vkCode, int flags, boolean keyDown) {
+            events.add(Integer.toHexString(vkCode) + (keyDown ? "↓" : "↑"));
+            if (slowNanos > 0) {
+                clock.advance(slowNanos, TimeUnit.NANOSECONDS);
+            }
+            if (onCallback != null) {
+                onCallback.run();
+            }
+            return true;
+        }
+
+        @Override
+        public void onSourceStopped() {
+            events.add("停止");
+        }
+
+        @Override
+        public void reinstall() {
+            reinstalls++;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.minpad;
+
+/**
+ * 内存中的音量后端
+ * 不接触系统音量，记录读取和设置次数，供行为检查在非 Windows 平台验证步长、合并和截断逻辑。
+ */
+public class InMemoryVolumeBackend implements VolumeBackend {
+
+    private float level;
+    private int setCount;
+    private int getCount;
+
+    public InMemoryVolumeBackend() {
+        this(0.5f);
+    }
+
+    public InMemoryVolumeBackend(float initialLevel) {
+        this.level = VolumeBackend.clamp(initialLevel);
+    }
+
+    @Override
+    public String getName() {
+        return "内存";
+    }
+
+    @Override
+    public synchronized float getLevel() {
+        getCount++;
+        return level;
+    }
+
+    @Override
+    public synchronized void setLevel(float level) {
+        setCount++;
+        this.level = VolumeBackend.clamp(level);
+    }
+
+    /** setLevel 的调用次数 */
+    public synchronized int getSetCount() {
+        return setCount;
+    }
+
+    /** getLevel 的调用次数 */
+    public synchronized int getGetCount() {
+        return getCount;
+    }
+}
@@ -0,0 +1,106 @@
+package com.minpad;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按 {@link Main} 的方式组装按键→动作链路（不含 Win32 钩子和托盘）：
+ * 输入源 → {@link HookWatchdog} → {@link KeyRouter} → {@link ActionDispatcher} → {@link ActionExecutor}，
+ * 带 {@link KeyMetrics} 统计和长按重复。最外层另把所有按键的分发延迟（路由器取时间戳 → 消费线程开始处理）
+ * 记入一个直方图。
+ *
+ * <p>{@link #CONFIG} 给 16 个键都绑定了在 Linux 上没有副作用的动作：组合键和宏经空注入器发送，
+ * 音量在没有系统后端时退回媒体键，同样由空注入器吞掉。</p>
+ */
+final class InputPipeline {
+
+    /** 16 个数字键盘键的虚拟键码，Enter 需要 {@link KeyRouter#LLKHF_EXTENDED} */
+    static final int[] VK_CODES = {
+        0x60, 0x61, 0x62, 0x63, 0x64, 0x65, 0x66, 0x67, 0x68, 0x69,
+        KeyRouter.VK_ADD, KeyRouter.VK_SUBTRACT, KeyRouter.VK_MULTIPLY, KeyRouter.VK_DIVIDE, KeyRouter.VK_DECIMAL,
+        KeyRouter.VK_RETURN
+    };
+
+    static final String CONFIG = "{'actions':{"
+        + "'0':{'name':'签名','macro':[{'text':'Best regards'},{'delay':1},{'chord':'ctrl+s'}]},"
+        + "'1':{'name':'复制','keyCombination':'ctrl+c'},"
+        + "'2':{'name':'粘贴','keyCombination':'ctrl+v'},"
+        + "'3':{'name':'撤销','keyCombination':'ctrl+z'},"
+        + "'4':{'name':'重做','keyCombination':'ctrl+shift+z'},"
+        + "'5':{'name':'运行','keyCombination':'shift+f10'},"
+        + "'6':{'name':'切换窗口','keyCombination':'alt+tab'},"
+        + "'7':{'name':'查找','keyCombination':'ctrl+f'},"
+        + "'8':{'name':'保存','keyCombination':'ctrl+s'},"
+        + "'9':{'name':'全选','keyCombination':'ctrl+a'},"
+        + "'10':{'name':'增加音量','command':'__volume_up'},"
+        + "'11':{'name':'减少音量','command':'__volume_down'},"
+        + "'12':{'name':'新标签','keyCombination':'ctrl+t'},"
+        + "'13':{'name':'关闭标签','keyCombination':'ctrl+w'},"
+        + "'14':{'name':'播放/暂停','command':'__play_pause'},"
+        + "'15':{'name':'确认','keyCombination':'ctrl+enter'}"
+        + "}}";
+
+    final ActionExecutor executor;
+    final KeyMetrics keyMetrics = new KeyMetrics();
+    final ActionDispatcher dispatcher;
+    final KeyRouter router;
+    final HookWatchdog watchdog;
+    private final LatencyHistogram dispatchLatency = new LatencyHistogram();
+
+    /**
+     * 读取当前配置目录中的 config.json 组装链路并启动分发线程，分发队列使用默认容量
+     */
+    InputPipeline() {
+        this(ActionDispatcher.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity 分发队列容量，必须是 2 的幂
+     */
+    InputPipeline(int capacity) {
+        executor = new ActionExecutor();
+        executor.setKeyMetrics(keyMetrics);
+        RepeatEngine repeatEngine = new RepeatEngine(executor::getRepeatPolicy);
+        ActionDispatcher.Handler handler = keyMetrics.instrument(repeatEngine.handler(executor::executeAction));
+        dispatcher = new ActionDispatcher(capacity, (actionIndex, vkCode, flags, timestamp) -> {
+            if ((flags & ActionDispatcher.FLAG_REPEAT) == 0) {
+                dispatchLatency.record(System.nanoTime() - timestamp);
+            }
+            handler.onKeyEvent(actionIndex, vkCode, flags, timestamp);
+        });
+        router = new KeyRouter(dispatcher, repeatEngine, executor::getKeymap);
+        // 不启动看门狗线程，只保留回调计时这一层
+        watchdog = new HookWatchdog(router, HookWatchdog.KeyStateProbe.NONE);
+        dispatcher.start();
+    }
+
+    /** 输入源应投递到的入口 */
+    InputSource.Sink sink() {
+        return watchdog;
+    }
+
+    /**
+     * 等待分发线程处理完已发布的事件
+     *
+     * @return false 表示超时
+     */
+    boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (dispatcher.getProcessedCount() != dispatcher.getPublishedCount()) {
+            if (System.nanoTime() - deadline > 0) {
+                return false;
+            }
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    /** 所有按键合并的分发延迟，只在 {@link #awaitIdle} 之后读取 */
+    LatencyHistogram getDispatchLatency() {
+        return dispatchLatency;
+    }
+
+    void shutdown() {
+        router.shutdown();
+        dispatcher.stop();
+    }
+}
@@ -0,0 +1,148 @@
+package com.minpad;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 输入链路基准：用 {@link SyntheticInputSource} 和 {@link TraceReplayInputSource} 驱动按 Main 组装的
+ * 路由器 → 分发器 → {@link ActionExecutor} 链路（见 {@link InputPipeline}），报告吞吐和分发延迟。
+ * 不是 JMH 基准：延迟取决于消费线程的唤醒，需要真实的按键节奏，而不是紧凑循环。
+ *
+ * <ul>
+ *   <li>吞吐：合成源不限速连续投递，按源线程投递完毕、分发线程处理完毕计时。
+ *       eventsPerSec 是输入侧的速率，actionsPerSec 是执行的动作数；队列满时多出的按键被丢弃</li>
+ *   <li>延迟：回放按键轨迹，按原始间隔（可用 --speed 加速）投递，消费线程大部分时间在等待。
+ *       未指定 --trace 时生成一段模拟打字节奏的轨迹（按住 40~120ms，间隔 60~250ms）</li>
+ * </ul>
+ *
+ * <p>用法：{@code java -Djava.awt.headless=true -cp benchmarks/target/benchmarks.jar com.minpad.InputPipelineBenchmark
+ * [--presses 200000] [--trace-presses 400] [--speed 4] [--trace 轨迹文件]}</p>
+ */
+public final class InputPipelineBenchmark {
+
+    private static final long TIMEOUT_SECONDS = 600;
+
+    private InputPipelineBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int presses = 200_000;
+        int tracePresses = 400;
+        double speed = 4;
+        Path trace = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--presses":
+                    presses = Integer.parseInt(args[++i]);
+                    break;
+                case "--trace-presses":
+                    tracePresses = Integer.parseInt(args[++i]);
+                    break;
+                case "--speed":
+                    speed = Double.parseDouble(args[++i]);
+                    break;
+                case "--trace":
+                    trace = Path.of(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("未知参数: " + args[i]);
+            }
+        }
+
+        if (System.getProperty("minpad.logConsole") == null) {
+            System.setProperty("minpad.logConsole", "false");
+        }
+        Path home = BenchmarkSupport.useTemporaryConfigDir();
+        BenchmarkSupport.writeConfig(InputPipeline.CONFIG);
+        InputPipeline pipeline = new InputPipeline();
+
+        // 预热：让路由、分发和各类动作都完成编译
+        runSynthetic(pipeline, Math.max(presses / 4, 10_000));
+        pipeline.getDispatchLatency().reset();
+        long triggersBefore = pipeline.keyMetrics.getTotalTriggers();
+        long droppedBefore = pipeline.dispatcher.getDroppedCount();
+
+        long elapsed = runSynthetic(pipeline, presses);
+        long events = presses * 2L;
+        long triggers = pipeline.keyMetrics.getTotalTriggers() - triggersBefore;
+        System.out.printf(Locale.ROOT,
+            "synthetic  presses=%d events=%d elapsedMs=%.1f eventsPerSec=%.0f actionsPerSec=%.0f triggers=%d dropped=%d%n",
+            presses, events, elapsed / 1e6, events * 1e9 / elapsed, triggers * 1e9 / elapsed,
+            triggers, pipeline.dispatcher.getDroppedCount() - droppedBefore);
+        printLatency("synthetic", pipeline.getDispatchLatency());
+
+        if (trace == null) {
+            trace = home.resolve("typing.trace");
+            writeTypingTrace(trace, tracePresses, 42);
+        }
+        TraceReplayInputSource replay = TraceReplayInputSource.load(trace, speed);
+        pipeline.getDispatchLatency().reset();
+        long start = System.nanoTime();
+        replay.start(pipeline.sink());
+        if (!replay.awaitCompletion(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                || !pipeline.awaitIdle(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("轨迹回放超时");
+        }
+        elapsed = System.nanoTime() - start;
+        System.out.printf(Locale.ROOT, "trace      events=%d replayed=%d speed=%s traceMs=%.0f elapsedMs=%.0f%n",
+            replay.getEventCount(), replay.getReplayedCount(), speed == 0 ? "max" : String.valueOf(speed),
+            replay.getDurationMicros() / 1e3, elapsed / 1e6);
+        printLatency("trace", pipeline.getDispatchLatency());
+
+        pipeline.shutdown();
+        Log.flush();
+        System.out.printf(Locale.ROOT, "failures=%d；延迟为路由器取时间戳到消费线程开始处理，按 2 的幂分桶，百分位取桶上界%n",
+            pipeline.keyMetrics.getTotalFailures());
+        System.exit(0);
+    }
+
+    /**
+     * 不限速投递 presses 次按键，等待分发线程处理完毕
+     *
+     * @return 耗时（纳秒）
+     */
+    static long runSynthetic(InputPipeline pipeline, int presses) throws InterruptedException {
+        SyntheticInputSource source = new SyntheticInputSource(InputPipeline.VK_CODES, presses, 0, 0, presses);
+        long start = System.nanoTime();
+        source.start(pipeline.sink());
+        if (!source.awaitCompletion(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                || !pipeline.awaitIdle(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("合成输入超时");
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * 生成模拟打字节奏的按键轨迹，格式见 {@link TraceReplayInputSource}
+     */
+    static void writeTypingTrace(Path trace, int presses, long seed) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        long micros = 0;
+        try (Writer out = Files.newBufferedWriter(trace, StandardCharsets.UTF_8)) {
+            out.write("# 时间(微秒)  d/u  虚拟键码  [flags]\n");
+            for (int i = 0; i < presses; i++) {
+                int vkCode = InputPipeline.VK_CODES[random.nextInt(InputPipeline.VK_CODES.length)];
+                String flags = vkCode == KeyRouter.VK_RETURN ? " 0x01" : "";
+                out.write(micros + " d 0x" + Integer.toHexString(vkCode) + flags + "\n");
+                micros += random.nextInt(40_000, 120_000);
+                out.write(micros + " u 0x" + Integer.toHexString(vkCode) + flags + "\n");
+                micros += random.nextInt(60_000, 250_000);
+            }
+        }
+    }
+
+    private static void printLatency(String name, LatencyHistogram histogram) {
+        System.out.printf(Locale.ROOT, "%-10s dispatch count=%d p50us=%.1f p99us=%.1f p999us=%.1f maxUs=%.1f%n",
+            name, histogram.getCount(),
+            histogram.percentileNanos(0.50) / 1e3,
+            histogram.percentileNanos(0.99) / 1e3,
+            histogram.percentileNanos(0.999) / 1e3,
+            histogram.getMaxNanos() / 1e3);
+    }
+}
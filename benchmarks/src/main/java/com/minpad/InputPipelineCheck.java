@@ -0,0 +1,97 @@
+package com.minpad;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 输入链路冒烟检查：合成输入和轨迹回放经 {@link InputPipeline} 到达 {@link ActionExecutor}，
+ * 每个键的触发次数等于输入源投递到该键的按下次数，不丢弃、没有执行失败，输入源投递的事件数与预期一致。
+ * <ul>
+ *   <li>不限速的合成输入：分发队列容量不小于整批事件数，队列满也不应丢弃</li>
+ *   <li>按打字节奏加速回放的轨迹：使用默认队列容量的新链路，有节奏的输入不应丢弃</li>
+ * </ul>
+ */
+final class InputPipelineCheck {
+
+    private static final int PRESSES = 20_000;
+    // 按下和抬起都可能进入分发队列，取不小于整批事件数的 2 的幂
+    private static final int FLOOD_CAPACITY = Integer.highestOneBit(PRESSES * 2 - 1) << 1;
+    private static final int TRACE_PRESSES = 200;
+    // 约 47 秒的轨迹按 50 倍速回放，按键间隔仍有 2 毫秒以上
+    private static final double TRACE_SPEED = 50;
+    private static final long TIMEOUT_SECONDS = 30;
+
+    private InputPipelineCheck() {
+    }
+
+    static String run() throws Exception {
+        BenchmarkSupport.writeConfig(InputPipeline.CONFIG);
+        long elapsed;
+        InputPipeline flood = new InputPipeline(FLOOD_CAPACITY);
+        try {
+            Checks.expectEquals(16, flood.executor.getBindings().getActions().size(), "配置中的动作数");
+            long[] presses = new long[Keymap.KEY_COUNT];
+            SyntheticInputSource source = new SyntheticInputSource(InputPipeline.VK_CODES, PRESSES, 0, 0, PRESSES);
+            long start = System.nanoTime();
+            source.start(counting(flood.sink(), presses));
+            Checks.expect(source.awaitCompletion(TIMEOUT_SECONDS, TimeUnit.SECONDS), "合成输入未结束");
+            Checks.expect(flood.awaitIdle(TIMEOUT_SECONDS, TimeUnit.SECONDS), "分发线程未处理完合成输入");
+            elapsed = System.nanoTime() - start;
+            expectAllTriggered(flood, presses, PRESSES, "合成输入");
+        } finally {
+            flood.shutdown();
+        }
+
+        Path trace = Files.createTempFile(BenchmarkSupport.useTemporaryConfigDir(), "check", ".trace");
+        InputPipelineBenchmark.writeTypingTrace(trace, TRACE_PRESSES, 7);
+        BenchmarkSupport.writeConfig(InputPipeline.CONFIG);
+        InputPipeline paced = new InputPipeline();
+        TraceReplayInputSource replay = TraceReplayInputSource.load(trace, TRACE_SPEED);
+        long replayMillis;
+        try {
+            Checks.expectEquals(TRACE_PRESSES * 2, replay.getEventCount(), "轨迹事件数");
+            long[] presses = new long[Keymap.KEY_COUNT];
+            long start = System.nanoTime();
+            replay.start(counting(paced.sink(), presses));
+            Checks.expect(replay.awaitCompletion(TIMEOUT_SECONDS, TimeUnit.SECONDS), "轨迹回放未结束");
+            Checks.expect(paced.awaitIdle(TIMEOUT_SECONDS, TimeUnit.SECONDS), "分发线程未处理完轨迹事件");
+            replayMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            Checks.expectEquals(TRACE_PRESSES * 2, replay.getReplayedCount(), "已回放事件数");
+            expectAllTriggered(paced, presses, TRACE_PRESSES, "轨迹回放");
+        } finally {
+            paced.shutdown();
+        }
+        return String.format("合成 %d 次按键 %.0f 次/秒；轨迹 %d 个事件 %.0f 倍速回放 %d ms；均无丢弃",
+            PRESSES, PRESSES * 2e9 / elapsed, replay.getReplayedCount(), TRACE_SPEED, replayMillis);
+    }
+
+    /**
+     * 在链路入口按键统计输入源投递的按下次数
+     */
+    private static InputSource.Sink counting(InputSource.Sink sink, long[] presses) {
+        return (vkCode, flags, keyDown) -> {
+            int key = KeyRouter.mapVkToAction(vkCode, flags);
+            if (keyDown && key >= 0) {
+                presses[key]++;
+            }
+            return sink.onKeyEvent(vkCode, flags, keyDown);
+        };
+    }
+
+    private static void expectAllTriggered(InputPipeline pipeline, long[] presses, long total, String what) {
+        long sum = 0;
+        for (long count : presses) {
+            sum += count;
+        }
+        Checks.expectEquals(total, sum, what + "投递的按下次数");
+        Checks.expectEquals(0L, pipeline.dispatcher.getDroppedCount(), what + "的丢弃数");
+        for (int key = 0; key < Keymap.KEY_COUNT; key++) {
+            String name = Keymap.keyName(key);
+            Checks.expectEquals(presses[key], pipeline.keyMetrics.getTriggerCounts().get(name),
+                what + "中键 " + name + " 的触发次数");
+        }
+        Checks.expectEquals(0L, pipeline.keyMetrics.getTotalRepeats(), what + "的长按重复次数");
+        Checks.expectEquals(0L, pipeline.keyMetrics.getTotalFailures(), what + "的执行失败数");
+    }
+}
@@ -0,0 +1,76 @@
+package com.minpad;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 组合键解析、编译与执行。执行使用空的按键注入实现，只测量解析和节奏控制本身的开销。
+ */
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class KeyCombinationBenchmark {
+
+    @State(Scope.Thread)
+    public static class ParseState {
+        @Param({"a", "f12", "comma", "pagedown"})
+        public String key;
+
+        KeyCombinationController controller;
+
+        @Setup
+        public void setup() {
+            controller = createController();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ExecuteState {
+        @Param({"ctrl+c", "ctrl+shift+s", "ctrl+alt+shift+win+f5"})
+        public String combination;
+
+        KeyCombinationController controller;
+
+        @Setup
+        public void setup() {
+            BenchmarkSupport.silenceConsole();
+            controller = createController();
+        }
+    }
+
+    private static KeyCombinationController createController() {
+        return new KeyCombinationController(KeyInjector.NOOP);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int parseKeyString(ParseState state) {
+        return state.controller.parseKeyString(state.key);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public KeyChord compileKeyChord(ExecuteState state) {
+        return KeyChord.compile(state.combination);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void executeKeyCombination(ExecuteState state) {
+        state.controller.executeKeyCombination(state.combination);
+    }
+}
@@ -0,0 +1,65 @@
+package com.minpad;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按键注入的事件序列：用 {@link RecordingKeyInjector} 记录组合键、分步组合键、文本和媒体键
+ * 提交给系统的事件和批次，核对顺序、批次划分、分步间隔，以及中途取消时已按下的键全部抬起。
+ */
+final class KeyInjectionCheck {
+
+    private static final long PACING_MILLIS = 5;
+
+    private KeyInjectionCheck() {
+    }
+
+    static String run() throws Exception {
+        RecordingKeyInjector injector = new RecordingKeyInjector();
+        KeySequenceScheduler scheduler = new KeySequenceScheduler(injector);
+        try {
+            // 默认整个组合键一批提交：修饰键按下 → 主键按下抬起 → 修饰键反向抬起
+            new KeyCombinationController(injector).executeKeyCombination("ctrl+shift+s");
+            expectRecorded(injector, "11↓ 10↓ 53↓ 53↑ 10↑ 11↑", "原子组合键");
+
+            new KeyCombinationController(injector).executeKeyCombination("ctrl+nosuchkey");
+            expectRecorded(injector, "", "无效组合键");
+
+            // 分步提交：四步各成一批，相邻两步至少间隔 keyPacingMs（定时线程刚启动、首步迟到时也是如此）
+            new KeyCombinationController(injector, PACING_MILLIS, scheduler).executeKeyCombination("ctrl+shift+s");
+            Checks.await(() -> injector.getEventCount() == 6, 5, TimeUnit.SECONDS, "分步组合键未发送完毕: " + injector);
+            Checks.expectEquals("11↓ 10↓ | 53↓ | 53↑ | 10↑ 11↑", injector.toString(), "分步组合键");
+            for (int i = 2; i < 5; i++) {
+                long gap = injector.getTimestamp(i) - injector.getTimestamp(i - 1);
+                Checks.expect(gap >= TimeUnit.MILLISECONDS.toNanos(PACING_MILLIS),
+                    "第 %d 步距上一步 %d us，小于分步间隔 %d ms", injector.getBatch(i), gap / 1000, PACING_MILLIS);
+            }
+            injector.clear();
+
+            // 修饰键按下后取消：已按下的键（按键码顺序）在一批中抬起，主键不再发送
+            KeySequenceScheduler.Handle handle = scheduler.schedule(
+                KeySequence.ofChord(KeyChord.compile("ctrl+alt+delete"), TimeUnit.SECONDS.toMicros(10)));
+            Checks.await(() -> injector.getEventCount() == 2, 5, TimeUnit.SECONDS, "修饰键未按下: " + injector);
+            handle.cancel();
+            Checks.await(handle::isDone, 5, TimeUnit.SECONDS, "取消后序列未结束");
+            Checks.expect(handle.isCancelled(), "句柄未标记为已取消");
+            expectRecorded(injector, "11↓ 12↓ | 11↑ 12↑", "取消的分步组合键");
+
+            // 文本按字符发送，换行按回车键
+            KeySequenceScheduler.Handle text = scheduler.schedule(new KeySequence.Builder().text("Hi\n", 0).build());
+            Checks.await(text::isDone, 5, TimeUnit.SECONDS, "文本未发送完毕");
+            expectRecorded(injector, "'H'↓ 'H'↑ 'i'↓ 'i'↑ D↓ D↑", "文本");
+
+            // 媒体键按下抬起一批提交
+            new AudioVolumeController(injector, null, 2).playPause();
+            expectRecorded(injector, "B3↓ B3↑", "播放/暂停");
+            return "组合键、分步组合键、取消、文本和媒体键的事件序列一致";
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    private static void expectRecorded(RecordingKeyInjector injector, String expected, String what) {
+        Checks.expectEquals(expected, injector.toString(), what);
+        injector.clear();
+    }
+}
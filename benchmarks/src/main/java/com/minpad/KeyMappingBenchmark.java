@@ -0,0 +1,74 @@
+package com.minpad;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 虚拟键码 → 动作索引映射，以及完整的按键路由路径（映射 + 按下位图 + 发布到分发器）。
+ * routeKeyPressWatched 在前面加上 {@link HookWatchdog} 的回调计时和按键状态记录，两者之差即看门狗在钩子回调中的开销。
+ * 配合 -prof gc 可查看每次事件的分配字节数（gc.alloc.rate.norm）。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class KeyMappingBenchmark {
+
+    // 数字键盘、主键盘 Enter、数字键盘 Enter、普通字母
+    private static final int[] VK_CODES = {0x60, 0x65, 0x6B, 0x0D, 0x0D, 0x41, 0x6F, 0x20};
+    private static final int[] FLAGS = {0, 0, 0, 0, 0x01, 0, 0, 0};
+
+    private int cursor;
+    private ActionDispatcher dispatcher;
+    private KeyRouter router;
+    private HookWatchdog watchdog;
+
+    @Setup
+    public void setup() {
+        dispatcher = new ActionDispatcher(1024, (actionIndex, vkCode, flags, timestamp) -> {
+        });
+        router = new KeyRouter(dispatcher);
+        watchdog = new HookWatchdog(router, NanoClock.SYSTEM, HookWatchdog.KeyStateProbe.NONE,
+            HookWatchdog.DEFAULT_OVERRUN_NANOS);
+    }
+
+    @Benchmark
+    public int mapVkToAction() {
+        int i = cursor++ & (VK_CODES.length - 1);
+        return KeyRouter.mapVkToAction(VK_CODES[i], FLAGS[i]);
+    }
+
+    @Benchmark
+    public int routeKeyPress() {
+        return press(router);
+    }
+
+    @Benchmark
+    public int routeKeyPressWatched() {
+        return press(watchdog);
+    }
+
+    private int press(InputSource.Sink sink) {
+        int i = cursor++ & (VK_CODES.length - 1);
+        int vkCode = VK_CODES[i];
+        // + / - 会启动长按循环，不计入此基准
+        if (vkCode == KeyRouter.VK_ADD) {
+            vkCode = KeyRouter.VK_MULTIPLY;
+        }
+        sink.onKeyEvent(vkCode, FLAGS[i], true);
+        sink.onKeyEvent(vkCode, FLAGS[i], false);
+        return dispatcher.drain();
+    }
+}
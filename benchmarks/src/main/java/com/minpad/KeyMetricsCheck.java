@@ -0,0 +1,62 @@
+package com.minpad;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按键统计的异步动作：经 {@link KeyMetrics#instrument} 包装的处理器执行动作，核对启动不存在的程序计入该键的失败，
+ * 启动进程、宏和分步组合键在完成时记录完成耗时（宏和分步组合键不短于其中的延迟），
+ * 同步完成的音量键不记录完成耗时。
+ */
+final class KeyMetricsCheck {
+
+    private static final int LAUNCH_KEY = 1;
+    private static final int MACRO_KEY = 2;
+    private static final int CHORD_KEY = 3;
+    private static final int VOLUME_KEY = 10;
+    private static final long MACRO_DELAY_MS = 50;
+    private static final long PACING_MS = 20;
+    private static final long TIMEOUT_SECONDS = 20;
+
+    private static final String CONFIG = "{'keyPacingMs':" + PACING_MS + ",'actions':{"
+        + "'1':{'name':'缺失的程序','command':'/nonexistent/minpad-no-such-program'},"
+        + "'2':{'name':'签名','macro':[{'text':'ok'},{'delay':" + MACRO_DELAY_MS + "},{'chord':'ctrl+s'}]},"
+        + "'3':{'name':'复制','keyCombination':'ctrl+c'},"
+        + "'10':{'name':'增加音量','command':'__volume_up'}"
+        + "}}";
+
+    private KeyMetricsCheck() {
+    }
+
+    static String run() throws Exception {
+        BenchmarkSupport.writeConfig(CONFIG);
+        ActionExecutor executor = new ActionExecutor();
+        KeyMetrics metrics = new KeyMetrics();
+        executor.setKeyMetrics(metrics);
+        ActionDispatcher.Handler handler = metrics.instrument((actionIndex, vkCode, flags, timestamp) ->
+            executor.executeAction(actionIndex));
+
+        for (int key : new int[] {LAUNCH_KEY, MACRO_KEY, CHORD_KEY, VOLUME_KEY}) {
+            handler.onKeyEvent(key, InputPipeline.VK_CODES[key], 0, System.nanoTime());
+        }
+        for (int key : new int[] {LAUNCH_KEY, MACRO_KEY, CHORD_KEY}) {
+            LatencyHistogram completion = metrics.getCompletionLatency(key);
+            Checks.await(() -> completion.getCount() == 1, TIMEOUT_SECONDS, TimeUnit.SECONDS,
+                "键 " + Keymap.keyName(key) + " 的动作应记录一次完成耗时");
+        }
+
+        Checks.expectEquals(1L, metrics.getFailureCounts().get(Keymap.keyName(LAUNCH_KEY)), "启动失败计入该键的失败次数");
+        Checks.expectEquals(1L, metrics.getTotalFailures(), "失败总数");
+        Checks.expectEquals(4L, metrics.getTotalTriggers(), "触发总数");
+        long macroMs = TimeUnit.NANOSECONDS.toMillis(metrics.getCompletionLatency(MACRO_KEY).getMaxNanos());
+        Checks.expect(macroMs >= MACRO_DELAY_MS, "宏的完成耗时 %d 毫秒，应不短于其中的 %d 毫秒延迟", macroMs, MACRO_DELAY_MS);
+        long chordMs = TimeUnit.NANOSECONDS.toMillis(metrics.getCompletionLatency(CHORD_KEY).getMaxNanos());
+        Checks.expect(chordMs >= 3 * PACING_MS, "分步组合键的完成耗时 %d 毫秒，应不短于三个 %d 毫秒间隔",
+            chordMs, PACING_MS);
+        Checks.expectEquals(0L, metrics.getCompletionLatency(VOLUME_KEY).getCount(), "同步完成的音量键的完成耗时记录数");
+        for (int key : new int[] {LAUNCH_KEY, MACRO_KEY, CHORD_KEY, VOLUME_KEY}) {
+            Checks.expectEquals(1L, metrics.getExecutionLatency(key).getCount(),
+                "键 " + Keymap.keyName(key) + " 的执行耗时记录数");
+        }
+        return "启动失败计入该键，宏 " + macroMs + " ms、分步组合键 " + chordMs + " ms 在完成时记录";
+    }
+}
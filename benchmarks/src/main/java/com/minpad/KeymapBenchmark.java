@@ -0,0 +1,68 @@
+package com.minpad;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 层和引导序列的按键解析：每次操作按下并松开一个完整的 ". a b c" 序列（4 次按键），
+ * 耗时应与绑定数量无关。配合 -prof gc 可确认解析路径不分配内存。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class KeymapBenchmark {
+
+    private static final int VK_DECIMAL = 0x6E;
+
+    @Param({"1", "100", "1000"})
+    public int sequences;
+
+    private int cursor;
+    private ActionDispatcher dispatcher;
+    private KeyRouter router;
+
+    @Setup
+    public void setup() {
+        Keymap.Builder builder = new Keymap.Builder();
+        for (int i = 0; i < sequences; i++) {
+            builder.sequence(new int[]{15, i / 100, i / 10 % 10, i % 10}, Keymap.SEQUENCE_SLOT_BASE + i);
+        }
+        // 按住 0 的层
+        for (int key = 1; key < 10; key++) {
+            builder.layer(0, key);
+        }
+        Keymap keymap = builder.build();
+        dispatcher = new ActionDispatcher(1024, (actionIndex, vkCode, flags, timestamp) -> {
+        });
+        router = new KeyRouter(dispatcher, new RepeatEngine(index -> RepeatPolicy.NONE), () -> keymap);
+    }
+
+    @Benchmark
+    public int routeSequence() {
+        int i = cursor++ % sequences;
+        tap(VK_DECIMAL);
+        tap(KeyRouter.VK_NUMPAD0 + i / 100);
+        tap(KeyRouter.VK_NUMPAD0 + i / 10 % 10);
+        tap(KeyRouter.VK_NUMPAD0 + i % 10);
+        return dispatcher.drain();
+    }
+
+    private void tap(int vkCode) {
+        router.onKeyEvent(vkCode, 0, true);
+        router.onKeyEvent(vkCode, 0, false);
+    }
+}
@@ -0,0 +1,94 @@
+package com.minpad;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进程启动器：用 sh 启动真实的子进程，核对大量输出的子进程不会因管道写满而卡住（丢弃或写入日志文件），
+ * 标准输入已关闭，运行中的子进程数在退出后回落，启动成功和失败都记入 {@link ProcessLauncher.LaunchStats}。
+ * 没有 /bin/sh 的系统上跳过。
+ */
+final class ProcessLauncherCheck {
+
+    // 远大于管道缓冲区（Linux 上 64KB），没有重定向时子进程会阻塞在写输出上
+    private static final int OUTPUT_BYTES = 4_000_000;
+    private static final String CHATTY = "yes minpad | head -c " + OUTPUT_BYTES + "; echo done >&2";
+    private static final int SLEEPERS = 3;
+    private static final long TIMEOUT_SECONDS = 20;
+
+    private ProcessLauncherCheck() {
+    }
+
+    static String run() throws Exception {
+        if (!new File("/bin/sh").canExecute()) {
+            return "跳过：没有 /bin/sh";
+        }
+
+        ProcessLauncher launcher = new ProcessLauncher();
+        Path outputLog = Files.createTempFile(BenchmarkSupport.useTemporaryConfigDir(), "process", ".log");
+        ProcessLauncher loggingLauncher = new ProcessLauncher(outputLog.toFile());
+        try {
+            expectExits(launcher.launch("chatty", "/bin/sh", "-c", CHATTY), "丢弃输出的子进程");
+            expectExits(loggingLauncher.launch("chatty", "/bin/sh", "-c", CHATTY), "输出写入日志的子进程");
+            String log = new String(Files.readAllBytes(outputLog), StandardCharsets.US_ASCII);
+            Checks.expectEquals(OUTPUT_BYTES + "done\n".length(), log.length(), "日志文件的长度（stdout 和 stderr 合并）");
+            Checks.expect(log.startsWith("minpad\n") && log.endsWith("done\n"), "日志文件应依次包含 stdout 和 stderr 的输出");
+
+            // 标准输入已关闭：cat 立即读到 EOF 退出
+            expectExits(launcher.launch("cat", "/bin/sh", "-c", "cat"), "读取标准输入的子进程");
+
+            @SuppressWarnings("unchecked")
+            CompletableFuture<Process>[] sleepers = new CompletableFuture[SLEEPERS];
+            for (int i = 0; i < SLEEPERS; i++) {
+                sleepers[i] = launcher.launch("sleep", "/bin/sh", "-c", "sleep 1");
+            }
+            CompletableFuture.allOf(sleepers).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            Checks.expectEquals(SLEEPERS, launcher.getRunningCount(), "运行中的子进程数");
+            Checks.await(() -> launcher.getRunningCount() == 0, TIMEOUT_SECONDS, TimeUnit.SECONDS,
+                "子进程退出后运行数应回落到 0");
+
+            // 宏中的启动步骤按程序名统计
+            launcher.launch(new String[] {"/bin/sh", "-c", "exit 3"});
+            CompletableFuture<Process> missing = launcher.launch("missing", "/nonexistent/minpad-no-such-program");
+            try {
+                missing.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                throw new AssertionError("启动不存在的程序应失败");
+            } catch (ExecutionException expected) {
+                // 进程创建失败
+            }
+            Checks.await(() -> launcher.getStats("/bin/sh") != null
+                    && launcher.getStats("/bin/sh").getLaunchCount() == 1 && launcher.getRunningCount() == 0,
+                TIMEOUT_SECONDS, TimeUnit.SECONDS, "宏启动的子进程未退出");
+
+            expectStats(launcher, "chatty", 1, 0);
+            expectStats(launcher, "cat", 1, 0);
+            expectStats(launcher, "sleep", SLEEPERS, 0);
+            expectStats(launcher, "/bin/sh", 1, 0);
+            expectStats(launcher, "missing", 0, 1);
+            expectStats(loggingLauncher, "chatty", 1, 0);
+            Checks.expect(launcher.getStats("sleep").getMeanSpawnNanos() > 0, "应记录进程创建耗时");
+            return "输出 " + OUTPUT_BYTES / 1_000_000 + "MB 的子进程正常退出；sleep " + launcher.getStats("sleep");
+        } finally {
+            launcher.shutdown();
+            loggingLauncher.shutdown();
+        }
+    }
+
+    private static void expectExits(CompletableFuture<Process> future, String what) throws Exception {
+        Process process = future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        Checks.expect(process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS), "%s在 %d 秒内没有退出", what, TIMEOUT_SECONDS);
+        Checks.expectEquals(0, process.exitValue(), what + "的退出码");
+    }
+
+    private static void expectStats(ProcessLauncher launcher, String name, long launches, long failures) {
+        ProcessLauncher.LaunchStats stats = launcher.getStats(name);
+        Checks.expect(stats != null, "没有 %s 的启动统计", name);
+        Checks.expectEquals(launches, stats.getLaunchCount(), name + " 的启动次数");
+        Checks.expectEquals(failures, stats.getFailureCount(), name + " 的失败次数");
+    }
+}
@@ -0,0 +1,107 @@
+package com.minpad;
+
+import java.util.Arrays;
+
+/**
+ * 记录型按键注入器
+ * 不向系统发送任何事件，只按顺序记录每个事件、所属批次和提交时间，
+ * 用于在 Linux 上核对组合键、宏的事件序列与节奏。线程安全。
+ */
+public class RecordingKeyInjector implements KeyInjector {
+
+    private int[] events = new int[64];
+    private int[] batches = new int[64];
+    private long[] timestamps = new long[64];
+    private int size;
+    private int batchCount;
+
+    @Override
+    public synchronized void send(int[] source, int offset, int length) {
+        if (length <= 0) {
+            return;
+        }
+        ensureCapacity(size + length);
+        long now = System.nanoTime();
+        for (int i = 0; i < length; i++) {
+            events[size] = source[offset + i];
+            batches[size] = batchCount;
+            timestamps[size] = now;
+            size++;
+        }
+        batchCount++;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= events.length) {
+            return;
+        }
+        int newLength = Math.max(required, events.length * 2);
+        events = Arrays.copyOf(events, newLength);
+        batches = Arrays.copyOf(batches, newLength);
+        timestamps = Arrays.copyOf(timestamps, newLength);
+    }
+
+    /** 已记录的事件数 */
+    public synchronized int getEventCount() {
+        return size;
+    }
+
+    /** 已提交的批次数 */
+    public synchronized int getBatchCount() {
+        return batchCount;
+    }
+
+    /** 第 i 个事件的编码（见 {@link KeyInjector}） */
+    public synchronized int getEvent(int i) {
+        checkIndex(i);
+        return events[i];
+    }
+
+    /** 第 i 个事件所属的批次序号，从 0 开始 */
+    public synchronized int getBatch(int i) {
+        checkIndex(i);
+        return batches[i];
+    }
+
+    /** 第 i 个事件的提交时间（System.nanoTime） */
+    public synchronized long getTimestamp(int i) {
+        checkIndex(i);
+        return timestamps[i];
+    }
+
+    /** 所有事件编码的副本 */
+    public synchronized int[] getEvents() {
+        return Arrays.copyOf(events, size);
+    }
+
+    public synchronized void clear() {
+        size = 0;
+        batchCount = 0;
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("事件下标越界: " + i);
+        }
+    }
+
+    /**
+     * 可读的事件序列，批次之间用 | 分隔，例如 "11↓ 10↓ 53↓ 53↑ 10↑ 11↑"，Unicode 字符显示为 'x'↓
+     */
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(batches[i] != batches[i - 1] ? " | " : " ");
+            }
+            if (KeyInjector.isUnicode(events[i])) {
+                sb.append('\'').append((char) KeyInjector.codeOf(events[i])).append('\'');
+            } else {
+                sb.append(Integer.toHexString(KeyInjector.codeOf(events[i])).toUpperCase());
+            }
+            sb.append(KeyInjector.isKeyUp(events[i]) ? '↑' : '↓');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,92 @@
+package com.minpad;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 长按重复的时序：用 {@link VirtualClock} 驱动不启动线程的 {@link RepeatEngine}，经 {@link KeyRouter} 按下和抬起，
+ * 在调用线程上处理分发队列，核对开始延时、加速到最小间隔、动作跟不上时合并步数、
+ * 定时线程被耽搁时不补发，以及抬起后已入队的重复不再生效。
+ */
+final class RepeatTimingCheck {
+
+    private static final int KEY = 10;
+    // 300ms 后开始，间隔 100 → 50 → 25 → 20（最小）ms
+    private static final RepeatPolicy POLICY = new RepeatPolicy(300, 100, 0.5, 20);
+
+    private RepeatTimingCheck() {
+    }
+
+    static String run() {
+        VirtualClock clock = new VirtualClock();
+        RepeatEngine repeatEngine = new RepeatEngine(actionIndex -> actionIndex == KEY ? POLICY : RepeatPolicy.NONE, clock);
+        List<Integer> steps = new ArrayList<>();
+        // 不启动消费线程，由 drain() 在当前线程处理
+        ActionDispatcher dispatcher = new ActionDispatcher(64, repeatEngine.handler((actionIndex, count) -> {
+            Checks.expectEquals(KEY, actionIndex, "执行的动作");
+            steps.add(count);
+        }));
+        KeyRouter router = new KeyRouter(dispatcher, repeatEngine, () -> Keymap.BASE);
+
+        router.onKeyEvent(KeyRouter.VK_ADD, 0, true);
+        dispatcher.drain();
+        Checks.expectEquals(List.of(1), steps, "按下时执行的步数");
+        Checks.expectEquals(1, repeatEngine.getActiveCount(), "正在重复的键数");
+
+        // 系统自动重复的按下事件被路由器屏蔽，不会重新开始计时
+        clock.advance(299, TimeUnit.MILLISECONDS);
+        router.onKeyEvent(KeyRouter.VK_ADD, 0, true);
+        Checks.expectEquals(0, repeatEngine.runDue(), "开始延时前的重复");
+        clock.advance(1, TimeUnit.MILLISECONDS);
+        expectFired(repeatEngine, dispatcher, steps, "300ms");
+
+        clock.advance(99, TimeUnit.MILLISECONDS);
+        Checks.expectEquals(0, repeatEngine.runDue(), "第一个间隔前的重复");
+        clock.advance(1, TimeUnit.MILLISECONDS);
+        expectFired(repeatEngine, dispatcher, steps, "400ms");
+
+        // 动作跟不上：450、475、495ms 的三次重复只入队一个事件，处理时合并为 3 步
+        for (long interval : new long[] {50, 25, 20}) {
+            clock.advance(interval, TimeUnit.MILLISECONDS);
+            Checks.expectEquals(1, repeatEngine.runDue(), "加速后的重复");
+        }
+        Checks.expectEquals(1, dispatcher.drain(), "合并后入队的重复事件数");
+        Checks.expectEquals(3, steps.remove(steps.size() - 1), "合并的步数");
+
+        // 最小间隔 20ms
+        clock.advance(20, TimeUnit.MILLISECONDS);
+        expectFired(repeatEngine, dispatcher, steps, "515ms");
+
+        // 耽搁 1 秒：只重复一次，从现在起重新计时
+        clock.advance(1, TimeUnit.SECONDS);
+        expectFired(repeatEngine, dispatcher, steps, "耽搁后");
+        clock.advance(19, TimeUnit.MILLISECONDS);
+        Checks.expectEquals(0, repeatEngine.runDue(), "耽搁后不足一个间隔的重复");
+        clock.advance(1, TimeUnit.MILLISECONDS);
+
+        // 已入队但尚未处理的重复在抬起后取到 0 步，不再执行
+        Checks.expectEquals(1, repeatEngine.runDue(), "抬起前的重复");
+        router.onKeyEvent(KeyRouter.VK_ADD, 0, false);
+        Checks.expectEquals(1, dispatcher.drain(), "抬起时队列中的重复事件数");
+        Checks.expectEquals(0, repeatEngine.getActiveCount(), "抬起后正在重复的键数");
+        clock.advance(1, TimeUnit.SECONDS);
+        Checks.expectEquals(0, repeatEngine.runDue(), "抬起后的重复");
+
+        // 不重复的键
+        router.onKeyEvent(KeyRouter.VK_NUMPAD0 + 5, 0, true);
+        clock.advance(1, TimeUnit.SECONDS);
+        Checks.expectEquals(0, repeatEngine.runDue(), "未配置重复的键");
+        router.onKeyEvent(KeyRouter.VK_NUMPAD0 + 5, 0, false);
+
+        return "开始延时、加速、合并、耽搁和抬起的时序一致";
+    }
+
+    /** 到期一次重复，入队一个事件，处理时执行 1 步 */
+    private static void expectFired(RepeatEngine repeatEngine, ActionDispatcher dispatcher, List<Integer> steps,
+                                    String when) {
+        Checks.expectEquals(1, repeatEngine.runDue(), when + "的重复次数");
+        Checks.expectEquals(1, dispatcher.drain(), when + "入队的重复事件数");
+        Checks.expectEquals(1, steps.remove(steps.size() - 1), when + "执行的步数");
+    }
+}
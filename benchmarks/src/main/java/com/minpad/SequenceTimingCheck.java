@@ -0,0 +1,95 @@
+package com.minpad;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按键序列调度器的时序：用 {@link VirtualClock} 驱动不启动线程的 {@link KeySequenceScheduler}，
+ * 逐毫秒推进时钟，核对每一步在截止时间恰好执行、不提前，启动命令与前后按键保持顺序，
+ * 取消时在下一次推进中抬起已按下的键，调度迟到时不压缩后续步间隔，大量并发序列互不干扰。
+ */
+final class SequenceTimingCheck {
+
+    private static final int VK_CONTROL = 0x11;
+    private static final int VK_A = 0x41;
+    private static final int CONCURRENT_SEQUENCES = 200;
+
+    private SequenceTimingCheck() {
+    }
+
+    static String run() {
+        VirtualClock clock = new VirtualClock();
+        RecordingKeyInjector injector = new RecordingKeyInjector();
+        KeySequenceScheduler scheduler = new KeySequenceScheduler(injector, clock);
+        List<String> launched = new ArrayList<>();
+        scheduler.setLauncher(command -> launched.add(injector.getEventCount() + ":" + String.join(" ", command)));
+
+        // 按下 → 10ms → 点击 → 5ms → 抬起并启动命令
+        KeySequenceScheduler.Handle macro = scheduler.schedule(new KeySequence.Builder()
+            .down(VK_CONTROL).delay(10_000).tap(VK_A).delay(5_000).up(VK_CONTROL).launch("notepad.exe", "todo.txt")
+            .build());
+        Checks.expectEquals(1, scheduler.runDue(), "开始时推进的步数");
+        expectRecorded(injector, "11↓", "第一步");
+        clock.advance(9_999, TimeUnit.MICROSECONDS);
+        Checks.expectEquals(0, scheduler.runDue(), "截止时间前推进的步数");
+        clock.advance(1, TimeUnit.MICROSECONDS);
+        Checks.expectEquals(1, scheduler.runDue(), "10ms 时推进的步数");
+        expectRecorded(injector, "11↓ | 41↓ 41↑", "第二步");
+        clock.advance(5, TimeUnit.MILLISECONDS);
+        scheduler.runDue();
+        expectRecorded(injector, "11↓ | 41↓ 41↑ | 11↑", "第三步");
+        Checks.expectEquals(List.of("4:notepad.exe todo.txt"), launched, "启动的命令（前缀为此前已发送的事件数）");
+        Checks.expect(macro.isDone() && !macro.isCancelled(), "宏应已正常结束");
+        Checks.expectEquals(0, scheduler.getActiveCount(), "结束后的活动序列数");
+        injector.clear();
+
+        // 延时中取消：下一次推进时抬起已按下的键，不再执行后续步骤
+        KeySequenceScheduler.Handle held = scheduler.schedule(new KeySequence.Builder()
+            .down(VK_CONTROL).down(VK_A).delay(1_000_000).up(VK_A).up(VK_CONTROL).build());
+        scheduler.runDue();
+        clock.advance(300, TimeUnit.MILLISECONDS);
+        held.cancel();
+        Checks.expect(!held.isDone(), "取消后应在下一次推进时才完成");
+        scheduler.runDue();
+        Checks.expect(held.isDone() && held.isCancelled(), "取消的序列应已完成");
+        expectRecorded(injector, "11↓ 41↓ | 11↑ 41↑", "取消的序列");
+        clock.advance(1, TimeUnit.SECONDS);
+        Checks.expectEquals(0, scheduler.runDue(), "取消后推进的步数");
+        injector.clear();
+
+        // 调度迟到 50ms：第一步立即执行，之后的步骤从实际执行时间起算，不连发
+        KeySequenceScheduler.Handle chord = scheduler.schedule(
+            KeySequence.ofChord(KeyChord.compile("ctrl+a"), TimeUnit.MILLISECONDS.toMicros(10)));
+        clock.advance(50, TimeUnit.MILLISECONDS);
+        Checks.expectEquals(1, scheduler.runDue(), "迟到时推进的步数");
+        expectRecorded(injector, "11↓", "迟到的第一步");
+        clock.advance(9, TimeUnit.MILLISECONDS);
+        Checks.expectEquals(0, scheduler.runDue(), "迟到后不足一个间隔时推进的步数");
+        for (int i = 0; i < 3; i++) {
+            clock.advance(10, TimeUnit.MILLISECONDS);
+            scheduler.runDue();
+        }
+        Checks.expect(chord.isDone(), "分步组合键应已结束");
+        expectRecorded(injector, "11↓ | 41↓ | 41↑ | 11↑", "迟到的分步组合键");
+        injector.clear();
+
+        // 大量并发序列：第 i 个序列按下后等待 i ms 再抬起，每毫秒恰好抬起一个
+        for (int i = 0; i < CONCURRENT_SEQUENCES; i++) {
+            scheduler.schedule(new KeySequence.Builder().down(0x30 + i % 10).delay(i * 1000L).up(0x30 + i % 10).build());
+        }
+        Checks.expectEquals(CONCURRENT_SEQUENCES, scheduler.runDue(), "同时开始的序列数");
+        Checks.expectEquals(CONCURRENT_SEQUENCES + 1, injector.getEventCount(), "开始时的事件数（延时为 0 的序列已抬起）");
+        for (int ms = 1; ms < CONCURRENT_SEQUENCES; ms++) {
+            clock.advance(1, TimeUnit.MILLISECONDS);
+            Checks.expectEquals(1, scheduler.runDue(), "第 " + ms + " ms 推进的步数");
+        }
+        Checks.expectEquals(0, scheduler.getActiveCount(), "全部结束后的活动序列数");
+        Checks.expectEquals(CONCURRENT_SEQUENCES * 2, injector.getEventCount(), "并发序列的事件总数");
+        return CONCURRENT_SEQUENCES + " 个并发序列和宏、取消、迟到调度的时序一致";
+    }
+
+    private static void expectRecorded(RecordingKeyInjector injector, String expected, String what) {
+        Checks.expectEquals(expected, injector.toString(), what);
+    }
+}
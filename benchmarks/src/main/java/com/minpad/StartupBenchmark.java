@@ -0,0 +1,194 @@
+package com.minpad;
+
+import java.awt.GraphicsEnvironment;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动基准：反复以启动探针模式（-Dminpad.startupProbe=true）启动 MinPad 进程，
+ * 统计从创建进程到输入钩子就绪的时间、启动期间消耗的 CPU 时间和常驻内存。不是 JMH 基准，每次测量都是一个新的 JVM。
+ *
+ * <p>按构建产物自动选择对比项：</p>
+ * <ul>
+ *   <li>jar：当前 JDK 运行 target/minpad.jar</li>
+ *   <li>jar+cds：同上并加载 target/minpad.jsa（mvn package -Pappcds 生成）</li>
+ *   <li>app-image：jpackage 应用镜像中的 jlink 运行时（mvn package -Pjlink），运行时自带按启动类列表生成的 CDS 归档</li>
+ * </ul>
+ *
+ * <p>用法：{@code java -cp benchmarks/target/benchmarks.jar com.minpad.StartupBenchmark [--runs 10] [--root .]}</p>
+ *
+ * <p>不在 Windows 上时钩子无法安装，就绪时间是钩子安装尝试结束的时间；RSS 只在 Linux 上可读。</p>
+ */
+public final class StartupBenchmark {
+
+    private static final String REPORT_PREFIX = "minpad-startup";
+    private static final long RUN_TIMEOUT_SECONDS = 60;
+
+    private final List<String> command;
+    private final String name;
+
+    private StartupBenchmark(String name, List<String> command) {
+        this.name = name;
+        this.command = command;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int runs = 10;
+        Path root = Path.of(".");
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--runs":
+                    runs = Integer.parseInt(args[++i]);
+                    break;
+                case "--root":
+                    root = Path.of(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("未知参数: " + args[i]);
+            }
+        }
+
+        Path target = root.resolve("target").toAbsolutePath().normalize();
+        Path home = Files.createTempDirectory("minpad-startup");
+        List<StartupBenchmark> variants = variants(target, home);
+        if (variants.isEmpty()) {
+            System.err.println("找不到 " + target.resolve("minpad.jar") + "，请先在根目录执行 mvn package");
+            System.exit(1);
+        }
+
+        // 第一次运行预热文件缓存并生成配置文件，不计入结果；之后各对比项轮流运行，减少机器负载漂移的影响
+        Map<StartupBenchmark, List<Map<String, String>>> reports = new LinkedHashMap<>();
+        for (StartupBenchmark variant : variants) {
+            variant.runOnce();
+            reports.put(variant, new ArrayList<>());
+        }
+        for (int i = 0; i < runs; i++) {
+            for (StartupBenchmark variant : variants) {
+                reports.get(variant).add(variant.runOnce());
+            }
+        }
+
+        System.out.printf(Locale.ROOT, "%-16s %4s %10s %10s %10s %10s %10s %10s%n",
+            "variant", "runs", "processMs", "hookMs", "startupMs", "cpuMs", "rssMB", "peakMB");
+        for (StartupBenchmark variant : variants) {
+            List<Map<String, String>> results = reports.get(variant);
+            System.out.printf(Locale.ROOT, "%-16s %4d %10.0f %10.0f %10.0f %10.0f %10.1f %10.1f%n",
+                variant.name, runs,
+                median(results, "processMs"),
+                median(results, "hookReadyMs"),
+                median(results, "startupMs"),
+                median(results, "cpuMs"),
+                median(results, "rssKb") / 1024.0,
+                median(results, "peakRssKb") / 1024.0);
+        }
+        if (!"true".equals(reports.get(variants.get(0)).get(0).get("installed"))) {
+            System.out.println("钩子未安装（不在 Windows 上），hookMs 为安装尝试结束的时间");
+        }
+        System.out.println("时间为中位数；hookMs/startupMs 从 JVM 启动算起，processMs 从创建进程算起；"
+            + "cpuMs 为启动完成时进程消耗的 CPU 时间；cpuMs/RSS 为 -1 表示不可用");
+    }
+
+    private static List<StartupBenchmark> variants(Path target, Path home) {
+        List<StartupBenchmark> variants = new ArrayList<>();
+        Path jar = target.resolve("minpad.jar");
+        if (!Files.isRegularFile(jar)) {
+            return variants;
+        }
+        Path currentJava = Path.of(System.getProperty("java.home"), "bin", "java");
+        variants.add(new StartupBenchmark("jar", command(currentJava, jar, null, home)));
+        Path archive = target.resolve("minpad.jsa");
+        if (Files.isRegularFile(archive)) {
+            variants.add(new StartupBenchmark("jar+cds", command(currentJava, jar, archive, home)));
+        }
+
+        // jpackage 应用镜像：Windows 为 runtime/ 和 app/，Linux 为 lib/runtime/ 和 lib/app/
+        Path image = target.resolve("dist").resolve("MinPad");
+        for (Path base : Arrays.asList(image, image.resolve("lib"))) {
+            Path imageJava = base.resolve("runtime").resolve("bin").resolve("java");
+            Path imageJar = base.resolve("app").resolve("minpad.jar");
+            if (isExecutable(imageJava) && Files.isRegularFile(imageJar)) {
+                variants.add(new StartupBenchmark("app-image", command(imageJava, imageJar, null, home)));
+            }
+        }
+        return variants;
+    }
+
+    private static boolean isExecutable(Path java) {
+        return Files.isExecutable(java) || Files.isExecutable(java.resolveSibling("java.exe"));
+    }
+
+    private static List<String> command(Path java, Path jar, Path archive, Path home) {
+        List<String> command = new ArrayList<>();
+        command.add(java.toString());
+        if (archive != null) {
+            command.add("-XX:SharedArchiveFile=" + archive);
+        }
+        if (GraphicsEnvironment.isHeadless()) {
+            command.add("-Djava.awt.headless=true");
+        }
+        command.add("-Dminpad.startupProbe=true");
+        command.add("-Dminpad.logConsole=false");
+        // 独立的配置目录和单实例锁，不影响正在运行的 MinPad
+        command.add("-Dminpad.home=" + home);
+        command.add("-Djava.io.tmpdir=" + home);
+        command.add("-cp");
+        command.add(jar.toString());
+        command.add("com.minpad.Main");
+        return command;
+    }
+
+    private Map<String, String> runOnce() throws IOException, InterruptedException {
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectError(ProcessBuilder.Redirect.DISCARD);
+        long startNanos = System.nanoTime();
+        Process process = builder.start();
+        Map<String, String> report = null;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (report == null && line.startsWith(REPORT_PREFIX)) {
+                    long elapsed = System.nanoTime() - startNanos;
+                    report = parse(line);
+                    report.put("processMs", Long.toString(TimeUnit.NANOSECONDS.toMillis(elapsed)));
+                }
+            }
+        }
+        if (!process.waitFor(RUN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+        }
+        if (report == null) {
+            throw new IllegalStateException(name + ": 进程退出前没有输出启动报告，退出码 " + process.exitValue());
+        }
+        return report;
+    }
+
+    private static Map<String, String> parse(String line) {
+        Map<String, String> values = new HashMap<>();
+        for (String token : line.split(" ")) {
+            int eq = token.indexOf('=');
+            if (eq > 0) {
+                values.put(token.substring(0, eq), token.substring(eq + 1));
+            }
+        }
+        return values;
+    }
+
+    private static double median(List<Map<String, String>> reports, String key) {
+        long[] values = reports.stream().mapToLong(r -> Long.parseLong(r.getOrDefault(key, "-1"))).sorted().toArray();
+        int mid = values.length / 2;
+        return values.length % 2 == 1 ? values[mid] : (values[mid - 1] + values[mid]) / 2.0;
+    }
+}
@@ -0,0 +1,42 @@
+package com.minpad;
+
+/**
+ * 内存前台窗口来源
+ * 由调用方通过 {@link #activate(String, String)} 在调用线程模拟焦点切换，不依赖原生库，
+ * 供行为检查在非 Windows 平台驱动 {@link ForegroundTracker} 的配置档切换。
+ */
+public class SyntheticForegroundSource implements ForegroundTracker.Source {
+
+    private volatile ForegroundTracker.Listener listener;
+    private volatile String processName;
+    private volatile String windowClass;
+
+    @Override
+    public String getName() {
+        return "synthetic";
+    }
+
+    /** 启动时推送最近一次模拟的前台窗口 */
+    @Override
+    public void start(ForegroundTracker.Listener listener) {
+        this.listener = listener;
+        listener.onForegroundChanged(processName, windowClass);
+    }
+
+    @Override
+    public void stop() {
+        listener = null;
+    }
+
+    /**
+     * 模拟前台窗口切换
+     */
+    public void activate(String processName, String windowClass) {
+        this.processName = processName;
+        this.windowClass = windowClass;
+        ForegroundTracker.Listener target = listener;
+        if (target != null) {
+            target.onForegroundChanged(processName, windowClass);
+        }
+    }
+}
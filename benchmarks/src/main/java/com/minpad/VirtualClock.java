@@ -0,0 +1,34 @@
+package com.minpad;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 虚拟时钟
+ * 时间只在调用 {@link #advance} 时前进，用于确定性地测试定时逻辑。线程安全。
+ */
+public class VirtualClock implements NanoClock {
+
+    private volatile long now;
+
+    public VirtualClock() {
+        this(0);
+    }
+
+    public VirtualClock(long startNanos) {
+        this.now = startNanos;
+    }
+
+    @Override
+    public long nanoTime() {
+        return now;
+    }
+
+    /** 时间前进指定时长，返回前进后的时间 */
+    public synchronized long advance(long duration, TimeUnit unit) {
+        if (duration < 0) {
+            throw new IllegalArgumentException("时间不能倒退: " + duration);
+        }
+        now += unit.toNanos(duration);
+        return now;
+    }
+}
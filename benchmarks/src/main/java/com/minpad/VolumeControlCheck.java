@@ -0,0 +1,102 @@
+package com.minpad;
+
+/**
+ * 音量控制：用 {@link InMemoryVolumeBackend} 核对音量加减按步长对齐网格、合并的多步只读写一次、
+ * 截断到 0% ~ 100%、到达边界时不再设置；后端失败或没有后端时退回媒体键（{@link RecordingKeyInjector} 记录），
+ * 每批最多 25 次按压；静音和播放/暂停不经过后端。
+ */
+final class VolumeControlCheck {
+
+    private static final float EPSILON = 1e-6f;
+
+    private VolumeControlCheck() {
+    }
+
+    static String run() {
+        RecordingKeyInjector injector = new RecordingKeyInjector();
+        InMemoryVolumeBackend backend = new InMemoryVolumeBackend(0.5f);
+        AudioVolumeController controller = new AudioVolumeController(injector, backend, 2);
+
+        controller.volumeUp();
+        expectLevel(backend, 0.52f, "增加一步");
+        // 0.52 存为 float 后除以步长略小于 26，仍视为在网格上
+        controller.volumeUp();
+        expectLevel(backend, 0.54f, "网格上再增加一步");
+        controller.volumeDown(2);
+        expectLevel(backend, 0.50f, "减少两步");
+
+        // 不在网格上：增大时向下对齐、减小时向上对齐，再走一步
+        backend.setLevel(0.513f);
+        controller.volumeUp();
+        expectLevel(backend, 0.52f, "从 51.3% 增加一步");
+        backend.setLevel(0.513f);
+        controller.volumeDown();
+        expectLevel(backend, 0.50f, "从 51.3% 减少一步");
+
+        // 长按重复合并的 5 步只读写一次
+        int gets = backend.getGetCount();
+        int sets = backend.getSetCount();
+        controller.volumeUp(5);
+        Checks.expectEquals(gets + 1, backend.getGetCount(), "合并的 5 步读取音量的次数");
+        Checks.expectEquals(sets + 1, backend.getSetCount(), "合并的 5 步设置音量的次数");
+        expectLevel(backend, 0.60f, "合并的 5 步");
+
+        // 截断，已在边界时不再设置
+        backend.setLevel(0.99f);
+        controller.volumeUp(3);
+        expectLevel(backend, 1.0f, "超过 100%");
+        sets = backend.getSetCount();
+        controller.volumeUp();
+        Checks.expectEquals(sets, backend.getSetCount(), "已是 100% 时设置音量的次数");
+        backend.setLevel(0.1f);
+        controller.volumeDown(100);
+        expectLevel(backend, 0f, "低于 0%");
+        Checks.expectEquals(0, injector.getEventCount(), "后端正常时发送的媒体键事件数");
+
+        // 静音和播放/暂停始终用媒体键，不读写后端
+        gets = backend.getGetCount();
+        controller.toggleMute();
+        controller.playPause();
+        Checks.expectEquals(gets, backend.getGetCount(), "静音和播放/暂停读取音量的次数");
+        expectRecorded(injector, "AD↓ AD↑ | B3↓ B3↑", "静音和播放/暂停");
+
+        // 后端失败：退回媒体键，合并的步数在一批中按压
+        AudioVolumeController failing = new AudioVolumeController(injector, new VolumeBackend() {
+            @Override
+            public String getName() {
+                return "失败的后端";
+            }
+
+            @Override
+            public float getLevel() {
+                throw new IllegalStateException("音频设备不可用");
+            }
+
+            @Override
+            public void setLevel(float level) {
+                throw new IllegalStateException("音频设备不可用");
+            }
+        }, 2);
+        failing.volumeUp(3);
+        expectRecorded(injector, "AF↓ AF↑ AF↓ AF↑ AF↓ AF↑", "后端失败时增加 3 步");
+        failing.volumeDown(40);
+        Checks.expectEquals(1, injector.getBatchCount(), "超过上限的步数提交的批次数");
+        Checks.expectEquals(50, injector.getEventCount(), "超过上限的步数截断为 25 次按压");
+        injector.clear();
+
+        // 没有后端（非 Windows 平台）
+        new AudioVolumeController(injector, null, 2).volumeDown();
+        expectRecorded(injector, "AE↓ AE↑", "没有后端时减少一步");
+        return "步长对齐、合并、截断和媒体键退回正确";
+    }
+
+    private static void expectLevel(InMemoryVolumeBackend backend, float expected, String what) {
+        float level = backend.getLevel();
+        Checks.expect(Math.abs(level - expected) < EPSILON, "%s: 期望音量 %.4f，实际 %.4f", what, expected, level);
+    }
+
+    private static void expectRecorded(RecordingKeyInjector injector, String expected, String what) {
+        Checks.expectEquals(expected, injector.toString(), what);
+        injector.clear();
+    }
+}
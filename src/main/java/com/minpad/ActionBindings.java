@@ -0,0 +1,87 @@
+package com.minpad;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 动作绑定快照
+ * 动作表、编译后的键位和重复策略组成一个不可变整体，通过一次 volatile 写发布：
+ * 读取方要么看到修改前的整体，要么看到修改后的整体，不会看到新键位配旧动作表。
+ * 按键路径按槽位直接索引数组，不经过哈希表；Map 视图只供保存和差异比较使用。
+ */
+final class ActionBindings {
+
+    static final ActionBindings EMPTY = new ActionBindings(Collections.emptyMap(),
+        new ActionExecutor.ActionConfig[0], Keymap.BASE, new RepeatPolicy[0]);
+
+    private final Map<Integer, ActionExecutor.ActionConfig> actions;
+    // 以下数组按槽位索引，构造后不再修改
+    private final ActionExecutor.ActionConfig[] slots;
+    private final Keymap keymap;
+    private final RepeatPolicy[] repeatPolicies;
+
+    private ActionBindings(Map<Integer, ActionExecutor.ActionConfig> actions, ActionExecutor.ActionConfig[] slots,
+                           Keymap keymap, RepeatPolicy[] repeatPolicies) {
+        this.actions = actions;
+        this.slots = slots;
+        this.keymap = keymap;
+        this.repeatPolicies = repeatPolicies;
+    }
+
+    /**
+     * 编译动作表。键位与 previous 相同时沿用其实例，路由器不会因此丢弃进行中的序列和层。
+     *
+     * @param label 键位冲突时日志中的名称
+     */
+    static ActionBindings compile(Map<Integer, ActionExecutor.ActionConfig> actions, long sequenceTimeoutMs,
+                                  String label, ActionBindings previous) {
+        Map<Integer, ActionExecutor.ActionConfig> copy = Collections.unmodifiableMap(new HashMap<>(actions));
+        Keymap keymap;
+        try {
+            keymap = Keymap.compile(copy, sequenceTimeoutMs);
+        } catch (IllegalArgumentException e) {
+            Log.error("编译{}键位失败，仅使用基础层: {}", label, e.getMessage());
+            keymap = Keymap.BASE;
+        }
+        if (previous != null && keymap.equals(previous.keymap)) {
+            keymap = previous.keymap;
+        }
+
+        // 槽位分布：基础层 0-15、层 16-271、引导序列从 4096 起连续分配，数组稀疏但有上界
+        int size = 0;
+        for (Integer keyIndex : copy.keySet()) {
+            size = Math.max(size, keyIndex + 1);
+        }
+        ActionExecutor.ActionConfig[] slots = new ActionExecutor.ActionConfig[size];
+        RepeatPolicy[] policies = new RepeatPolicy[size];
+        for (Map.Entry<Integer, ActionExecutor.ActionConfig> entry : copy.entrySet()) {
+            ActionExecutor.ActionConfig config = entry.getValue();
+            slots[entry.getKey()] = config;
+            policies[entry.getKey()] = config != null ? config.getEffectiveRepeatPolicy() : RepeatPolicy.NONE;
+        }
+        return new ActionBindings(copy, slots, keymap, policies);
+    }
+
+    /** 未配置时返回 null */
+    ActionExecutor.ActionConfig getAction(int keyIndex) {
+        return keyIndex >= 0 && keyIndex < slots.length ? slots[keyIndex] : null;
+    }
+
+    /** 只读动作表 */
+    Map<Integer, ActionExecutor.ActionConfig> getActions() {
+        return actions;
+    }
+
+    Keymap getKeymap() {
+        return keymap;
+    }
+
+    /** 未配置时返回 {@link RepeatPolicy#NONE} */
+    RepeatPolicy getRepeatPolicy(int keyIndex) {
+        if (keyIndex < 0 || keyIndex >= repeatPolicies.length || repeatPolicies[keyIndex] == null) {
+            return RepeatPolicy.NONE;
+        }
+        return repeatPolicies[keyIndex];
+    }
+}
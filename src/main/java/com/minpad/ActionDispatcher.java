@@ -0,0 +1,209 @@
+package com.minpad;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 动作分发器
+ * 钩子回调只把按键事件（动作索引、虚拟键码、标志位、时间戳）写入有界无锁环形缓冲区后立即返回，
+ * 由独立的消费线程执行实际的动作，避免启动进程、模拟组合键等耗时操作阻塞系统输入。
+ */
+public class ActionDispatcher {
+
+    /**
+     * 事件处理器，在消费线程中调用。
+     */
+    public interface Handler {
+        void onKeyEvent(int actionIndex, int vkCode, int flags, long timestamp);
+    }
+
+    public static final int DEFAULT_CAPACITY = 256;
+
+    /** 标记由长按循环产生的事件（高位，避免与 KBDLLHOOKSTRUCT.flags 冲突） */
+    public static final int FLAG_REPEAT = 0x10000;
+
+    // 消费线程空闲时的最长休眠时间，作为漏唤醒的兜底
+    private static final long IDLE_PARK_NANOS = 100_000_000L;
+
+    private final Handler handler;
+    private final int capacity;
+    private final int mask;
+
+    // 每个槽位的序号：等于写入位置表示可写，等于写入位置 + 1 表示可读
+    private final AtomicLongArray sequences;
+    private final int[] actionIndexes;
+    private final int[] vkCodes;
+    private final int[] flags;
+    private final long[] timestamps;
+
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long head;
+    private volatile boolean waiting;
+    private volatile boolean running;
+    private Thread consumerThread;
+
+    public ActionDispatcher(Handler handler) {
+        this(DEFAULT_CAPACITY, handler);
+    }
+
+    /**
+     * @param capacity 缓冲区容量，必须是 2 的幂
+     * @param handler  事件处理器
+     */
+    public ActionDispatcher(int capacity, Handler handler) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("容量必须是 2 的幂: " + capacity);
+        }
+        if (handler == null) {
+            throw new IllegalArgumentException("handler 不能为空");
+        }
+        this.handler = handler;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.sequences = new AtomicLongArray(capacity);
+        this.actionIndexes = new int[capacity];
+        this.vkCodes = new int[capacity];
+        this.flags = new int[capacity];
+        this.timestamps = new long[capacity];
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /** 启动消费线程。 */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        consumerThread = new Thread(this::runLoop, "minpad-action-dispatcher");
+        consumerThread.setDaemon(true);
+        consumerThread.start();
+    }
+
+    /** 停止消费线程，已入队但未处理的事件会被丢弃。 */
+    public synchronized void stop() {
+        running = false;
+        if (consumerThread != null) {
+            LockSupport.unpark(consumerThread);
+            consumerThread = null;
+        }
+    }
+
+    /**
+     * 发布一个按键事件。可在任意线程调用，不分配内存、不阻塞。
+     *
+     * @return false 表示缓冲区已满，事件被丢弃
+     */
+    public boolean publish(int actionIndex, int vkCode, int eventFlags, long timestamp) {
+        long pos = tail.get();
+        int slot;
+        for (;;) {
+            slot = (int) (pos & mask);
+            long diff = sequences.get(slot) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    break;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                // 消费者还没腾出该槽位，队列已满
+                dropped.incrementAndGet();
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+
+        actionIndexes[slot] = actionIndex;
+        vkCodes[slot] = vkCode;
+        flags[slot] = eventFlags;
+        timestamps[slot] = timestamp;
+        sequences.set(slot, pos + 1);
+
+        if (waiting) {
+            Thread consumer = consumerThread;
+            if (consumer != null) {
+                LockSupport.unpark(consumer);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 在当前线程处理所有已入队的事件。
+     * 仅用于未启动消费线程的场景（例如在测试中直接喂入事件），不可与消费线程并发调用。
+     *
+     * @return 本次处理的事件数
+     */
+    public int drain() {
+        int count = 0;
+        long pos = head;
+        for (;;) {
+            int slot = (int) (pos & mask);
+            if (sequences.get(slot) != pos + 1) {
+                break;
+            }
+            int actionIndex = actionIndexes[slot];
+            int vkCode = vkCodes[slot];
+            int eventFlags = flags[slot];
+            long timestamp = timestamps[slot];
+            sequences.set(slot, pos + capacity);
+            pos++;
+            head = pos;
+            count++;
+
+            try {
+                handler.onKeyEvent(actionIndex, vkCode, eventFlags, timestamp);
+            } catch (Exception e) {
+                Log.error("处理按键事件失败: {}", e.getMessage(), e);
+            }
+        }
+        return count;
+    }
+
+    private void runLoop() {
+        while (running) {
+            if (drain() > 0) {
+                continue;
+            }
+            waiting = true;
+            // 置位后再检查一次，防止与 publish 之间漏掉唤醒
+            if (getQueueDepth() == 0 && running) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            waiting = false;
+        }
+    }
+
+    /** 当前排队等待处理的事件数。 */
+    public int getQueueDepth() {
+        long depth = tail.get() - head;
+        return depth < 0 ? 0 : (int) depth;
+    }
+
+    /** 因缓冲区已满而丢弃的事件数。 */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /** 成功入队的事件总数。 */
+    public long getPublishedCount() {
+        return tail.get();
+    }
+
+    /** 已处理的事件总数。 */
+    public long getProcessedCount() {
+        return head;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -2,40 +2,61 @@ package com.minpad;
 
 import java.awt.*;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 动作执行器
  * 管理和执行数字键盘对应的快捷操作
+ * 设置了 {@link ForegroundTracker} 时，键位、重复策略和动作按当前前台应用的配置档解析
  */
 public class ActionExecutor {
     
-    private Map<Integer, ActionConfig> actionMap;
     private AudioVolumeController audioController;
+    private KeyCombinationController keyController;
+    private KeySequenceScheduler sequenceScheduler;
+    private ProcessLauncher processLauncher;
+    // 动作表、键位和重复策略的不可变快照，修改时整体替换，输入线程和消费线程无锁读取
+    private volatile ActionBindings bindings = ActionBindings.EMPTY;
+    // 应用配置档，全局动作变化时一并重建
+    private volatile List<Profile> profiles = Collections.emptyList();
+    private volatile ForegroundTracker foregroundTracker;
+    private volatile KeyMetrics keyMetrics;
     
     public ActionExecutor() {
-        actionMap = new HashMap<>();
-        audioController = new AudioVolumeController();
+        KeyInjector injector = SendInputKeyInjector.createDefault();
+        VolumeBackend volumeBackend = ConfigManager.isVolumeKeysOnly() ? null : VolumeBackend.createDefault();
+        audioController = new AudioVolumeController(injector, volumeBackend, ConfigManager.getVolumeStepPercent());
+        processLauncher = new ProcessLauncher(ConfigManager.getProcessOutputLog());
+        sequenceScheduler = new KeySequenceScheduler(injector);
+        sequenceScheduler.setLauncher(processLauncher);
+        keyController = new KeyCombinationController(injector, ConfigManager.getKeyPacingMillis(), sequenceScheduler);
         
         // 尝试从保存的配置加载，如果没有则使用默认配置
         if (ConfigManager.configExists()) {
             Map<Integer, ActionConfig> loadedConfig = ConfigManager.loadConfig();
             if (!loadedConfig.isEmpty()) {
-                actionMap.putAll(loadedConfig);
-                initializeSpecialActions();
+                profiles = ConfigManager.loadProfiles(loadedConfig);
+                initializeSpecialActions(loadedConfig);
                 return;
             }
         }
         
         // 使用默认配置
-        initializeDefaultActions();
+        initializeSpecialActions(createDefaultActions());
     }
     
     /**
-     * 初始化默认操作
+     * 默认操作
      */
-    private void initializeDefaultActions() {
+    private Map<Integer, ActionConfig> createDefaultActions() {
+        Map<Integer, ActionConfig> actionMap = new HashMap<>();
+        
         // NumPad 1: 打开记事本
         actionMap.put(1, new ActionConfig("打开记事本", "notepad.exe"));
         
@@ -54,8 +75,9 @@ public class ActionExecutor {
         // NumPad 0: 显示通知
         actionMap.put(0, new ActionConfig("测试通知", null) {
             @Override
-            public void execute() {
+            public CompletableFuture<?> execute() {
                 showNotification("MinPad", "这是一个测试通知！");
+                return null;
             }
         });
         
@@ -68,65 +90,250 @@ public class ActionExecutor {
         // NumPad Enter: 播放/暂停（默认）
         actionMap.put(14, new ActionConfig("播放/暂停", "__play_pause"));
         
-        initializeSpecialActions();
+        return actionMap;
     }
     
     /**
      * 初始化特殊命令的处理
      */
-    private void initializeSpecialActions() {
-        // 为特殊命令设置执行逻辑
-        if (actionMap.get(10) != null) {
-            ActionConfig config = actionMap.get(10);
-            config.setAudioController(audioController);
+    private void initializeSpecialActions(Map<Integer, ActionConfig> actionMap) {
+        // 为所有动作绑定共享的控制器（配置加载时组合键已编译）
+        for (ActionConfig config : actionMap.values()) {
+            bindControllers(config);
+        }
+        for (Profile profile : profiles) {
+            for (ActionConfig config : profile.getOverrides().values()) {
+                bindControllers(config);
+            }
+        }
+        publish(actionMap, profiles);
+    }
+    
+    /**
+     * 编译并发布新的动作快照，再重建各配置档的合并视图
+     */
+    private void publish(Map<Integer, ActionConfig> actionMap, List<Profile> newProfiles) {
+        long sequenceTimeoutMs = ConfigManager.getSequenceTimeoutMillis();
+        ActionBindings compiled = ActionBindings.compile(actionMap, sequenceTimeoutMs, "", bindings);
+        for (Profile profile : newProfiles) {
+            profile.rebuild(compiled.getActions(), sequenceTimeoutMs);
+        }
+        bindings = compiled;
+        if (newProfiles != profiles) {
+            profiles = newProfiles;
+            ForegroundTracker tracker = foregroundTracker;
+            if (tracker != null) {
+                tracker.setProfiles(newProfiles);
+            }
+        }
+    }
+    
+    /**
+     * 按当前配置快照重新加载动作和配置档。定义未变的动作沿用原实例（正在执行的宏、已编译的组合键不受影响），
+     * 新的动作表和键位整体替换，期间的按键照常处理，不会丢失。
+     *
+     * @return 变化统计
+     */
+    public synchronized ReloadResult reloadConfig() {
+        Map<Integer, ActionConfig> loaded = ConfigManager.loadConfig();
+        if (loaded.isEmpty()) {
+            loaded = createDefaultActions();
+        }
+        List<Profile> loadedProfiles = ConfigManager.loadProfiles(loaded);
+        
+        Map<Integer, ActionConfig> current = bindings.getActions();
+        Map<Integer, ActionConfig> next = new HashMap<>();
+        int added = 0;
+        int changed = 0;
+        int unchanged = 0;
+        for (Map.Entry<Integer, ActionConfig> entry : loaded.entrySet()) {
+            ActionConfig old = current.get(entry.getKey());
+            ActionConfig config = entry.getValue();
+            if (old != null && old.sameDefinition(config)) {
+                next.put(entry.getKey(), old);
+                unchanged++;
+                continue;
+            }
+            bindControllers(config);
+            next.put(entry.getKey(), config);
+            if (old == null) {
+                added++;
+            } else {
+                changed++;
+            }
         }
-        if (actionMap.get(11) != null) {
-            ActionConfig config = actionMap.get(11);
-            config.setAudioController(audioController);
+        int removed = 0;
+        for (Map.Entry<Integer, ActionConfig> entry : current.entrySet()) {
+            if (entry.getValue() != null && !loaded.containsKey(entry.getKey())) {
+                removed++;
+            }
         }
-        if (actionMap.get(14) != null) {
-            ActionConfig config = actionMap.get(14);
-            config.setAudioController(audioController);
+        
+        for (Profile profile : loadedProfiles) {
+            for (Profile previous : profiles) {
+                if (previous.getName().equals(profile.getName())) {
+                    profile.reuseUnchanged(previous);
+                    break;
+                }
+            }
+            for (ActionConfig config : profile.getOverrides().values()) {
+                bindControllers(config);
+            }
+        }
+        
+        publish(next, Collections.unmodifiableList(new ArrayList<>(loadedProfiles)));
+        return new ReloadResult(added, changed, removed, unchanged, loadedProfiles.size());
+    }
+    
+    /**
+     * 设置前台应用跟踪器，之后按其缓存的配置档解析按键
+     */
+    public void setForegroundTracker(ForegroundTracker tracker) {
+        if (tracker != null) {
+            tracker.setProfiles(profiles);
         }
+        this.foregroundTracker = tracker;
+    }
+    
+    /**
+     * 设置按键统计，执行失败时计入对应按键
+     */
+    public void setKeyMetrics(KeyMetrics keyMetrics) {
+        this.keyMetrics = keyMetrics;
+    }
+    
+    /**
+     * 当前生效的配置档，null 表示使用全局配置。只读取跟踪器缓存的引用，不查询前台窗口。
+     */
+    public Profile getActiveProfile() {
+        ForegroundTracker tracker = foregroundTracker;
+        return tracker != null ? tracker.getActiveProfile() : null;
+    }
+    
+    /**
+     * 获取已加载的应用配置档
+     */
+    public List<Profile> getProfiles() {
+        return new ArrayList<>(profiles);
+    }
+    
+    /**
+     * 获取当前键位（有生效的配置档时为配置档的键位）
+     */
+    public Keymap getKeymap() {
+        Profile profile = getActiveProfile();
+        return profile != null ? profile.getKeymap() : bindings.getKeymap();
+    }
+    
+    /**
+     * 获取指定键的重复策略，未配置时返回 {@link RepeatPolicy#NONE}
+     */
+    public RepeatPolicy getRepeatPolicy(int keyIndex) {
+        Profile profile = getActiveProfile();
+        return profile != null ? profile.getRepeatPolicy(keyIndex) : bindings.getRepeatPolicy(keyIndex);
+    }
+    
+    /**
+     * 绑定执行动作所需的共享控制器
+     */
+    private void bindControllers(ActionConfig config) {
+        if (config == null) {
+            return;
+        }
+        config.setAudioController(audioController);
+        config.setKeyController(keyController);
+        config.setSequenceScheduler(sequenceScheduler);
+        config.setProcessLauncher(processLauncher);
     }
     
     /**
      * 执行指定键的操作
      */
     public void executeAction(int keyIndex) {
-        ActionConfig action = actionMap.get(keyIndex);
+        executeAction(keyIndex, 1);
+    }
+    
+    /**
+     * 执行指定键的操作，steps 为长按重复合并后的步数
+     * 启动进程、宏和分步组合键在其他线程上完成，结果和完成耗时由 {@link KeyMetrics#track} 记到该键上
+     */
+    public void executeAction(int keyIndex, int steps) {
+        Profile profile = getActiveProfile();
+        ActionConfig action = profile != null ? profile.getAction(keyIndex) : bindings.getAction(keyIndex);
         if (action != null) {
+            KeyMetrics metrics = keyMetrics;
+            long start = System.nanoTime();
             try {
-                action.execute();
-                System.out.println("执行操作: " + action.getName());
+                // 单步走 execute()，保留子类覆盖的行为
+                CompletableFuture<?> pending = steps > 1 ? action.execute(steps) : action.execute();
+                if (pending != null && metrics != null) {
+                    metrics.track(keyIndex, action, start, pending);
+                }
+                Log.debug("执行操作: {}", action.getName());
             } catch (Exception e) {
-                System.err.println("执行操作失败: " + e.getMessage());
-                e.printStackTrace();
+                Log.error("执行操作失败: {}", e.getMessage(), e);
+                if (metrics != null) {
+                    metrics.recordFailure(keyIndex, action);
+                }
             }
         } else {
-            System.out.println("该按键未配置操作");
+            Log.debug("该按键未配置操作");
         }
     }
     
     /**
-     * 设置指定键的操作
+     * 设置指定键的操作，action 为 null 时移除
+     * 组合键和宏在此编译，无效的配置直接拒绝。在新副本上修改后整体替换快照，按键线程不加锁。
+     *
+     * @throws IllegalArgumentException 组合键或宏无效
      */
-    public void setAction(int keyIndex, ActionConfig action) {
-        actionMap.put(keyIndex, action);
+    public synchronized void setAction(int keyIndex, ActionConfig action) {
+        Map<Integer, ActionConfig> actionMap = new HashMap<>(bindings.getActions());
+        if (action != null) {
+            action.compile();
+            bindControllers(action);
+            actionMap.put(keyIndex, action);
+        } else {
+            actionMap.remove(keyIndex);
+        }
+        publish(actionMap, profiles);
     }
     
     /**
      * 获取指定键的操作
      */
     public ActionConfig getAction(int keyIndex) {
-        return actionMap.get(keyIndex);
+        return bindings.getAction(keyIndex);
     }
     
     /**
      * 获取所有操作配置
+     *
+     * @return 当前快照的只读视图，不复制；修改请用 {@link #setAction}
      */
     public Map<Integer, ActionConfig> getAllActions() {
-        return new HashMap<>(actionMap);
+        return bindings.getActions();
+    }
+    
+    /**
+     * 当前全局绑定快照，一次读取即得到一致的动作、键位和重复策略
+     */
+    ActionBindings getBindings() {
+        return bindings;
+    }
+    
+    /**
+     * 获取定时按键序列调度器
+     */
+    public KeySequenceScheduler getSequenceScheduler() {
+        return sequenceScheduler;
+    }
+    
+    /**
+     * 获取进程启动器（含各动作的启动统计）
+     */
+    public ProcessLauncher getProcessLauncher() {
+        return processLauncher;
     }
     
     /**
@@ -141,11 +348,56 @@ public class ActionExecutor {
                     trayIcon.displayMessage(title, message, TrayIcon.MessageType.INFO);
                 }
             } catch (Exception e) {
-                e.printStackTrace();
+                Log.error("显示通知失败: {}", e.getMessage(), e);
             }
         }
     }
     
+    /**
+     * 重新加载配置的变化统计
+     */
+    public static final class ReloadResult {
+        private final int added;
+        private final int changed;
+        private final int removed;
+        private final int unchanged;
+        private final int profileCount;
+        
+        ReloadResult(int added, int changed, int removed, int unchanged, int profileCount) {
+            this.added = added;
+            this.changed = changed;
+            this.removed = removed;
+            this.unchanged = unchanged;
+            this.profileCount = profileCount;
+        }
+        
+        public int getAdded() {
+            return added;
+        }
+        
+        public int getChanged() {
+            return changed;
+        }
+        
+        public int getRemoved() {
+            return removed;
+        }
+        
+        public int getUnchanged() {
+            return unchanged;
+        }
+        
+        public int getProfileCount() {
+            return profileCount;
+        }
+        
+        @Override
+        public String toString() {
+            return "新增 " + added + "，修改 " + changed + "，删除 " + removed + "，未变 " + unchanged
+                + "，配置档 " + profileCount + " 个";
+        }
+    }
+    
     /**
      * 动作配置类
      */
@@ -154,7 +406,16 @@ public class ActionExecutor {
         private String command;
         private String argument;
         private String keyCombination;  // 组合键，如 "ctrl+shift+a"
+        private Macro macro;  // 宏步骤
+        private RepeatPolicy repeatPolicy;  // 长按重复策略，null 表示使用默认
+        private String binding;  // 层或引导序列的配置键，如 "0+5"、". 4 2"；基础层为 null
+        private transient KeyChord compiledKeyCombination;  // 编译后的组合键
+        private transient KeySequence compiledMacro;  // 编译后的宏
+        private transient volatile KeySequenceScheduler.Handle runningMacro;  // 正在执行的宏
         private transient AudioVolumeController audioController;  // 不序列化
+        private transient KeyCombinationController keyController;  // 不序列化
+        private transient KeySequenceScheduler sequenceScheduler;  // 不序列化
+        private transient ProcessLauncher processLauncher;  // 不序列化
         
         public ActionConfig(String name, String command) {
             this(name, command, null, null);
@@ -171,38 +432,122 @@ public class ActionExecutor {
             this.keyCombination = keyCombination;
         }
         
-        public void execute() throws IOException {
+        /**
+         * 编译组合键和宏，都没有时什么也不做
+         *
+         * @throws IllegalArgumentException 组合键或宏无效
+         */
+        public void compile() {
+            if (keyCombination != null && !keyCombination.isEmpty()) {
+                compiledKeyCombination = KeyChord.compile(keyCombination);
+            } else {
+                compiledKeyCombination = null;
+            }
+            compiledMacro = macro != null ? macro.compile() : null;
+        }
+        
+        public CompletableFuture<?> execute() throws IOException {
+            return execute(1);
+        }
+        
+        /**
+         * 执行动作；steps 大于 1 表示长按重复合并了多步：音量按步数调整，组合键按步数重复，
+         * 宏和命令只执行一次
+         *
+         * @return 启动进程、宏和分步组合键在其他线程上完成，返回其完成结果；已同步完成时为 null
+         */
+        public CompletableFuture<?> execute(int steps) throws IOException {
             // 处理特殊命令
             if (command != null && command.startsWith("__")) {
                 if ("__volume_up".equals(command) && audioController != null) {
-                    audioController.volumeUp();
-                    return;
+                    audioController.volumeUp(steps);
+                    return null;
                 } else if ("__volume_down".equals(command) && audioController != null) {
-                    audioController.volumeDown();
-                    return;
+                    audioController.volumeDown(steps);
+                    return null;
                 } else if ("__play_pause".equals(command) && audioController != null) {
                     audioController.playPause();
-                    return;
+                    return null;
+                }
+            }
+            
+            // 宏优先：执行中再次按下则取消，长按重复不取消
+            if (macro != null) {
+                if (steps > 1 && isMacroRunning()) {
+                    return null;
                 }
+                return runMacro();
             }
             
             // 如果配置了组合键，优先执行组合键
             if (keyCombination != null && !keyCombination.isEmpty()) {
-                KeyCombinationController controller = new KeyCombinationController();
-                controller.executeKeyCombination(keyCombination);
-                return;
+                if (compiledKeyCombination == null) {
+                    // 未经 setAction/loadConfig 创建的配置，首次执行时编译
+                    compile();
+                }
+                if (keyController == null) {
+                    Log.warn("组合键控制器未初始化: {}", name);
+                    return null;
+                }
+                // 分步发送时调度器按提交顺序执行，最后一组完成即全部完成
+                KeySequenceScheduler.Handle last = null;
+                for (int i = 0; i < steps; i++) {
+                    last = keyController.executeKeyCombination(compiledKeyCombination);
+                }
+                return last != null ? last.completion() : null;
             }
             
-            // 否则执行命令
+            // 否则在启动线程上执行命令
             if (command != null) {
-                ProcessBuilder pb;
+                if (processLauncher == null) {
+                    Log.warn("进程启动器未初始化: {}", name);
+                    return null;
+                }
                 if (argument != null) {
-                    pb = new ProcessBuilder(command, argument);
-                } else {
-                    pb = new ProcessBuilder(command);
+                    return processLauncher.launch(name, command, argument);
                 }
-                pb.start();
+                return processLauncher.launch(name, command);
+            }
+            return null;
+        }
+        
+        private boolean isMacroRunning() {
+            KeySequenceScheduler.Handle running = runningMacro;
+            return running != null && !running.isDone();
+        }
+        
+        private CompletableFuture<?> runMacro() {
+            KeySequenceScheduler.Handle running = runningMacro;
+            if (running != null && !running.isDone()) {
+                running.cancel();
+                runningMacro = null;
+                Log.info("宏已取消: {}", name);
+                return null;
+            }
+            if (compiledMacro == null) {
+                compile();
+            }
+            if (sequenceScheduler == null) {
+                Log.warn("按键序列调度器未初始化: {}", name);
+                return null;
             }
+            running = sequenceScheduler.schedule(compiledMacro);
+            runningMacro = running;
+            return running.completion();
+        }
+        
+        /**
+         * 配置内容（名称、命令、组合键、宏、重复策略和绑定）是否相同，不比较运行状态
+         */
+        public boolean sameDefinition(ActionConfig other) {
+            return other != null && getClass() == other.getClass()
+                && Objects.equals(name, other.name)
+                && Objects.equals(command, other.command)
+                && Objects.equals(argument, other.argument)
+                && Objects.equals(keyCombination, other.keyCombination)
+                && Objects.equals(macro, other.macro)
+                && Objects.equals(repeatPolicy, other.repeatPolicy)
+                && Objects.equals(binding, other.binding);
         }
         
         public String getName() {
@@ -235,10 +580,71 @@ public class ActionExecutor {
         
         public void setKeyCombination(String keyCombination) {
             this.keyCombination = keyCombination;
+            this.compiledKeyCombination = null;
+        }
+        
+        public Macro getMacro() {
+            return macro;
+        }
+        
+        public void setMacro(Macro macro) {
+            this.macro = macro;
+            this.compiledMacro = null;
+        }
+        
+        /**
+         * 层或引导序列在配置中的键，基础层动作为 null
+         */
+        public String getBinding() {
+            return binding;
+        }
+        
+        public void setBinding(String binding) {
+            this.binding = binding;
+        }
+        
+        /**
+         * 配置的重复策略，未配置时为 null
+         */
+        public RepeatPolicy getRepeatPolicy() {
+            return repeatPolicy;
+        }
+        
+        public void setRepeatPolicy(RepeatPolicy repeatPolicy) {
+            this.repeatPolicy = repeatPolicy;
+        }
+        
+        /**
+         * 实际生效的重复策略：未配置时音量命令按 {@link RepeatPolicy#VOLUME} 重复，其他动作不重复
+         */
+        public RepeatPolicy getEffectiveRepeatPolicy() {
+            if (repeatPolicy != null) {
+                return repeatPolicy;
+            }
+            if ("__volume_up".equals(command) || "__volume_down".equals(command)) {
+                return RepeatPolicy.VOLUME;
+            }
+            return RepeatPolicy.NONE;
+        }
+        
+        public KeyChord getCompiledKeyCombination() {
+            return compiledKeyCombination;
         }
         
         public void setAudioController(AudioVolumeController audioController) {
             this.audioController = audioController;
         }
+        
+        public void setKeyController(KeyCombinationController keyController) {
+            this.keyController = keyController;
+        }
+        
+        public void setSequenceScheduler(KeySequenceScheduler sequenceScheduler) {
+            this.sequenceScheduler = sequenceScheduler;
+        }
+        
+        public void setProcessLauncher(ProcessLauncher processLauncher) {
+            this.processLauncher = processLauncher;
+        }
     }
 }
@@ -4,8 +4,6 @@ import javax.swing.*;
 import javax.swing.plaf.ColorUIResource;
 import javax.swing.plaf.FontUIResource;
 import java.awt.*;
-import java.util.HashSet;
-import java.util.Set;
 
 /**
  * 应用主题常量和全局 UI 默认值。
@@ -48,18 +46,10 @@ public final class AppTheme {
                 "Dialog"
         };
 
-        String[] availableFonts = GraphicsEnvironment
-                .getLocalGraphicsEnvironment()
-                .getAvailableFontFamilyNames();
-
-        Set<String> normalized = new HashSet<>();
-        for (String name : availableFonts) {
-            normalized.add(name.toLowerCase());
-        }
-
         for (String candidate : candidates) {
-            if (normalized.contains(candidate.toLowerCase())) {
-                Font font = new Font(candidate, Font.PLAIN, 13);
+            String family = FontResolver.find(candidate);
+            if (family != null) {
+                Font font = new Font(family, Font.PLAIN, 13);
                 // 避免选择不支持中文字形的字体，防止界面出现方块乱码。
                 if (font.canDisplayUpTo(CJK_PROBE_TEXT) == -1) {
                     return font;
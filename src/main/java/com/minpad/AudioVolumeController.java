@@ -1,13 +1,11 @@
 package com.minpad;
 
-import com.sun.jna.Library;
-import com.sun.jna.Native;
-import com.sun.jna.platform.win32.WinDef;
-import com.sun.jna.platform.win32.WinUser;
-
 /**
  * Windows 音量控制器
- * 使用 JNA 调用 Windows API 模拟音量键按压
+ * 有 {@link VolumeBackend} 时音量加减直接读写主音量：按配置的步长计算目标值，
+ * 长按重复合并的多步只做一次读取和一次设置，结果截断到 0% ~ 100%。
+ * 没有后端或后端失败时退回模拟音量媒体键，每次按压的按下和抬起作为一批事件提交。
+ * 静音和播放/暂停始终使用媒体键。
  */
 public class AudioVolumeController {
 
@@ -17,85 +15,133 @@ public class AudioVolumeController {
     private static final int VK_VOLUME_MUTE = 0xAD;    // 静音键
     private static final int VK_MEDIA_PLAY_PAUSE = 0xB3;  // 播放/暂停键
     private static final int VOLUME_STEPS = 1;         // 每次按压的次数
+    private static final int MAX_STEPS = 25;           // 单批最多步数（每步系统调整 2%）
 
-    private User32 user32;
+    /** 默认步长（百分比），与系统音量媒体键一致 */
+    static final int DEFAULT_STEP_PERCENT = 2;
+    private static final double GRID_EPSILON = 1e-3;
 
-    public AudioVolumeController() {
-        try {
-            this.user32 = Native.load("user32", User32.class);
-        } catch (Exception e) {
-            System.err.println("加载 user32 库失败: " + e.getMessage());
-        }
+    private final KeyInjector injector;
+    private final VolumeBackend backend;
+    private final float stepSize;
+
+    // 复用的事件缓冲区
+    private final int[] events = new int[MAX_STEPS * VOLUME_STEPS * 2];
+
+    public AudioVolumeController(KeyInjector injector) {
+        this(injector, null, DEFAULT_STEP_PERCENT);
+    }
+
+    /**
+     * @param injector    按键注入器（媒体键）
+     * @param backend     音量后端，为 null 时音量加减也使用媒体键
+     * @param stepPercent 每步调整的百分比
+     */
+    public AudioVolumeController(KeyInjector injector, VolumeBackend backend, int stepPercent) {
+        this.injector = injector;
+        this.backend = backend;
+        this.stepSize = Math.max(1, Math.min(100, stepPercent)) / 100f;
     }
 
     /**
      * 增加音量
      */
     public void volumeUp() {
-        simulateKeyPress(VK_VOLUME_UP);
+        volumeUp(1);
+    }
+    
+    /**
+     * 增加音量指定步数
+     */
+    public void volumeUp(int steps) {
+        if (!adjustLevel(steps)) {
+            simulateKeyPress(VK_VOLUME_UP, steps);
+        }
     }
 
     /**
      * 减少音量
      */
     public void volumeDown() {
-        simulateKeyPress(VK_VOLUME_DOWN);
+        volumeDown(1);
+    }
+    
+    /**
+     * 减少音量指定步数
+     */
+    public void volumeDown(int steps) {
+        if (!adjustLevel(-steps)) {
+            simulateKeyPress(VK_VOLUME_DOWN, steps);
+        }
+    }
+
+    /**
+     * 通过后端按步数调整主音量，结果对齐到步长的整数倍
+     *
+     * @return false 表示没有后端或后端失败，需要退回媒体键
+     */
+    private synchronized boolean adjustLevel(int steps) {
+        if (backend == null) {
+            return false;
+        }
+        try {
+            float current = backend.getLevel();
+            // 先对齐到步长网格（增大时向下取、减小时向上取），再走 steps 步
+            double position = current / stepSize;
+            double aligned = steps > 0 ? Math.floor(position + GRID_EPSILON) : Math.ceil(position - GRID_EPSILON);
+            float target = VolumeBackend.clamp((float) ((aligned + steps) * stepSize));
+            if (target != current) {
+                backend.setLevel(target);
+            }
+            return true;
+        } catch (RuntimeException e) {
+            Log.error("{} 音量调整失败，使用媒体键: {}", backend.getName(), e.getMessage());
+            return false;
+        }
+    }
+
+    /** 当前使用的音量后端，没有时为 null */
+    public VolumeBackend getBackend() {
+        return backend;
     }
 
     /**
      * 切换静音
      */
     public void toggleMute() {
-        simulateKeyPress(VK_VOLUME_MUTE);
+        simulateKeyPress(VK_VOLUME_MUTE, 1);
     }
 
     /**
      * 播放/暂停
      */
     public void playPause() {
-        simulateKeyPress(VK_MEDIA_PLAY_PAUSE);
+        simulateKeyPress(VK_MEDIA_PLAY_PAUSE, 1);
     }
 
     /**
      * 模拟键盘按压
-     * 
+     *
      * @param vkCode 虚拟键码
+     * @param steps  按压次数，超过 {@link #MAX_STEPS} 时截断
      */
-    private void simulateKeyPress(int vkCode) {
-        if (user32 == null) {
-            System.err.println("user32 库未初始化");
+    private synchronized void simulateKeyPress(int vkCode, int steps) {
+        if (injector == null) {
+            Log.warn("按键注入器未初始化");
             return;
         }
 
+        // 模拟多次按压以增加/减少音量的幅度
+        int count = 0;
+        int presses = Math.max(1, Math.min(MAX_STEPS, steps)) * VOLUME_STEPS;
+        for (int i = 0; i < presses; i++) {
+            events[count++] = KeyInjector.down(vkCode);
+            events[count++] = KeyInjector.up(vkCode);
+        }
         try {
-            // 模拟多次按压以增加/减少音量的幅度
-            for (int i = 0; i < VOLUME_STEPS; i++) {
-                // KeyDown
-                user32.keybd_event((byte) vkCode, (byte) 0, 0, 0);
-                Thread.sleep(50);
-                
-                // KeyUp
-                user32.keybd_event((byte) vkCode, (byte) 0, 2, 0); // 2 = KEYEVENTF_KEYUP
-                Thread.sleep(50);
-            }
+            injector.send(events, 0, count);
         } catch (Exception e) {
-            System.err.println("模拟按键失败: " + e.getMessage());
+            Log.error("模拟按键失败: {}", e.getMessage());
         }
     }
-
-    /**
-     * User32 库接口
-     */
-    public interface User32 extends Library {
-        /**
-         * 模拟键盘输入
-         * 
-         * @param bVk 虚拟键码
-         * @param bScan 扫描码
-         * @param dwFlags 标志位 (0 = KeyDown, 2 = KeyUp)
-         * @param dwExtraInfo 额外信息
-         */
-        void keybd_event(byte bVk, byte bScan, int dwFlags, long dwExtraInfo);
-    }
 }
-
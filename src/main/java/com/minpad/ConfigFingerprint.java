@@ -0,0 +1,77 @@
+package com.minpad;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * 配置文件内容指纹（长度 + CRC32）
+ * 用于判断磁盘上的 config.json 是否就是上次同步的内容，不需要在内存中保留整个文件。
+ */
+final class ConfigFingerprint {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final long length;
+    private final long crc;
+
+    ConfigFingerprint(long length, long crc) {
+        this.length = length;
+        this.crc = crc;
+    }
+
+    /**
+     * 分块读取文件计算指纹，内存占用与文件大小无关
+     */
+    static ConfigFingerprint of(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        long length = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            int read;
+            while ((read = channel.read(buffer)) >= 0) {
+                if (read > 0) {
+                    buffer.flip();
+                    crc.update(buffer);
+                    length += read;
+                    buffer.clear();
+                }
+            }
+        }
+        return new ConfigFingerprint(length, crc.getValue());
+    }
+
+    static ConfigFingerprint of(byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content, 0, content.length);
+        return new ConfigFingerprint(content.length, crc.getValue());
+    }
+
+    long getLength() {
+        return length;
+    }
+
+    long getCrc() {
+        return crc;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ConfigFingerprint)) {
+            return false;
+        }
+        ConfigFingerprint other = (ConfigFingerprint) obj;
+        return length == other.length && crc == other.crc;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(length) * 31 + Long.hashCode(crc);
+    }
+}
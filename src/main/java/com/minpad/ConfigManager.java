@@ -2,124 +2,451 @@ package com.minpad;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * 配置管理器
  * 处理应用配置的加载和保存
+ *
+ * <p>配置在内存中保存一份快照，读取不访问磁盘。修改时复制快照、替换引用（已发布的快照不再修改），
+ * 由后台写入线程去抖后合并写盘：先写临时文件并刷到磁盘，再原子重命名覆盖 config.json，
+ * 写到一半崩溃也不会留下截断的配置。退出前调用 {@link #flush()} 立即写入。</p>
+ *
+ * <p>config.json 用 {@link JsonReader} 从文件通道流式读取：启动时快照只保存顶层设置，actions 和
+ * profiles 逐条解析成动作后即丢弃 JSON，内存占用不随文件大小成倍增长。此时的修改先作用在顶层设置上并记录下来，
+ * 由写入线程读取完整的 JSON 树、重放这些修改后再写盘（调用方线程不访问磁盘）；读取失败时不写盘，
+ * 以免只含顶层设置的快照覆盖掉 actions 和 profiles。</p>
+ *
+ * <p>解析结果另存为二进制缓存（{@link KeymapCache}），config.json 未变时直接从缓存恢复。</p>
  */
 public class ConfigManager {
-    private static final String CONFIG_DIR = System.getProperty("user.home") + File.separator + ".minpad";
+    // 可通过 -Dminpad.home 指定配置目录（基准测试、诊断时使用临时目录）
+    private static final String CONFIG_DIR = System.getProperty("minpad.home",
+        System.getProperty("user.home") + File.separator + ".minpad");
     private static final String CONFIG_FILE = CONFIG_DIR + File.separator + "config.json";
+    private static final String CACHE_FILE = CONFIG_DIR + File.separator + KeymapCache.FILE_NAME;
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
     private static final String DEFAULT_THEME_MODE = "system";
+    private static final long DEFAULT_KEY_PACING_MS = 0;
+    private static final long MAX_KEY_PACING_MS = 1000;
+    private static final int DEFAULT_VOLUME_STEP = 2;
+    private static final long MAX_SEQUENCE_TIMEOUT_MS = 10_000;
+    private static final int MAX_VOLUME_STEP = 25;
+    private static final String[] MACRO_STEP_TYPES = {
+        Macro.CHORD, Macro.DOWN, Macro.UP, Macro.DELAY, Macro.TEXT, Macro.RUN
+    };
     private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    // 最后一次修改后等待的时间，以及首次修改到写盘的最长时间
+    private static final long WRITE_DELAY_MS = 300;
+    private static final long MAX_WRITE_DELAY_MS = 2000;
+    
+    private static final Object SNAPSHOT_LOCK = new Object();
+    private static final Object FILE_LOCK = new Object();
+    // 配置快照，null 表示没有配置；发布后不再修改
+    private static volatile JsonObject snapshot;
+    private static volatile boolean snapshotLoaded;
+    // 以下字段持有 SNAPSHOT_LOCK 时访问
+    private static long snapshotVersion;
+    private static long writtenVersion;
+    private static boolean deletePending;
+    private static ScheduledFuture<?> pendingWrite;
+    private static Future<?> pendingCacheWrite;
+    private static long firstDirtyNanos;
+    private static ScheduledExecutorService writer;
+    // 最近一次与磁盘同步的文件指纹和修改时间，用于忽略自己写盘引起的文件变化、生成键位缓存
+    private static volatile ConfigFingerprint syncedFingerprint;
+    private static volatile long syncedModified;
+    // 为 true 时快照只含顶层设置，actions 和 profiles 按需从磁盘上的 config.json 流式读取
+    private static volatile boolean snapshotPartial;
+    // 快照只含顶层设置时做过的修改，构建完整的 JSON 树后按顺序重放；持有 SNAPSHOT_LOCK 时访问
+    private static final List<Consumer<JsonObject>> pendingMutations = new ArrayList<>();
+    // 快照由键位缓存恢复时非空（此时 snapshotPartial 也为 true），动作和配置档从缓存解码
+    private static volatile KeymapCache.Entry cacheEntry;
+    // 最近一次流式读取动作或配置档失败，此时不生成键位缓存
+    private static volatile boolean streamFailed;
+    private static volatile boolean keymapCacheEnabled =
+        !"false".equalsIgnoreCase(System.getProperty("minpad.keymapCache"));
     
     /**
-     * 保存配置到文件
+     * 保存配置：更新内存快照后立即返回，由后台线程写盘
      */
     public static void saveConfig(Map<Integer, ActionExecutor.ActionConfig> actionMap) {
-        try {
-            // 确保配置目录存在
-            Files.createDirectories(Paths.get(CONFIG_DIR));
+        JsonObject actionsJson = new JsonObject();
+        
+        for (Map.Entry<Integer, ActionExecutor.ActionConfig> entry : actionMap.entrySet()) {
+            JsonObject actionJson = new JsonObject();
+            ActionExecutor.ActionConfig config = entry.getValue();
             
-            // 保留已有全局设置（如主题模式）
-            JsonObject configJson = readConfigJson();
-            if (configJson == null) {
-                configJson = new JsonObject();
+            actionJson.addProperty("name", config.getName());
+            if (config.getCommand() != null) {
+                actionJson.addProperty("command", config.getCommand());
             }
-            JsonObject actionsJson = new JsonObject();
-            
-            for (Map.Entry<Integer, ActionExecutor.ActionConfig> entry : actionMap.entrySet()) {
-                JsonObject actionJson = new JsonObject();
-                ActionExecutor.ActionConfig config = entry.getValue();
-                
-                actionJson.addProperty("name", config.getName());
-                if (config.getCommand() != null) {
-                    actionJson.addProperty("command", config.getCommand());
-                }
-                if (config.getArgument() != null) {
-                    actionJson.addProperty("argument", config.getArgument());
-                }
-                if (config.getKeyCombination() != null) {
-                    actionJson.addProperty("keyCombination", config.getKeyCombination());
-                }
-                
-                actionsJson.add(String.valueOf(entry.getKey()), actionJson);
+            if (config.getArgument() != null) {
+                actionJson.addProperty("argument", config.getArgument());
+            }
+            if (config.getKeyCombination() != null) {
+                actionJson.addProperty("keyCombination", config.getKeyCombination());
+            }
+            if (config.getMacro() != null) {
+                actionJson.add("macro", macroToJson(config.getMacro()));
+            }
+            if (config.getRepeatPolicy() != null) {
+                actionJson.add("repeat", repeatPolicyToJson(config.getRepeatPolicy()));
             }
             
+            String key = config.getBinding() != null ? config.getBinding() : String.valueOf(entry.getKey());
+            actionsJson.add(key, actionJson);
+        }
+        
+        // 保留已有全局设置（如主题模式）
+        updateConfigJson(configJson -> {
             configJson.add("actions", actionsJson);
             if (!configJson.has("themeMode")) {
                 configJson.addProperty("themeMode", DEFAULT_THEME_MODE);
             }
             configJson.addProperty("version", "1.0.0");
             configJson.addProperty("lastModified", System.currentTimeMillis());
-            
-            // 写入文件
-            writeConfigJson(configJson);
-            
-            System.out.println("配置已保存: " + CONFIG_FILE);
-        } catch (IOException e) {
-            System.err.println("保存配置失败: " + e.getMessage());
-            e.printStackTrace();
-        }
+        });
     }
     
     /**
-     * 从文件加载配置
+     * 从配置快照加载动作
      */
     public static Map<Integer, ActionExecutor.ActionConfig> loadConfig() {
         Map<Integer, ActionExecutor.ActionConfig> actionMap = new HashMap<>();
         
-        try {
-            Path configPath = Paths.get(CONFIG_FILE);
-            
-            // 如果配置文件不存在，返回空 Map（使用默认配置）
-            if (!Files.exists(configPath)) {
-                System.out.println("配置文件不存在，使用默认配置");
+        // 如果配置不存在，返回空 Map（使用默认配置）
+        if (readConfigJson() == null) {
+            Log.info("配置文件不存在，使用默认配置");
+            return actionMap;
+        }
+        
+        KeymapCache.Entry entry = cacheEntry;
+        if (entry != null) {
+            try {
+                actionMap = entry.decodeActions();
+                Log.info("配置已从键位缓存加载: {}", CACHE_FILE);
                 return actionMap;
+            } catch (IOException | RuntimeException e) {
+                Log.error("解码键位缓存失败，读取 config.json: {}", e.getMessage());
             }
-            
-            // 读取文件
-            String json = new String(Files.readAllBytes(configPath), "UTF-8");
-            JsonObject configJson = gson.fromJson(json, JsonObject.class);
-            
-            // 解析操作配置
-            if (configJson.has("actions")) {
-                JsonObject actionsJson = configJson.getAsJsonObject("actions");
-                
-                for (String key : actionsJson.keySet()) {
-                    try {
-                        int keyIndex = Integer.parseInt(key);
-                        JsonObject actionJson = actionsJson.getAsJsonObject(key);
-                        
-                        String name = actionJson.get("name").getAsString();
-                        String command = actionJson.has("command") ? actionJson.get("command").getAsString() : null;
-                        String argument = actionJson.has("argument") ? actionJson.get("argument").getAsString() : null;
-                        String keyCombination = actionJson.has("keyCombination") ? actionJson.get("keyCombination").getAsString() : null;
-                        
-                        ActionExecutor.ActionConfig config = new ActionExecutor.ActionConfig(
-                            name, command, argument, keyCombination
-                        );
-                        actionMap.put(keyIndex, config);
-                    } catch (NumberFormatException e) {
-                        System.err.println("跳过无效的键索引: " + key);
+        }
+        
+        // 解析操作配置
+        SequenceSlots sequenceSlots = new SequenceSlots();
+        Keymap.Builder keymapCheck = new Keymap.Builder();
+        Set<Integer> checkedSlots = new HashSet<>();
+        if (snapshotPartial && !hasPendingMutations()) {
+            Map<Integer, ActionExecutor.ActionConfig> streamed = new HashMap<>();
+            try {
+                readConfigMembers((name, reader) -> {
+                    if ("actions".equals(name)) {
+                        readActions(reader, streamed, sequenceSlots, keymapCheck, checkedSlots);
+                    } else {
+                        reader.skipValue();
                     }
+                });
+            } catch (IOException | RuntimeException e) {
+                streamFailed = true;
+                Log.error("读取配置失败，使用默认配置: {}", e.getMessage());
+                return actionMap;
+            }
+            streamFailed = false;
+            actionMap = streamed;
+        } else {
+            JsonObject configJson;
+            try {
+                configJson = fullConfigJson();
+            } catch (IOException e) {
+                streamFailed = true;
+                Log.error("读取配置失败，使用默认配置: {}", e.getMessage());
+                return actionMap;
+            }
+            if (configJson != null && configJson.has("actions")) {
+                JsonElement actionsJson = configJson.get("actions");
+                if (actionsJson.isJsonObject()) {
+                    for (Map.Entry<String, JsonElement> action : actionsJson.getAsJsonObject().entrySet()) {
+                        parseActionEntry(action.getKey(), action.getValue(), actionMap, sequenceSlots,
+                            keymapCheck, checkedSlots);
+                    }
+                } else {
+                    Log.warn("actions 必须是对象，忽略");
                 }
             }
-            
-            System.out.println("配置已加载: " + CONFIG_FILE);
-        } catch (IOException e) {
-            System.err.println("加载配置失败: " + e.getMessage());
-            e.printStackTrace();
         }
         
+        Log.info("配置已加载: {}", CONFIG_FILE);
         return actionMap;
     }
     
+    /**
+     * 加载应用配置档，形如
+     * {"name": "IDE", "process": ["idea64.exe"], "windowClass": "SunAwtFrame", "actions": {...}}。
+     * 与全局相同的引导序列沿用全局槽位，新序列在全局之后分配；与全局绑定冲突的动作被跳过。
+     *
+     * @param globalActions 已加载的全局动作
+     */
+    public static List<Profile> loadProfiles(Map<Integer, ActionExecutor.ActionConfig> globalActions) {
+        KeymapCache.Entry entry = cacheEntry;
+        if (entry != null) {
+            try {
+                return entry.decodeProfiles();
+            } catch (IOException | RuntimeException e) {
+                Log.error("解码键位缓存失败，读取 config.json: {}", e.getMessage());
+            }
+        }
+        
+        List<Profile> profiles = new ArrayList<>();
+        SequenceSlots sequenceSlots = new SequenceSlots(globalActions);
+        if (snapshotPartial && !hasPendingMutations()) {
+            try {
+                readConfigMembers((name, reader) -> {
+                    if ("profiles".equals(name)) {
+                        readProfiles(reader, globalActions, sequenceSlots, profiles);
+                    } else {
+                        reader.skipValue();
+                    }
+                });
+            } catch (IOException | RuntimeException e) {
+                streamFailed = true;
+                Log.error("读取配置档失败，忽略配置档: {}", e.getMessage());
+                return new ArrayList<>();
+            }
+        } else {
+            JsonObject configJson;
+            try {
+                configJson = fullConfigJson();
+            } catch (IOException e) {
+                streamFailed = true;
+                Log.error("读取配置档失败，忽略配置档: {}", e.getMessage());
+                return new ArrayList<>();
+            }
+            if (configJson != null && configJson.has("profiles")) {
+                JsonElement profilesJson = configJson.get("profiles");
+                if (profilesJson.isJsonArray()) {
+                    for (JsonElement element : profilesJson.getAsJsonArray()) {
+                        parseProfile(element, globalActions, sequenceSlots, profiles);
+                    }
+                } else {
+                    Log.warn("profiles 必须是数组，忽略配置档");
+                }
+            }
+        }
+        saveKeymapCache(globalActions, profiles);
+        return profiles;
+    }
+    
+    /**
+     * 逐个读取 actions 对象的条目：每条解析成动作后即丢弃其 JSON
+     */
+    private static void readActions(JsonReader reader, Map<Integer, ActionExecutor.ActionConfig> actionMap,
+                                    SequenceSlots sequenceSlots, Keymap.Builder keymapCheck,
+                                    Set<Integer> checkedSlots) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            Log.warn("actions 必须是对象，忽略");
+            reader.skipValue();
+            return;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            parseActionEntry(key, JsonParser.parseReader(reader), actionMap, sequenceSlots, keymapCheck, checkedSlots);
+        }
+        reader.endObject();
+    }
+    
+    private static void readProfiles(JsonReader reader, Map<Integer, ActionExecutor.ActionConfig> globalActions,
+                                     SequenceSlots sequenceSlots, List<Profile> profiles) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            Log.warn("profiles 必须是数组，忽略配置档");
+            reader.skipValue();
+            return;
+        }
+        reader.beginArray();
+        while (reader.hasNext()) {
+            parseProfile(JsonParser.parseReader(reader), globalActions, sequenceSlots, profiles);
+        }
+        reader.endArray();
+    }
+    
+    /**
+     * 解析一个配置档，无效时打印原因后跳过
+     */
+    private static void parseProfile(JsonElement element, Map<Integer, ActionExecutor.ActionConfig> globalActions,
+                                     SequenceSlots sequenceSlots, List<Profile> profiles) {
+        try {
+            if (!element.isJsonObject()) {
+                throw new IllegalArgumentException("配置档必须是对象: " + element);
+            }
+            JsonObject profileJson = element.getAsJsonObject();
+            String name = profileJson.has("name") ? profileJson.get("name").getAsString() : null;
+            
+            // 每个配置档在全局键位之上检查冲突
+            Keymap.Builder keymapCheck = new Keymap.Builder();
+            Set<Integer> checkedSlots = new HashSet<>(globalActions.keySet());
+            try {
+                keymapCheck.addAll(globalActions);
+            } catch (IllegalArgumentException e) {
+                keymapCheck = new Keymap.Builder();
+                checkedSlots.clear();
+            }
+            Map<Integer, ActionExecutor.ActionConfig> overrides = new HashMap<>();
+            if (profileJson.has("actions")) {
+                JsonElement actionsJson = profileJson.get("actions");
+                if (!actionsJson.isJsonObject()) {
+                    throw new IllegalArgumentException("配置档 " + name + " 的 actions 必须是对象");
+                }
+                for (Map.Entry<String, JsonElement> action : actionsJson.getAsJsonObject().entrySet()) {
+                    parseActionEntry(action.getKey(), action.getValue(), overrides, sequenceSlots,
+                        keymapCheck, checkedSlots);
+                }
+            }
+            profiles.add(new Profile(name, parseStrings(profileJson.get("process")),
+                parseStrings(profileJson.get("windowClass")), overrides));
+        } catch (RuntimeException e) {
+            Log.warn("跳过配置档: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * 解析 actions 中的一条。条目无效（槽位、字段类型或取值错误）时打印原因后跳过，不影响其余条目
+     *
+     * @param keymapCheck  用于检查层和引导序列冲突
+     * @param checkedSlots keymapCheck 中已有的槽位，同一引导序列再次出现时视为覆盖而不是冲突
+     */
+    private static void parseActionEntry(String key, JsonElement actionJson,
+                                         Map<Integer, ActionExecutor.ActionConfig> actionMap,
+                                         SequenceSlots sequenceSlots, Keymap.Builder keymapCheck,
+                                         Set<Integer> checkedSlots) {
+        try {
+            // 基础层 "5"、层 "0+5"、引导序列 ". 4 2"
+            int keyIndex = Keymap.parseSlot(key);
+            String binding = keyIndex >= Keymap.KEY_COUNT || keyIndex < 0 ? key.trim() : null;
+            ActionExecutor.ActionConfig config = parseAction(actionJson);
+            config.setBinding(binding);
+            
+            if (keyIndex < 0) {
+                String sequence = Keymap.canonicalSequence(binding);
+                Integer existing = sequenceSlots.get(sequence);
+                keyIndex = existing != null ? existing : sequenceSlots.next();
+                if (!checkedSlots.contains(keyIndex)) {
+                    keymapCheck.sequence(Keymap.parseSequence(binding), keyIndex);
+                    checkedSlots.add(keyIndex);
+                }
+                sequenceSlots.put(sequence, keyIndex);
+            } else if (keyIndex >= Keymap.KEY_COUNT) {
+                keymapCheck.layer(keyIndex / Keymap.KEY_COUNT - 1, keyIndex % Keymap.KEY_COUNT);
+            }
+            actionMap.put(keyIndex, config);
+        } catch (RuntimeException e) {
+            // 除了 IllegalArgumentException，字段类型不对时 Gson 抛出 IllegalStateException 等
+            Log.warn("跳过键 {} 的配置: {}", key, e.getMessage());
+        }
+    }
+    
+    /**
+     * 解析单个动作并编译组合键和宏，按键时不再解析
+     *
+     * @throws IllegalArgumentException 动作无效
+     */
+    private static ActionExecutor.ActionConfig parseAction(JsonElement element) {
+        if (element == null || !element.isJsonObject()) {
+            throw new IllegalArgumentException("动作必须是对象");
+        }
+        JsonObject actionJson = element.getAsJsonObject();
+        if (!actionJson.has("name")) {
+            throw new IllegalArgumentException("动作缺少 name");
+        }
+        String name = actionJson.get("name").getAsString();
+        String command = actionJson.has("command") ? actionJson.get("command").getAsString() : null;
+        String argument = actionJson.has("argument") ? actionJson.get("argument").getAsString() : null;
+        String keyCombination = actionJson.has("keyCombination") ? actionJson.get("keyCombination").getAsString() : null;
+        
+        ActionExecutor.ActionConfig config = new ActionExecutor.ActionConfig(
+            name, command, argument, keyCombination
+        );
+        if (actionJson.has("macro")) {
+            config.setMacro(parseMacro(actionJson.getAsJsonArray("macro")));
+        }
+        if (actionJson.has("repeat")) {
+            config.setRepeatPolicy(parseRepeatPolicy(actionJson.get("repeat")));
+        }
+        config.compile();
+        return config;
+    }
+    
+    /** 字符串或字符串数组，缺省为空 */
+    private static List<String> parseStrings(JsonElement element) {
+        List<String> values = new ArrayList<>();
+        if (element == null || element.isJsonNull()) {
+            return values;
+        }
+        if (element.isJsonArray()) {
+            for (JsonElement item : element.getAsJsonArray()) {
+                values.add(item.getAsString());
+            }
+        } else {
+            values.add(element.getAsString());
+        }
+        return values;
+    }
+    
+    /**
+     * 引导序列槽位分配：同一序列在全局和各配置档中使用同一槽位
+     */
+    private static final class SequenceSlots {
+        private final Map<String, Integer> slots = new HashMap<>();
+        private int nextSlot = Keymap.SEQUENCE_SLOT_BASE;
+        
+        SequenceSlots() {
+        }
+        
+        SequenceSlots(Map<Integer, ActionExecutor.ActionConfig> actions) {
+            for (Map.Entry<Integer, ActionExecutor.ActionConfig> entry : actions.entrySet()) {
+                ActionExecutor.ActionConfig config = entry.getValue();
+                if (entry.getKey() >= Keymap.SEQUENCE_SLOT_BASE && config != null && config.getBinding() != null) {
+                    put(Keymap.canonicalSequence(config.getBinding()), entry.getKey());
+                }
+            }
+        }
+        
+        Integer get(String sequence) {
+            return slots.get(sequence);
+        }
+        
+        int next() {
+            return nextSlot;
+        }
+        
+        void put(String sequence, int slot) {
+            slots.put(sequence, slot);
+            nextSlot = Math.max(nextSlot, slot + 1);
+        }
+    }
+    
     /**
      * 获取配置文件路径
      */
@@ -128,22 +455,27 @@ public class ConfigManager {
     }
     
     /**
-     * 检查是否存在保存的配置
+     * 检查是否存在保存的配置（含尚未写盘的修改）
      */
     public static boolean configExists() {
-        return Files.exists(Paths.get(CONFIG_FILE));
+        return readConfigJson() != null;
     }
     
     /**
-     * 删除配置文件
+     * 删除配置，尚未写盘的修改一并丢弃
      */
     public static void deleteConfig() {
-        try {
-            Files.deleteIfExists(Paths.get(CONFIG_FILE));
-            System.out.println("配置已删除");
-        } catch (IOException e) {
-            System.err.println("删除配置失败: " + e.getMessage());
+        synchronized (SNAPSHOT_LOCK) {
+            snapshot = null;
+            snapshotLoaded = true;
+            snapshotPartial = false;
+            pendingMutations.clear();
+            cacheEntry = null;
+            snapshotVersion++;
+            deletePending = true;
+            scheduleWrite();
         }
+        flush();
     }
     
     /**
@@ -151,21 +483,19 @@ public class ConfigManager {
      */
     public static boolean exportConfig(String exportPath) {
         try {
-            Path configPath = Paths.get(CONFIG_FILE);
-            if (!Files.exists(configPath)) {
-                System.err.println("配置文件不存在，无法导出");
+            JsonObject configJson = fullConfigJson();
+            if (configJson == null) {
+                Log.warn("配置文件不存在，无法导出");
                 return false;
             }
             
-            // 读取当前配置并写入到目标位置
-            String configContent = new String(Files.readAllBytes(configPath), "UTF-8");
-            Files.write(Paths.get(exportPath), configContent.getBytes("UTF-8"));
+            // 导出内存中的当前配置（含尚未写盘的修改）
+            writeAtomically(Paths.get(exportPath), gson.toJson(configJson));
             
-            System.out.println("配置已导出到: " + exportPath);
+            Log.info("配置已导出到: {}", exportPath);
             return true;
         } catch (IOException e) {
-            System.err.println("导出配置失败: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("导出配置失败: {}", e.getMessage(), e);
             return false;
         }
     }
@@ -177,28 +507,29 @@ public class ConfigManager {
         try {
             Path importFilePath = Paths.get(importPath);
             if (!Files.exists(importFilePath)) {
-                System.err.println("导入文件不存在: " + importPath);
+                Log.warn("导入文件不存在: {}", importPath);
                 return false;
             }
             
             // 验证文件是否是有效的 JSON
             String content = new String(Files.readAllBytes(importFilePath), "UTF-8");
-            gson.fromJson(content, JsonObject.class);
-            
-            // 确保配置目录存在
-            Files.createDirectories(Paths.get(CONFIG_DIR));
+            JsonObject imported = gson.fromJson(content, JsonObject.class);
+            if (imported == null) {
+                Log.warn("导入文件为空: {}", importPath);
+                return false;
+            }
             
-            // 将导入的配置写入到默认位置
-            Files.write(Paths.get(CONFIG_FILE), content.getBytes("UTF-8"));
+            // 替换快照并立即写入默认位置
+            replaceConfigJson(imported);
+            flush();
             
-            System.out.println("配置已导入: " + CONFIG_FILE);
+            Log.info("配置已导入: {}", CONFIG_FILE);
             return true;
         } catch (IOException e) {
-            System.err.println("导入配置失败: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("导入配置失败: {}", e.getMessage(), e);
             return false;
         } catch (Exception e) {
-            System.err.println("导入文件格式错误: " + e.getMessage());
+            Log.warn("导入文件格式错误: {}", e.getMessage());
             return false;
         }
     }
@@ -218,23 +549,210 @@ public class ConfigManager {
      * 保存主题模式（light/dark/system）
      */
     public static void setThemeMode(String themeMode) {
+        String mode = normalizeThemeMode(themeMode);
+        updateConfigJson(configJson -> {
+            configJson.addProperty("themeMode", mode);
+            if (!configJson.has("version")) {
+                configJson.addProperty("version", "1.0.0");
+            }
+            configJson.addProperty("lastModified", System.currentTimeMillis());
+        });
+    }
+
+    /**
+     * 获取日志级别（debug、info、warn、error、off），未配置时为 {@link Log#getDefaultLevel()}
+     */
+    public static Log.Level getLogLevel() {
+        JsonObject configJson = readConfigJson();
+        if (configJson == null || !configJson.has("logLevel")) {
+            return Log.getDefaultLevel();
+        }
         try {
-            Files.createDirectories(Paths.get(CONFIG_DIR));
+            return Log.Level.parse(configJson.get("logLevel").getAsString());
+        } catch (RuntimeException e) {
+            Log.warn("无效的 logLevel，使用默认值: {}", e.getMessage());
+            return Log.getDefaultLevel();
+        }
+    }
 
-            JsonObject configJson = readConfigJson();
-            if (configJson == null) {
-                configJson = new JsonObject();
+    /**
+     * 获取组合键分步提交的间隔（毫秒），0 表示整个组合键一次提交
+     */
+    public static long getKeyPacingMillis() {
+        JsonObject configJson = readConfigJson();
+        if (configJson == null || !configJson.has("keyPacingMs")) {
+            return DEFAULT_KEY_PACING_MS;
+        }
+        try {
+            long pacing = configJson.get("keyPacingMs").getAsLong();
+            return Math.max(0, Math.min(MAX_KEY_PACING_MS, pacing));
+        } catch (RuntimeException e) {
+            Log.warn("无效的 keyPacingMs，使用默认值: {}", e.getMessage());
+            return DEFAULT_KEY_PACING_MS;
+        }
+    }
+
+    /**
+     * 解析宏步骤，每一步是只含一个步骤类型字段的对象，如 {"chord": "ctrl+c"}、{"delay": 0.5}、
+     * {"text": "hello", "interval": 1}、{"run": "notepad.exe", "argument": "a.txt"}
+     *
+     * @throws IllegalArgumentException 步骤格式无效
+     */
+    private static Macro parseMacro(JsonArray macroJson) {
+        List<Macro.Step> steps = new ArrayList<>();
+        for (JsonElement element : macroJson) {
+            if (!element.isJsonObject()) {
+                throw new IllegalArgumentException("宏步骤必须是对象: " + element);
+            }
+            JsonObject stepJson = element.getAsJsonObject();
+            String type = null;
+            for (String candidate : MACRO_STEP_TYPES) {
+                if (stepJson.has(candidate)) {
+                    if (type != null) {
+                        throw new IllegalArgumentException("宏步骤只能有一个类型: " + stepJson);
+                    }
+                    type = candidate;
+                }
             }
+            if (type == null) {
+                throw new IllegalArgumentException("未知的宏步骤: " + stepJson);
+            }
+            String value = stepJson.get(type).getAsString();
+            String argument = stepJson.has("argument") ? stepJson.get("argument").getAsString() : null;
+            double interval = stepJson.has("interval") ? stepJson.get("interval").getAsDouble() : 0;
+            steps.add(new Macro.Step(type, value, argument, interval));
+        }
+        return new Macro(steps);
+    }
 
-            configJson.addProperty("themeMode", normalizeThemeMode(themeMode));
-            if (!configJson.has("version")) {
-                configJson.addProperty("version", "1.0.0");
+    private static JsonArray macroToJson(Macro macro) {
+        JsonArray macroJson = new JsonArray();
+        for (Macro.Step step : macro.getSteps()) {
+            JsonObject stepJson = new JsonObject();
+            if (Macro.DELAY.equals(step.getType())) {
+                stepJson.addProperty(step.getType(), toJsonNumber(Double.parseDouble(step.getValue())));
+            } else {
+                stepJson.addProperty(step.getType(), step.getValue());
             }
-            configJson.addProperty("lastModified", System.currentTimeMillis());
+            if (step.getArgument() != null) {
+                stepJson.addProperty("argument", step.getArgument());
+            }
+            if (step.getIntervalMs() > 0) {
+                stepJson.addProperty("interval", toJsonNumber(step.getIntervalMs()));
+            }
+            macroJson.add(stepJson);
+        }
+        return macroJson;
+    }
+
+    /**
+     * 解析重复策略：false 表示不重复，对象形如 {"delay": 300, "interval": 100, "acceleration": 0.85, "minInterval": 20}
+     *
+     * @throws IllegalArgumentException 格式或取值无效
+     */
+    private static RepeatPolicy parseRepeatPolicy(JsonElement repeatJson) {
+        if (repeatJson.isJsonPrimitive() && repeatJson.getAsJsonPrimitive().isBoolean()) {
+            return repeatJson.getAsBoolean() ? RepeatPolicy.VOLUME : RepeatPolicy.NONE;
+        }
+        if (!repeatJson.isJsonObject()) {
+            throw new IllegalArgumentException("无效的重复策略: " + repeatJson);
+        }
+        JsonObject policyJson = repeatJson.getAsJsonObject();
+        RepeatPolicy defaults = RepeatPolicy.VOLUME;
+        long delay = policyJson.has("delay") ? policyJson.get("delay").getAsLong() : defaults.getDelayMs();
+        long interval = policyJson.has("interval") ? policyJson.get("interval").getAsLong() : defaults.getIntervalMs();
+        double acceleration = policyJson.has("acceleration") ? policyJson.get("acceleration").getAsDouble() : 1.0;
+        long minInterval = policyJson.has("minInterval") ? policyJson.get("minInterval").getAsLong() : interval;
+        return new RepeatPolicy(delay, interval, acceleration, minInterval);
+    }
+
+    private static JsonElement repeatPolicyToJson(RepeatPolicy policy) {
+        if (!policy.isEnabled()) {
+            return new JsonPrimitive(false);
+        }
+        JsonObject policyJson = new JsonObject();
+        policyJson.addProperty("delay", policy.getDelayMs());
+        policyJson.addProperty("interval", policy.getIntervalMs());
+        if (policy.getAcceleration() != 1.0) {
+            policyJson.addProperty("acceleration", policy.getAcceleration());
+            policyJson.addProperty("minInterval", policy.getMinIntervalMs());
+        }
+        return policyJson;
+    }
 
-            writeConfigJson(configJson);
+    // 整数毫秒写成 100 而不是 100.0
+    private static Number toJsonNumber(double value) {
+        return value == Math.rint(value) ? (Number) (long) value : (Number) value;
+    }
+
+    /**
+     * 获取引导序列的超时（毫秒），两次按键间隔超过该值时序列作废
+     */
+    public static long getSequenceTimeoutMillis() {
+        JsonObject configJson = readConfigJson();
+        if (configJson == null || !configJson.has("sequenceTimeoutMs")) {
+            return Keymap.DEFAULT_SEQUENCE_TIMEOUT_MS;
+        }
+        try {
+            long timeout = configJson.get("sequenceTimeoutMs").getAsLong();
+            return Math.max(100, Math.min(MAX_SEQUENCE_TIMEOUT_MS, timeout));
+        } catch (RuntimeException e) {
+            Log.warn("无效的 sequenceTimeoutMs，使用默认值: {}", e.getMessage());
+            return Keymap.DEFAULT_SEQUENCE_TIMEOUT_MS;
+        }
+    }
+
+    /**
+     * 获取音量加减每步的百分比（1~25），默认 2
+     */
+    public static int getVolumeStepPercent() {
+        JsonObject configJson = readConfigJson();
+        if (configJson == null || !configJson.has("volumeStep")) {
+            return DEFAULT_VOLUME_STEP;
+        }
+        try {
+            int step = configJson.get("volumeStep").getAsInt();
+            return Math.max(1, Math.min(MAX_VOLUME_STEP, step));
+        } catch (RuntimeException e) {
+            Log.warn("无效的 volumeStep，使用默认值: {}", e.getMessage());
+            return DEFAULT_VOLUME_STEP;
+        }
+    }
+
+    /**
+     * 音量加减是否使用媒体键（volumeBackend 为 "keys"），默认直接设置端点音量
+     */
+    public static boolean isVolumeKeysOnly() {
+        JsonObject configJson = readConfigJson();
+        return configJson != null && configJson.has("volumeBackend")
+            && "keys".equalsIgnoreCase(configJson.get("volumeBackend").getAsString());
+    }
+
+    /**
+     * 是否使用 JNativeHook 作为输入源（inputBackend 为 "jnativehook"），默认只用低层键盘钩子
+     */
+    public static boolean isJNativeHookInput() {
+        JsonObject configJson = readConfigJson();
+        return configJson != null && configJson.has("inputBackend")
+            && "jnativehook".equalsIgnoreCase(configJson.get("inputBackend").getAsString());
+    }
+
+    /**
+     * 获取子进程输出日志文件：processOutput 为 "log" 时写入 logs/process.log，否则返回 null（丢弃输出）
+     */
+    public static File getProcessOutputLog() {
+        JsonObject configJson = readConfigJson();
+        if (configJson == null || !configJson.has("processOutput")
+                || !"log".equalsIgnoreCase(configJson.get("processOutput").getAsString())) {
+            return null;
+        }
+        try {
+            Path logDir = Paths.get(CONFIG_DIR, "logs");
+            Files.createDirectories(logDir);
+            return logDir.resolve("process.log").toFile();
         } catch (IOException e) {
-            System.err.println("保存主题配置失败: " + e.getMessage());
+            Log.error("创建日志目录失败，丢弃子进程输出: {}", e.getMessage());
+            return null;
         }
     }
 
@@ -250,23 +768,413 @@ public class ConfigManager {
         return DEFAULT_THEME_MODE;
     }
 
+    /**
+     * 当前配置快照，首次调用时读取键位缓存或 config.json。首次读取的快照只含顶层设置，
+     * 需要 actions/profiles 等完整内容时用 {@link #fullConfigJson()}。返回的对象由所有读取方共享，不得修改。
+     */
     private static JsonObject readConfigJson() {
+        if (!snapshotLoaded) {
+            synchronized (SNAPSHOT_LOCK) {
+                if (!snapshotLoaded) {
+                    KeymapCache.Entry entry = keymapCacheEnabled
+                        ? KeymapCache.read(Paths.get(CONFIG_FILE), Paths.get(CACHE_FILE)) : null;
+                    if (entry != null) {
+                        syncedFingerprint = entry.getFingerprint();
+                        snapshot = entry.getSettings();
+                        cacheEntry = entry;
+                    } else {
+                        snapshot = readConfigFile();
+                    }
+                    snapshotPartial = snapshot != null;
+                    snapshotLoaded = true;
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * 完整的配置快照：只含顶层设置的快照在此时才把 config.json 读成完整的 JSON 树，并重放期间做过的修改。
+     * 会读取磁盘，不在事件调度线程上调用。
+     *
+     * @throws IOException 文件被外部删除、改坏或暂时无法读取；此时快照保持只含顶层设置，尚未写盘的修改不会写盘
+     */
+    private static JsonObject fullConfigJson() throws IOException {
+        JsonObject current = readConfigJson();
+        if (!snapshotPartial) {
+            return current;
+        }
+        // 与 reloadFromDisk 互斥，读到的文件就是快照加载时的那一份
+        synchronized (FILE_LOCK) {
+            if (!snapshotPartial) {
+                return snapshot;
+            }
+            JsonObject configJson = new JsonObject();
+            try {
+                readConfigMembers((name, reader) -> configJson.add(name, JsonParser.parseReader(reader)));
+            } catch (RuntimeException e) {
+                throw new IOException("配置文件不是有效的 JSON: " + e.getMessage(), e);
+            }
+            synchronized (SNAPSHOT_LOCK) {
+                if (snapshotPartial) {
+                    for (Consumer<JsonObject> mutation : pendingMutations) {
+                        mutation.accept(configJson);
+                    }
+                    pendingMutations.clear();
+                    snapshot = configJson;
+                    snapshotPartial = false;
+                    cacheEntry = null;
+                }
+                return snapshot;
+            }
+        }
+    }
+
+    private static boolean hasPendingMutations() {
+        synchronized (SNAPSHOT_LOCK) {
+            return !pendingMutations.isEmpty();
+        }
+    }
+
+    /**
+     * 读取 config.json 的指纹和顶层设置
+     *
+     * @return 文件不存在、为空或无效时返回 null
+     */
+    private static JsonObject readConfigFile() {
         try {
             Path configPath = Paths.get(CONFIG_FILE);
             if (!Files.exists(configPath)) {
                 return null;
             }
 
-            String json = new String(Files.readAllBytes(configPath), "UTF-8");
-            return gson.fromJson(json, JsonObject.class);
+            syncedModified = Files.getLastModifiedTime(configPath).toMillis();
+            syncedFingerprint = ConfigFingerprint.of(configPath);
+            if (syncedFingerprint.getLength() == 0) {
+                return null;
+            }
+            return readSettings();
         } catch (Exception e) {
-            System.err.println("读取配置JSON失败: " + e.getMessage());
+            Log.error("读取配置JSON失败: {}", e.getMessage());
             return null;
         }
     }
 
-    private static void writeConfigJson(JsonObject configJson) throws IOException {
-        String json = gson.toJson(configJson);
-        Files.write(Paths.get(CONFIG_FILE), json.getBytes("UTF-8"));
+    /**
+     * 流式读取 config.json 中 actions、profiles 以外的顶层成员。跳过的部分同样经过语法检查，
+     * 文件不完整或不是有效的 JSON 时抛出异常。
+     */
+    private static JsonObject readSettings() throws IOException {
+        JsonObject settings = new JsonObject();
+        readConfigMembers((name, reader) -> {
+            if ("actions".equals(name) || "profiles".equals(name)) {
+                reader.skipValue();
+            } else {
+                settings.add(name, JsonParser.parseReader(reader));
+            }
+        });
+        return settings;
+    }
+
+    /** 读取 config.json 一个顶层成员的值 */
+    private interface MemberReader {
+        void read(String name, JsonReader reader) throws IOException;
+    }
+
+    /**
+     * 从文件通道流式读取 config.json 的顶层对象，每个成员交给 memberReader 读取或跳过
+     */
+    private static void readConfigMembers(MemberReader memberReader) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(CONFIG_FILE), StandardOpenOption.READ);
+             JsonReader reader = new JsonReader(Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder()
+                 .onMalformedInput(CodingErrorAction.REPLACE)
+                 .onUnmappableCharacter(CodingErrorAction.REPLACE), READ_BUFFER_SIZE))) {
+            // 与 Gson.fromJson 一样容忍注释、单引号等写法
+            reader.setLenient(true);
+            reader.beginObject();
+            while (reader.hasNext()) {
+                memberReader.read(reader.nextName(), reader);
+            }
+            reader.endObject();
+            if (reader.peek() != JsonToken.END_DOCUMENT) {
+                throw new MalformedJsonException("配置文件在顶层对象之后还有内容");
+            }
+        }
+    }
+
+    /**
+     * 在快照副本上修改后发布，并安排写盘。不读取磁盘：快照只含顶层设置时记录这次修改，
+     * 由写入线程构建完整的 JSON 树后重放。
+     */
+    private static void updateConfigJson(Consumer<JsonObject> mutation) {
+        synchronized (SNAPSHOT_LOCK) {
+            JsonObject current = readConfigJson();
+            JsonObject updated = current != null ? current.deepCopy() : new JsonObject();
+            mutation.accept(updated);
+            if (snapshotPartial) {
+                pendingMutations.add(mutation);
+            }
+            publish(updated, snapshotPartial);
+        }
+    }
+
+    private static void replaceConfigJson(JsonObject configJson) {
+        synchronized (SNAPSHOT_LOCK) {
+            publish(configJson, false);
+        }
+    }
+
+    private static void publish(JsonObject configJson, boolean partial) {
+        snapshot = configJson;
+        snapshotLoaded = true;
+        snapshotPartial = partial;
+        if (!partial) {
+            pendingMutations.clear();
+        }
+        cacheEntry = null;
+        snapshotVersion++;
+        deletePending = false;
+        scheduleWrite();
+    }
+
+    /**
+     * 安排一次写盘：每次修改都推迟 {@link #WRITE_DELAY_MS}，但距首次未写盘的修改不超过
+     * {@link #MAX_WRITE_DELAY_MS}。持有 SNAPSHOT_LOCK 时调用。
+     */
+    private static void scheduleWrite() {
+        long now = System.nanoTime();
+        if (pendingWrite == null) {
+            firstDirtyNanos = now;
+        } else {
+            pendingWrite.cancel(false);
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(now - firstDirtyNanos);
+        long delayMs = Math.max(0, Math.min(WRITE_DELAY_MS, MAX_WRITE_DELAY_MS - elapsedMs));
+        pendingWrite = writer().schedule(ConfigManager::writeSnapshot, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private static ScheduledExecutorService writer() {
+        synchronized (SNAPSHOT_LOCK) {
+            if (writer == null) {
+                writer = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread thread = new Thread(r, "minpad-config-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            return writer;
+        }
+    }
+
+    /**
+     * 把与磁盘一致的解析结果写入键位缓存（在写入线程执行）。快照有尚未写盘的修改时不写。
+     */
+    private static void saveKeymapCache(Map<Integer, ActionExecutor.ActionConfig> globalActions,
+                                        List<Profile> profiles) {
+        if (!keymapCacheEnabled) {
+            return;
+        }
+        JsonObject configJson;
+        ConfigFingerprint fingerprint;
+        long modified;
+        synchronized (SNAPSHOT_LOCK) {
+            if (snapshotVersion != writtenVersion || deletePending || snapshot == null
+                    || syncedFingerprint == null || streamFailed) {
+                return;
+            }
+            configJson = snapshot;
+            fingerprint = syncedFingerprint;
+            modified = syncedModified;
+        }
+        byte[] data = KeymapCache.encode(fingerprint, modified, configJson, globalActions, profiles);
+        if (data == null) {
+            return;
+        }
+        Future<?> task = writer().submit(() -> {
+            synchronized (FILE_LOCK) {
+                try {
+                    writeAtomically(Paths.get(CACHE_FILE), data);
+                } catch (IOException e) {
+                    Log.error("写入键位缓存失败: {}", e.getMessage());
+                }
+            }
+        });
+        synchronized (SNAPSHOT_LOCK) {
+            pendingCacheWrite = task;
+        }
+    }
+
+    /**
+     * 丢弃内存快照，下次读取时重新从磁盘（或键位缓存）加载。尚未写盘的修改会先写入。
+     */
+    static void reloadSnapshot() {
+        flush();
+        synchronized (SNAPSHOT_LOCK) {
+            snapshot = null;
+            snapshotLoaded = false;
+            snapshotPartial = false;
+            pendingMutations.clear();
+            cacheEntry = null;
+        }
+    }
+
+    /**
+     * 启用或禁用键位缓存（基准测试对比用）
+     */
+    static void setKeymapCacheEnabled(boolean enabled) {
+        keymapCacheEnabled = enabled;
+    }
+
+    /**
+     * 立即把尚未写盘的修改写入 config.json，退出前调用
+     */
+    public static void flush() {
+        Future<?> cacheWrite;
+        synchronized (SNAPSHOT_LOCK) {
+            if (pendingWrite != null) {
+                pendingWrite.cancel(false);
+            }
+            cacheWrite = pendingCacheWrite;
+            pendingCacheWrite = null;
+        }
+        writeSnapshot();
+        if (cacheWrite != null) {
+            try {
+                cacheWrite.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                Log.error("写入键位缓存失败: {}", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * 写入最新快照；多次修改只写最后一次，已写入的版本直接跳过。
+     * 快照只含顶层设置时先构建完整的 JSON 树，失败则不写盘。
+     */
+    private static void writeSnapshot() {
+        synchronized (FILE_LOCK) {
+            JsonObject configJson;
+            long version;
+            boolean delete;
+            synchronized (SNAPSHOT_LOCK) {
+                pendingWrite = null;
+                if (snapshotVersion == writtenVersion) {
+                    return;
+                }
+            }
+            try {
+                fullConfigJson();
+            } catch (IOException e) {
+                // 保留未写入状态，下次修改或 flush 时重试
+                Log.error("读取完整配置失败，暂不保存: {}", e.getMessage());
+                return;
+            }
+            synchronized (SNAPSHOT_LOCK) {
+                configJson = snapshot;
+                version = snapshotVersion;
+                delete = deletePending;
+            }
+            try {
+                if (delete) {
+                    Files.deleteIfExists(Paths.get(CONFIG_FILE));
+                    Files.deleteIfExists(Paths.get(CACHE_FILE));
+                    Log.info("配置已删除");
+                } else if (configJson != null) {
+                    Files.createDirectories(Paths.get(CONFIG_DIR));
+                    byte[] json = gson.toJson(configJson).getBytes(StandardCharsets.UTF_8);
+                    writeAtomically(Paths.get(CONFIG_FILE), json);
+                    syncedFingerprint = ConfigFingerprint.of(json);
+                    syncedModified = Files.getLastModifiedTime(Paths.get(CONFIG_FILE)).toMillis();
+                    Log.info("配置已保存: {}", CONFIG_FILE);
+                }
+                synchronized (SNAPSHOT_LOCK) {
+                    writtenVersion = Math.max(writtenVersion, version);
+                }
+            } catch (IOException e) {
+                // 保留未写入状态，下次修改或 flush 时重试
+                Log.error("保存配置失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 重新读取 config.json 替换快照（用于文件被外部修改后）。尚未写盘的修改被文件内容取代。
+     *
+     * @return false 表示文件内容与上次同步时相同（如本程序自己写入），快照未变
+     * @throws IOException 读取失败，或文件为空、不是有效的 JSON；此时保留原快照
+     */
+    public static boolean reloadFromDisk() throws IOException {
+        synchronized (FILE_LOCK) {
+            Path configPath = Paths.get(CONFIG_FILE);
+            if (!Files.exists(configPath)) {
+                return false;
+            }
+            long modified = Files.getLastModifiedTime(configPath).toMillis();
+            ConfigFingerprint fingerprint = ConfigFingerprint.of(configPath);
+            if (fingerprint.equals(syncedFingerprint)) {
+                return false;
+            }
+            if (fingerprint.getLength() == 0) {
+                throw new IOException("配置文件为空");
+            }
+            // 先检查整个文件的语法，actions 和 profiles 随后由 loadConfig/loadProfiles 流式读取
+            JsonObject settings;
+            try {
+                settings = readSettings();
+            } catch (IOException | RuntimeException e) {
+                throw new IOException("配置文件不是有效的 JSON: " + e.getMessage(), e);
+            }
+            syncedFingerprint = fingerprint;
+            syncedModified = modified;
+            synchronized (SNAPSHOT_LOCK) {
+                if (pendingWrite != null) {
+                    pendingWrite.cancel(false);
+                    pendingWrite = null;
+                }
+                snapshot = settings;
+                snapshotLoaded = true;
+                snapshotPartial = true;
+                pendingMutations.clear();
+                cacheEntry = null;
+                deletePending = false;
+                snapshotVersion++;
+                writtenVersion = snapshotVersion;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 配置目录（config.json 所在目录）
+     */
+    public static Path getConfigDirectory() {
+        return Paths.get(CONFIG_DIR);
+    }
+
+    /**
+     * 先写同目录的临时文件并刷到磁盘，再原子重命名覆盖目标文件
+     */
+    private static void writeAtomically(Path target, String content) throws IOException {
+        writeAtomically(target, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static void writeAtomically(Path target, byte[] content) throws IOException {
+        Path absolute = target.toAbsolutePath();
+        Path temp = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        try {
+            Files.move(temp, absolute, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING);
+        }
     }
 }
@@ -0,0 +1,167 @@
+package com.minpad;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 配置文件监视器
+ * 用 {@link WatchService} 监视配置目录，config.json 变化后等待写入平静（去抖）再在监视线程上重新解析，
+ * 由 {@link ActionExecutor#reloadConfig()} 增量替换动作和键位，无需重启。
+ * 本程序自己写盘引起的变化会被忽略；文件无效时保留当前配置并报告失败。
+ */
+public class ConfigWatcher {
+
+    /**
+     * 重新加载结果回调，在监视线程调用
+     */
+    public interface Listener {
+        void onReloaded(ActionExecutor.ReloadResult result, long elapsedNanos);
+
+        void onReloadFailed(Exception error);
+    }
+
+    private static final String CONFIG_FILE_NAME = "config.json";
+    private static final long DEBOUNCE_MS = 250;
+
+    private final ActionExecutor executor;
+    private final Path directory;
+    private volatile Listener listener;
+    private volatile WatchService watchService;
+    private Thread watchThread;
+
+    private volatile long reloadCount;
+    private volatile long failureCount;
+    private volatile long lastReloadNanos;
+
+    public ConfigWatcher(ActionExecutor executor) {
+        this(executor, ConfigManager.getConfigDirectory());
+    }
+
+    ConfigWatcher(ActionExecutor executor, Path directory) {
+        this.executor = executor;
+        this.directory = directory;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 开始监视，配置目录不存在时先创建
+     *
+     * @throws IOException 无法注册监视
+     */
+    public synchronized void start() throws IOException {
+        if (watchService != null) {
+            return;
+        }
+        Files.createDirectories(directory);
+        WatchService service = directory.getFileSystem().newWatchService();
+        directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watchService = service;
+        watchThread = new Thread(this::runLoop, "minpad-config-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+        Log.info("正在监视配置文件: {}", directory.resolve(CONFIG_FILE_NAME));
+    }
+
+    public synchronized void stop() {
+        WatchService service = watchService;
+        watchService = null;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException e) {
+                // 关闭失败时监视线程仍会因中断退出
+            }
+        }
+        if (watchThread != null) {
+            watchThread.interrupt();
+            watchThread = null;
+        }
+    }
+
+    private void runLoop() {
+        WatchService service = watchService;
+        try {
+            while (service != null) {
+                if (!drain(service.take())) {
+                    continue;
+                }
+                // 编辑器保存时可能连续产生多次事件，平静后再读取
+                WatchKey key;
+                while ((key = service.poll(DEBOUNCE_MS, TimeUnit.MILLISECONDS)) != null) {
+                    drain(key);
+                }
+                reload();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // 停止监视
+        }
+    }
+
+    /** 取出一个 WatchKey 的事件并重置，返回是否涉及 config.json */
+    private boolean drain(WatchKey key) {
+        boolean relevant = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                relevant = true;
+            } else if (event.context() instanceof Path
+                    && CONFIG_FILE_NAME.equals(((Path) event.context()).getFileName().toString())) {
+                relevant = true;
+            }
+        }
+        key.reset();
+        return relevant;
+    }
+
+    /**
+     * 重新读取 config.json 并应用，内容未变时什么也不做
+     */
+    public void reload() {
+        long start = System.nanoTime();
+        Listener target = listener;
+        try {
+            if (!ConfigManager.reloadFromDisk()) {
+                return;
+            }
+            ActionExecutor.ReloadResult result = executor.reloadConfig();
+            Log.setLevel(ConfigManager.getLogLevel());
+            long elapsed = System.nanoTime() - start;
+            lastReloadNanos = elapsed;
+            reloadCount++;
+            Log.info("配置已重新加载（{} ms）: {}", String.format("%.2f", elapsed / 1e6), result);
+            if (target != null) {
+                target.onReloaded(result, elapsed);
+            }
+        } catch (IOException | RuntimeException e) {
+            failureCount++;
+            Log.error("重新加载配置失败，继续使用当前配置: {}", e.getMessage());
+            if (target != null) {
+                target.onReloadFailed(e);
+            }
+        }
+    }
+
+    /** 成功重新加载的次数 */
+    public long getReloadCount() {
+        return reloadCount;
+    }
+
+    /** 重新加载失败的次数 */
+    public long getFailureCount() {
+        return failureCount;
+    }
+
+    /** 最近一次成功重新加载的耗时（读取、解析和应用） */
+    public long getLastReloadNanos() {
+        return lastReloadNanos;
+    }
+}
@@ -0,0 +1,142 @@
+package com.minpad;
+
+import com.sun.jna.Pointer;
+import com.sun.jna.platform.win32.COM.Unknown;
+import com.sun.jna.platform.win32.Guid;
+import com.sun.jna.platform.win32.Ole32;
+import com.sun.jna.platform.win32.WinError;
+import com.sun.jna.platform.win32.WinNT;
+import com.sun.jna.ptr.FloatByReference;
+import com.sun.jna.ptr.PointerByReference;
+
+/**
+ * Core Audio 端点音量后端
+ * 通过 IMMDeviceEnumerator 取得默认播放设备的 IAudioEndpointVolume，直接读写主音量标量。
+ * 接口指针在首次使用时获取并缓存；设备切换或失效导致调用失败时重新获取一次。
+ * 对象运行在多线程套间（MTA），调用线程首次使用时初始化 COM。
+ */
+public class CoreAudioVolumeBackend implements VolumeBackend {
+
+    private static final Guid.GUID CLSID_MMDEVICE_ENUMERATOR = new Guid.GUID("{BCDE0395-E52F-467C-8E3D-C4579291692E}");
+    private static final Guid.GUID IID_IMMDEVICE_ENUMERATOR = new Guid.GUID("{A95664D2-9614-4F35-A746-DE8DB63617E6}");
+    private static final Guid.GUID IID_IAUDIO_ENDPOINT_VOLUME = new Guid.GUID("{5CDF2C82-841E-4546-9722-0CF74078229A}");
+
+    private static final int CLSCTX_ALL = 0x17;
+    private static final int E_RENDER = 0;      // EDataFlow.eRender
+    private static final int E_CONSOLE = 0;     // ERole.eConsole
+
+    // 虚函数表下标（IUnknown 占 0~2）
+    private static final int VT_GET_DEFAULT_AUDIO_ENDPOINT = 4;        // IMMDeviceEnumerator
+    private static final int VT_ACTIVATE = 3;                          // IMMDevice
+    private static final int VT_SET_MASTER_VOLUME_LEVEL_SCALAR = 7;    // IAudioEndpointVolume
+    private static final int VT_GET_MASTER_VOLUME_LEVEL_SCALAR = 9;    // IAudioEndpointVolume
+
+    private final ThreadLocal<Boolean> comInitialized = ThreadLocal.withInitial(() -> false);
+    private final FloatByReference levelRef = new FloatByReference();
+    private ComObject endpointVolume;
+
+    @Override
+    public String getName() {
+        return "Core Audio";
+    }
+
+    @Override
+    public synchronized float getLevel() {
+        int hr = invoke(VT_GET_MASTER_VOLUME_LEVEL_SCALAR, false, 0f);
+        check(hr, "读取主音量");
+        return levelRef.getValue();
+    }
+
+    @Override
+    public synchronized void setLevel(float level) {
+        int hr = invoke(VT_SET_MASTER_VOLUME_LEVEL_SCALAR, true, VolumeBackend.clamp(level));
+        check(hr, "设置主音量");
+    }
+
+    @Override
+    public synchronized void close() {
+        releaseEndpoint();
+    }
+
+    /** 调用端点音量接口，失败时重新获取接口再试一次 */
+    private int invoke(int vtableIndex, boolean set, float level) {
+        int hr = invokeOnce(vtableIndex, set, level);
+        if (WinError.S_OK.intValue() != hr) {
+            releaseEndpoint();
+            hr = invokeOnce(vtableIndex, set, level);
+        }
+        return hr;
+    }
+
+    private int invokeOnce(int vtableIndex, boolean set, float level) {
+        ComObject endpoint = acquireEndpoint();
+        Object[] args = set
+            ? new Object[]{endpoint.getPointer(), level, Pointer.NULL}
+            : new Object[]{endpoint.getPointer(), levelRef};
+        return endpoint.call(vtableIndex, args);
+    }
+
+    private ComObject acquireEndpoint() {
+        if (endpointVolume != null) {
+            return endpointVolume;
+        }
+        if (!comInitialized.get()) {
+            WinNT.HRESULT hr = Ole32.INSTANCE.CoInitializeEx(Pointer.NULL, Ole32.COINIT_MULTITHREADED);
+            // S_FALSE 表示已初始化；RPC_E_CHANGED_MODE 表示线程已是 STA，仍可使用
+            if (hr.intValue() < 0 && hr.intValue() != WinError.RPC_E_CHANGED_MODE) {
+                throw new IllegalStateException("初始化 COM 失败: 0x" + Integer.toHexString(hr.intValue()));
+            }
+            comInitialized.set(true);
+        }
+
+        PointerByReference ref = new PointerByReference();
+        check(Ole32.INSTANCE.CoCreateInstance(CLSID_MMDEVICE_ENUMERATOR, Pointer.NULL, CLSCTX_ALL,
+            IID_IMMDEVICE_ENUMERATOR, ref).intValue(), "创建设备枚举器");
+        ComObject enumerator = new ComObject(ref.getValue());
+        ComObject device = null;
+        try {
+            check(enumerator.call(VT_GET_DEFAULT_AUDIO_ENDPOINT,
+                new Object[]{enumerator.getPointer(), E_RENDER, E_CONSOLE, ref}), "获取默认播放设备");
+            device = new ComObject(ref.getValue());
+            check(device.call(VT_ACTIVATE,
+                new Object[]{device.getPointer(), IID_IAUDIO_ENDPOINT_VOLUME, CLSCTX_ALL, Pointer.NULL, ref}), "激活端点音量");
+            endpointVolume = new ComObject(ref.getValue());
+            return endpointVolume;
+        } finally {
+            if (device != null) {
+                device.Release();
+            }
+            enumerator.Release();
+        }
+    }
+
+    private void releaseEndpoint() {
+        if (endpointVolume != null) {
+            try {
+                endpointVolume.Release();
+            } catch (RuntimeException e) {
+                // 设备已失效时 Release 也可能失败，直接丢弃
+            }
+            endpointVolume = null;
+        }
+    }
+
+    private static void check(int hr, String operation) {
+        if (hr < 0) {
+            throw new IllegalStateException(operation + "失败: 0x" + Integer.toHexString(hr));
+        }
+    }
+
+    /**
+     * 按虚函数表下标调用的 COM 对象
+     */
+    private static final class ComObject extends Unknown {
+        ComObject(Pointer pointer) {
+            super(pointer);
+        }
+
+        int call(int vtableIndex, Object[] args) {
+            return _invokeNativeInt(vtableIndex, args);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.minpad;
+
+import java.awt.Font;
+import java.awt.GraphicsEnvironment;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * 字体解析服务
+ * 系统字体族只枚举一次，之后按候选列表查询时只做哈希查找（不区分大小写）。
+ * 枚举结果保存为配置目录下的 fonts.cache，以字体目录的指纹（各目录及其中文件的路径、大小、修改时间，加上 JDK 版本）为键；
+ * 指纹一致时直接读取缓存，不再调用 {@link GraphicsEnvironment#getAvailableFontFamilyNames()}。
+ *
+ * <p>启动时由后台线程调用 {@link #load()}；之后的查询等待加载完成，无人加载时在调用线程加载。</p>
+ */
+public final class FontResolver {
+
+    static final String CACHE_FILE_NAME = "fonts.cache";
+
+    private static final int MAGIC = 0x4D504643; // "MPFC"
+    private static final int FORMAT_VERSION = 1;
+
+    private static final boolean CACHE_ENABLED =
+        !"false".equalsIgnoreCase(System.getProperty("minpad.fontCache"));
+
+    private static final AtomicBoolean loading = new AtomicBoolean();
+    // 小写字体族名 → 系统返回的字体族名
+    private static final CompletableFuture<Map<String, String>> families = new CompletableFuture<>();
+
+    private FontResolver() {
+    }
+
+    /**
+     * 在当前线程加载字体索引；已经在加载或已加载时立即返回
+     */
+    public static void load() {
+        if (!loading.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            families.complete(loadIndex());
+        } catch (RuntimeException | Error e) {
+            families.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * 按顺序返回第一个已安装的候选字体族名（系统中的写法）
+     *
+     * @return 候选都不存在或字体无法枚举时返回 null
+     */
+    public static String find(String... candidates) {
+        Map<String, String> index = index();
+        for (String candidate : candidates) {
+            String family = index.get(candidate.toLowerCase(Locale.ROOT));
+            if (family != null) {
+                return family;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 用第一个已安装的候选字体创建字体，都不存在时使用 SansSerif
+     */
+    public static Font pick(int style, int size, String... candidates) {
+        String family = find(candidates);
+        return new Font(family != null ? family : Font.SANS_SERIF, style, size);
+    }
+
+    private static Map<String, String> index() {
+        load();
+        try {
+            return families.join();
+        } catch (CompletionException e) {
+            return Collections.emptyMap();
+        }
+    }
+
+    private static Map<String, String> loadIndex() {
+        Path cacheFile = ConfigManager.getConfigDirectory().resolve(CACHE_FILE_NAME);
+        long fingerprint = CACHE_ENABLED ? fingerprint() : 0;
+        List<String> names = CACHE_ENABLED ? readCache(cacheFile, fingerprint) : null;
+        if (names == null) {
+            long start = System.nanoTime();
+            names = Arrays.asList(GraphicsEnvironment.getLocalGraphicsEnvironment().getAvailableFontFamilyNames());
+            Log.info("枚举系统字体 {} 个，耗时 {} ms", names.size(), (System.nanoTime() - start) / 1_000_000L);
+            if (CACHE_ENABLED) {
+                writeCache(cacheFile, fingerprint, names);
+            }
+        }
+        Map<String, String> index = new HashMap<>(names.size() * 2);
+        for (String name : names) {
+            index.putIfAbsent(name.toLowerCase(Locale.ROOT), name);
+        }
+        return index;
+    }
+
+    /**
+     * 字体目录指纹。安装或删除字体会改变目录和文件的修改时间、文件列表；换 JDK 会改变逻辑字体的映射。
+     */
+    static long fingerprint() {
+        CRC32 crc = new CRC32();
+        update(crc, System.getProperty("java.version"));
+        update(crc, System.getProperty("os.name"));
+        for (Path dir : fontDirectories()) {
+            if (!Files.isDirectory(dir)) {
+                continue;
+            }
+            try {
+                Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path path, BasicFileAttributes attributes) {
+                        update(crc, path.toString());
+                        update(crc, attributes.lastModifiedTime().toMillis());
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(Path path, BasicFileAttributes attributes) {
+                        update(crc, path.getFileName().toString());
+                        update(crc, attributes.size());
+                        update(crc, attributes.lastModifiedTime().toMillis());
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path path, IOException e) {
+                        update(crc, path.toString());
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                update(crc, dir.toString());
+            }
+        }
+        return crc.getValue();
+    }
+
+    private static List<Path> fontDirectories() {
+        List<Path> dirs = new ArrayList<>();
+        dirs.add(Paths.get(System.getProperty("java.home"), "lib", "fonts"));
+        String windir = System.getenv("WINDIR");
+        if (windir != null) {
+            dirs.add(Paths.get(windir, "Fonts"));
+        }
+        String localAppData = System.getenv("LOCALAPPDATA");
+        if (localAppData != null) {
+            // Windows 10 1809 起可以只为当前用户安装字体
+            dirs.add(Paths.get(localAppData, "Microsoft", "Windows", "Fonts"));
+        }
+        String home = System.getProperty("user.home");
+        dirs.add(Paths.get("/usr/share/fonts"));
+        dirs.add(Paths.get("/usr/local/share/fonts"));
+        dirs.add(Paths.get(home, ".fonts"));
+        dirs.add(Paths.get(home, ".local", "share", "fonts"));
+        dirs.add(Paths.get("/Library/Fonts"));
+        dirs.add(Paths.get("/System/Library/Fonts"));
+        dirs.add(Paths.get(home, "Library", "Fonts"));
+        return dirs;
+    }
+
+    /**
+     * @return 缓存缺失、损坏、格式版本不同或指纹不一致时返回 null
+     */
+    private static List<String> readCache(Path cacheFile, long fingerprint) {
+        try {
+            if (!Files.exists(cacheFile)) {
+                return null;
+            }
+            byte[] cache = Files.readAllBytes(cacheFile);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(cache));
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || in.readLong() != fingerprint) {
+                return null;
+            }
+            int bodyLength = in.readInt();
+            long bodyCrc = in.readLong();
+            int bodyOffset = cache.length - in.available();
+            if (bodyLength != cache.length - bodyOffset || crc(cache, bodyOffset, bodyLength) != bodyCrc) {
+                return null;
+            }
+            int count = in.readInt();
+            List<String> names = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                byte[] bytes = new byte[in.readUnsignedShort()];
+                in.readFully(bytes);
+                names.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+            return names;
+        } catch (IOException | RuntimeException e) {
+            Log.warn("字体缓存无效，重新枚举字体: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static void writeCache(Path cacheFile, long fingerprint, List<String> names) {
+        try {
+            ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream(names.size() * 24 + 4);
+            DataOutputStream body = new DataOutputStream(bodyBytes);
+            body.writeInt(names.size());
+            for (String name : names) {
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                body.writeShort(bytes.length);
+                body.write(bytes);
+            }
+            body.flush();
+            byte[] bodyArray = bodyBytes.toByteArray();
+
+            ByteArrayOutputStream fileBytes = new ByteArrayOutputStream(bodyArray.length + 28);
+            DataOutputStream out = new DataOutputStream(fileBytes);
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(fingerprint);
+            out.writeInt(bodyArray.length);
+            out.writeLong(crc(bodyArray, 0, bodyArray.length));
+            out.write(bodyArray);
+            out.flush();
+
+            Files.createDirectories(cacheFile.getParent());
+            ConfigManager.writeAtomically(cacheFile, fileBytes.toByteArray());
+        } catch (IOException e) {
+            Log.warn("写入字体缓存失败: {}", e.getMessage());
+        }
+    }
+
+    private static void update(CRC32 crc, String value) {
+        crc.update(value.getBytes(StandardCharsets.UTF_8));
+        crc.update(0);
+    }
+
+    private static void update(CRC32 crc, long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            crc.update((int) (value >>> shift));
+        }
+    }
+
+    private static long crc(byte[] data, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+        return crc.getValue();
+    }
+}
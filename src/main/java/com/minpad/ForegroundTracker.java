@@ -0,0 +1,141 @@
+package com.minpad;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 前台应用跟踪器
+ * 由 {@link Source} 在焦点切换时推送前台窗口的进程名和窗口类，跟踪器据此解析出生效的 {@link Profile}
+ * 并缓存在 volatile 引用中。按键路径只读取该引用，不调用任何原生接口。
+ * 解析时进程名优先于窗口类，同类匹配按配置顺序取第一个；都不匹配时为 null，表示使用全局配置。
+ */
+public class ForegroundTracker {
+
+    /**
+     * 前台窗口来源：Windows 上为 WinEvent 钩子，检查中由调用方模拟焦点切换
+     */
+    public interface Source {
+        /** 来源名称，用于日志和诊断 */
+        String getName();
+
+        /** 开始推送前台变化，启动后应尽快推送一次当前前台窗口 */
+        void start(Listener listener);
+
+        void stop();
+    }
+
+    /**
+     * 前台变化回调，在来源自己的线程中调用
+     */
+    public interface Listener {
+        /**
+         * @param processName 进程名（如 idea64.exe），未知时为 null
+         * @param windowClass 窗口类名，未知时为 null
+         */
+        void onForegroundChanged(String processName, String windowClass);
+    }
+
+    private final Source source;
+    private final Object lock = new Object();
+    private volatile Profile activeProfile;
+
+    // 以下字段持有 lock 时访问
+    private List<Profile> profiles = Collections.emptyList();
+    private String processName;
+    private String windowClass;
+    private long switchCount;
+
+    public ForegroundTracker(Source source) {
+        this.source = Objects.requireNonNull(source);
+    }
+
+    public void start() {
+        source.start(this::onForegroundChanged);
+        Log.info("前台应用跟踪已启动: {}", source.getName());
+    }
+
+    public void stop() {
+        source.stop();
+    }
+
+    /**
+     * 替换配置档并按当前前台窗口重新解析
+     */
+    public void setProfiles(List<Profile> profiles) {
+        synchronized (lock) {
+            this.profiles = Collections.unmodifiableList(new ArrayList<>(profiles));
+            update(resolve(this.profiles, processName, windowClass));
+        }
+    }
+
+    private void onForegroundChanged(String processName, String windowClass) {
+        synchronized (lock) {
+            this.processName = processName;
+            this.windowClass = windowClass;
+            update(resolve(profiles, processName, windowClass));
+        }
+    }
+
+    private void update(Profile resolved) {
+        if (resolved != activeProfile) {
+            activeProfile = resolved;
+            switchCount++;
+            Log.info("切换配置档: {}", (resolved != null ? resolved.getName() : "全局"));
+        }
+    }
+
+    /**
+     * 按进程名、再按窗口类匹配配置档
+     *
+     * @return 匹配的配置档，没有时为 null
+     */
+    static Profile resolve(List<Profile> profiles, String processName, String windowClass) {
+        for (Profile profile : profiles) {
+            if (profile.matchesProcess(processName)) {
+                return profile;
+            }
+        }
+        for (Profile profile : profiles) {
+            if (profile.matchesWindowClass(windowClass)) {
+                return profile;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 当前生效的配置档，null 表示使用全局配置。只读取 volatile 引用，可在按键路径调用。
+     */
+    public Profile getActiveProfile() {
+        return activeProfile;
+    }
+
+    /** 最近一次前台窗口的进程名 */
+    public String getProcessName() {
+        synchronized (lock) {
+            return processName;
+        }
+    }
+
+    /** 最近一次前台窗口的窗口类 */
+    public String getWindowClass() {
+        synchronized (lock) {
+            return windowClass;
+        }
+    }
+
+    /** 生效配置档的切换次数 */
+    public long getSwitchCount() {
+        synchronized (lock) {
+            return switchCount;
+        }
+    }
+
+    public List<Profile> getProfiles() {
+        synchronized (lock) {
+            return profiles;
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package com.minpad;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 钩子看门狗
+ * 回调超过 LowLevelHooksTimeout 时，Windows 会不加通知地移除低层钩子，之后既收不到按下也收不到抬起，
+ * 路由器里的按键停在按下状态，长按重复也停不下来。看门狗放在输入源和 {@link KeyRouter} 之间：
+ * <ul>
+ *   <li>给每次回调计时，超过阈值（或卡在回调中超过阈值）记为超时</li>
+ *   <li>定期用 {@link KeyStateProbe} 查询数字键盘的系统按键状态：钩子正常时数字键盘按键都被吞掉，
+ *       系统状态不会显示按下；显示按下却收不到该键的事件，说明钩子已失效</li>
+ *   <li>发生以上情况时在新的消息循环线程上重新安装钩子，并在输入线程上清空按下状态和长按重复</li>
+ *   <li>认为按下的键长时间没有任何事件（按住时系统自动重复会持续产生按下事件）时补发抬起</li>
+ * </ul>
+ * 时钟和按键状态探测都可替换，用指定时钟构造时不启动线程，由调用方推进时钟后调用 {@link #check()}。
+ */
+public class HookWatchdog implements InputSource.Sink, HookWatchdogMXBean {
+
+    /**
+     * 被看护的钩子
+     */
+    public interface Target {
+        /** 在新的消息循环线程上安装钩子，替换当前钩子 */
+        void reinstall();
+
+        /** 在输入线程上执行任务（路由器状态只允许该线程访问） */
+        void execute(Runnable task);
+    }
+
+    /**
+     * 系统记录的按键状态，在看门狗线程调用
+     */
+    public interface KeyStateProbe {
+        /** 无法查询时使用，不做钩子失效检测 */
+        KeyStateProbe NONE = vkCode -> false;
+
+        boolean isKeyDown(int vkCode);
+    }
+
+    public static final String OBJECT_NAME = "com.minpad:type=HookWatchdog";
+
+    /** 回调超时阈值，低于系统的 LowLevelHooksTimeout */
+    public static final long DEFAULT_OVERRUN_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+
+    static final long CHECK_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    // 系统显示按下但收不到事件超过该时长，判定钩子失效
+    static final long LOST_GRACE_NANOS = TimeUnit.MILLISECONDS.toNanos(300);
+    // 系统自动重复的延迟最长 1 秒，超过 2 秒没有事件的"按下"键视为抬起已丢失
+    static final long STUCK_NANOS = TimeUnit.SECONDS.toNanos(2);
+    static final long MIN_REINSTALL_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private static final int KEY_COUNT = 256;
+    private static final int NOT_HELD = -1;
+    private static final long NEVER = Long.MIN_VALUE;
+
+    // 探测的数字键盘虚拟键码；Enter 与主键盘共用 VK_RETURN，无法区分，不探测
+    private static final int[] PROBED_VKS = {
+        0x60, 0x61, 0x62, 0x63, 0x64, 0x65, 0x66, 0x67, 0x68, 0x69,
+        KeyRouter.VK_MULTIPLY, KeyRouter.VK_ADD, KeyRouter.VK_SUBTRACT, KeyRouter.VK_DECIMAL, KeyRouter.VK_DIVIDE
+    };
+
+    private final InputSource.Sink delegate;
+    private final NanoClock clock;
+    private final KeyStateProbe probe;
+    private final long overrunNanos;
+    private final boolean threaded;
+    private volatile Target target;
+
+    // 以下由输入线程用有序写（lazySet）更新，看门狗线程读取；检测本身容忍短暂的滞后
+    private final AtomicLongArray lastEventNanos = new AtomicLongArray(KEY_COUNT);
+    // 认为按下的键记录按下时的 flags，未按下为 NOT_HELD
+    private final AtomicIntegerArray heldFlags = new AtomicIntegerArray(KEY_COUNT);
+    private final AtomicInteger lastKeyDownVk = new AtomicInteger(NOT_HELD);
+    private final AtomicLong lastAnyEventNanos = new AtomicLong(NEVER);
+    // 正在执行的回调的开始时间，不在回调中为 NEVER
+    private final AtomicLong callbackStartNanos = new AtomicLong(NEVER);
+    private volatile boolean overrunPending;
+    private volatile long maxCallbackNanos;
+
+    private final AtomicLong callbacks = new AtomicLong();
+    private final AtomicLong overruns = new AtomicLong();
+    private final AtomicLong lostHooks = new AtomicLong();
+    private final AtomicLong reinstalls = new AtomicLong();
+    private final AtomicLong stuckKeys = new AtomicLong();
+
+    // 以下只在看门狗线程访问
+    private final long[] probeDownSince = new long[KEY_COUNT];
+    // 系统状态显示按下但已知是过时的（抬起被钩子吞掉，或重装前就按下），等系统状态变为抬起后再检测
+    private final boolean[] ignoreUntilUp = new boolean[KEY_COUNT];
+    // 看门狗已按"卡在回调中"计数的回调开始时间
+    private volatile long reportedHungStart = NEVER;
+    private long lastReinstallNanos = NEVER;
+    private String pendingReason;
+
+    private volatile boolean running;
+    private Thread watchdogThread;
+
+    /**
+     * 使用系统时钟，{@link #start(Target)} 后在后台线程定期检查
+     */
+    public HookWatchdog(InputSource.Sink delegate, KeyStateProbe probe) {
+        this(delegate, NanoClock.SYSTEM, probe, DEFAULT_OVERRUN_NANOS, true);
+    }
+
+    /**
+     * 使用指定时钟，不启动线程，由调用方调用 {@link #check()}
+     */
+    public HookWatchdog(InputSource.Sink delegate, NanoClock clock, KeyStateProbe probe, long overrunNanos) {
+        this(delegate, clock, probe, overrunNanos, false);
+    }
+
+    private HookWatchdog(InputSource.Sink delegate, NanoClock clock, KeyStateProbe probe,
+                         long overrunNanos, boolean threaded) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate 不能为空");
+        }
+        this.delegate = delegate;
+        this.clock = clock;
+        this.probe = probe != null ? probe : KeyStateProbe.NONE;
+        this.overrunNanos = overrunNanos;
+        this.threaded = threaded;
+        for (int vk = 0; vk < KEY_COUNT; vk++) {
+            lastEventNanos.set(vk, NEVER);
+            heldFlags.set(vk, NOT_HELD);
+            probeDownSince[vk] = NEVER;
+        }
+    }
+
+    /**
+     * 开始看护钩子。系统时钟下启动检查线程。
+     */
+    public synchronized void start(Target target) {
+        this.target = target;
+        if (!threaded || running) {
+            return;
+        }
+        running = true;
+        watchdogThread = new Thread(this::runLoop, "minpad-hook-watchdog");
+        watchdogThread.setDaemon(true);
+        watchdogThread.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (watchdogThread != null) {
+            LockSupport.unpark(watchdogThread);
+            watchdogThread = null;
+        }
+    }
+
+    /**
+     * 注册到平台 MBeanServer，失败时只记录原因
+     */
+    public void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException | RuntimeException e) {
+            Log.error("注册钩子看门狗 MBean 失败: {}", e.getMessage());
+        }
+    }
+
+    private void runLoop() {
+        while (running) {
+            LockSupport.parkNanos(this, CHECK_INTERVAL_NANOS);
+            if (!running) {
+                break;
+            }
+            try {
+                check();
+            } catch (RuntimeException e) {
+                Log.error("钩子检查失败: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 钩子回调（输入线程）：计时并记录按键状态后交给路由器
+     */
+    @Override
+    public boolean onKeyEvent(int vkCode, int flags, boolean keyDown) {
+        long start = clock.nanoTime();
+        callbackStartNanos.lazySet(start);
+        try {
+            if (vkCode >= 0 && vkCode < KEY_COUNT) {
+                if (keyDown) {
+                    int held = heldFlags.get(vkCode);
+                    long last = lastEventNanos.get(vkCode);
+                    if (held != NOT_HELD && last != NEVER && start - last > STUCK_NANOS) {
+                        // 距上次事件太久，不可能是系统自动重复：之前的抬起丢失了，先补发
+                        releaseStuck(vkCode, held);
+                    }
+                    heldFlags.lazySet(vkCode, flags);
+                    lastKeyDownVk.lazySet(vkCode);
+                } else {
+                    heldFlags.lazySet(vkCode, NOT_HELD);
+                }
+                lastEventNanos.lazySet(vkCode, start);
+            }
+            lastAnyEventNanos.lazySet(start);
+            return delegate.onKeyEvent(vkCode, flags, keyDown);
+        } finally {
+            long elapsed = clock.nanoTime() - start;
+            callbackStartNanos.lazySet(NEVER);
+            // 只有输入线程计数
+            callbacks.lazySet(callbacks.get() + 1);
+            if (elapsed > maxCallbackNanos) {
+                maxCallbackNanos = elapsed;
+            }
+            // 卡在回调中时看门狗已经计数并重装过，不再重复
+            if (elapsed > overrunNanos && reportedHungStart != start) {
+                overruns.incrementAndGet();
+                overrunPending = true;
+            }
+        }
+    }
+
+    @Override
+    public void onSourceStopped() {
+        clearHeld();
+        delegate.onSourceStopped();
+    }
+
+    /**
+     * 检查一次钩子状态（看门狗线程），必要时重装钩子、补发丢失的抬起
+     */
+    public void check() {
+        long now = clock.nanoTime();
+        String reason = pendingReason;
+
+        long callbackStart = callbackStartNanos.get();
+        if (callbackStart != NEVER && now - callbackStart > overrunNanos && reportedHungStart != callbackStart) {
+            reportedHungStart = callbackStart;
+            overruns.incrementAndGet();
+            reason = "钩子回调超过 " + TimeUnit.NANOSECONDS.toMillis(overrunNanos) + " 毫秒未返回";
+        }
+        if (overrunPending) {
+            overrunPending = false;
+            reason = "钩子回调超时，系统可能已移除钩子";
+        }
+        if (detectLostHook(now)) {
+            lostHooks.incrementAndGet();
+            reason = "数字键盘按键已按下但钩子没有收到事件";
+        }
+
+        Target current = target;
+        if (current == null) {
+            pendingReason = reason;
+            return;
+        }
+        if (reason != null) {
+            if (lastReinstallNanos != NEVER && now - lastReinstallNanos < MIN_REINSTALL_INTERVAL_NANOS) {
+                pendingReason = reason;
+            } else {
+                pendingReason = null;
+                reinstall(current, now, reason);
+                return;
+            }
+        }
+        releaseStaleKey(current, now);
+    }
+
+    private boolean detectLostHook(long now) {
+        boolean lost = false;
+        for (int vk : PROBED_VKS) {
+            if (!probe.isKeyDown(vk)) {
+                probeDownSince[vk] = NEVER;
+                ignoreUntilUp[vk] = false;
+                continue;
+            }
+            if (ignoreUntilUp[vk]) {
+                continue;
+            }
+            if (probeDownSince[vk] == NEVER) {
+                probeDownSince[vk] = now;
+                continue;
+            }
+            long last = lastEventNanos.get(vk);
+            if (last != NEVER && last - probeDownSince[vk] >= 0) {
+                // 钩子收到了该键的事件，系统状态是过时的（抬起被吞掉）
+                ignoreUntilUp[vk] = true;
+            } else if (now - probeDownSince[vk] >= LOST_GRACE_NANOS) {
+                lost = true;
+            }
+        }
+        return lost;
+    }
+
+    private void reinstall(Target current, long now, String reason) {
+        lastReinstallNanos = now;
+        reinstalls.incrementAndGet();
+        Log.warn("{}，重新安装键盘钩子", reason);
+        // 重装前已按下的键，其抬起会被新钩子吞掉，系统状态会一直显示按下
+        for (int vk : PROBED_VKS) {
+            if (probeDownSince[vk] != NEVER) {
+                ignoreUntilUp[vk] = true;
+            }
+        }
+        current.reinstall();
+        current.execute(this::resetKeyState);
+    }
+
+    /**
+     * 最后按下的键超过 STUCK_NANOS 没有任何事件：按住时系统自动重复会持续产生按下事件，说明抬起丢失了。
+     * 之后又按过其他键时自动重复已停止，无法判断，留给该键下次按下时处理。
+     */
+    private void releaseStaleKey(Target current, long now) {
+        int vk = lastKeyDownVk.get();
+        if (vk == NOT_HELD || heldFlags.get(vk) == NOT_HELD) {
+            return;
+        }
+        long last = lastEventNanos.get(vk);
+        if (last == lastAnyEventNanos.get() && now - last > STUCK_NANOS) {
+            current.execute(() -> releaseIfStale(vk));
+        }
+    }
+
+    /** 输入线程：重新确认后补发抬起 */
+    private void releaseIfStale(int vkCode) {
+        int flags = heldFlags.get(vkCode);
+        long last = lastEventNanos.get(vkCode);
+        if (flags != NOT_HELD && clock.nanoTime() - last > STUCK_NANOS) {
+            releaseStuck(vkCode, flags);
+        }
+    }
+
+    private void releaseStuck(int vkCode, int flags) {
+        heldFlags.set(vkCode, NOT_HELD);
+        stuckKeys.incrementAndGet();
+        Log.warn("按键 0x{} 的抬起事件丢失，补发抬起", Integer.toHexString(vkCode));
+        delegate.onKeyEvent(vkCode, flags, false);
+    }
+
+    /** 输入线程：重装钩子后丢弃按下状态、层、序列和长按重复 */
+    private void resetKeyState() {
+        int held = clearHeld();
+        if (held > 0) {
+            stuckKeys.addAndGet(held);
+        }
+        delegate.onSourceStopped();
+    }
+
+    private int clearHeld() {
+        int held = 0;
+        for (int vk = 0; vk < KEY_COUNT; vk++) {
+            if (heldFlags.get(vk) != NOT_HELD) {
+                heldFlags.set(vk, NOT_HELD);
+                held++;
+            }
+        }
+        lastKeyDownVk.set(NOT_HELD);
+        return held;
+    }
+
+    @Override
+    public long getCallbackCount() {
+        return callbacks.get();
+    }
+
+    @Override
+    public double getMaxCallbackMicros() {
+        return maxCallbackNanos / 1000.0;
+    }
+
+    @Override
+    public long getOverrunCount() {
+        return overruns.get();
+    }
+
+    @Override
+    public long getLostHookCount() {
+        return lostHooks.get();
+    }
+
+    @Override
+    public long getReinstallCount() {
+        return reinstalls.get();
+    }
+
+    @Override
+    public long getStuckKeyCount() {
+        return stuckKeys.get();
+    }
+}
@@ -0,0 +1,25 @@
+package com.minpad;
+
+/**
+ * 钩子看门狗的 JMX 接口，注册为 {@code com.minpad:type=HookWatchdog}
+ */
+public interface HookWatchdogMXBean {
+
+    /** 经过看门狗的钩子回调次数 */
+    long getCallbackCount();
+
+    /** 最长一次回调耗时（微秒） */
+    double getMaxCallbackMicros();
+
+    /** 回调超过阈值（或卡在回调中超过阈值）的次数 */
+    long getOverrunCount();
+
+    /** 检测到钩子失效（按键按下却收不到事件）的次数 */
+    long getLostHookCount();
+
+    /** 重新安装钩子的次数 */
+    long getReinstallCount();
+
+    /** 因丢失抬起事件而补发抬起的次数 */
+    long getStuckKeyCount();
+}
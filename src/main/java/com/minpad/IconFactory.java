@@ -75,7 +75,7 @@ public class IconFactory {
                 "Dialog"
         };
 
-        Font font = pickAvailableFont(fontCandidates, Font.PLAIN, 12);
+        Font font = FontResolver.pick(Font.PLAIN, 12, fontCandidates);
         g.setFont(font);
         FontMetrics fm = g.getFontMetrics();
         String text = String.valueOf(symbol);
@@ -106,16 +106,4 @@ public class IconFactory {
         Color color = UIManager.getColor("MenuItem.foreground");
         return color != null ? color : new Color(30, 30, 30);
     }
-
-    private static Font pickAvailableFont(String[] candidates, int style, int size) {
-        String[] available = GraphicsEnvironment.getLocalGraphicsEnvironment().getAvailableFontFamilyNames();
-        for (String candidate : candidates) {
-            for (String name : available) {
-                if (name.equalsIgnoreCase(candidate)) {
-                    return new Font(name, style, size);
-                }
-            }
-        }
-        return new Font(Font.SANS_SERIF, style, size);
-    }
 }
@@ -0,0 +1,39 @@
+package com.minpad;
+
+/**
+ * 按键输入源
+ * 产生原始按键事件（虚拟键码、标志位、按下/抬起）并交给 {@link Sink} 处理。
+ * Win32 低层钩子是其中一种实现，另有内存合成源和按键轨迹回放源，用于在无 Windows 环境下驱动和测量按键→动作链路。
+ */
+public interface InputSource {
+
+    /**
+     * 按键事件接收者。同一时刻只应有一个输入源向同一个接收者投递事件。
+     */
+    interface Sink {
+        /**
+         * 处理一次按键事件。
+         *
+         * @param vkCode  Windows 虚拟键码
+         * @param flags   KBDLLHOOKSTRUCT.flags（合成源可传 0，数字键盘 Enter 需带扩展标志 0x01）
+         * @param keyDown true 为按下，false 为抬起
+         * @return true 表示事件已被消费，不应再传给系统
+         */
+        boolean onKeyEvent(int vkCode, int flags, boolean keyDown);
+
+        /**
+         * 输入源停止后调用，用于清理按下状态和长按循环。
+         */
+        default void onSourceStopped() {
+        }
+    }
+
+    /** 输入源名称，用于日志和诊断。 */
+    String getName();
+
+    /** 开始产生事件。 */
+    void start(Sink sink);
+
+    /** 停止产生事件。 */
+    void stop();
+}
@@ -0,0 +1,38 @@
+package com.minpad;
+
+import com.sun.jna.Native;
+import com.sun.jna.Platform;
+
+/**
+ * kernel32 的 JNA 直接映射，供键盘钩子回调等热路径使用，调用时不分配内存。
+ * 非 Windows 平台注册会失败，此时 {@link #isAvailable()} 返回 false。
+ */
+final class Kernel32Direct {
+
+    private static final boolean AVAILABLE;
+
+    static {
+        boolean available = false;
+        if (Platform.isWindows()) {
+            try {
+                Native.register(Kernel32Direct.class, "kernel32");
+                available = true;
+            } catch (Throwable e) {
+                Log.error("注册 kernel32 直接映射失败: {}", e.getMessage());
+            }
+        }
+        AVAILABLE = available;
+    }
+
+    private Kernel32Direct() {
+    }
+
+    static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    /**
+     * DWORD GetTickCount()，与 KBDLLHOOKSTRUCT.time 使用同一时钟（毫秒，约 49.7 天回绕）
+     */
+    static native int GetTickCount();
+}
@@ -0,0 +1,284 @@
+package com.minpad;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * 预编译的组合键
+ * 加载配置时把 "ctrl+shift+a" 之类的字符串解析、校验为修饰键和主键的虚拟键码数组，
+ * 按键时直接使用，不再做字符串处理。实例不可变。
+ */
+public final class KeyChord {
+
+    // 修饰键虚拟键码
+    static final int VK_CONTROL = 0x11;
+    static final int VK_SHIFT = 0x10;
+    static final int VK_MENU = 0x12;     // Alt 键
+    static final int VK_LWIN = 0x5B;     // Windows 左键
+
+    private final String text;
+    // 按下顺序：修饰键（ctrl, shift, alt, win）在前，主键在最后
+    private final int[] keyCodes;
+
+    private KeyChord(String text, int[] keyCodes) {
+        this.text = text;
+        this.keyCodes = keyCodes;
+    }
+
+    /**
+     * 编译组合键字符串。
+     *
+     * @param combination 组合键字符串，使用 + 分隔，如 "ctrl+shift+a"
+     * @throws IllegalArgumentException 组合键为空、包含未知按键、缺少主键或有多个主键
+     */
+    public static KeyChord compile(String combination) {
+        if (combination == null || combination.trim().isEmpty()) {
+            throw new IllegalArgumentException("组合键不能为空");
+        }
+
+        boolean hasCtrl = false;
+        boolean hasShift = false;
+        boolean hasAlt = false;
+        boolean hasWin = false;
+        int mainKeyCode = -1;
+
+        for (String rawPart : combination.toLowerCase(Locale.ROOT).split("\\+")) {
+            String part = rawPart.trim();
+            switch (part) {
+                case "ctrl":
+                case "control":
+                    hasCtrl = true;
+                    break;
+                case "shift":
+                    hasShift = true;
+                    break;
+                case "alt":
+                    hasAlt = true;
+                    break;
+                case "win":
+                case "windows":
+                    hasWin = true;
+                    break;
+                default:
+                    int keyCode = parseKey(part);
+                    if (keyCode == -1) {
+                        throw new IllegalArgumentException("无效的组合键 \"" + combination + "\"：未知按键 \"" + part + "\"");
+                    }
+                    if (mainKeyCode != -1) {
+                        throw new IllegalArgumentException("无效的组合键 \"" + combination + "\"：只能有一个主键");
+                    }
+                    mainKeyCode = keyCode;
+                    break;
+            }
+        }
+
+        if (mainKeyCode == -1) {
+            throw new IllegalArgumentException("无效的组合键 \"" + combination + "\"：缺少主键");
+        }
+
+        int[] codes = new int[5];
+        int count = 0;
+        if (hasCtrl) {
+            codes[count++] = VK_CONTROL;
+        }
+        if (hasShift) {
+            codes[count++] = VK_SHIFT;
+        }
+        if (hasAlt) {
+            codes[count++] = VK_MENU;
+        }
+        if (hasWin) {
+            codes[count++] = VK_LWIN;
+        }
+        codes[count++] = mainKeyCode;
+        return new KeyChord(combination.trim(), Arrays.copyOf(codes, count));
+    }
+
+    /**
+     * 解析单个按键（含修饰键）为虚拟键码，供宏的按下/抬起步骤使用。
+     *
+     * @throws IllegalArgumentException 未知按键
+     */
+    static int parseSingleKey(String name) {
+        String key = name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+        switch (key) {
+            case "ctrl":
+            case "control":
+                return VK_CONTROL;
+            case "shift":
+                return VK_SHIFT;
+            case "alt":
+                return VK_MENU;
+            case "win":
+            case "windows":
+                return VK_LWIN;
+            default:
+                int keyCode = parseKey(key);
+                if (keyCode == -1) {
+                    throw new IllegalArgumentException("未知按键 \"" + name + "\"");
+                }
+                return keyCode;
+        }
+    }
+
+    /**
+     * 解析按键字符串为虚拟键码，未知按键返回 -1。
+     */
+    static int parseKey(String key) {
+        if (key.length() == 1) {
+            char c = key.charAt(0);
+            // 字母 A-Z
+            if (c >= 'a' && c <= 'z') {
+                return 0x41 + (c - 'a');
+            }
+            // 数字 0-9
+            if (c >= '0' && c <= '9') {
+                return 0x30 + (c - '0');
+            }
+        }
+
+        // 特殊键
+        switch (key) {
+            case "space":
+                return 0x20;
+            case "enter":
+            case "return":
+                return 0x0D;
+            case "tab":
+                return 0x09;
+            case "escape":
+            case "esc":
+                return 0x1B;
+            case "backspace":
+            case "back":
+                return 0x08;
+            case "delete":
+            case "del":
+                return 0x2E;
+            case "insert":
+                return 0x2D;
+            case "home":
+                return 0x24;
+            case "end":
+                return 0x23;
+            case "pageup":
+            case "pgup":
+                return 0x21;
+            case "pagedown":
+            case "pgdn":
+                return 0x22;
+            case "left":
+                return 0x25;
+            case "right":
+                return 0x27;
+            case "up":
+                return 0x26;
+            case "down":
+                return 0x28;
+            case "f1":
+                return 0x70;
+            case "f2":
+                return 0x71;
+            case "f3":
+                return 0x72;
+            case "f4":
+                return 0x73;
+            case "f5":
+                return 0x74;
+            case "f6":
+                return 0x75;
+            case "f7":
+                return 0x76;
+            case "f8":
+                return 0x77;
+            case "f9":
+                return 0x78;
+            case "f10":
+                return 0x79;
+            case "f11":
+                return 0x7A;
+            case "f12":
+                return 0x7B;
+            case ",":
+            case "comma":
+                return 0xBC;
+            case ".":
+            case "period":
+                return 0xBE;
+            case ";":
+            case "semicolon":
+                return 0xBA;
+            case "'":
+            case "quote":
+                return 0xDE;
+            case "[":
+            case "lbracket":
+                return 0xDB;
+            case "]":
+            case "rbracket":
+                return 0xDD;
+            case "\\":
+            case "backslash":
+                return 0xDC;
+            case "/":
+            case "slash":
+                return 0xBF;
+            case "=":
+            case "equal":
+                return 0xBB;
+            case "-":
+            case "minus":
+                return 0xBD;
+            case "`":
+            case "backtick":
+            case "grave":
+                return 0xC0;
+            default:
+                return -1;
+        }
+    }
+
+    /** 原始组合键字符串。 */
+    public String getText() {
+        return text;
+    }
+
+    /** 按键总数（修饰键 + 主键）。 */
+    public int size() {
+        return keyCodes.length;
+    }
+
+    /** 第 i 个按键的虚拟键码，按下顺序，最后一个为主键。 */
+    public int getKeyCode(int i) {
+        return keyCodes[i];
+    }
+
+    public int getModifierCount() {
+        return keyCodes.length - 1;
+    }
+
+    public int getMainKeyCode() {
+        return keyCodes[keyCodes.length - 1];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof KeyChord)) {
+            return false;
+        }
+        return Arrays.equals(keyCodes, ((KeyChord) o).keyCodes);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(keyCodes);
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
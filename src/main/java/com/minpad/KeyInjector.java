@@ -0,0 +1,59 @@
+package com.minpad;
+
+/**
+ * 按键注入器
+ * 把一批按键事件作为一个整体提交给系统。事件用 int 编码：低 16 位为虚拟键码，
+ * {@link #KEY_UP} 位表示抬起，不带该位表示按下。
+ * 带 {@link #UNICODE} 位时低 16 位是一个 UTF-16 码元，按字符输入而不是按虚拟键。
+ */
+public interface KeyInjector {
+
+    /** 抬起标志 */
+    int KEY_UP = 0x10000;
+
+    /** Unicode 字符标志 */
+    int UNICODE = 0x20000;
+
+    /** 虚拟键码掩码 */
+    int CODE_MASK = 0xFFFF;
+
+    /** 空实现，丢弃所有事件（非 Windows 平台、基准测试使用） */
+    KeyInjector NOOP = (events, offset, length) -> {
+    };
+
+    /**
+     * 提交一批按键事件，尽可能作为一次原子输入，期间不会插入用户的真实按键。
+     *
+     * @param events 事件数组
+     * @param offset 起始下标
+     * @param length 事件数量
+     */
+    void send(int[] events, int offset, int length);
+
+    /** 按下事件编码 */
+    static int down(int vkCode) {
+        return vkCode & CODE_MASK;
+    }
+
+    /** 抬起事件编码 */
+    static int up(int vkCode) {
+        return (vkCode & CODE_MASK) | KEY_UP;
+    }
+
+    /** Unicode 字符按下或抬起事件编码 */
+    static int unicode(char c, boolean keyUp) {
+        return c | UNICODE | (keyUp ? KEY_UP : 0);
+    }
+
+    static boolean isKeyUp(int event) {
+        return (event & KEY_UP) != 0;
+    }
+
+    static boolean isUnicode(int event) {
+        return (event & UNICODE) != 0;
+    }
+
+    static int codeOf(int event) {
+        return event & CODE_MASK;
+    }
+}
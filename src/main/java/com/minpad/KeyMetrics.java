@@ -0,0 +1,300 @@
+package com.minpad;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.ToLongFunction;
+
+/**
+ * 按键统计
+ * 为每个数字键盘按键记录四段延迟和三个计数：
+ * <ul>
+ *   <li>系统事件时间（KBDLLHOOKSTRUCT.time）→ 钩子回调，由 {@link KeyboardHook} 记录</li>
+ *   <li>钩子回调 → 动作开始执行，由 {@link #instrument} 包装的分发器处理器记录</li>
+ *   <li>动作开始 → 返回分发线程，同上；启动进程、宏和分步组合键只含提交的耗时</li>
+ *   <li>动作开始 → 异步完成（进程已创建、宏或分步组合键发送完毕），由 {@link #track} 在完成的线程上记录</li>
+ * </ul>
+ * 计数为触发次数、长按重复次数和执行失败次数（由 {@link ActionExecutor} 报告，含异步失败）。
+ * 前三段每项数据只有一个写线程，记录路径只有数组下标和有序写，不分配内存；
+ * 异步完成来自启动线程和调度线程，按键加锁记录。读取和导出在 JMX 或托盘菜单的线程上进行。
+ */
+public final class KeyMetrics implements KeyMetricsMXBean {
+
+    public static final String OBJECT_NAME = "com.minpad:type=KeyMetrics";
+
+    private static final int KEY_COUNT = Keymap.KEY_COUNT;
+
+    private final LatencyHistogram[] hookLatency = newHistograms();
+    private final LatencyHistogram[] dispatchLatency = newHistograms();
+    private final LatencyHistogram[] executionLatency = newHistograms();
+    private final LatencyHistogram[] completionLatency = newHistograms();
+    private final AtomicLongArray triggers = new AtomicLongArray(KEY_COUNT);
+    private final AtomicLongArray repeats = new AtomicLongArray(KEY_COUNT);
+    private final AtomicLongArray failures = new AtomicLongArray(KEY_COUNT);
+    private volatile long startedMillis = System.currentTimeMillis();
+
+    private static LatencyHistogram[] newHistograms() {
+        LatencyHistogram[] histograms = new LatencyHistogram[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        return histograms;
+    }
+
+    /**
+     * 注册到平台 MBeanServer，失败时只打印原因
+     */
+    public void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException | RuntimeException e) {
+            Log.error("注册按键统计 MBean 失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 记录系统事件时间到钩子回调的延迟
+     *
+     * @param key 按键索引（0-15），越界时忽略
+     */
+    public void recordHookLatency(int key, long nanos) {
+        if (key >= 0 && key < KEY_COUNT) {
+            hookLatency[key].record(nanos);
+        }
+    }
+
+    /**
+     * 记录一次执行失败，key 由动作槽位推出（层取按下的键，引导序列取最后一个键）。
+     * 失败很少且可能来自任意线程，使用原子加。
+     */
+    public void recordFailure(int slot, ActionExecutor.ActionConfig action) {
+        int key = keyOf(slot, action != null ? action.getBinding() : null);
+        if (key >= 0) {
+            failures.incrementAndGet(key);
+        }
+    }
+
+    /**
+     * 跟踪在其他线程上完成的动作：异常完成计一次失败，无论成败都记录动作开始到完成的耗时
+     *
+     * @param start 动作开始执行的 {@link System#nanoTime()}
+     */
+    public void track(int slot, ActionExecutor.ActionConfig action, long start, CompletableFuture<?> completion) {
+        int key = keyOf(slot, action != null ? action.getBinding() : null);
+        if (key < 0) {
+            return;
+        }
+        completion.whenComplete((result, error) -> {
+            if (error != null) {
+                failures.incrementAndGet(key);
+            }
+            LatencyHistogram histogram = completionLatency[key];
+            synchronized (histogram) {
+                histogram.record(System.nanoTime() - start);
+            }
+        });
+    }
+
+    static int keyOf(int slot, String binding) {
+        if (slot >= 0 && slot < KEY_COUNT) {
+            return slot;
+        }
+        if (Keymap.isLayerSlot(slot)) {
+            return slot % KEY_COUNT;
+        }
+        if (binding != null) {
+            try {
+                int[] keys = Keymap.parseSequence(binding);
+                return keys[keys.length - 1];
+            } catch (IllegalArgumentException e) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 包装分发器处理器：计数，并记录回调 → 开始、开始 → 完成两段延迟。
+     * 事件的 timestamp 须为 {@link System#nanoTime()}，由 {@link KeyRouter} 在回调中取得；
+     * 长按重复事件的时间戳是重复到期时间，只计数和记录执行耗时。
+     */
+    public ActionDispatcher.Handler instrument(ActionDispatcher.Handler handler) {
+        return (actionIndex, vkCode, flags, timestamp) -> {
+            int key = KeyRouter.mapVkToAction(vkCode, flags);
+            if (key < 0) {
+                handler.onKeyEvent(actionIndex, vkCode, flags, timestamp);
+                return;
+            }
+            long start = System.nanoTime();
+            // 只在消费线程上写，不需要原子读改写
+            if ((flags & ActionDispatcher.FLAG_REPEAT) != 0) {
+                repeats.lazySet(key, repeats.get(key) + 1);
+            } else {
+                triggers.lazySet(key, triggers.get(key) + 1);
+                dispatchLatency[key].record(start - timestamp);
+            }
+            try {
+                handler.onKeyEvent(actionIndex, vkCode, flags, timestamp);
+            } finally {
+                executionLatency[key].record(System.nanoTime() - start);
+            }
+        };
+    }
+
+    LatencyHistogram getHookLatency(int key) {
+        return hookLatency[key];
+    }
+
+    LatencyHistogram getDispatchLatency(int key) {
+        return dispatchLatency[key];
+    }
+
+    LatencyHistogram getExecutionLatency(int key) {
+        return executionLatency[key];
+    }
+
+    LatencyHistogram getCompletionLatency(int key) {
+        return completionLatency[key];
+    }
+
+    @Override
+    public long getTotalTriggers() {
+        return sum(triggers);
+    }
+
+    @Override
+    public long getTotalRepeats() {
+        return sum(repeats);
+    }
+
+    @Override
+    public long getTotalFailures() {
+        return sum(failures);
+    }
+
+    private static long sum(AtomicLongArray counters) {
+        long total = 0;
+        for (int i = 0; i < counters.length(); i++) {
+            total += counters.get(i);
+        }
+        return total;
+    }
+
+    @Override
+    public Map<String, Long> getTriggerCounts() {
+        return perKey(triggers::get);
+    }
+
+    @Override
+    public Map<String, Long> getRepeatCounts() {
+        return perKey(repeats::get);
+    }
+
+    @Override
+    public Map<String, Long> getFailureCounts() {
+        return perKey(failures::get);
+    }
+
+    @Override
+    public Map<String, Double> getHookLatencyP99Micros() {
+        return p99(hookLatency);
+    }
+
+    @Override
+    public Map<String, Double> getDispatchLatencyP99Micros() {
+        return p99(dispatchLatency);
+    }
+
+    @Override
+    public Map<String, Double> getExecutionLatencyP99Micros() {
+        return p99(executionLatency);
+    }
+
+    @Override
+    public Map<String, Double> getCompletionLatencyP99Micros() {
+        return p99(completionLatency);
+    }
+
+    private static Map<String, Long> perKey(ToLongFunction<Integer> value) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int key = 0; key < KEY_COUNT; key++) {
+            result.put(Keymap.keyName(key), value.applyAsLong(key));
+        }
+        return result;
+    }
+
+    private static Map<String, Double> p99(LatencyHistogram[] histograms) {
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (int key = 0; key < KEY_COUNT; key++) {
+            result.put(Keymap.keyName(key), histograms[key].percentileNanos(0.99) / 1000.0);
+        }
+        return result;
+    }
+
+    @Override
+    public String toJson() {
+        JsonObject json = new JsonObject();
+        json.addProperty("since", startedMillis);
+        json.addProperty("generated", System.currentTimeMillis());
+        JsonArray bounds = new JsonArray();
+        for (int i = 0; i < LatencyHistogram.BUCKET_COUNT - 1; i++) {
+            bounds.add(LatencyHistogram.upperBoundNanos(i) / 1000.0);
+        }
+        json.add("bucketUpperBoundsMicros", bounds);
+
+        JsonArray keys = new JsonArray();
+        for (int key = 0; key < KEY_COUNT; key++) {
+            JsonObject keyJson = new JsonObject();
+            keyJson.addProperty("key", Keymap.keyName(key));
+            keyJson.addProperty("triggers", triggers.get(key));
+            keyJson.addProperty("repeats", repeats.get(key));
+            keyJson.addProperty("failures", failures.get(key));
+            keyJson.add("hookLatency", histogramToJson(hookLatency[key]));
+            keyJson.add("dispatchLatency", histogramToJson(dispatchLatency[key]));
+            keyJson.add("executionLatency", histogramToJson(executionLatency[key]));
+            keyJson.add("completionLatency", histogramToJson(completionLatency[key]));
+            keys.add(keyJson);
+        }
+        json.add("keys", keys);
+        return new GsonBuilder().setPrettyPrinting().create().toJson(json);
+    }
+
+    private static JsonObject histogramToJson(LatencyHistogram histogram) {
+        JsonObject json = new JsonObject();
+        long count = histogram.getCount();
+        json.addProperty("count", count);
+        json.addProperty("meanMicros", count > 0 ? histogram.getSumNanos() / 1000.0 / count : 0);
+        json.addProperty("p50Micros", histogram.percentileNanos(0.50) / 1000.0);
+        json.addProperty("p90Micros", histogram.percentileNanos(0.90) / 1000.0);
+        json.addProperty("p99Micros", histogram.percentileNanos(0.99) / 1000.0);
+        json.addProperty("maxMicros", histogram.getMaxNanos() / 1000.0);
+        JsonArray buckets = new JsonArray();
+        for (int i = 0; i < LatencyHistogram.BUCKET_COUNT; i++) {
+            buckets.add(histogram.getBucketCount(i));
+        }
+        json.add("buckets", buckets);
+        return json;
+    }
+
+    @Override
+    public void reset() {
+        for (int key = 0; key < KEY_COUNT; key++) {
+            hookLatency[key].reset();
+            dispatchLatency[key].reset();
+            executionLatency[key].reset();
+            completionLatency[key].reset();
+            triggers.set(key, 0);
+            repeats.set(key, 0);
+            failures.set(key, 0);
+        }
+        startedMillis = System.currentTimeMillis();
+    }
+}
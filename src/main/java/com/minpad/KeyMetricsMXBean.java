@@ -0,0 +1,39 @@
+package com.minpad;
+
+import java.util.Map;
+
+/**
+ * 按键统计的 JMX 接口，注册为 {@code com.minpad:type=KeyMetrics}，可用 JConsole / VisualVM 查看。
+ * 各 Map 的键为按键名（0-9、+、-、*、/、enter、.），延迟单位为微秒。
+ */
+public interface KeyMetricsMXBean {
+
+    long getTotalTriggers();
+
+    long getTotalRepeats();
+
+    long getTotalFailures();
+
+    Map<String, Long> getTriggerCounts();
+
+    Map<String, Long> getRepeatCounts();
+
+    Map<String, Long> getFailureCounts();
+
+    /** 系统事件时间 → 钩子回调，P99（受系统计时精度限制，约 10~16 毫秒一档） */
+    Map<String, Double> getHookLatencyP99Micros();
+
+    /** 钩子回调 → 动作开始执行，P99 */
+    Map<String, Double> getDispatchLatencyP99Micros();
+
+    /** 动作开始 → 返回分发线程，P99（异步动作只含提交） */
+    Map<String, Double> getExecutionLatencyP99Micros();
+
+    /** 动作开始 → 进程创建、宏或分步组合键发送完毕，P99 */
+    Map<String, Double> getCompletionLatencyP99Micros();
+
+    /** 包含完整直方图的 JSON */
+    String toJson();
+
+    void reset();
+}
@@ -0,0 +1,226 @@
+package com.minpad;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * 按键路由器
+ * 把输入源的原始按键事件映射为动作索引并发布到 {@link ActionDispatcher}，与具体输入源无关。
+ * 映射使用预计算的基本类型表，按下状态使用位图，整个路径不分配内存。长按重复交给 {@link RepeatEngine}。
+ * 按键索引再经 {@link Keymap} 的状态转移表解析为动作槽位：按住层键时切换到该层，
+ * 引导键开始序列，超时未完成的序列在下一次按键时丢弃。层键单独按下松开时在抬起时触发自身动作。
+ * 状态只允许输入源所在的单个线程访问。
+ */
+public class KeyRouter implements InputSource.Sink {
+
+    static final int VK_NUMPAD0 = 0x60;
+    static final int VK_MULTIPLY = 0x6A;
+    static final int VK_ADD = 0x6B;
+    static final int VK_SUBTRACT = 0x6D;
+    static final int VK_DECIMAL = 0x6E;
+    static final int VK_DIVIDE = 0x6F;
+    static final int VK_RETURN = 0x0D;
+
+    static final int LLKHF_EXTENDED = 0x01; // flag to distinguish NumPad Enter
+
+    static final int NO_ACTION = -1;
+
+    /**
+     * 虚拟键码 → 动作索引表。下标为 vkCode | (扩展标志 << 8)，值为 -1 表示不处理。
+     * 只有带扩展标志的 Enter（数字键盘 Enter）映射到动作。
+     */
+    private static final byte[] VK_ACTION_TABLE = new byte[512];
+
+    /** 可能被处理的虚拟键码，未命中时无需再读取 flags。 */
+    private static final boolean[] VK_CANDIDATES = new boolean[256];
+
+    static {
+        Arrays.fill(VK_ACTION_TABLE, (byte) NO_ACTION);
+        for (int i = 0; i <= 9; i++) {
+            mapBoth(VK_NUMPAD0 + i, i);
+        }
+        mapBoth(VK_ADD, 10);
+        mapBoth(VK_SUBTRACT, 11);
+        mapBoth(VK_MULTIPLY, 12);
+        mapBoth(VK_DIVIDE, 13);
+        mapBoth(VK_DECIMAL, 15);
+        VK_ACTION_TABLE[VK_RETURN | 0x100] = 14;
+        VK_CANDIDATES[VK_RETURN] = true;
+    }
+
+    private static void mapBoth(int vkCode, int actionIndex) {
+        VK_ACTION_TABLE[vkCode] = (byte) actionIndex;
+        VK_ACTION_TABLE[vkCode | 0x100] = (byte) actionIndex;
+        VK_CANDIDATES[vkCode] = true;
+    }
+
+    private final ActionDispatcher dispatcher;
+    private final RepeatEngine repeatEngine;
+    private final Supplier<Keymap> keymapSource;
+    private final long[] pressedKeys = new long[4];
+
+    // 键位状态机
+    private Keymap keymap = Keymap.BASE;
+    private int state = Keymap.ROOT_STATE;
+    private long stateDeadline;
+    private int heldLayerKey = NO_ACTION;
+    private int heldLayerVk;
+    private int heldLayerFlags;
+    private boolean layerUsed;
+
+    /**
+     * 使用默认重复策略（仅 + / - 重复）和基础键位
+     */
+    public KeyRouter(ActionDispatcher dispatcher) {
+        this(dispatcher, new RepeatEngine(RepeatEngine.PolicySource.DEFAULT));
+    }
+
+    public KeyRouter(ActionDispatcher dispatcher, RepeatEngine repeatEngine) {
+        this(dispatcher, repeatEngine, () -> Keymap.BASE);
+    }
+
+    /**
+     * @param keymapSource 当前键位，每次按键读取一次，应直接返回已编译的实例
+     */
+    public KeyRouter(ActionDispatcher dispatcher, RepeatEngine repeatEngine, Supplier<Keymap> keymapSource) {
+        this.dispatcher = dispatcher;
+        this.repeatEngine = repeatEngine;
+        this.keymapSource = keymapSource;
+        repeatEngine.attach(dispatcher);
+    }
+
+    /** 将虚拟键码映射到动作索引。返回 -1 表示不处理。 */
+    static int mapVkToAction(int vkCode, int flags) {
+        if (vkCode < 0 || vkCode > 0xFF) {
+            return NO_ACTION;
+        }
+        return VK_ACTION_TABLE[vkCode | ((flags & LLKHF_EXTENDED) << 8)];
+    }
+
+    /** 该虚拟键码是否可能被处理（不考虑 flags）。 */
+    static boolean isCandidate(int vkCode) {
+        return vkCode >= 0 && vkCode < VK_CANDIDATES.length && VK_CANDIDATES[vkCode];
+    }
+
+    @Override
+    public boolean onKeyEvent(int vkCode, int flags, boolean keyDown) {
+        int actionIndex = mapVkToAction(vkCode, flags);
+
+        // 只处理数字键盘映射，其它键直接放行
+        if (actionIndex == NO_ACTION) {
+            return false;
+        }
+
+        if (keyDown) {
+            // 首次按下才触发，屏蔽系统自动重复
+            if (markPressed(vkCode)) {
+                resolve(actionIndex, vkCode, flags);
+            }
+        } else {
+            clearPressed(vkCode);
+            repeatEngine.stop(vkCode);
+            if (actionIndex == heldLayerKey) {
+                releaseLayer();
+            }
+        }
+        return true; // 吞掉数字键盘事件
+    }
+
+    @Override
+    public void onSourceStopped() {
+        repeatEngine.stopAll();
+        Arrays.fill(pressedKeys, 0L);
+        state = Keymap.ROOT_STATE;
+        heldLayerKey = NO_ACTION;
+    }
+
+    /** 释放长按重复线程。 */
+    public void shutdown() {
+        onSourceStopped();
+        repeatEngine.shutdown();
+    }
+
+    /** 设置按下位，返回 false 表示此前已按下（系统自动重复）。 */
+    private boolean markPressed(int vkCode) {
+        int word = vkCode >>> 6;
+        long bit = 1L << (vkCode & 63);
+        if ((pressedKeys[word] & bit) != 0) {
+            return false;
+        }
+        pressedKeys[word] |= bit;
+        return true;
+    }
+
+    private void clearPressed(int vkCode) {
+        pressedKeys[vkCode >>> 6] &= ~(1L << (vkCode & 63));
+    }
+
+    /**
+     * 按键位状态机把按键解析为动作槽位。
+     */
+    private void resolve(int key, int vkCode, int flags) {
+        long now = System.nanoTime();
+        Keymap current = keymapSource.get();
+        if (current != keymap) {
+            // 键位已重新加载，丢弃进行中的序列和层
+            keymap = current;
+            state = Keymap.ROOT_STATE;
+            heldLayerKey = NO_ACTION;
+        }
+
+        if (state != Keymap.ROOT_STATE && now - stateDeadline > 0) {
+            state = Keymap.ROOT_STATE;
+        }
+
+        if (state == Keymap.ROOT_STATE) {
+            if (heldLayerKey != NO_ACTION) {
+                layerUsed = true;
+                int entry = keymap.transition(keymap.layerRoot(heldLayerKey), key);
+                if (entry == Keymap.NONE) {
+                    // 层内未绑定的键沿用基础层
+                    entry = keymap.transition(Keymap.ROOT_STATE, key);
+                }
+                if (Keymap.isAction(entry)) {
+                    trigger(Keymap.valueOf(entry), vkCode, flags, now);
+                }
+                return;
+            }
+            if (keymap.layerRoot(key) >= 0) {
+                heldLayerKey = key;
+                heldLayerVk = vkCode;
+                heldLayerFlags = flags;
+                layerUsed = false;
+                return;
+            }
+        }
+
+        int entry = keymap.transition(state, key);
+        if (Keymap.isState(entry)) {
+            state = Keymap.valueOf(entry);
+            stateDeadline = now + keymap.getSequenceTimeoutNanos();
+            return;
+        }
+        state = Keymap.ROOT_STATE;
+        if (Keymap.isAction(entry)) {
+            trigger(Keymap.valueOf(entry), vkCode, flags, now);
+        }
+    }
+
+    /** 松开层键：期间没有按其他键时触发层键自身的动作 */
+    private void releaseLayer() {
+        int key = heldLayerKey;
+        heldLayerKey = NO_ACTION;
+        if (!layerUsed) {
+            dispatcher.publish(key, heldLayerVk, heldLayerFlags, System.nanoTime());
+        }
+    }
+
+    /**
+     * 触发一次动作，并按该动作的重复策略开始长按重复。
+     * 只发布事件，不在输入线程中执行动作。事件时间戳取回调开始时的时间，供 {@link KeyMetrics} 计算分发延迟。
+     */
+    private void trigger(int actionIndex, int vkCode, int flags, long callbackNanos) {
+        dispatcher.publish(actionIndex, vkCode, flags, callbackNanos);
+        repeatEngine.start(actionIndex, vkCode, flags);
+    }
+}
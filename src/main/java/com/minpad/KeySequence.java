@@ -0,0 +1,187 @@
+package com.minpad;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 编译后的定时按键序列
+ * 以紧凑的 int 指令流表示：高 4 位为操作码，低 28 位为操作数。
+ * 连续的按键指令会合并为一批提交，遇到延时指令才等待。启动命令通过下标引用序列自带的命令表。实例不可变。
+ */
+public final class KeySequence {
+
+    static final int OP_SHIFT = 28;
+    static final int OPERAND_MASK = (1 << OP_SHIFT) - 1;
+
+    /** 按键事件，操作数为 {@link KeyInjector} 的事件编码 */
+    static final int OP_KEY = 1;
+    /** 延时，操作数为微秒 */
+    static final int OP_DELAY = 2;
+    /** 启动命令，操作数为命令表下标 */
+    static final int OP_LAUNCH = 3;
+
+    private static final String[][] NO_COMMANDS = new String[0][];
+    private static final int VK_RETURN = 0x0D;
+    private static final int VK_TAB = 0x09;
+
+    /** 单条延时指令的最大值（微秒），更长的延时会拆成多条 */
+    static final int MAX_DELAY_MICROS = OPERAND_MASK;
+
+    private final int[] program;
+    private final String[][] commands;
+
+    KeySequence(int[] program) {
+        this(program, NO_COMMANDS);
+    }
+
+    KeySequence(int[] program, String[][] commands) {
+        this.program = program;
+        this.commands = commands;
+    }
+
+    /**
+     * 把组合键编译为按键序列：修饰键按下 → 主键按下 → 主键抬起 → 修饰键抬起，
+     * 每一步之间间隔 pacingMicros。
+     */
+    public static KeySequence ofChord(KeyChord chord, long pacingMicros) {
+        return new Builder().chord(chord, pacingMicros).build();
+    }
+
+    static int opcode(int instruction) {
+        return instruction >>> OP_SHIFT;
+    }
+
+    static int operand(int instruction) {
+        return instruction & OPERAND_MASK;
+    }
+
+    static int instruction(int opcode, int operand) {
+        return (opcode << OP_SHIFT) | (operand & OPERAND_MASK);
+    }
+
+    /** 指令数 */
+    public int length() {
+        return program.length;
+    }
+
+    int instructionAt(int pc) {
+        return program[pc];
+    }
+
+    /** 命令表中的命令（程序和参数） */
+    String[] commandAt(int index) {
+        return commands[index];
+    }
+
+    /** 按原速执行完整个序列所需的时间（微秒） */
+    public long getDurationMicros() {
+        long total = 0;
+        for (int instruction : program) {
+            if (opcode(instruction) == OP_DELAY) {
+                total += operand(instruction);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 按键序列构建器
+     */
+    public static class Builder {
+        private int[] program = new int[16];
+        private int size;
+        private final List<String[]> commands = new ArrayList<>();
+
+        public Builder down(int vkCode) {
+            return append(instruction(OP_KEY, KeyInjector.down(vkCode)));
+        }
+
+        public Builder up(int vkCode) {
+            return append(instruction(OP_KEY, KeyInjector.up(vkCode)));
+        }
+
+        /** 按下并抬起 */
+        public Builder tap(int vkCode) {
+            return down(vkCode).up(vkCode);
+        }
+
+        /**
+         * 组合键：修饰键按下 → 主键按下 → 主键抬起 → 修饰键抬起，每一步之间间隔 pacingMicros，
+         * 间隔为 0 时整个组合键在同一批提交。
+         */
+        public Builder chord(KeyChord chord, long pacingMicros) {
+            int modifierCount = chord.getModifierCount();
+            int mainKeyCode = chord.getMainKeyCode();
+            for (int i = 0; i < modifierCount; i++) {
+                down(chord.getKeyCode(i));
+            }
+            delay(pacingMicros);
+            down(mainKeyCode);
+            delay(pacingMicros);
+            up(mainKeyCode);
+            delay(pacingMicros);
+            for (int i = modifierCount - 1; i >= 0; i--) {
+                up(chord.getKeyCode(i));
+            }
+            return this;
+        }
+
+        /**
+         * 按字符输入文本，与键盘布局无关；换行和制表符按回车键、Tab 键发送，\r 忽略。
+         * 字符之间间隔 pacingMicros，为 0 时整段文本在同一批提交。
+         */
+        public Builder text(CharSequence text, long pacingMicros) {
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '\r') {
+                    continue;
+                }
+                if (i > 0) {
+                    delay(pacingMicros);
+                }
+                if (c == '\n') {
+                    tap(VK_RETURN);
+                } else if (c == '\t') {
+                    tap(VK_TAB);
+                } else {
+                    append(instruction(OP_KEY, KeyInjector.unicode(c, false)));
+                    append(instruction(OP_KEY, KeyInjector.unicode(c, true)));
+                }
+            }
+            return this;
+        }
+
+        /** 启动命令，不等待其结束 */
+        public Builder launch(String... command) {
+            if (command.length == 0 || command[0] == null || command[0].isEmpty()) {
+                throw new IllegalArgumentException("命令不能为空");
+            }
+            commands.add(command.clone());
+            return append(instruction(OP_LAUNCH, commands.size() - 1));
+        }
+
+        /** 等待指定微秒，0 或负数忽略 */
+        public Builder delay(long micros) {
+            while (micros > 0) {
+                int chunk = (int) Math.min(micros, MAX_DELAY_MICROS);
+                append(instruction(OP_DELAY, chunk));
+                micros -= chunk;
+            }
+            return this;
+        }
+
+        Builder append(int instruction) {
+            if (size == program.length) {
+                program = Arrays.copyOf(program, size * 2);
+            }
+            program[size++] = instruction;
+            return this;
+        }
+
+        public KeySequence build() {
+            return new KeySequence(Arrays.copyOf(program, size),
+                    commands.isEmpty() ? NO_COMMANDS : commands.toArray(new String[0][]));
+        }
+    }
+}
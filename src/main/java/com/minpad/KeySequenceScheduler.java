@@ -0,0 +1,369 @@
+package com.minpad;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 定时按键序列调度器
+ * 所有正在执行的 {@link KeySequence} 作为非阻塞状态机由同一个定时线程推进：
+ * 每个序列记录程序计数器和下一步的纳秒截止时间，到期时执行到下一条延时指令为止，然后重新排队。
+ * 等待期间不占用任何线程，一个线程即可精确驱动数百个并发序列。
+ * 序列中的启动命令交给 {@link Launcher} 执行。
+ *
+ * <p>用指定的 {@link NanoClock} 构造时不启动线程，由调用方推进时钟后调用 {@link #runDue()}，时序完全确定。</p>
+ */
+public class KeySequenceScheduler {
+
+    private static final long IDLE_PARK_NANOS = 1_000_000_000L;
+
+    private final KeyInjector injector;
+    private final NanoClock clock;
+    private volatile Launcher launcher = Launcher.PROCESS;
+    private final boolean threaded;
+    private final Object lock = new Object();
+    private final Object executionLock = new Object();
+    private final PriorityQueue<Task> queue = new PriorityQueue<>(16, (a, b) -> {
+        int byDeadline = Long.compare(a.deadline - b.deadline, 0);
+        return byDeadline != 0 ? byDeadline : Long.compare(a.order, b.order);
+    });
+
+    // 批次缓冲区，持有 executionLock 时使用
+    private final int[] batch = new int[SendInputKeyInjector.MAX_BATCH];
+    private int batchSize;
+
+    private volatile Thread timerThread;
+    private volatile boolean running;
+    private long sequenceCounter;
+
+    /**
+     * 使用系统时钟，首次调度时启动定时线程。
+     */
+    public KeySequenceScheduler(KeyInjector injector) {
+        this(injector, NanoClock.SYSTEM, true);
+    }
+
+    /**
+     * 使用指定时钟，不启动线程，由调用方调用 {@link #runDue()} 推进。
+     */
+    public KeySequenceScheduler(KeyInjector injector, NanoClock clock) {
+        this(injector, clock, false);
+    }
+
+    private KeySequenceScheduler(KeyInjector injector, NanoClock clock, boolean threaded) {
+        this.injector = injector;
+        this.clock = clock;
+        this.threaded = threaded;
+    }
+
+    /**
+     * 调度一个序列立即开始执行。
+     *
+     * @return 可用于取消的句柄
+     */
+    public Handle schedule(KeySequence sequence) {
+        Task task = new Task(sequence);
+        synchronized (lock) {
+            task.deadline = clock.nanoTime();
+            task.order = sequenceCounter++;
+            queue.add(task);
+        }
+        wakeUp();
+        return task;
+    }
+
+    /**
+     * 执行所有已到期的步骤。
+     *
+     * @return 本次推进的步骤数
+     */
+    public int runDue() {
+        synchronized (executionLock) {
+            return runDueLocked();
+        }
+    }
+
+    private int runDueLocked() {
+        int steps = 0;
+        for (;;) {
+            Task task;
+            synchronized (lock) {
+                task = queue.peek();
+                if (task == null || task.deadline - clock.nanoTime() > 0) {
+                    break;
+                }
+                queue.poll();
+            }
+
+            boolean pending = advance(task);
+            steps++;
+            if (pending) {
+                synchronized (lock) {
+                    // 推进期间被取消的序列立即到期，下一轮抬起已按下的键
+                    if (task.cancelled) {
+                        task.deadline = clock.nanoTime();
+                    }
+                    queue.add(task);
+                }
+            }
+        }
+        return steps;
+    }
+
+    /**
+     * 推进一个序列直到下一条延时指令或结束。
+     *
+     * @return true 表示序列尚未结束，需要重新排队
+     */
+    private boolean advance(Task task) {
+        if (task.cancelled) {
+            releaseHeldKeys(task);
+            task.finish();
+            return false;
+        }
+
+        KeySequence sequence = task.sequence;
+        int pc = task.pc;
+        long delayNanos = 0;
+        batchSize = 0;
+        while (pc < sequence.length()) {
+            int instruction = sequence.instructionAt(pc++);
+            int operand = KeySequence.operand(instruction);
+            int opcode = KeySequence.opcode(instruction);
+            if (opcode == KeySequence.OP_KEY) {
+                appendEvent(operand);
+                task.track(operand);
+            } else if (opcode == KeySequence.OP_DELAY) {
+                delayNanos = operand * 1000L;
+                break;
+            } else if (opcode == KeySequence.OP_LAUNCH) {
+                // 保持与前面按键的先后顺序
+                flushBatch();
+                launch(sequence.commandAt(operand));
+            }
+        }
+        flushBatch();
+        task.pc = pc;
+
+        if (pc >= sequence.length()) {
+            task.finish();
+            return false;
+        }
+        // 以截止时间和实际执行时间中较晚的一个为基准：调度迟到（如定时线程刚启动）时
+        // 不会连发积压的步骤，步间隔不会被压缩；按时执行时只多出线程唤醒的延迟
+        task.deadline = Math.max(task.deadline, clock.nanoTime()) + delayNanos;
+        return true;
+    }
+
+    private void launch(String[] command) {
+        try {
+            launcher.launch(command);
+        } catch (Exception e) {
+            Log.error("启动命令失败: {} - {}", command[0], e.getMessage());
+        }
+    }
+
+    /**
+     * 设置启动命令的方式，默认直接创建进程。
+     */
+    public void setLauncher(Launcher launcher) {
+        this.launcher = launcher != null ? launcher : Launcher.PROCESS;
+    }
+
+    private void appendEvent(int event) {
+        if (batchSize == batch.length) {
+            flushBatch();
+        }
+        batch[batchSize++] = event;
+    }
+
+    private void flushBatch() {
+        if (batchSize > 0) {
+            try {
+                injector.send(batch, 0, batchSize);
+            } catch (Exception e) {
+                Log.error("提交按键序列失败: {}", e.getMessage());
+            }
+            batchSize = 0;
+        }
+    }
+
+    /** 取消时抬起序列中仍处于按下状态的键，避免修饰键卡住 */
+    private void releaseHeldKeys(Task task) {
+        batchSize = 0;
+        for (int word = 0; word < task.held.length; word++) {
+            long bits = task.held[word];
+            while (bits != 0) {
+                int bit = Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                appendEvent(KeyInjector.up((word << 6) | bit));
+            }
+            task.held[word] = 0;
+        }
+        flushBatch();
+    }
+
+    private void cancel(Task task) {
+        boolean requeue;
+        synchronized (lock) {
+            if (task.done || task.cancelled) {
+                return;
+            }
+            task.cancelled = true;
+            // 立即到期，由执行线程抬起已按下的键
+            requeue = queue.remove(task);
+            if (requeue) {
+                task.deadline = clock.nanoTime();
+                queue.add(task);
+            }
+        }
+        if (requeue) {
+            wakeUp();
+        }
+    }
+
+    /** 正在执行或等待执行的序列数 */
+    public int getActiveCount() {
+        synchronized (lock) {
+            return queue.size();
+        }
+    }
+
+    /** 停止定时线程，未执行完的序列被丢弃（已按下的键会被抬起）。 */
+    public void shutdown() {
+        synchronized (lock) {
+            Task[] tasks = queue.toArray(new Task[0]);
+            queue.clear();
+            long now = clock.nanoTime();
+            for (Task task : tasks) {
+                task.cancelled = true;
+                task.deadline = now;
+                queue.add(task);
+            }
+        }
+        runDue();
+        running = false;
+        Thread thread = timerThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void wakeUp() {
+        if (!threaded) {
+            return;
+        }
+        Thread thread = timerThread;
+        if (thread == null) {
+            startThread();
+        } else {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private synchronized void startThread() {
+        if (timerThread != null) {
+            LockSupport.unpark(timerThread);
+            return;
+        }
+        running = true;
+        Thread thread = new Thread(this::runLoop, "minpad-key-sequencer");
+        thread.setDaemon(true);
+        timerThread = thread;
+        thread.start();
+    }
+
+    private void runLoop() {
+        while (running) {
+            runDue();
+            long waitNanos;
+            synchronized (lock) {
+                Task next = queue.peek();
+                waitNanos = next == null ? IDLE_PARK_NANOS : next.deadline - clock.nanoTime();
+            }
+            if (waitNanos > 0) {
+                LockSupport.parkNanos(this, waitNanos);
+            }
+        }
+    }
+
+    /**
+     * 命令启动器
+     */
+    public interface Launcher {
+        /** 直接创建进程，不等待其结束 */
+        Launcher PROCESS = command -> new ProcessBuilder(command).start();
+
+        void launch(String[] command) throws Exception;
+    }
+
+    /**
+     * 序列句柄
+     */
+    public interface Handle {
+        /** 取消执行，已按下的键会被抬起 */
+        void cancel();
+
+        /** 是否已执行完毕或已取消完成 */
+        boolean isDone();
+
+        boolean isCancelled();
+
+        /** 执行完毕或取消完成时完成，在推进序列的线程上回调 */
+        CompletableFuture<Void> completion();
+    }
+
+    private final class Task implements Handle {
+        final KeySequence sequence;
+        // 序列按下但尚未抬起的虚拟键
+        final long[] held = new long[4];
+        final CompletableFuture<Void> completion = new CompletableFuture<>();
+        int pc;
+        long deadline;
+        long order;
+        volatile boolean cancelled;
+        volatile boolean done;
+
+        Task(KeySequence sequence) {
+            this.sequence = sequence;
+        }
+
+        void track(int event) {
+            int code = KeyInjector.codeOf(event);
+            if (KeyInjector.isUnicode(event) || code > 0xFF) {
+                return;
+            }
+            long bit = 1L << (code & 63);
+            if (KeyInjector.isKeyUp(event)) {
+                held[code >>> 6] &= ~bit;
+            } else {
+                held[code >>> 6] |= bit;
+            }
+        }
+
+        void finish() {
+            done = true;
+            completion.complete(null);
+        }
+
+        @Override
+        public void cancel() {
+            KeySequenceScheduler.this.cancel(this);
+        }
+
+        @Override
+        public boolean isDone() {
+            return done;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public CompletableFuture<Void> completion() {
+            return completion;
+        }
+    }
+}
@@ -1,232 +1,320 @@
 package com.minpad;
 
+import com.sun.jna.Native;
 import com.sun.jna.Pointer;
 import com.sun.jna.platform.win32.Kernel32;
 import com.sun.jna.platform.win32.User32;
+import com.sun.jna.platform.win32.WinDef;
 import com.sun.jna.platform.win32.WinDef.HMODULE;
 import com.sun.jna.platform.win32.WinDef.LRESULT;
-import com.sun.jna.platform.win32.WinDef.WPARAM;
 import com.sun.jna.platform.win32.WinUser;
-import com.sun.jna.platform.win32.WinUser.KBDLLHOOKSTRUCT;
-
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
-import java.util.function.IntConsumer;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * 低层键盘钩子，拦截数字键盘按键并可选择吞掉事件。
+ * 作为 Win32 输入源，把按键交给 {@link InputSource.Sink}（通常是 {@link KeyRouter}）决定是否吞掉。
+ *
+ * <p>回调是全系统每次按键都要经过的路径，因此做成不分配内存的快速路径：
+ * 直接从 lParam 指向的 KBDLLHOOKSTRUCT 读取字段，未映射的按键只读取 vkCode 就放行。</p>
+ *
+ * <p>设置了 {@link KeyMetrics} 时，数字键盘按下还记录事件时间到回调的延迟（GetTickCount 精度）。</p>
+ *
+ * <p>每个钩子有自己的消息循环线程。{@link HookWatchdog} 发现钩子失效时调用 {@link #reinstall()} 换一个新线程重新安装，
+ * 并通过线程消息在钩子线程上执行清理任务。</p>
  */
-public class KeyboardHook {
+public class KeyboardHook implements InputSource, HookWatchdog.Target {
 
     private static final int WH_KEYBOARD_LL = 13;
     private static final int WM_KEYDOWN = 0x0100;
     private static final int WM_SYSKEYDOWN = 0x0104;
     private static final int WM_KEYUP = 0x0101;
     private static final int WM_SYSKEYUP = 0x0105;
-    private static final int VK_NUMPAD0 = 0x60;
-    private static final int VK_NUMPAD1 = 0x61;
-    private static final int VK_NUMPAD2 = 0x62;
-    private static final int VK_NUMPAD3 = 0x63;
-    private static final int VK_NUMPAD4 = 0x64;
-    private static final int VK_NUMPAD5 = 0x65;
-    private static final int VK_NUMPAD6 = 0x66;
-    private static final int VK_NUMPAD7 = 0x67;
-    private static final int VK_NUMPAD8 = 0x68;
-    private static final int VK_NUMPAD9 = 0x69;
-    private static final int VK_MULTIPLY = 0x6A;
-    private static final int VK_ADD = 0x6B;
-    private static final int VK_SEPARATOR = 0x6C; // rarely used
-    private static final int VK_SUBTRACT = 0x6D;
-    private static final int VK_DECIMAL = 0x6E;
-    private static final int VK_DIVIDE = 0x6F;
-    private static final int VK_RETURN = 0x0D;
-
-    private static final int LLKHF_EXTENDED = 0x01; // flag to distinguish NumPad Enter
-
-    private final IntConsumer onKey;
-    private WinUser.HHOOK hHook;
-    private Thread hookThread;
+
+    // KBDLLHOOKSTRUCT 字段偏移
+    private static final int OFFSET_VK_CODE = 0;
+    private static final int OFFSET_FLAGS = 8;
+    private static final int OFFSET_TIME = 12;
+
+    // 超过该值视为时间戳无效（回绕或系统休眠），不计入统计
+    private static final long MAX_HOOK_LATENCY_MS = 60_000;
+
+    // 运行输入线程任务的线程消息
+    private static final int WM_RUN_TASKS = WinUser.WM_USER + 1;
+
+    private final KeyMetrics metrics;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    private InputSource.Sink sink;
+    private volatile HookThread current;
     private volatile boolean running;
-    private int threadId;
-    private final Set<Integer> pressedKeys = ConcurrentHashMap.newKeySet();
-    private final Map<Integer, ScheduledFuture<?>> repeatTasks = new ConcurrentHashMap<>();
-    private final ScheduledExecutorService repeatExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
-        Thread t = new Thread(r, "minpad-key-repeat");
-        t.setDaemon(true);
-        return t;
-    });
-
-    public KeyboardHook(IntConsumer onKey) {
-        this.onKey = onKey;
+
+    public KeyboardHook() {
+        this(null);
+    }
+
+    /**
+     * @param metrics 按键统计，null 表示不记录
+     */
+    public KeyboardHook(KeyMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public String getName() {
+        return "win32-hook";
     }
 
     /** 启动钩子（在后台线程建立消息循环）。 */
-    public synchronized void start() {
+    @Override
+    public synchronized void start(InputSource.Sink sink) {
         if (running) {
             return;
         }
+        this.sink = sink;
         running = true;
-        hookThread = new Thread(this::runLoop, "minpad-keyboard-hook");
-        hookThread.setDaemon(true);
-        hookThread.start();
+        current = new HookThread();
+        current.start();
     }
 
     /** 停止钩子并退出消息循环。 */
+    @Override
     public synchronized void stop() {
         running = false;
-        if (threadId != 0) {
-            User32.INSTANCE.PostThreadMessage(threadId, WinUser.WM_QUIT, null, null);
+        HookThread thread = current;
+        if (thread != null) {
+            thread.quit();
         }
     }
 
-    private void runLoop() {
-        threadId = Kernel32.INSTANCE.GetCurrentThreadId();
-        HMODULE module = Kernel32.INSTANCE.GetModuleHandle(null);
+    /**
+     * 在新的消息循环线程上安装钩子，成功后卸下旧钩子。系统移除超时的钩子时不会通知，旧钩子可能已经失效。
+     * 旧线程退出时不清理按下状态，由调用方在新线程上处理。
+     */
+    @Override
+    public synchronized void reinstall() {
+        if (!running) {
+            return;
+        }
+        HookThread previous = current;
+        current = new HookThread();
+        current.start();
+        if (previous != null) {
+            previous.retire();
+        }
+    }
 
-        WinUser.LowLevelKeyboardProc keyboardProc = (nCode, wParam, info) -> {
-            if (nCode >= 0) {
-                int vkCode = info.vkCode;
-                int msg = wParam.intValue();
-                Integer actionIndex = mapVkToAction(vkCode, info.flags);
-
-                // 只处理数字键盘映射，其它键直接放行
-                if (actionIndex == null) {
-                    return User32.INSTANCE.CallNextHookEx(
-                        hHook,
-                        nCode,
-                        wParam,
-                        new com.sun.jna.platform.win32.WinDef.LPARAM(Pointer.nativeValue(info.getPointer())));
-                }
+    /** 在当前钩子线程上执行任务，没有运行中的钩子时丢弃。 */
+    @Override
+    public void execute(Runnable task) {
+        tasks.add(task);
+        HookThread thread = current;
+        if (thread != null) {
+            thread.wake();
+        }
+    }
 
-                if (msg == WM_KEYDOWN || msg == WM_SYSKEYDOWN) {
-                    // 首次按下才触发，屏蔽系统自动重复
-                    if (pressedKeys.add(vkCode)) {
-                        trigger(actionIndex, vkCode);
-                    }
-                    return new LRESULT(1); // 吞掉数字键盘事件
-                } else if (msg == WM_KEYUP || msg == WM_SYSKEYUP) {
-                    pressedKeys.remove(vkCode);
-                    stopRepeat(vkCode);
-                    return new LRESULT(1); // 同样吞掉
-                }
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                Log.error("钩子线程任务失败: {}", e.getMessage(), e);
             }
-                return User32.INSTANCE.CallNextHookEx(
-                    hHook,
-                    nCode,
-                    wParam,
-                    new com.sun.jna.platform.win32.WinDef.LPARAM(Pointer.nativeValue(info.getPointer())));
-        };
-
-        hHook = User32.INSTANCE.SetWindowsHookEx(WH_KEYBOARD_LL, keyboardProc, module, 0);
-        if (hHook == null) {
-            running = false;
-            return;
+        }
+    }
+
+    /**
+     * 查询系统记录的按键状态（GetAsyncKeyState），供 {@link HookWatchdog} 检测钩子失效
+     */
+    public static boolean isKeyDown(int vkCode) {
+        short state = User32Direct.isAvailable()
+            ? User32Direct.GetAsyncKeyState(vkCode) : User32.INSTANCE.GetAsyncKeyState(vkCode);
+        return (state & 0x8000) != 0;
+    }
+
+    /**
+     * 一个钩子及其消息循环。回调对象、钩子句柄和复用的指针都属于该线程，重装时整体替换。
+     */
+    private final class HookThread implements Runnable {
+
+        private final Thread thread = new Thread(this, "minpad-keyboard-hook");
+        // 只在钩子线程中访问
+        private final ReusablePointer structPointer = new ReusablePointer();
+        // 回调对象必须保持强引用，否则被 GC 后钩子会失效
+        private WinUser.HOOKPROC keyboardProc;
+        private volatile WinUser.HHOOK hHook;
+        private volatile Pointer hookHandle;
+        private volatile int threadId;
+        private volatile boolean retired;
+        private volatile boolean quitRequested;
+
+        void start() {
+            thread.setDaemon(true);
+            thread.start();
         }
 
-        // 简单消息循环，保持钩子存活
-        WinUser.MSG msg = new WinUser.MSG();
-        while (running && User32.INSTANCE.GetMessage(msg, null, 0, 0) != 0) {
-            User32.INSTANCE.TranslateMessage(msg);
-            User32.INSTANCE.DispatchMessage(msg);
+        /** 退出消息循环并清理按下状态 */
+        void quit() {
+            quitRequested = true;
+            post(WinUser.WM_QUIT);
         }
 
-        if (hHook != null) {
+        /** 被新钩子替换：退出消息循环，不清理按下状态 */
+        void retire() {
+            retired = true;
+            quit();
+        }
+
+        void wake() {
+            post(WM_RUN_TASKS);
+        }
+
+        private void post(int message) {
+            int id = threadId;
+            if (id != 0) {
+                User32.INSTANCE.PostThreadMessage(id, message, null, null);
+            }
+        }
+
+        @Override
+        public void run() {
+            boolean installed = install();
+            StartupProbe.hookAttempted(installed);
+            if (!installed) {
+                if (!retired && current == this) {
+                    running = false;
+                }
+                return;
+            }
+            hookHandle = hHook.getPointer();
+            // 安装钩子后线程已有消息队列，此后投递的线程消息不会丢失；之前提交的任务在进入循环前执行
+            threadId = Kernel32.INSTANCE.GetCurrentThreadId();
+
+            // 简单消息循环，保持钩子存活；线程消息用于执行看门狗提交的任务
+            WinUser.MSG msg = new WinUser.MSG();
+            runTasks();
+            while (!quitRequested && User32.INSTANCE.GetMessage(msg, null, 0, 0) != 0) {
+                if (msg.hWnd == null && msg.message == WM_RUN_TASKS) {
+                    runTasks();
+                    continue;
+                }
+                User32.INSTANCE.TranslateMessage(msg);
+                User32.INSTANCE.DispatchMessage(msg);
+            }
+
             User32.INSTANCE.UnhookWindowsHookEx(hHook);
             hHook = null;
+            hookHandle = null;
+
+            if (!retired) {
+                // 退出时清理按下状态和重复任务
+                sink.onSourceStopped();
+            }
+        }
+
+        /**
+         * 在当前线程安装低层键盘钩子。Win32 接口不可用（如不在 Windows 上运行）时同样按失败处理。
+         */
+        private boolean install() {
+            try {
+                HMODULE module = Kernel32.INSTANCE.GetModuleHandle(null);
+
+                if (Native.POINTER_SIZE == 8 && User32Direct.isAvailable()) {
+                    keyboardProc = (RawKeyboardProc) this::onRawKeyboardEvent;
+                } else {
+                    // 32 位进程退回 JNA 结构体映射
+                    keyboardProc = (WinUser.LowLevelKeyboardProc) (nCode, wParam, info) -> {
+                        if (nCode >= 0 && handleKey(wParam.intValue(), info.vkCode, info.flags, info.time)) {
+                            return new LRESULT(1);
+                        }
+                        return User32.INSTANCE.CallNextHookEx(
+                            hHook,
+                            nCode,
+                            wParam,
+                            new WinDef.LPARAM(Pointer.nativeValue(info.getPointer())));
+                    };
+                }
+
+                hHook = User32.INSTANCE.SetWindowsHookEx(WH_KEYBOARD_LL, keyboardProc, module, 0);
+            } catch (LinkageError e) {
+                Log.error("无法加载 Win32 键盘钩子接口: {}", e.getMessage());
+                return false;
+            }
+            if (hHook == null) {
+                Log.error("安装键盘钩子失败: {}", Native.getLastError());
+                return false;
+            }
+            return true;
         }
 
-        // 退出时清理重复任务
-        repeatTasks.values().forEach(f -> {
-            if (f != null) {
-                f.cancel(true);
+        /**
+         * 钩子回调快速路径：只读取需要的字段，直接调用 CallNextHookEx。
+         */
+        private long onRawKeyboardEvent(int nCode, long wParam, long lParam) {
+            if (nCode >= 0) {
+                structPointer.setAddress(lParam);
+                int vkCode = structPointer.getInt(OFFSET_VK_CODE);
+                if (KeyRouter.isCandidate(vkCode)) {
+                    int flags = structPointer.getInt(OFFSET_FLAGS);
+                    int time = metrics != null ? structPointer.getInt(OFFSET_TIME) : 0;
+                    if (handleKey((int) wParam, vkCode, flags, time)) {
+                        return 1;
+                    }
+                }
             }
-        });
-        repeatExecutor.shutdownNow();
-    }
+            return User32Direct.CallNextHookEx(hookHandle, nCode, wParam, lParam);
+        }
 
-    /** 将虚拟键码映射到动作索引。返回 null 表示不处理。 */
-    private Integer mapVkToAction(int vkCode, int flags) {
-        switch (vkCode) {
-            case VK_NUMPAD0:
-                return 0;
-            case VK_NUMPAD1:
-                return 1;
-            case VK_NUMPAD2:
-                return 2;
-            case VK_NUMPAD3:
-                return 3;
-            case VK_NUMPAD4:
-                return 4;
-            case VK_NUMPAD5:
-                return 5;
-            case VK_NUMPAD6:
-                return 6;
-            case VK_NUMPAD7:
-                return 7;
-            case VK_NUMPAD8:
-                return 8;
-            case VK_NUMPAD9:
-                return 9;
-            case VK_ADD:
-                return 10;
-            case VK_SUBTRACT:
-                return 11;
-            case VK_MULTIPLY:
-                return 12;
-            case VK_DIVIDE:
-                return 13;
-            case VK_RETURN:
-                // 只有数字键盘的 Enter 才处理（扩展标志为1）
-                if ((flags & LLKHF_EXTENDED) == LLKHF_EXTENDED) {
-                    return 14;
+        /**
+         * 处理一次按键消息（在钩子线程调用，不分配内存）。
+         *
+         * @return true 表示吞掉该事件
+         */
+        private boolean handleKey(int msg, int vkCode, int flags, int eventTime) {
+            if (msg == WM_KEYDOWN || msg == WM_SYSKEYDOWN) {
+                if (metrics != null) {
+                    recordHookLatency(vkCode, flags, eventTime);
                 }
-                return null;
-            case VK_DECIMAL:
-                return 15;
-            default:
-                return null;
+                return sink.onKeyEvent(vkCode, flags, true);
+            } else if (msg == WM_KEYUP || msg == WM_SYSKEYUP) {
+                return sink.onKeyEvent(vkCode, flags, false);
+            }
+            return false;
+        }
+
+        private void recordHookLatency(int vkCode, int flags, int eventTime) {
+            int key = KeyRouter.mapVkToAction(vkCode, flags);
+            if (key < 0) {
+                return;
+            }
+            int now = Kernel32Direct.isAvailable() ? Kernel32Direct.GetTickCount() : Kernel32.INSTANCE.GetTickCount();
+            long elapsedMs = (now - eventTime) & 0xFFFFFFFFL;
+            if (elapsedMs < MAX_HOOK_LATENCY_MS) {
+                metrics.recordHookLatency(key, elapsedMs * 1_000_000L);
+            }
         }
     }
 
     /**
-     * 触发一次动作；对 + / - 支持长按循环，其他键仅一次。
+     * 参数均为基本类型的低层键盘回调（仅 64 位），避免 JNA 为每次按键构造结构体和 WPARAM/LPARAM 对象。
      */
-    private void trigger(Integer actionIndex, int vkCode) {
-        if (actionIndex == null) return;
-
-        // 先立即执行一次
-        try {
-            onKey.accept(actionIndex);
-        } catch (Exception ignored) {
-            // 防止回调异常导致输入阻塞
-        }
-
-        // 仅对 NumPad + / - 做长按循环
-        if (vkCode == VK_ADD || vkCode == VK_SUBTRACT) {
-            ScheduledFuture<?> future = repeatExecutor.scheduleAtFixedRate(() -> {
-                try {
-                    onKey.accept(actionIndex);
-                } catch (Exception ignored) {
-                }
-            }, 150, 120, TimeUnit.MILLISECONDS); // 150ms 后开始，每 120ms 重复
-            repeatTasks.put(vkCode, future);
-        }
+    public interface RawKeyboardProc extends WinUser.HOOKPROC {
+        long callback(int nCode, long wParam, long lParam);
     }
 
     /**
-     * 停止对应按键的长按循环。
+     * 可复用的指针，回调中重置地址而不创建新的 Pointer。
      */
-    private void stopRepeat(int vkCode) {
-        ScheduledFuture<?> future = repeatTasks.remove(vkCode);
-        if (future != null) {
-            future.cancel(true);
+    private static final class ReusablePointer extends Pointer {
+        ReusablePointer() {
+            super(0);
+        }
+
+        void setAddress(long address) {
+            this.peer = address;
         }
     }
-}
\ No newline at end of file
+}
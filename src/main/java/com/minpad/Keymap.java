@@ -0,0 +1,357 @@
+package com.minpad;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 编译后的键位表
+ * 支持三种绑定，配置中以动作的键表示：
+ * <ul>
+ *   <li>基础层："5"，动作槽位即按键索引 0~15；</li>
+ *   <li>层："0+5" 表示按住 0 再按 5，槽位为 16 × (按住键 + 1) + 按键；</li>
+ *   <li>引导序列：". 4 2" 表示依次按下 .、4、2，槽位从 {@link #SEQUENCE_SLOT_BASE} 起按加载顺序分配。</li>
+ * </ul>
+ * 加载时整个键位编译为一张扁平的状态转移表：每个状态 16 列，表项是动作槽位或下一个状态，
+ * 按键时只做一次数组下标访问，与绑定数量无关，也不分配内存。实例不可变。
+ */
+public final class Keymap {
+
+    /** 数字键盘按键数（动作索引 0~15） */
+    public static final int KEY_COUNT = 16;
+
+    /** 引导序列的动作槽位起点 */
+    public static final int SEQUENCE_SLOT_BASE = 4096;
+
+    /** 引导序列的默认超时（毫秒） */
+    public static final long DEFAULT_SEQUENCE_TIMEOUT_MS = 1000;
+
+    /** 只有基础层的键位表：每个键映射到同索引的动作 */
+    public static final Keymap BASE = new Builder().build();
+
+    static final int NONE = 0;
+    private static final int ACTION_TAG = 0x4000_0000;
+    private static final int STATE_TAG = 0x2000_0000;
+    private static final int VALUE_MASK = 0x0FFF_FFFF;
+
+    /** 状态 0 为基础层根状态 */
+    static final int ROOT_STATE = 0;
+
+    private static final String[] KEY_NAMES = {
+        "0", "1", "2", "3", "4", "5", "6", "7", "8", "9", "+", "-", "*", "/", "enter", "."
+    };
+
+    // 下标为 状态 × 16 + 按键
+    private final int[] transitions;
+    // 按住键 → 层根状态，-1 表示不是层键
+    private final int[] layerRoots;
+    private final long sequenceTimeoutNanos;
+    private final int bindingCount;
+
+    private Keymap(int[] transitions, int[] layerRoots, long sequenceTimeoutNanos, int bindingCount) {
+        this.transitions = transitions;
+        this.layerRoots = layerRoots;
+        this.sequenceTimeoutNanos = sequenceTimeoutNanos;
+        this.bindingCount = bindingCount;
+    }
+
+    /**
+     * 由动作表编译键位：槽位小于 16 的为基础层，16~271 为层，{@link #SEQUENCE_SLOT_BASE} 起为引导序列
+     * （序列按键取自 {@link ActionExecutor.ActionConfig#getBinding()}）。
+     *
+     * @throws IllegalArgumentException 绑定之间冲突
+     */
+    public static Keymap compile(Map<Integer, ActionExecutor.ActionConfig> actions, long sequenceTimeoutMs) {
+        return new Builder().sequenceTimeoutMs(sequenceTimeoutMs).addAll(actions).build();
+    }
+
+    /**
+     * 解析配置中的动作键。
+     *
+     * @return 基础层或层的槽位；引导序列返回 -1（槽位由调用方分配）
+     * @throws IllegalArgumentException 格式无效
+     */
+    public static int parseSlot(String binding) {
+        String text = binding.trim();
+        int plus = text.indexOf('+', 1);
+        if (plus > 0 && plus < text.length() - 1) {
+            int hold = parseKey(text.substring(0, plus));
+            int key = parseKey(text.substring(plus + 1));
+            if (hold == key) {
+                throw new IllegalArgumentException("层键不能与按键相同: " + binding);
+            }
+            return layerSlot(hold, key);
+        }
+        if (text.indexOf(' ') > 0) {
+            parseSequence(text);
+            return -1;
+        }
+        return parseKey(text);
+    }
+
+    /** 层动作的槽位 */
+    public static int layerSlot(int holdKey, int key) {
+        return KEY_COUNT * (holdKey + 1) + key;
+    }
+
+    static boolean isLayerSlot(int slot) {
+        return slot >= KEY_COUNT && slot < KEY_COUNT * (KEY_COUNT + 1);
+    }
+
+    /**
+     * 解析引导序列，如 ". 4 2"
+     *
+     * @throws IllegalArgumentException 少于两个键或包含未知按键
+     */
+    static int[] parseSequence(String sequence) {
+        String[] parts = sequence.trim().split("\\s+");
+        if (parts.length < 2) {
+            throw new IllegalArgumentException("引导序列至少需要两个键: " + sequence);
+        }
+        int[] keys = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            keys[i] = parseKey(parts[i]);
+        }
+        return keys;
+    }
+
+    /**
+     * 引导序列的规范写法（按键名以单个空格分隔），用于判断两处配置是否为同一序列
+     *
+     * @throws IllegalArgumentException 序列无效
+     */
+    static String canonicalSequence(String sequence) {
+        return Builder.describe(parseSequence(sequence), false);
+    }
+
+    /**
+     * 解析数字键盘按键：0~9、+ - * / . enter，或动作索引 10~15
+     *
+     * @throws IllegalArgumentException 未知按键
+     */
+    static int parseKey(String name) {
+        String key = name.trim().toLowerCase(Locale.ROOT);
+        for (int i = 0; i < KEY_NAMES.length; i++) {
+            if (KEY_NAMES[i].equals(key)) {
+                return i;
+            }
+        }
+        switch (key) {
+            case "add":
+                return 10;
+            case "subtract":
+                return 11;
+            case "multiply":
+                return 12;
+            case "divide":
+                return 13;
+            case "decimal":
+                return 15;
+            default:
+                try {
+                    int index = Integer.parseInt(key);
+                    if (index >= 0 && index < KEY_COUNT) {
+                        return index;
+                    }
+                } catch (NumberFormatException e) {
+                    // 落到下面统一报错
+                }
+                throw new IllegalArgumentException("未知的数字键盘按键: " + name);
+        }
+    }
+
+    /** 按键显示名 */
+    public static String keyName(int key) {
+        return key >= 0 && key < KEY_COUNT ? KEY_NAMES[key] : String.valueOf(key);
+    }
+
+    /** 层根状态，不是层键时返回 -1 */
+    int layerRoot(int holdKey) {
+        return layerRoots[holdKey];
+    }
+
+    /** 状态转移表项 */
+    int transition(int state, int key) {
+        return transitions[state * KEY_COUNT + key];
+    }
+
+    static boolean isAction(int entry) {
+        return (entry & ACTION_TAG) != 0;
+    }
+
+    static boolean isState(int entry) {
+        return (entry & STATE_TAG) != 0;
+    }
+
+    static int valueOf(int entry) {
+        return entry & VALUE_MASK;
+    }
+
+    long getSequenceTimeoutNanos() {
+        return sequenceTimeoutNanos;
+    }
+
+    /** 状态数 */
+    public int getStateCount() {
+        return transitions.length / KEY_COUNT;
+    }
+
+    /** 层和引导序列绑定数 */
+    public int getBindingCount() {
+        return bindingCount;
+    }
+
+    /** 状态转移表、层键和超时都相同时相等，重新加载配置时据此沿用旧实例 */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Keymap)) {
+            return false;
+        }
+        Keymap other = (Keymap) o;
+        return sequenceTimeoutNanos == other.sequenceTimeoutNanos
+            && Arrays.equals(transitions, other.transitions)
+            && Arrays.equals(layerRoots, other.layerRoots);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(transitions) + Arrays.hashCode(layerRoots);
+    }
+
+    /**
+     * 键位构建器
+     */
+    public static class Builder {
+        private int[] transitions = new int[KEY_COUNT * 4];
+        private int stateCount = 1;
+        private final int[] layerRoots = new int[KEY_COUNT];
+        private long sequenceTimeoutMs = DEFAULT_SEQUENCE_TIMEOUT_MS;
+        private int bindingCount;
+
+        public Builder() {
+            Arrays.fill(layerRoots, -1);
+            for (int key = 0; key < KEY_COUNT; key++) {
+                transitions[key] = ACTION_TAG | key;
+            }
+        }
+
+        public Builder sequenceTimeoutMs(long timeoutMs) {
+            this.sequenceTimeoutMs = Math.max(1, timeoutMs);
+            return this;
+        }
+
+        /**
+         * 加入动作表中的层和引导序列，按槽位顺序加入
+         *
+         * @throws IllegalArgumentException 绑定之间冲突
+         */
+        public Builder addAll(Map<Integer, ActionExecutor.ActionConfig> actions) {
+            List<Integer> slots = new ArrayList<>(actions.keySet());
+            slots.sort(null);
+            for (int slot : slots) {
+                ActionExecutor.ActionConfig config = actions.get(slot);
+                if (slot < KEY_COUNT) {
+                    continue;
+                }
+                if (isLayerSlot(slot)) {
+                    layer(slot / KEY_COUNT - 1, slot % KEY_COUNT);
+                } else if (slot >= SEQUENCE_SLOT_BASE && config != null && config.getBinding() != null) {
+                    sequence(parseSequence(config.getBinding()), slot);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * 按住 holdKey 时按 key 触发层动作
+         *
+         * @throws IllegalArgumentException 按住键已是引导键
+         */
+        public Builder layer(int holdKey, int key) {
+            if (isState(transitions[holdKey])) {
+                throw new IllegalArgumentException("键 " + keyName(holdKey) + " 已用作引导键，不能再作为层键");
+            }
+            if (layerRoots[holdKey] < 0) {
+                layerRoots[holdKey] = newState();
+            }
+            transitions[layerRoots[holdKey] * KEY_COUNT + key] = ACTION_TAG | layerSlot(holdKey, key);
+            bindingCount++;
+            return this;
+        }
+
+        /**
+         * 引导序列
+         *
+         * @throws IllegalArgumentException 与已有序列互为前缀，或首键已是层键
+         */
+        public Builder sequence(int[] keys, int slot) {
+            String text = describe(keys, true);
+            if (layerRoots[keys[0]] >= 0) {
+                throw new IllegalArgumentException("引导序列 " + text + " 的首键已用作层键");
+            }
+            // 先检查冲突，确保失败时不留下半条序列
+            int state = ROOT_STATE;
+            for (int i = 0; i < keys.length; i++) {
+                int entry = transitions[state * KEY_COUNT + keys[i]];
+                boolean last = i == keys.length - 1;
+                if (isState(entry)) {
+                    if (last) {
+                        throw new IllegalArgumentException("引导序列 " + text + " 是已有序列的前缀");
+                    }
+                    state = valueOf(entry);
+                } else if (entry != NONE && state != ROOT_STATE) {
+                    throw new IllegalArgumentException("引导序列 " + text + " 与已有序列冲突");
+                } else {
+                    break;
+                }
+            }
+
+            state = ROOT_STATE;
+            for (int i = 0; i < keys.length - 1; i++) {
+                int index = state * KEY_COUNT + keys[i];
+                int entry = transitions[index];
+                if (isState(entry)) {
+                    state = valueOf(entry);
+                } else {
+                    // 根状态上覆盖首键的基础动作：该键变为引导键
+                    int next = newState();
+                    transitions[index] = STATE_TAG | next;
+                    state = next;
+                }
+            }
+            transitions[state * KEY_COUNT + keys[keys.length - 1]] = ACTION_TAG | slot;
+            bindingCount++;
+            return this;
+        }
+
+        private int newState() {
+            int state = stateCount++;
+            int required = stateCount * KEY_COUNT;
+            if (required > transitions.length) {
+                transitions = Arrays.copyOf(transitions, Math.max(required, transitions.length * 2));
+            }
+            return state;
+        }
+
+        public Keymap build() {
+            return new Keymap(Arrays.copyOf(transitions, stateCount * KEY_COUNT), layerRoots.clone(),
+                sequenceTimeoutMs * 1_000_000L, bindingCount);
+        }
+
+        private static String describe(int[] keys, boolean quoted) {
+            StringBuilder sb = new StringBuilder(quoted ? "\"" : "");
+            for (int i = 0; i < keys.length; i++) {
+                if (i > 0) {
+                    sb.append(' ');
+                }
+                sb.append(keyName(keys[i]));
+            }
+            return quoted ? sb.append('"').toString() : sb.toString();
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package com.minpad;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * 键位二进制缓存
+ * 把 config.json 解析后的结果（顶层设置、全局动作、配置档）保存为紧凑的二进制文件 keymap.cache，
+ * 与 config.json 放在同一目录。启动时 config.json 的大小、修改时间和内容 CRC 都与缓存头一致、
+ * 且缓存本身校验通过时，一次读取即可恢复，不再构建 Gson 树；任何不一致都返回 null，由调用方回退到 JSON。
+ *
+ * <p>缓存保存的是动作定义，组合键和宏在解码后重新编译（微秒级），保证缓存与 JSON 只有一种语义。</p>
+ */
+final class KeymapCache {
+
+    static final String FILE_NAME = "keymap.cache";
+
+    private static final int MAGIC = 0x4D504B43; // "MPKC"
+    private static final int FORMAT_VERSION = 1;
+
+    private static final byte SETTING_STRING = 0;
+    private static final byte SETTING_NUMBER = 1;
+    private static final byte SETTING_BOOLEAN = 2;
+
+    private KeymapCache() {
+    }
+
+    /**
+     * 读取与 config.json 一致的缓存
+     *
+     * @return 缓存缺失、损坏、格式版本不同或与 config.json 不一致时返回 null
+     */
+    static Entry read(Path configFile, Path cacheFile) {
+        try {
+            if (!Files.exists(cacheFile) || !Files.exists(configFile)) {
+                return null;
+            }
+            byte[] cache = Files.readAllBytes(cacheFile);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(cache));
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            long jsonSize = in.readLong();
+            long jsonModified = in.readLong();
+            long jsonCrc = in.readLong();
+            int bodyLength = in.readInt();
+            long bodyCrc = in.readLong();
+
+            BasicFileAttributes attributes = Files.readAttributes(configFile, BasicFileAttributes.class);
+            if (attributes.size() != jsonSize || attributes.lastModifiedTime().toMillis() != jsonModified) {
+                return null;
+            }
+            int bodyOffset = cache.length - in.available();
+            if (bodyLength != cache.length - bodyOffset || crc(cache, bodyOffset, bodyLength) != bodyCrc) {
+                return null;
+            }
+            // 修改时间精度有限，同一时刻写入的同样大小的内容靠 CRC 区分
+            ConfigFingerprint fingerprint = ConfigFingerprint.of(configFile);
+            if (fingerprint.getLength() != jsonSize || fingerprint.getCrc() != jsonCrc) {
+                return null;
+            }
+
+            Entry entry = new Entry(fingerprint, cache, bodyOffset);
+            entry.decodeSettings();
+            return entry;
+        } catch (IOException | RuntimeException e) {
+            Log.warn("键位缓存无效，读取 config.json: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 编码缓存内容
+     *
+     * @param fingerprint   解析所用的 config.json 的指纹
+     * @param jsonModified  config.json 的修改时间（毫秒）
+     * @param configJson    解析后的 JSON，只保存其中的顶层标量设置
+     * @return 无法编码（含自定义子类的动作）时返回 null
+     */
+    static byte[] encode(ConfigFingerprint fingerprint, long jsonModified, JsonObject configJson,
+                         Map<Integer, ActionExecutor.ActionConfig> actions, List<Profile> profiles) {
+        try {
+            ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream(4096);
+            DataOutputStream body = new DataOutputStream(bodyBytes);
+            writeSettings(body, configJson);
+            // 全局动作带长度前缀，只解码配置档时可以跳过
+            ByteArrayOutputStream actionBytes = new ByteArrayOutputStream(2048);
+            DataOutputStream actionOut = new DataOutputStream(actionBytes);
+            if (!writeActions(actionOut, actions)) {
+                return null;
+            }
+            actionOut.flush();
+            body.writeInt(actionBytes.size());
+            actionBytes.writeTo(body);
+            body.writeInt(profiles.size());
+            for (Profile profile : profiles) {
+                writeString(body, profile.getName());
+                writeStrings(body, profile.getProcessNames());
+                writeStrings(body, profile.getWindowClasses());
+                if (!writeActions(body, profile.getOverrides())) {
+                    return null;
+                }
+            }
+            body.flush();
+            byte[] bodyArray = bodyBytes.toByteArray();
+
+            ByteArrayOutputStream fileBytes = new ByteArrayOutputStream(bodyArray.length + 40);
+            DataOutputStream out = new DataOutputStream(fileBytes);
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(fingerprint.getLength());
+            out.writeLong(jsonModified);
+            out.writeLong(fingerprint.getCrc());
+            out.writeInt(bodyArray.length);
+            out.writeLong(crc(bodyArray, 0, bodyArray.length));
+            out.write(bodyArray);
+            out.flush();
+            return fileBytes.toByteArray();
+        } catch (IOException e) {
+            // 写入内存流不会失败
+            return null;
+        }
+    }
+
+    private static void writeSettings(DataOutputStream out, JsonObject configJson) throws IOException {
+        List<Map.Entry<String, JsonElement>> settings = new ArrayList<>();
+        for (Map.Entry<String, JsonElement> entry : configJson.entrySet()) {
+            if (entry.getValue().isJsonPrimitive()) {
+                settings.add(entry);
+            }
+        }
+        out.writeInt(settings.size());
+        for (Map.Entry<String, JsonElement> entry : settings) {
+            JsonPrimitive value = entry.getValue().getAsJsonPrimitive();
+            writeString(out, entry.getKey());
+            if (value.isBoolean()) {
+                out.writeByte(SETTING_BOOLEAN);
+            } else if (value.isNumber()) {
+                out.writeByte(SETTING_NUMBER);
+            } else {
+                out.writeByte(SETTING_STRING);
+            }
+            writeString(out, value.getAsString());
+        }
+    }
+
+    private static boolean writeActions(DataOutputStream out, Map<Integer, ActionExecutor.ActionConfig> actions)
+            throws IOException {
+        out.writeInt(actions.size());
+        for (Map.Entry<Integer, ActionExecutor.ActionConfig> entry : actions.entrySet()) {
+            ActionExecutor.ActionConfig config = entry.getValue();
+            if (config == null || config.getClass() != ActionExecutor.ActionConfig.class) {
+                return false;
+            }
+            out.writeInt(entry.getKey());
+            writeString(out, config.getName());
+            writeString(out, config.getCommand());
+            writeString(out, config.getArgument());
+            writeString(out, config.getKeyCombination());
+            writeString(out, config.getBinding());
+
+            RepeatPolicy policy = config.getRepeatPolicy();
+            if (policy == null) {
+                out.writeByte(0);
+            } else if (!policy.isEnabled()) {
+                out.writeByte(1);
+            } else {
+                out.writeByte(2);
+                out.writeLong(policy.getDelayMs());
+                out.writeLong(policy.getIntervalMs());
+                out.writeDouble(policy.getAcceleration());
+                out.writeLong(policy.getMinIntervalMs());
+            }
+
+            Macro macro = config.getMacro();
+            out.writeInt(macro != null ? macro.size() : -1);
+            if (macro != null) {
+                for (Macro.Step step : macro.getSteps()) {
+                    writeString(out, step.getType());
+                    writeString(out, step.getValue());
+                    writeString(out, step.getArgument());
+                    out.writeDouble(step.getIntervalMs());
+                }
+            }
+        }
+        return true;
+    }
+
+    private static Map<Integer, ActionExecutor.ActionConfig> readActions(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        Map<Integer, ActionExecutor.ActionConfig> actions = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            int slot = in.readInt();
+            ActionExecutor.ActionConfig config = new ActionExecutor.ActionConfig(
+                readString(in), readString(in), readString(in), readString(in));
+            config.setBinding(readString(in));
+
+            byte policyType = in.readByte();
+            if (policyType == 1) {
+                config.setRepeatPolicy(RepeatPolicy.NONE);
+            } else if (policyType == 2) {
+                config.setRepeatPolicy(new RepeatPolicy(in.readLong(), in.readLong(), in.readDouble(), in.readLong()));
+            }
+
+            int stepCount = in.readInt();
+            if (stepCount >= 0) {
+                List<Macro.Step> steps = new ArrayList<>(stepCount);
+                for (int s = 0; s < stepCount; s++) {
+                    steps.add(new Macro.Step(readString(in), readString(in), readString(in), in.readDouble()));
+                }
+                config.setMacro(new Macro(steps));
+            }
+            config.compile();
+            actions.put(slot, config);
+        }
+        return actions;
+    }
+
+    private static void writeStrings(DataOutputStream out, Iterable<String> values) throws IOException {
+        List<String> list = new ArrayList<>();
+        values.forEach(list::add);
+        out.writeInt(list.size());
+        for (String value : list) {
+            writeString(out, value);
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    // 长度 -1 表示 null；不用 writeUTF，文本宏可能超过 64KB
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long crc(byte[] data, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+        return crc.getValue();
+    }
+
+    /**
+     * 已校验的缓存内容。设置在读取时解码，动作和配置档每次调用都解码出新实例。
+     */
+    static final class Entry {
+        private final ConfigFingerprint fingerprint;
+        private final byte[] data;
+        private final int bodyOffset;
+        private JsonObject settings;
+        private int actionsOffset;
+        private int profilesOffset;
+
+        private Entry(ConfigFingerprint fingerprint, byte[] data, int bodyOffset) {
+            this.fingerprint = fingerprint;
+            this.data = data;
+            this.bodyOffset = bodyOffset;
+        }
+
+        private void decodeSettings() throws IOException {
+            DataInputStream in = stream(bodyOffset);
+            JsonObject json = new JsonObject();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = readString(in);
+                byte type = in.readByte();
+                String value = readString(in);
+                if (type == SETTING_BOOLEAN) {
+                    json.addProperty(key, Boolean.parseBoolean(value));
+                } else if (type == SETTING_NUMBER) {
+                    json.addProperty(key, new BigDecimal(value));
+                } else {
+                    json.addProperty(key, value);
+                }
+            }
+            settings = json;
+            int actionsLength = in.readInt();
+            actionsOffset = data.length - in.available();
+            profilesOffset = actionsOffset + actionsLength;
+        }
+
+        /** 缓存对应的 config.json 的指纹 */
+        ConfigFingerprint getFingerprint() {
+            return fingerprint;
+        }
+
+        /** 只含顶层标量设置（主题、步长等）的 JSON，调用方不得修改 */
+        JsonObject getSettings() {
+            return settings;
+        }
+
+        Map<Integer, ActionExecutor.ActionConfig> decodeActions() throws IOException {
+            return readActions(stream(actionsOffset));
+        }
+
+        List<Profile> decodeProfiles() throws IOException {
+            DataInputStream in = stream(profilesOffset);
+            int count = in.readInt();
+            List<Profile> profiles = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String name = readString(in);
+                List<String> processNames = readStrings(in);
+                List<String> windowClasses = readStrings(in);
+                profiles.add(new Profile(name, processNames, windowClasses, readActions(in)));
+            }
+            return profiles;
+        }
+
+        private DataInputStream stream(int offset) {
+            return new DataInputStream(new ByteArrayInputStream(data, offset, data.length - offset));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.minpad;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 固定桶的延迟直方图
+ * 按 2 的幂划分桶：第 0 桶为 1.024 微秒以内，第 i 桶上界为 1.024 微秒 × 2^i，最后一桶收纳更长的值。
+ * 每个直方图只允许一个线程记录（钩子线程或分发器消费线程），记录只做一次位运算和几次有序写，
+ * 不加锁、不做原子读改写、不分配内存；其他线程随时可以读取，看到的是略有滞后的一致计数。
+ * 百分位按桶上界估算，误差不超过一倍，足以区分微秒、毫秒和秒级的问题。
+ */
+public final class LatencyHistogram {
+
+    public static final int BUCKET_COUNT = 32;
+
+    // 桶宽以 1024 纳秒为单位，移位代替除法
+    private static final int UNIT_SHIFT = 10;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong sumNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * 记录一次耗时，负值按 0 计。只能由该直方图的写线程调用。
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        int bucket = bucketOf(nanos);
+        buckets.lazySet(bucket, buckets.get(bucket) + 1);
+        sumNanos.lazySet(sumNanos.get() + nanos);
+        if (nanos > maxNanos.get()) {
+            maxNanos.lazySet(nanos);
+        }
+    }
+
+    static int bucketOf(long nanos) {
+        int bucket = 64 - Long.numberOfLeadingZeros(nanos >>> UNIT_SHIFT);
+        return Math.min(bucket, BUCKET_COUNT - 1);
+    }
+
+    /** 第 bucket 个桶的上界（纳秒，不含） */
+    public static long upperBoundNanos(int bucket) {
+        return bucket >= BUCKET_COUNT - 1 ? Long.MAX_VALUE : 1L << (bucket + UNIT_SHIFT);
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += buckets.get(i);
+        }
+        return count;
+    }
+
+    public long getBucketCount(int bucket) {
+        return buckets.get(bucket);
+    }
+
+    public long getSumNanos() {
+        return sumNanos.get();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * 估算百分位：返回累计数达到 quantile 的桶的上界（最后一桶返回最大值）
+     *
+     * @param quantile 0 到 1，如 0.99
+     * @return 没有记录时返回 0
+     */
+    public long percentileNanos(double quantile) {
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(count * quantile));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets.get(i);
+            if (seen >= target) {
+                return Math.min(upperBoundNanos(i), getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+
+    /** 清空，与并发的记录之间不保证原子，正在进行的记录可能丢失或残留 */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        sumNanos.set(0);
+        maxNanos.set(0);
+    }
+}
@@ -0,0 +1,411 @@
+package com.minpad;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 日志
+ * 调用方只把级别、时间、线程名、消息模板和参数引用写入预分配的环形缓冲区后立即返回，
+ * 不拼接字符串、不做 I/O；后台写线程按 "{}" 占位符格式化，写入配置目录下 logs/minpad.log（按大小滚动），
+ * 同时输出到控制台。缓冲区满时丢弃新记录并计数，不会阻塞按键线程。
+ *
+ * <p>最后一个参数是 {@link Throwable} 且没有对应的占位符时，输出其堆栈。
+ * 同一模板的 WARN/ERROR 在 10 秒内最多输出 5 条，其余只计数，下一条同样的消息会附上省略的条数。</p>
+ *
+ * <p>级别在运行时可改：启动时取 -Dminpad.logLevel（默认 info），config.json 的 logLevel 字段
+ * 加载或热重载后覆盖它。设置 -Dminpad.logConsole=false 可关闭控制台输出。</p>
+ */
+public final class Log {
+
+    public enum Level {
+        DEBUG, INFO, WARN, ERROR, OFF;
+
+        /**
+         * 按名称解析级别，忽略大小写
+         *
+         * @throws IllegalArgumentException 名称无效
+         */
+        public static Level parse(String name) {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    public static final String FILE_NAME = "minpad";
+
+    private static final int CAPACITY = 1024;
+    private static final int MASK = CAPACITY - 1;
+    private static final int MAX_ARGS = 3;
+    private static final long MAX_FILE_BYTES = 1024 * 1024;
+    private static final int MAX_FILES = 5;
+    private static final long IDLE_PARK_NANOS = 100_000_000L;
+    private static final long FLUSH_TIMEOUT_NANOS = 2_000_000_000L;
+    private static final DateTimeFormatter TIME_FORMAT =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    // 与 ActionDispatcher 相同的多生产者环形缓冲区：序号等于写入位置表示可写，等于写入位置 + 1 表示可读
+    private static final AtomicLongArray SEQUENCES = new AtomicLongArray(CAPACITY);
+    private static final long[] TIMES = new long[CAPACITY];
+    private static final Level[] LEVELS = new Level[CAPACITY];
+    private static final String[] THREADS = new String[CAPACITY];
+    private static final String[] TEMPLATES = new String[CAPACITY];
+    private static final Object[][] ARGS = new Object[CAPACITY][MAX_ARGS];
+    private static final int[] ARG_COUNTS = new int[CAPACITY];
+    private static final int[] OMITTED = new int[CAPACITY];
+
+    private static final AtomicLong TAIL = new AtomicLong();
+    private static final AtomicLong DROPPED = new AtomicLong();
+    private static final RateLimiter RATE_LIMITER = new RateLimiter();
+    private static final boolean CONSOLE =
+        !"false".equalsIgnoreCase(System.getProperty("minpad.logConsole"));
+
+    private static final Level DEFAULT_LEVEL = initialLevel();
+    private static volatile int threshold = DEFAULT_LEVEL.ordinal();
+    private static volatile long head;
+    private static volatile long flushed;
+    private static volatile boolean waiting;
+    private static final Thread WRITER;
+    // 以下字段只在写线程上访问：同一毫秒内的记录复用格式化好的时间
+    private static long lastTime = Long.MIN_VALUE;
+    private static String lastTimeText;
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) {
+            SEQUENCES.set(i, i);
+        }
+        WRITER = new Thread(Log::runWriter, "minpad-log-writer");
+        WRITER.setDaemon(true);
+        WRITER.start();
+    }
+
+    private Log() {
+    }
+
+    private static Level initialLevel() {
+        String name = System.getProperty("minpad.logLevel");
+        if (name != null) {
+            try {
+                return Level.parse(name);
+            } catch (IllegalArgumentException e) {
+                System.err.println("无效的 minpad.logLevel，使用 info: " + name);
+            }
+        }
+        return Level.INFO;
+    }
+
+    /** -Dminpad.logLevel 指定的级别，未指定时为 INFO */
+    public static Level getDefaultLevel() {
+        return DEFAULT_LEVEL;
+    }
+
+    public static Level getLevel() {
+        return Level.values()[threshold];
+    }
+
+    public static void setLevel(Level level) {
+        threshold = level.ordinal();
+    }
+
+    public static boolean isEnabled(Level level) {
+        return level.ordinal() >= threshold;
+    }
+
+    public static void debug(String message) {
+        log(Level.DEBUG, message, null, null, null, 0);
+    }
+
+    public static void debug(String template, Object arg) {
+        log(Level.DEBUG, template, arg, null, null, 1);
+    }
+
+    public static void debug(String template, Object arg1, Object arg2) {
+        log(Level.DEBUG, template, arg1, arg2, null, 2);
+    }
+
+    public static void info(String message) {
+        log(Level.INFO, message, null, null, null, 0);
+    }
+
+    public static void info(String template, Object arg) {
+        log(Level.INFO, template, arg, null, null, 1);
+    }
+
+    public static void info(String template, Object arg1, Object arg2) {
+        log(Level.INFO, template, arg1, arg2, null, 2);
+    }
+
+    public static void info(String template, Object arg1, Object arg2, Object arg3) {
+        log(Level.INFO, template, arg1, arg2, arg3, 3);
+    }
+
+    public static void warn(String message) {
+        log(Level.WARN, message, null, null, null, 0);
+    }
+
+    public static void warn(String template, Object arg) {
+        log(Level.WARN, template, arg, null, null, 1);
+    }
+
+    public static void warn(String template, Object arg1, Object arg2) {
+        log(Level.WARN, template, arg1, arg2, null, 2);
+    }
+
+    public static void warn(String template, Object arg1, Object arg2, Object arg3) {
+        log(Level.WARN, template, arg1, arg2, arg3, 3);
+    }
+
+    public static void error(String message) {
+        log(Level.ERROR, message, null, null, null, 0);
+    }
+
+    public static void error(String template, Object arg) {
+        log(Level.ERROR, template, arg, null, null, 1);
+    }
+
+    public static void error(String template, Object arg1, Object arg2) {
+        log(Level.ERROR, template, arg1, arg2, null, 2);
+    }
+
+    public static void error(String template, Object arg1, Object arg2, Object arg3) {
+        log(Level.ERROR, template, arg1, arg2, arg3, 3);
+    }
+
+    private static void log(Level level, String template, Object arg1, Object arg2, Object arg3, int argCount) {
+        if (level.ordinal() < threshold) {
+            return;
+        }
+        int omitted = 0;
+        if (level.ordinal() >= Level.WARN.ordinal()) {
+            omitted = RATE_LIMITER.acquire(template, System.nanoTime());
+            if (omitted < 0) {
+                return;
+            }
+        }
+
+        long pos = TAIL.get();
+        int slot;
+        for (;;) {
+            slot = (int) (pos & MASK);
+            long diff = SEQUENCES.get(slot) - pos;
+            if (diff == 0) {
+                if (TAIL.compareAndSet(pos, pos + 1)) {
+                    break;
+                }
+                pos = TAIL.get();
+            } else if (diff < 0) {
+                DROPPED.incrementAndGet();
+                return;
+            } else {
+                pos = TAIL.get();
+            }
+        }
+
+        TIMES[slot] = System.currentTimeMillis();
+        LEVELS[slot] = level;
+        THREADS[slot] = Thread.currentThread().getName();
+        TEMPLATES[slot] = template;
+        Object[] args = ARGS[slot];
+        args[0] = arg1;
+        args[1] = arg2;
+        args[2] = arg3;
+        ARG_COUNTS[slot] = argCount;
+        OMITTED[slot] = omitted;
+        SEQUENCES.set(slot, pos + 1);
+
+        if (waiting) {
+            LockSupport.unpark(WRITER);
+        }
+    }
+
+    /**
+     * 等待已提交的记录写入文件，最多等 2 秒。用于退出前。
+     */
+    public static void flush() {
+        long target = TAIL.get();
+        long deadline = System.nanoTime() + FLUSH_TIMEOUT_NANOS;
+        while (flushed < target && System.nanoTime() - deadline < 0) {
+            LockSupport.unpark(WRITER);
+            LockSupport.parkNanos(1_000_000L);
+        }
+    }
+
+    /** 当前日志文件 */
+    public static Path getLogFile() {
+        return logDirectory().resolve(FILE_NAME + ".log");
+    }
+
+    private static Path logDirectory() {
+        return ConfigManager.getConfigDirectory().resolve("logs");
+    }
+
+    /** 因缓冲区已满而丢弃的记录数 */
+    public static long getDroppedCount() {
+        return DROPPED.get();
+    }
+
+    private static void runWriter() {
+        RollingLogFile file = new RollingLogFile(logDirectory(), FILE_NAME, MAX_FILE_BYTES, MAX_FILES);
+        StringBuilder line = new StringBuilder(256);
+        long reportedDrops = 0;
+        boolean fileFailed = false;
+        for (;;) {
+            long pos = head;
+            int slot = (int) (pos & MASK);
+            if (SEQUENCES.get(slot) == pos + 1) {
+                line.setLength(0);
+                Level level = LEVELS[slot];
+                formatRecord(line, slot);
+                Object[] args = ARGS[slot];
+                args[0] = null;
+                args[1] = null;
+                args[2] = null;
+                TEMPLATES[slot] = null;
+                SEQUENCES.set(slot, pos + CAPACITY);
+                head = pos + 1;
+                fileFailed = write(file, line, level, fileFailed);
+                continue;
+            }
+
+            long drops = DROPPED.get();
+            if (drops != reportedDrops) {
+                line.setLength(0);
+                appendPrefix(line, System.currentTimeMillis(), Level.WARN, WRITER.getName());
+                line.append("日志缓冲区已满，丢弃了 ").append(drops - reportedDrops).append(" 条记录")
+                    .append(System.lineSeparator());
+                reportedDrops = drops;
+                fileFailed = write(file, line, Level.WARN, fileFailed);
+            }
+            if (!fileFailed) {
+                try {
+                    file.flush();
+                } catch (IOException e) {
+                    fileFailed = reportFileFailure(e);
+                }
+            }
+            flushed = pos;
+
+            waiting = true;
+            // 置位后再检查一次，防止与生产者之间漏掉唤醒
+            if (SEQUENCES.get(slot) != pos + 1) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+            waiting = false;
+        }
+    }
+
+    private static boolean write(RollingLogFile file, StringBuilder line, Level level, boolean fileFailed) {
+        String text = line.toString();
+        if (CONSOLE) {
+            if (level.ordinal() >= Level.WARN.ordinal()) {
+                System.err.print(text);
+            } else {
+                System.out.print(text);
+            }
+        }
+        if (fileFailed) {
+            return true;
+        }
+        try {
+            file.write(text.getBytes(StandardCharsets.UTF_8));
+            return false;
+        } catch (IOException e) {
+            return reportFileFailure(e);
+        }
+    }
+
+    private static boolean reportFileFailure(IOException e) {
+        System.err.println("写入日志文件失败，之后只输出到控制台: " + e.getMessage());
+        return true;
+    }
+
+    private static void formatRecord(StringBuilder line, int slot) {
+        appendPrefix(line, TIMES[slot], LEVELS[slot], THREADS[slot]);
+        String template = TEMPLATES[slot];
+        Object[] args = ARGS[slot];
+        int argCount = ARG_COUNTS[slot];
+        int used = 0;
+        int start = 0;
+        if (template != null) {
+            int index;
+            while (used < argCount && (index = template.indexOf("{}", start)) >= 0) {
+                line.append(template, start, index).append(args[used++]);
+                start = index + 2;
+            }
+            line.append(template, start, template.length());
+        } else {
+            line.append("null");
+        }
+        int omitted = OMITTED[slot];
+        if (omitted > 0) {
+            line.append("（此前 ").append(omitted).append(" 条相同消息已省略）");
+        }
+        line.append(System.lineSeparator());
+        if (used < argCount && args[argCount - 1] instanceof Throwable) {
+            StringWriter trace = new StringWriter();
+            ((Throwable) args[argCount - 1]).printStackTrace(new PrintWriter(trace));
+            line.append(trace);
+        }
+    }
+
+    private static void appendPrefix(StringBuilder line, long time, Level level, String thread) {
+        if (time != lastTime) {
+            lastTime = time;
+            lastTimeText = TIME_FORMAT.format(Instant.ofEpochMilli(time));
+        }
+        line.append(lastTimeText).append(' ').append(level.name());
+        for (int i = level.name().length(); i < 5; i++) {
+            line.append(' ');
+        }
+        line.append(" [").append(thread).append("] ");
+    }
+
+    /**
+     * 按消息模板限流：每个模板在一个窗口内放行前 BURST 条，其余计数丢弃。
+     * 表项按模板哈希直接映射，冲突时后来者覆盖，只影响限流精度。只在 WARN/ERROR 上使用，锁的竞争可以忽略。
+     */
+    private static final class RateLimiter {
+
+        private static final int SIZE = 64;
+        private static final int BURST = 5;
+        private static final long WINDOW_NANOS = 10_000_000_000L;
+
+        private final String[] templates = new String[SIZE];
+        private final long[] windowStarts = new long[SIZE];
+        private final int[] counts = new int[SIZE];
+        private final int[] suppressed = new int[SIZE];
+
+        /**
+         * @return 小于 0 表示丢弃该条；否则为上一个窗口内被省略的条数
+         */
+        synchronized int acquire(String template, long now) {
+            if (template == null) {
+                return 0;
+            }
+            int index = template.hashCode() & (SIZE - 1);
+            boolean same = template.equals(templates[index]);
+            if (!same || now - windowStarts[index] >= WINDOW_NANOS) {
+                int omitted = same ? suppressed[index] : 0;
+                templates[index] = template;
+                windowStarts[index] = now;
+                counts[index] = 1;
+                suppressed[index] = 0;
+                return omitted;
+            }
+            if (counts[index] < BURST) {
+                counts[index]++;
+                return 0;
+            }
+            suppressed[index]++;
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.minpad;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 宏动作
+ * 由组合键、按下/抬起、延时、文本输入和启动命令等步骤组成，保存在 config.json 中。
+ * 加载配置时编译为 {@link KeySequence} 指令流，交给 {@link KeySequenceScheduler} 非阻塞执行；
+ * 延时以毫秒为单位，可以是小数（精度到微秒）。
+ */
+public final class Macro {
+
+    public static final String CHORD = "chord";
+    public static final String DOWN = "down";
+    public static final String UP = "up";
+    public static final String DELAY = "delay";
+    public static final String TEXT = "text";
+    public static final String RUN = "run";
+
+    /** 单步延时上限（毫秒） */
+    static final double MAX_DELAY_MS = 60_000;
+
+    private final List<Step> steps;
+
+    public Macro(List<Step> steps) {
+        this.steps = Collections.unmodifiableList(new ArrayList<>(steps));
+    }
+
+    public List<Step> getSteps() {
+        return steps;
+    }
+
+    public int size() {
+        return steps.size();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Macro && steps.equals(((Macro) o).steps);
+    }
+
+    @Override
+    public int hashCode() {
+        return steps.hashCode();
+    }
+
+    /**
+     * 编译为按键序列。
+     *
+     * @throws IllegalArgumentException 宏为空或某一步无效
+     */
+    public KeySequence compile() {
+        if (steps.isEmpty()) {
+            throw new IllegalArgumentException("宏不能为空");
+        }
+        KeySequence.Builder builder = new KeySequence.Builder();
+        for (int i = 0; i < steps.size(); i++) {
+            Step step = steps.get(i);
+            try {
+                compileStep(builder, step);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("宏第 " + (i + 1) + " 步无效: " + e.getMessage());
+            }
+        }
+        return builder.build();
+    }
+
+    private static void compileStep(KeySequence.Builder builder, Step step) {
+        String value = step.getValue();
+        long intervalMicros = toMicros(step.getIntervalMs());
+        switch (step.getType()) {
+            case CHORD:
+                builder.chord(KeyChord.compile(value), intervalMicros);
+                break;
+            case DOWN:
+                builder.down(KeyChord.parseSingleKey(value));
+                break;
+            case UP:
+                builder.up(KeyChord.parseSingleKey(value));
+                break;
+            case DELAY:
+                double delayMs;
+                try {
+                    delayMs = Double.parseDouble(value);
+                } catch (NumberFormatException | NullPointerException e) {
+                    throw new IllegalArgumentException("无效的延时 \"" + value + "\"");
+                }
+                builder.delay(toMicros(delayMs));
+                break;
+            case TEXT:
+                if (value == null || value.isEmpty()) {
+                    throw new IllegalArgumentException("文本不能为空");
+                }
+                builder.text(value, intervalMicros);
+                break;
+            case RUN:
+                if (step.getArgument() != null) {
+                    builder.launch(value, step.getArgument());
+                } else {
+                    builder.launch(value);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("未知的步骤类型 \"" + step.getType() + "\"");
+        }
+    }
+
+    /**
+     * 毫秒转微秒，负数和非法值按 0 处理
+     *
+     * @throws IllegalArgumentException 超过单步延时上限
+     */
+    static long toMicros(double ms) {
+        if (!(ms > 0)) {
+            return 0;
+        }
+        if (ms > MAX_DELAY_MS) {
+            throw new IllegalArgumentException("延时不能超过 " + (long) MAX_DELAY_MS + " 毫秒");
+        }
+        return Math.round(ms * 1000);
+    }
+
+    /**
+     * 宏步骤
+     */
+    public static final class Step {
+        private final String type;
+        private final String value;
+        private final String argument;   // 仅 run 使用
+        private final double intervalMs;  // chord、text 的步间隔
+
+        public Step(String type, String value) {
+            this(type, value, null, 0);
+        }
+
+        public Step(String type, String value, String argument, double intervalMs) {
+            this.type = type;
+            this.value = value;
+            this.argument = argument;
+            this.intervalMs = intervalMs;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public String getArgument() {
+            return argument;
+        }
+
+        public double getIntervalMs() {
+            return intervalMs;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Step)) {
+                return false;
+            }
+            Step other = (Step) o;
+            return type.equals(other.type) && Objects.equals(value, other.value)
+                && Objects.equals(argument, other.argument) && Double.compare(intervalMs, other.intervalMs) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, value, argument, intervalMs);
+        }
+    }
+}
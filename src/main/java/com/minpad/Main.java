@@ -1,22 +1,25 @@
 package com.minpad;
 
 import javax.swing.*;
+import java.awt.TrayIcon;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * MinPad - 数字键盘快捷操作工具
  * 主入口类
+ *
+ * <p>启动顺序：先检查单实例锁；主题（FlatLaf 和字体枚举）在后台线程初始化，
+ * 同时主线程加载键位并安装输入钩子，不等待 Swing；主题就绪后再在事件调度线程上创建托盘。
+ * 各阶段耗时记入 {@link StartupTimeline}，启动完成时写入日志。</p>
  */
 public class Main {
     public static void main(String[] args) {
-        // 初始化 Fluent 风格主题
-        try {
-            ThemeManager.initialize();
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        
         // 检查是否已有实例在运行
-        if (!SingleInstanceLock.tryLock()) {
+        boolean locked = StartupTimeline.call("lock", SingleInstanceLock::tryLock);
+        if (!locked) {
+            initializeTheme();
             // 直接在主线程显示对话框（阻塞）
             FluentDialogs.info(null,
                 "MinPad - 提示",
@@ -27,26 +30,144 @@ public class Main {
             return;
         }
 
-        // 确保在事件调度线程中运行
-        SwingUtilities.invokeLater(() -> {
-            try {
-                NumPadListener listener = new NumPadListener();
-                KeyboardHook keyboardHook = new KeyboardHook(actionIndex -> listener.getActionExecutor().executeAction(actionIndex));
-                SystemTrayManager trayManager = new SystemTrayManager(listener, keyboardHook);
-                
-                keyboardHook.start();
-                listener.start();
-                trayManager.initialize();
-                
-                System.out.println("MinPad 已启动，监听数字键盘...");
-            } catch (Exception e) {
-                e.printStackTrace();
-                FluentDialogs.error(null,
-                    "错误",
-                    "启动失败: " + e.getMessage());
-                SingleInstanceLock.releaseLock();
-                System.exit(1);
+        // 字体索引最先在后台加载（有缓存时只读一个文件），主题和托盘查询字体时等它
+        runInBackground("fonts", FontResolver::load);
+        // 主题与键位加载、钩子安装并行；只有托盘和对话框需要等它
+        CompletableFuture<Void> theme = runInBackground("theme", Main::initializeTheme);
+
+        // 非正常退出（如注销、结束进程树）时也写入尚未落盘的配置和日志
+        Runtime.getRuntime().addShutdownHook(new Thread(ConfigManager::flush, "minpad-config-flush"));
+        Runtime.getRuntime().addShutdownHook(new Thread(Log::flush, "minpad-log-flush"));
+
+        try {
+            ActionExecutor executor = StartupTimeline.call("config", () -> {
+                Log.setLevel(ConfigManager.getLogLevel());
+                return new ActionExecutor();
+            });
+            KeyMetrics keyMetrics = new KeyMetrics();
+            executor.setKeyMetrics(keyMetrics);
+            ForegroundTracker foregroundTracker = new ForegroundTracker(new WinEventForegroundSource());
+            executor.setForegroundTracker(foregroundTracker);
+            RepeatEngine repeatEngine = new RepeatEngine(executor::getRepeatPolicy);
+            ActionDispatcher dispatcher = new ActionDispatcher(
+                keyMetrics.instrument(repeatEngine.handler(executor::executeAction)));
+            KeyRouter router = new KeyRouter(dispatcher, repeatEngine, executor::getKeymap);
+            InputSource inputSource = StartupTimeline.call("input",
+                () -> startInputSource(router, keyMetrics, dispatcher));
+            StartupTimeline.run("foreground", foregroundTracker::start);
+
+            SystemTrayManager trayManager = new SystemTrayManager(executor, inputSource, keyMetrics);
+            StartupTimeline.run("watcher", () -> startConfigWatcher(executor, trayManager));
+            Log.info("MinPad 已启动，监听数字键盘...");
+
+            // 托盘在主题结束后创建，确保事件调度线程上的第一个组件已使用 FlatLaf；
+            // 主题失败时沿用默认外观，托盘照常创建，否则用户无法退出
+            theme.whenComplete((ignored, themeError) -> SwingUtilities.invokeLater(() -> {
+                if (themeError != null) {
+                    Throwable cause = themeError instanceof CompletionException && themeError.getCause() != null
+                        ? themeError.getCause() : themeError;
+                    Log.error("初始化主题失败: {}", cause.getMessage(), cause);
+                }
+                try {
+                    StartupTimeline.run("tray", trayManager::initialize);
+                    StartupTimeline.complete();
+                    // 启动基准和 AppCDS 训练运行在此报告并退出
+                    StartupProbe.startupFinished(inputSource);
+                } catch (Exception e) {
+                    startupFailed(e, theme);
+                }
+            }));
+        } catch (Exception e) {
+            startupFailed(e, theme);
+        }
+    }
+
+    /**
+     * 启动失败：提示后释放单实例锁并退出，不留下没有托盘图标、无法退出的进程
+     */
+    private static void startupFailed(Exception e, CompletableFuture<Void> theme) {
+        Log.error("启动失败: {}", e.getMessage(), e);
+        // 对话框需要主题；主题本身失败时使用默认外观
+        theme.exceptionally(themeError -> null).join();
+        try {
+            FluentDialogs.error(null,
+                "错误",
+                "启动失败: " + e.getMessage());
+        } finally {
+            // 对话框本身失败（如无头环境）时也要退出
+            SingleInstanceLock.releaseLock();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 初始化 Fluent 风格主题，失败时保持默认外观
+     */
+    private static void initializeTheme() {
+        try {
+            ThemeManager.initialize();
+        } catch (Exception e) {
+            Log.error("初始化主题失败: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 在独立的后台线程执行一个启动阶段。
+     * 线程不是守护线程：主线程返回后由它把进程维持到托盘创建（事件调度线程接手）为止。
+     */
+    private static CompletableFuture<Void> runInBackground(String phase, Runnable task) {
+        return CompletableFuture.runAsync(() -> StartupTimeline.run(phase, task),
+            command -> new Thread(command, "minpad-bootstrap-" + phase).start());
+    }
+
+    /**
+     * 手动编辑 config.json 后自动生效
+     */
+    private static void startConfigWatcher(ActionExecutor executor, SystemTrayManager trayManager) {
+        ConfigWatcher configWatcher = new ConfigWatcher(executor);
+        configWatcher.setListener(new ConfigWatcher.Listener() {
+            @Override
+            public void onReloaded(ActionExecutor.ReloadResult result, long elapsedNanos) {
+                trayManager.showMessage("配置已重新加载: " + result, TrayIcon.MessageType.INFO);
             }
+
+            @Override
+            public void onReloadFailed(Exception error) {
+                trayManager.showMessage("配置无效，继续使用当前配置:\n" + error.getMessage(),
+                    TrayIcon.MessageType.ERROR);
+            }
+        });
+        try {
+            configWatcher.start();
+        } catch (IOException e) {
+            Log.warn("无法监视配置文件: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 启动分发线程和唯一的输入源：默认是低层键盘钩子及其看门狗；
+     * 配置为 jnativehook 时改用 JNativeHook，只有这时才会加载它的类和原生库。
+     */
+    private static InputSource startInputSource(KeyRouter router, KeyMetrics keyMetrics, ActionDispatcher dispatcher) {
+        dispatcher.start();
+        // 平台 MBeanServer 初始化要几百毫秒，在输入源启动后于后台注册
+        if (ConfigManager.isJNativeHookInput()) {
+            InputSource listener = new NumPadListener();
+            listener.start(router);
+            runInBackground("jmx", keyMetrics::register);
+            Log.info("输入源: {}", listener.getName());
+            return listener;
+        }
+        KeyboardHook keyboardHook = new KeyboardHook(keyMetrics);
+        // 看门狗夹在钩子和路由器之间，发现钩子被系统移除时重新安装
+        HookWatchdog hookWatchdog = new HookWatchdog(router, KeyboardHook::isKeyDown);
+        keyboardHook.start(hookWatchdog);
+        hookWatchdog.start(keyboardHook);
+        runInBackground("jmx", () -> {
+            keyMetrics.register();
+            hookWatchdog.register();
         });
+        Log.info("输入源: {}", keyboardHook.getName());
+        return keyboardHook;
     }
 }
@@ -0,0 +1,14 @@
+package com.minpad;
+
+/**
+ * 纳秒时钟
+ * 需要计时的组件通过它取时间，行为检查中替换为只在手动推进时前进的虚拟时钟，以获得确定的时序。
+ */
+public interface NanoClock {
+
+    /** 系统单调时钟 */
+    NanoClock SYSTEM = System::nanoTime;
+
+    /** 当前时间（纳秒），只用于计算时间差 */
+    long nanoTime();
+}
@@ -0,0 +1,172 @@
+package com.minpad;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 进程启动器
+ * 命令类动作在专用线程上启动进程，不占用按键分发线程。子进程的输出重定向到 DISCARD 或日志文件，
+ * 标准输入立即关闭，不会因管道写满而阻塞，也不会泄漏句柄；通过 {@link Process#onExit()} 异步回收。
+ * 每个动作记录启动次数、失败次数和进程创建耗时。
+ */
+public class ProcessLauncher implements KeySequenceScheduler.Launcher {
+
+    private final ExecutorService executor;
+    private final File outputLog;
+    private final AtomicInteger runningCount = new AtomicInteger();
+    private final Map<String, LaunchStats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * 丢弃子进程输出
+     */
+    public ProcessLauncher() {
+        this(null);
+    }
+
+    /**
+     * @param outputLog 子进程 stdout/stderr 追加写入的文件，为 null 时丢弃
+     */
+    public ProcessLauncher(File outputLog) {
+        this.outputLog = outputLog;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "minpad-process-launcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 异步启动命令，立即返回。
+     *
+     * @param actionName 动作名称，用于统计
+     * @param command    程序和参数
+     * @return 进程创建完成（或失败）时完成的 Future
+     */
+    public CompletableFuture<Process> launch(String actionName, String... command) {
+        String[] commandCopy = command.clone();
+        return CompletableFuture.supplyAsync(() -> start(actionName, commandCopy), executor);
+    }
+
+    /**
+     * 宏中的启动步骤，按程序名统计
+     */
+    @Override
+    public void launch(String[] command) {
+        launch(command[0], command);
+    }
+
+    private Process start(String actionName, String[] command) {
+        LaunchStats actionStats = stats.computeIfAbsent(actionName, k -> new LaunchStats());
+        ProcessBuilder pb = new ProcessBuilder(command);
+        if (outputLog != null) {
+            pb.redirectErrorStream(true);
+            pb.redirectOutput(ProcessBuilder.Redirect.appendTo(outputLog));
+        } else {
+            pb.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+            pb.redirectError(ProcessBuilder.Redirect.DISCARD);
+        }
+
+        long startTime = System.nanoTime();
+        Process process;
+        try {
+            process = pb.start();
+        } catch (IOException e) {
+            actionStats.recordFailure();
+            Log.error("启动进程失败: {} - {}", command[0], e.getMessage());
+            throw new IllegalStateException(e);
+        }
+        actionStats.recordSpawn(System.nanoTime() - startTime);
+
+        try {
+            process.getOutputStream().close();
+        } catch (IOException e) {
+            // 关闭失败不影响子进程运行
+        }
+        runningCount.incrementAndGet();
+        process.onExit().thenAccept(exited -> {
+            runningCount.decrementAndGet();
+            int exitCode = exited.exitValue();
+            if (exitCode != 0) {
+                Log.info("进程已退出: {}（退出码 {}）", actionName, exitCode);
+            }
+        });
+        return process;
+    }
+
+    /** 已启动且尚未退出的子进程数 */
+    public int getRunningCount() {
+        return runningCount.get();
+    }
+
+    /** 指定动作的统计，未启动过返回 null */
+    public LaunchStats getStats(String actionName) {
+        return stats.get(actionName);
+    }
+
+    /** 所有动作的统计，按名称排序 */
+    public Map<String, LaunchStats> getAllStats() {
+        return new TreeMap<>(stats);
+    }
+
+    /** 停止启动线程，已启动的子进程不受影响 */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 单个动作的启动统计
+     */
+    public static final class LaunchStats {
+        private long launchCount;
+        private long failureCount;
+        private long totalSpawnNanos;
+        private long maxSpawnNanos;
+        private long lastSpawnNanos;
+
+        synchronized void recordSpawn(long nanos) {
+            launchCount++;
+            totalSpawnNanos += nanos;
+            lastSpawnNanos = nanos;
+            if (nanos > maxSpawnNanos) {
+                maxSpawnNanos = nanos;
+            }
+        }
+
+        synchronized void recordFailure() {
+            failureCount++;
+        }
+
+        public synchronized long getLaunchCount() {
+            return launchCount;
+        }
+
+        public synchronized long getFailureCount() {
+            return failureCount;
+        }
+
+        public synchronized long getMeanSpawnNanos() {
+            return launchCount == 0 ? 0 : totalSpawnNanos / launchCount;
+        }
+
+        public synchronized long getMaxSpawnNanos() {
+            return maxSpawnNanos;
+        }
+
+        public synchronized long getLastSpawnNanos() {
+            return lastSpawnNanos;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format("启动 %d 次，失败 %d 次，耗时 平均 %.2f ms / 最大 %.2f ms",
+                launchCount, failureCount, getMeanSpawnNanos() / 1e6, maxSpawnNanos / 1e6);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.minpad;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 应用配置档
+ * 前台窗口属于指定进程或窗口类时生效，其中的动作覆盖全局同槽位的动作，未覆盖的键沿用全局配置。
+ * 合并后的动作表、键位和重复策略在全局配置变化时由 {@link ActionExecutor} 重建，按键时只读取。
+ */
+public final class Profile {
+
+    private final String name;
+    private final Set<String> processNames;
+    private final Set<String> windowClasses;
+    private final Map<Integer, ActionExecutor.ActionConfig> overrides;
+
+    // 与全局动作合并后的视图，输入线程和消费线程无锁读取
+    private volatile ActionBindings bindings = ActionBindings.EMPTY;
+
+    /**
+     * @param processNames  匹配的进程名，不区分大小写，可省略 .exe
+     * @param windowClasses 匹配的窗口类名，区分大小写
+     * @param overrides     覆盖的动作，槽位规则同全局配置
+     * @throws IllegalArgumentException 名称为空或没有任何匹配条件
+     */
+    public Profile(String name, Collection<String> processNames, Collection<String> windowClasses,
+                   Map<Integer, ActionExecutor.ActionConfig> overrides) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("配置档缺少名称");
+        }
+        this.name = name.trim();
+        this.processNames = new LinkedHashSet<>();
+        for (String processName : processNames) {
+            this.processNames.add(normalizeProcessName(processName));
+        }
+        this.windowClasses = new LinkedHashSet<>(windowClasses);
+        if (this.processNames.isEmpty() && this.windowClasses.isEmpty()) {
+            throw new IllegalArgumentException("配置档 " + name + " 需要至少一个 process 或 windowClass");
+        }
+        this.overrides = new HashMap<>(overrides);
+    }
+
+    /** 进程名的比较形式：小写、去掉路径和 .exe */
+    static String normalizeProcessName(String processName) {
+        if (processName == null) {
+            return "";
+        }
+        String normalized = processName.trim().toLowerCase(Locale.ROOT);
+        int separator = Math.max(normalized.lastIndexOf('\\'), normalized.lastIndexOf('/'));
+        if (separator >= 0) {
+            normalized = normalized.substring(separator + 1);
+        }
+        if (normalized.endsWith(".exe")) {
+            normalized = normalized.substring(0, normalized.length() - 4);
+        }
+        return normalized;
+    }
+
+    public boolean matchesProcess(String processName) {
+        return processName != null && processNames.contains(normalizeProcessName(processName));
+    }
+
+    public boolean matchesWindowClass(String windowClass) {
+        return windowClass != null && windowClasses.contains(windowClass);
+    }
+
+    /**
+     * 与全局动作合并，重建动作表、键位和重复策略
+     */
+    void rebuild(Map<Integer, ActionExecutor.ActionConfig> globalActions, long sequenceTimeoutMs) {
+        Map<Integer, ActionExecutor.ActionConfig> merged = new HashMap<>(globalActions);
+        merged.putAll(overrides);
+        bindings = ActionBindings.compile(merged, sequenceTimeoutMs, "配置档 " + name + " 的", bindings);
+    }
+
+    /**
+     * 定义未变的覆盖动作沿用 previous 中的实例（保留正在执行的宏等运行状态）
+     *
+     * @return 沿用的动作数
+     */
+    int reuseUnchanged(Profile previous) {
+        // 重建时与旧键位比较，未变则沿用旧实例
+        bindings = previous.bindings;
+        int reused = 0;
+        for (Map.Entry<Integer, ActionExecutor.ActionConfig> entry : overrides.entrySet()) {
+            ActionExecutor.ActionConfig old = previous.overrides.get(entry.getKey());
+            if (old != null && old.sameDefinition(entry.getValue())) {
+                entry.setValue(old);
+                reused++;
+            }
+        }
+        return reused;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Set<String> getProcessNames() {
+        return Collections.unmodifiableSet(processNames);
+    }
+
+    public Set<String> getWindowClasses() {
+        return Collections.unmodifiableSet(windowClasses);
+    }
+
+    /**
+     * 本配置档覆盖的动作
+     */
+    public Map<Integer, ActionExecutor.ActionConfig> getOverrides() {
+        return Collections.unmodifiableMap(overrides);
+    }
+
+    /**
+     * 合并后指定槽位的动作
+     */
+    public ActionExecutor.ActionConfig getAction(int keyIndex) {
+        return bindings.getAction(keyIndex);
+    }
+
+    public Keymap getKeymap() {
+        return bindings.getKeymap();
+    }
+
+    RepeatPolicy getRepeatPolicy(int keyIndex) {
+        return bindings.getRepeatPolicy(keyIndex);
+    }
+
+    /**
+     * 当前合并视图的快照，一次读取即得到一致的动作、键位和重复策略
+     */
+    ActionBindings getBindings() {
+        return bindings;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,244 @@
+package com.minpad;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 长按重复引擎
+ * 按键按下后按 {@link RepeatPolicy} 在单个定时线程上产生重复，任意键都可配置。
+ * 重复不会在分发队列里排队：每个键只保留一个未处理的重复事件，其间的重复累加为待执行步数，
+ * 消费线程处理时一次取走（动作跟不上时多步合并为一次执行）。抬起时清零待执行步数，
+ * 已入队的重复事件取到 0 步直接忽略，因此抬起后不会再有重复生效。
+ *
+ * <p>用指定的 {@link NanoClock} 构造时不启动线程，由调用方推进时钟后调用 {@link #runDue()}。</p>
+ */
+public class RepeatEngine {
+
+    /**
+     * 动作索引 → 重复策略，在输入线程调用，不应分配内存
+     */
+    public interface PolicySource {
+        /** 仅对默认的 + / - 键（动作 10、11）按音量策略重复 */
+        PolicySource DEFAULT = actionIndex ->
+            actionIndex == 10 || actionIndex == 11 ? RepeatPolicy.VOLUME : RepeatPolicy.NONE;
+
+        RepeatPolicy policyFor(int actionIndex);
+    }
+
+    /**
+     * 按步数执行动作，在消费线程调用
+     */
+    public interface StepHandler {
+        void execute(int actionIndex, int steps);
+    }
+
+    private static final int KEY_COUNT = 256;
+    private static final long IDLE_PARK_NANOS = 1_000_000_000L;
+
+    private final PolicySource policies;
+    private final NanoClock clock;
+    private final boolean threaded;
+    private final Object lock = new Object();
+
+    // 以下数组按虚拟键码索引，持有 lock 时访问
+    private final RepeatPolicy[] activePolicies = new RepeatPolicy[KEY_COUNT];
+    private final int[] actionIndexes = new int[KEY_COUNT];
+    private final int[] eventFlags = new int[KEY_COUNT];
+    private final long[] deadlines = new long[KEY_COUNT];
+    private final long[] intervals = new long[KEY_COUNT];
+    private int activeCount;
+
+    private final AtomicIntegerArray pendingSteps = new AtomicIntegerArray(KEY_COUNT);
+    private volatile ActionDispatcher dispatcher;
+    private volatile Thread timerThread;
+    private volatile boolean running;
+
+    public RepeatEngine(PolicySource policies) {
+        this(policies, NanoClock.SYSTEM, true);
+    }
+
+    /**
+     * 使用指定时钟，不启动线程，由调用方调用 {@link #runDue()} 推进。
+     */
+    public RepeatEngine(PolicySource policies, NanoClock clock) {
+        this(policies, clock, false);
+    }
+
+    private RepeatEngine(PolicySource policies, NanoClock clock, boolean threaded) {
+        this.policies = policies != null ? policies : PolicySource.DEFAULT;
+        this.clock = clock;
+        this.threaded = threaded;
+    }
+
+    /** 重复事件发布到的分发器，由 {@link KeyRouter} 设置 */
+    void attach(ActionDispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * 包装为分发器的事件处理器：首次按下执行 1 步，重复事件执行累计的步数。
+     */
+    public ActionDispatcher.Handler handler(StepHandler stepHandler) {
+        return (actionIndex, vkCode, flags, timestamp) -> {
+            if ((flags & ActionDispatcher.FLAG_REPEAT) == 0) {
+                stepHandler.execute(actionIndex, 1);
+                return;
+            }
+            int steps = takePendingSteps(vkCode);
+            if (steps > 0) {
+                stepHandler.execute(actionIndex, steps);
+            }
+        };
+    }
+
+    /**
+     * 按下时调用，按动作的策略开始重复。
+     *
+     * @return 该键是否会重复
+     */
+    public boolean start(int actionIndex, int vkCode, int flags) {
+        RepeatPolicy policy = policies.policyFor(actionIndex);
+        if (policy == null || !policy.isEnabled() || vkCode < 0 || vkCode >= KEY_COUNT) {
+            return false;
+        }
+        synchronized (lock) {
+            pendingSteps.set(vkCode, 0);
+            if (activePolicies[vkCode] == null) {
+                activeCount++;
+            }
+            activePolicies[vkCode] = policy;
+            actionIndexes[vkCode] = actionIndex;
+            eventFlags[vkCode] = flags | ActionDispatcher.FLAG_REPEAT;
+            deadlines[vkCode] = clock.nanoTime() + policy.getDelayNanos();
+            intervals[vkCode] = policy.getIntervalNanos();
+        }
+        wakeUp();
+        return true;
+    }
+
+    /**
+     * 抬起时调用，立即停止重复并丢弃尚未执行的步数。
+     */
+    public void stop(int vkCode) {
+        if (vkCode < 0 || vkCode >= KEY_COUNT) {
+            return;
+        }
+        synchronized (lock) {
+            if (activePolicies[vkCode] != null) {
+                activePolicies[vkCode] = null;
+                activeCount--;
+            }
+            pendingSteps.set(vkCode, 0);
+        }
+    }
+
+    /** 停止所有键的重复 */
+    public void stopAll() {
+        for (int vk = 0; vk < KEY_COUNT; vk++) {
+            stop(vk);
+        }
+    }
+
+    /** 取走指定键累计的重复步数 */
+    public int takePendingSteps(int vkCode) {
+        return pendingSteps.getAndSet(vkCode, 0);
+    }
+
+    /** 正在重复的键数 */
+    public int getActiveCount() {
+        synchronized (lock) {
+            return activeCount;
+        }
+    }
+
+    /**
+     * 产生所有到期的重复。
+     *
+     * @return 本次产生的重复次数
+     */
+    public int runDue() {
+        ActionDispatcher target = dispatcher;
+        int fired = 0;
+        synchronized (lock) {
+            if (activeCount == 0) {
+                return 0;
+            }
+            long now = clock.nanoTime();
+            for (int vk = 0; vk < KEY_COUNT; vk++) {
+                RepeatPolicy policy = activePolicies[vk];
+                if (policy == null || deadlines[vk] - now > 0) {
+                    continue;
+                }
+                deadlines[vk] += intervals[vk];
+                intervals[vk] = policy.nextIntervalNanos(intervals[vk]);
+                if (deadlines[vk] - now <= 0) {
+                    // 定时线程被耽搁时不补发，从现在重新计时
+                    deadlines[vk] = now + intervals[vk];
+                }
+                fired++;
+                // 已有未处理的重复事件时只累加步数，不再入队
+                if (pendingSteps.getAndIncrement(vk) == 0 && target != null) {
+                    target.publish(actionIndexes[vk], vk, eventFlags[vk], now);
+                }
+            }
+        }
+        return fired;
+    }
+
+    /** 停止定时线程 */
+    public void shutdown() {
+        stopAll();
+        running = false;
+        Thread thread = timerThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void wakeUp() {
+        if (!threaded) {
+            return;
+        }
+        Thread thread = timerThread;
+        if (thread == null) {
+            startThread();
+        } else {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private synchronized void startThread() {
+        if (timerThread != null) {
+            LockSupport.unpark(timerThread);
+            return;
+        }
+        running = true;
+        Thread thread = new Thread(this::runLoop, "minpad-key-repeat");
+        thread.setDaemon(true);
+        timerThread = thread;
+        thread.start();
+    }
+
+    private void runLoop() {
+        while (running) {
+            runDue();
+            LockSupport.parkNanos(this, nanosUntilNextDeadline());
+        }
+    }
+
+    private long nanosUntilNextDeadline() {
+        synchronized (lock) {
+            if (activeCount == 0) {
+                return IDLE_PARK_NANOS;
+            }
+            long now = clock.nanoTime();
+            long wait = IDLE_PARK_NANOS;
+            for (int vk = 0; vk < KEY_COUNT; vk++) {
+                if (activePolicies[vk] != null) {
+                    wait = Math.min(wait, deadlines[vk] - now);
+                }
+            }
+            return Math.max(0, wait);
+        }
+    }
+}
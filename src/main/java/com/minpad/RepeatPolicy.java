@@ -0,0 +1,117 @@
+package com.minpad;
+
+import java.util.Objects;
+
+/**
+ * 长按重复策略
+ * 按下后等待 delay 开始重复，首个间隔为 interval，之后每次乘以 acceleration（小于 1 时越按越快），
+ * 不低于 minInterval。实例不可变。
+ */
+public final class RepeatPolicy {
+
+    /** 不重复 */
+    public static final RepeatPolicy NONE = new RepeatPolicy();
+
+    /** 音量键的默认策略：150ms 后开始，每 120ms 重复一次 */
+    public static final RepeatPolicy VOLUME = new RepeatPolicy(150, 120, 1.0, 120);
+
+    static final long MIN_INTERVAL_MS = 10;
+    static final long MAX_DELAY_MS = 10_000;
+
+    private final long delayMs;
+    private final long intervalMs;
+    private final double acceleration;
+    private final long minIntervalMs;
+
+    private RepeatPolicy() {
+        this.delayMs = 0;
+        this.intervalMs = 0;
+        this.acceleration = 1.0;
+        this.minIntervalMs = 0;
+    }
+
+    /**
+     * @param delayMs       按下到第一次重复的延时（毫秒）
+     * @param intervalMs    初始重复间隔（毫秒）
+     * @param acceleration  每次重复后间隔的倍率，范围 (0, 1]
+     * @param minIntervalMs 加速后的最小间隔（毫秒）
+     * @throws IllegalArgumentException 参数超出范围
+     */
+    public RepeatPolicy(long delayMs, long intervalMs, double acceleration, long minIntervalMs) {
+        if (delayMs < 0 || delayMs > MAX_DELAY_MS) {
+            throw new IllegalArgumentException("重复延时必须在 0~" + MAX_DELAY_MS + " 毫秒之间: " + delayMs);
+        }
+        if (intervalMs < MIN_INTERVAL_MS || intervalMs > MAX_DELAY_MS) {
+            throw new IllegalArgumentException("重复间隔必须在 " + MIN_INTERVAL_MS + "~" + MAX_DELAY_MS + " 毫秒之间: " + intervalMs);
+        }
+        if (!(acceleration > 0 && acceleration <= 1)) {
+            throw new IllegalArgumentException("加速倍率必须在 (0, 1] 之间: " + acceleration);
+        }
+        this.delayMs = delayMs;
+        this.intervalMs = intervalMs;
+        this.acceleration = acceleration;
+        this.minIntervalMs = Math.max(MIN_INTERVAL_MS, Math.min(intervalMs, minIntervalMs));
+    }
+
+    public boolean isEnabled() {
+        return this != NONE;
+    }
+
+    public long getDelayMs() {
+        return delayMs;
+    }
+
+    public long getIntervalMs() {
+        return intervalMs;
+    }
+
+    public double getAcceleration() {
+        return acceleration;
+    }
+
+    public long getMinIntervalMs() {
+        return minIntervalMs;
+    }
+
+    long getDelayNanos() {
+        return delayMs * 1_000_000L;
+    }
+
+    long getIntervalNanos() {
+        return intervalMs * 1_000_000L;
+    }
+
+    /** 当前间隔之后的下一个间隔 */
+    long nextIntervalNanos(long currentNanos) {
+        if (acceleration == 1.0) {
+            return currentNanos;
+        }
+        return Math.max(minIntervalMs * 1_000_000L, (long) (currentNanos * acceleration));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof RepeatPolicy)) {
+            return false;
+        }
+        RepeatPolicy other = (RepeatPolicy) o;
+        return isEnabled() == other.isEnabled() && delayMs == other.delayMs && intervalMs == other.intervalMs
+            && Double.compare(acceleration, other.acceleration) == 0 && minIntervalMs == other.minIntervalMs;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(isEnabled(), delayMs, intervalMs, acceleration, minIntervalMs);
+    }
+
+    @Override
+    public String toString() {
+        if (!isEnabled()) {
+            return "不重复";
+        }
+        return "延时 " + delayMs + "ms，间隔 " + intervalMs + "ms，加速 " + acceleration + "，最小间隔 " + minIntervalMs + "ms";
+    }
+}
@@ -0,0 +1,94 @@
+package com.minpad;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 按大小滚动的日志文件
+ * 当前文件为 name.log，超过上限时依次改名为 name.1.log、name.2.log ……，最多保留 maxFiles 个旧文件。
+ * 只由日志写线程使用，不是线程安全的。
+ */
+final class RollingLogFile {
+
+    private final Path directory;
+    private final String baseName;
+    private final long maxBytes;
+    private final int maxFiles;
+    private OutputStream out;
+    private long size;
+
+    /**
+     * @param directory 日志目录，首次写入时创建
+     * @param baseName  文件名（不含 .log）
+     * @param maxBytes  单个文件的大小上限
+     * @param maxFiles  保留的旧文件个数
+     */
+    RollingLogFile(Path directory, String baseName, long maxBytes, int maxFiles) {
+        this.directory = directory;
+        this.baseName = baseName;
+        this.maxBytes = maxBytes;
+        this.maxFiles = maxFiles;
+    }
+
+    Path getCurrentFile() {
+        return directory.resolve(baseName + ".log");
+    }
+
+    private Path archivedFile(int index) {
+        return directory.resolve(baseName + "." + index + ".log");
+    }
+
+    void write(byte[] line) throws IOException {
+        if (out == null) {
+            open();
+        }
+        if (size > 0 && size + line.length > maxBytes) {
+            roll();
+        }
+        out.write(line);
+        size += line.length;
+    }
+
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+        Path file = getCurrentFile();
+        size = Files.exists(file) ? Files.size(file) : 0;
+        out = new BufferedOutputStream(Files.newOutputStream(file,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND), 8192);
+    }
+
+    private void roll() throws IOException {
+        close();
+        Files.deleteIfExists(archivedFile(maxFiles));
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            Path source = archivedFile(i);
+            if (Files.exists(source)) {
+                Files.move(source, archivedFile(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(getCurrentFile(), archivedFile(1), StandardCopyOption.REPLACE_EXISTING);
+        open();
+    }
+
+    void flush() throws IOException {
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    void close() throws IOException {
+        if (out != null) {
+            try {
+                out.close();
+            } finally {
+                out = null;
+                size = 0;
+            }
+        }
+    }
+}
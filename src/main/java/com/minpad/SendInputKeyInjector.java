@@ -0,0 +1,143 @@
+package com.minpad;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.Platform;
+import com.sun.jna.platform.win32.BaseTSD;
+import com.sun.jna.platform.win32.User32;
+import com.sun.jna.platform.win32.WinDef;
+import com.sun.jna.platform.win32.WinUser;
+
+/**
+ * 基于 SendInput 的按键注入器
+ * 一次 SendInput 调用提交整批事件，系统保证批内事件连续、不被其他输入打断。
+ * Unicode 事件以 KEYEVENTF_UNICODE 提交，字符放在扫描码字段，不受当前键盘布局影响。
+ * 64 位进程使用直接映射和预分配的 INPUT 缓冲区，提交时不分配内存；32 位进程退回 JNA 结构体数组。
+ */
+public class SendInputKeyInjector implements KeyInjector {
+
+    private static final int INPUT_KEYBOARD = 1;
+    private static final int KEYEVENTF_EXTENDEDKEY = 0x0001;
+    private static final int KEYEVENTF_KEYUP = 0x0002;
+    private static final int KEYEVENTF_UNICODE = 0x0004;
+
+    // x64 下 INPUT 的布局：type(4) + 对齐(4) + KEYBDINPUT 联合体(32)
+    private static final int INPUT_SIZE = 40;
+    private static final int OFFSET_TYPE = 0;
+    private static final int OFFSET_VK = 8;
+    private static final int OFFSET_SCAN = 10;
+    private static final int OFFSET_FLAGS = 12;
+    private static final int OFFSET_TIME = 16;
+    private static final int OFFSET_EXTRA_INFO = 24;
+
+    /** 单次 SendInput 的最大事件数，超过时拆成多批 */
+    static final int MAX_BATCH = 64;
+
+    /** 需要扩展标志的虚拟键码（方向键、编辑键、Win 键等） */
+    private static final boolean[] EXTENDED_KEYS = new boolean[256];
+
+    static {
+        int[] extended = {
+            0x21, 0x22, 0x23, 0x24,       // PageUp, PageDown, End, Home
+            0x25, 0x26, 0x27, 0x28,       // 方向键
+            0x2D, 0x2E,                   // Insert, Delete
+            0x5B, 0x5C, 0x5D,             // 左右 Win、菜单键
+            0x6F,                         // 数字键盘 /
+            0xA3, 0xA5                    // 右 Ctrl、右 Alt
+        };
+        for (int vk : extended) {
+            EXTENDED_KEYS[vk] = true;
+        }
+    }
+
+    private final boolean direct;
+    private final Memory buffer;
+
+    public SendInputKeyInjector() {
+        if (!Platform.isWindows()) {
+            throw new IllegalStateException("SendInput 仅在 Windows 上可用");
+        }
+        this.direct = Native.POINTER_SIZE == 8 && User32Direct.isAvailable();
+        this.buffer = direct ? new Memory((long) MAX_BATCH * INPUT_SIZE) : null;
+        if (direct) {
+            buffer.clear();
+        }
+    }
+
+    /**
+     * 创建当前平台的默认注入器：Windows 上使用 SendInput，其他平台返回空实现。
+     */
+    public static KeyInjector createDefault() {
+        if (Platform.isWindows()) {
+            try {
+                return new SendInputKeyInjector();
+            } catch (RuntimeException | UnsatisfiedLinkError e) {
+                Log.error("初始化 SendInput 失败: {}", e.getMessage());
+            }
+        }
+        return KeyInjector.NOOP;
+    }
+
+    @Override
+    public synchronized void send(int[] events, int offset, int length) {
+        int end = offset + length;
+        for (int start = offset; start < end; start += MAX_BATCH) {
+            int count = Math.min(MAX_BATCH, end - start);
+            if (direct) {
+                sendDirect(events, start, count);
+            } else {
+                sendStructures(events, start, count);
+            }
+        }
+    }
+
+    private void sendDirect(int[] events, int offset, int count) {
+        for (int i = 0; i < count; i++) {
+            long base = (long) i * INPUT_SIZE;
+            int event = events[offset + i];
+            buffer.setInt(base + OFFSET_TYPE, INPUT_KEYBOARD);
+            boolean unicode = KeyInjector.isUnicode(event);
+            short code = (short) KeyInjector.codeOf(event);
+            buffer.setShort(base + OFFSET_VK, unicode ? 0 : code);
+            buffer.setShort(base + OFFSET_SCAN, unicode ? code : 0);
+            buffer.setInt(base + OFFSET_FLAGS, toKeyboardFlags(event));
+            buffer.setInt(base + OFFSET_TIME, 0);
+            buffer.setLong(base + OFFSET_EXTRA_INFO, 0L);
+        }
+        int sent = User32Direct.SendInput(count, buffer, INPUT_SIZE);
+        if (sent != count) {
+            Log.warn("SendInput 仅提交了 {}/{} 个事件", sent, count);
+        }
+    }
+
+    private void sendStructures(int[] events, int offset, int count) {
+        WinUser.INPUT[] inputs = (WinUser.INPUT[]) new WinUser.INPUT().toArray(count);
+        for (int i = 0; i < count; i++) {
+            int event = events[offset + i];
+            inputs[i].type = new WinDef.DWORD(INPUT_KEYBOARD);
+            inputs[i].input.setType("ki");
+            boolean unicode = KeyInjector.isUnicode(event);
+            inputs[i].input.ki.wVk = new WinDef.WORD(unicode ? 0 : KeyInjector.codeOf(event));
+            inputs[i].input.ki.wScan = new WinDef.WORD(unicode ? KeyInjector.codeOf(event) : 0);
+            inputs[i].input.ki.dwFlags = new WinDef.DWORD(toKeyboardFlags(event));
+            inputs[i].input.ki.time = new WinDef.DWORD(0);
+            inputs[i].input.ki.dwExtraInfo = new BaseTSD.ULONG_PTR(0);
+        }
+        WinDef.DWORD sent = User32.INSTANCE.SendInput(new WinDef.DWORD(count), inputs, inputs[0].size());
+        if (sent.intValue() != count) {
+            Log.warn("SendInput 仅提交了 {}/{} 个事件", sent.intValue(), count);
+        }
+    }
+
+    private static int toKeyboardFlags(int event) {
+        int vkCode = KeyInjector.codeOf(event);
+        int flags = KeyInjector.isKeyUp(event) ? KEYEVENTF_KEYUP : 0;
+        if (KeyInjector.isUnicode(event)) {
+            return flags | KEYEVENTF_UNICODE;
+        }
+        if (vkCode < EXTENDED_KEYS.length && EXTENDED_KEYS[vkCode]) {
+            flags |= KEYEVENTF_EXTENDEDKEY;
+        }
+        return flags;
+    }
+}
@@ -424,6 +424,9 @@ public class SettingsDialog extends JDialog {
             if (action.getKeyCombination() != null) {
                 tooltip.append("组合键: ").append(action.getKeyCombination()).append("<br>");
             }
+            if (action.getMacro() != null) {
+                tooltip.append("宏: ").append(action.getMacro().size()).append(" 步").append("<br>");
+            }
             tooltip.append("</html>");
             button.setToolTipText(tooltip.toString());
         } else {
@@ -529,14 +532,24 @@ public class SettingsDialog extends JDialog {
             String argument = argumentField.getText().trim();
             String keyCombo = keyComboField.getText().trim();
             
-            if (!name.isEmpty() && (!command.isEmpty() || !keyCombo.isEmpty())) {
+            // 宏和重复策略只能在 config.json 中编辑，这里原样保留
+            Macro macro = existingAction != null ? existingAction.getMacro() : null;
+            RepeatPolicy repeatPolicy = existingAction != null ? existingAction.getRepeatPolicy() : null;
+            if (!name.isEmpty() && (!command.isEmpty() || !keyCombo.isEmpty() || macro != null)) {
                 ActionExecutor.ActionConfig newAction = new ActionExecutor.ActionConfig(
                     name,
                     command.isEmpty() ? null : command,
                     argument.isEmpty() ? null : argument,
                     keyCombo.isEmpty() ? null : keyCombo
                 );
-                actionExecutor.setAction(keyIndex, newAction);
+                newAction.setMacro(macro);
+                newAction.setRepeatPolicy(repeatPolicy);
+                try {
+                    actionExecutor.setAction(keyIndex, newAction);
+                } catch (IllegalArgumentException ex) {
+                    FluentDialogs.error(this, "错误", ex.getMessage());
+                    return;
+                }
 
                 // 立即保存配置
                 ConfigManager.saveConfig(actionExecutor.getAllActions());
@@ -655,14 +668,13 @@ public class SettingsDialog extends JDialog {
             
             if (confirm == JOptionPane.YES_OPTION) {
                 if (ConfigManager.importConfig(importPath)) {
-                    FluentDialogs.info(this, "导入成功", "配置已成功导入！\n程序需要重新启动以应用新配置。");
-                    
-                    // 建议用户重启应用
-                    int restart = FluentDialogs.yesNo(this, "重启应用", "是否立即重启应用以应用新配置？");
+                    // 直接应用，无需重启
+                    ActionExecutor.ReloadResult reloadResult = actionExecutor.reloadConfig();
+                    FluentDialogs.info(this, "导入成功", "配置已成功导入并生效！\n" + reloadResult);
                     
-                    if (restart == JOptionPane.YES_OPTION) {
-                        System.exit(0);
-                    }
+                    // 以新配置重新打开设置窗口
+                    dispose();
+                    new SettingsDialog(actionExecutor).setVisible(true);
                 } else {
                     FluentDialogs.error(this, "导入失败", "导入配置失败！\n请检查文件是否有效或文件权限。");
                 }
@@ -63,7 +63,7 @@ public class SingleInstanceLock {
             return true;
             
         } catch (Exception e) {
-            e.printStackTrace();
+            Log.error("获取单实例锁失败: {}", e.getMessage(), e);
             closeResources();
             return false;
         }
@@ -85,7 +85,7 @@ public class SingleInstanceLock {
             lockFile.delete();
             
         } catch (Exception e) {
-            e.printStackTrace();
+            Log.error("释放单实例锁失败: {}", e.getMessage(), e);
         }
     }
     
@@ -0,0 +1,108 @@
+package com.minpad;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动探针
+ * 以 -Dminpad.startupProbe=true 启动时，启动流程走完后向标准输出打印启动时间线和一行启动报告并退出进程。
+ * 用于 AppCDS 训练运行（退出时写出归档）和启动基准测试（StartupBenchmark 解析报告行）。
+ *
+ * <p>报告格式：{@code minpad-startup source=win32-hook installed=true hookReadyMs=312 startupMs=405 cpuMs=620 rssKb=61234 peakRssKb=63010}，
+ * 时间从 JVM 启动算起；cpuMs 是进程到此为止消耗的 CPU 时间（所有线程，含 JIT 和 GC），系统不提供时为 -1；
+ * RSS 读取 /proc/self/status，读不到（如 Windows）时为 -1。
+ * 不在 Windows 上时低层钩子无法安装，installed 为 false，hookReadyMs 是安装尝试结束的时间。</p>
+ */
+final class StartupProbe {
+
+    static final String REPORT_PREFIX = "minpad-startup";
+
+    private static final boolean ENABLED = Boolean.getBoolean("minpad.startupProbe");
+    private static final long HOOK_WAIT_SECONDS = 10;
+
+    private static final CountDownLatch hookAttempted = new CountDownLatch(1);
+    private static volatile long hookReadyMillis = -1;
+    private static volatile boolean hookInstalled;
+
+    private StartupProbe() {
+    }
+
+    static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * 输入源第一次安装结束（成功或失败）时调用，之后的调用（如看门狗重装）被忽略
+     */
+    static void hookAttempted(boolean installed) {
+        if (hookAttempted.getCount() == 0) {
+            return;
+        }
+        StartupTimeline.mark(installed ? "hook-ready" : "hook-failed");
+        hookReadyMillis = System.currentTimeMillis();
+        hookInstalled = installed;
+        hookAttempted.countDown();
+    }
+
+    /**
+     * 启动流程结束时调用。未启用探针时直接返回；启用时等待钩子安装结束，打印报告并退出。
+     */
+    static void startupFinished(InputSource inputSource) {
+        if (!ENABLED) {
+            return;
+        }
+        long finishedMillis = System.currentTimeMillis();
+        try {
+            if (!hookAttempted.await(HOOK_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                Log.warn("启动探针: {} 秒内输入源未就绪", HOOK_WAIT_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long jvmStartMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+        long readyMillis = hookReadyMillis;
+        String report = REPORT_PREFIX
+            + " source=" + inputSource.getName()
+            + " installed=" + hookInstalled
+            + " hookReadyMs=" + (readyMillis < 0 ? -1 : readyMillis - jvmStartMillis)
+            + " startupMs=" + (finishedMillis - jvmStartMillis)
+            + " cpuMs=" + ProcessHandle.current().info().totalCpuDuration().map(Duration::toMillis).orElse(-1L)
+            + " rssKb=" + readStatusKb("VmRSS:")
+            + " peakRssKb=" + readStatusKb("VmHWM:");
+        Log.info("启动探针: {}", report);
+        Log.flush();
+        System.out.println(StartupTimeline.format());
+        System.out.println(report);
+        System.out.flush();
+        System.exit(0);
+    }
+
+    /**
+     * 读取 /proc/self/status 中以 kB 为单位的字段，不可用时返回 -1
+     */
+    private static long readStatusKb(String field) {
+        Path status = Paths.get("/proc/self/status");
+        if (!Files.isReadable(status)) {
+            return -1;
+        }
+        try {
+            for (String line : Files.readAllLines(status, StandardCharsets.UTF_8)) {
+                if (line.startsWith(field)) {
+                    String value = line.substring(field.length()).trim();
+                    int space = value.indexOf(' ');
+                    return Long.parseLong(space < 0 ? value : value.substring(0, space));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            Log.debug("读取 {} 失败: {}", field, e.getMessage());
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,130 @@
+package com.minpad;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * 启动时间线
+ * 记录启动各阶段所在线程、开始时间（相对进入 main）和耗时，以及钩子就绪等时间点。
+ * 启动完成时整体写入日志；之后才到达的时间点单独记一行。
+ *
+ * <p>各阶段可能在主线程、后台线程和事件调度线程上并行执行，记录是线程安全的。</p>
+ */
+final class StartupTimeline {
+
+    // 类在 Main.main 开始时初始化，作为时间线的原点
+    private static final long ORIGIN_NANOS = System.nanoTime();
+    private static final long ORIGIN_MILLIS = System.currentTimeMillis();
+
+    private static final Object LOCK = new Object();
+    private static final List<Entry> entries = new ArrayList<>();
+    private static boolean completed;
+
+    private StartupTimeline() {
+    }
+
+    /**
+     * 在当前线程执行一个阶段并记录耗时（异常时同样记录）
+     */
+    static void run(String phase, Runnable task) {
+        long start = System.nanoTime();
+        try {
+            task.run();
+        } finally {
+            record(phase, start, System.nanoTime());
+        }
+    }
+
+    /**
+     * 在当前线程执行一个有结果的阶段并记录耗时
+     */
+    static <T> T call(String phase, Supplier<T> task) {
+        long start = System.nanoTime();
+        try {
+            return task.get();
+        } finally {
+            record(phase, start, System.nanoTime());
+        }
+    }
+
+    /**
+     * 记录一个时间点（如钩子安装完成）
+     */
+    static void mark(String event) {
+        long now = System.nanoTime();
+        boolean late = record(event, now, now);
+        if (late) {
+            Log.info("启动时间线: {} +{} ms", event, millis(now - ORIGIN_NANOS));
+        }
+    }
+
+    /**
+     * 启动流程结束，把时间线写入日志
+     */
+    static void complete() {
+        synchronized (LOCK) {
+            completed = true;
+        }
+        Log.info("{}", format());
+    }
+
+    /**
+     * 按开始时间排序的时间线文本，供日志和诊断输出
+     */
+    static String format() {
+        List<Entry> snapshot;
+        synchronized (LOCK) {
+            snapshot = new ArrayList<>(entries);
+        }
+        snapshot.sort(Comparator.comparingLong(entry -> entry.startNanos));
+
+        StringBuilder text = new StringBuilder("启动时间线（JVM 启动后 ")
+            .append(ORIGIN_MILLIS - ManagementFactory.getRuntimeMXBean().getStartTime())
+            .append(" ms 进入 main）:");
+        for (Entry entry : snapshot) {
+            text.append(System.lineSeparator()).append(String.format(Locale.ROOT, "  +%5d ms %8s  %-12s %s",
+                millis(entry.startNanos - ORIGIN_NANOS),
+                entry.isMark() ? "" : millis(entry.endNanos - entry.startNanos) + " ms",
+                entry.name,
+                entry.thread));
+        }
+        return text.toString();
+    }
+
+    /**
+     * @return true 表示时间线已经写入日志，该记录到得太晚
+     */
+    private static boolean record(String name, long startNanos, long endNanos) {
+        Entry entry = new Entry(name, Thread.currentThread().getName(), startNanos, endNanos);
+        synchronized (LOCK) {
+            entries.add(entry);
+            return completed;
+        }
+    }
+
+    private static long millis(long nanos) {
+        return nanos / 1_000_000L;
+    }
+
+    private static final class Entry {
+        final String name;
+        final String thread;
+        final long startNanos;
+        final long endNanos;
+
+        Entry(String name, String thread, long startNanos, long endNanos) {
+            this.name = name;
+            this.thread = thread;
+            this.startNanos = startNanos;
+            this.endNanos = endNanos;
+        }
+
+        boolean isMark() {
+            return startNanos == endNanos;
+        }
+    }
+}
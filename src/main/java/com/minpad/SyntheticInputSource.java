@@ -0,0 +1,170 @@
+package com.minpad;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 内存合成输入源
+ * 按给定的虚拟键码集合、次数和节奏在后台线程生成按下/抬起事件，
+ * 也可以通过 {@link #press(int)} / {@link #release(int)} 在调用线程直接投递事件。
+ * 不依赖任何原生库，可在 Linux 上驱动完整的按键→动作链路。
+ */
+public class SyntheticInputSource implements InputSource {
+
+    private final int[] vkCodes;
+    private final int count;
+    private final long holdNanos;
+    private final long gapNanos;
+    private final long seed;
+
+    private final AtomicLong eventCount = new AtomicLong();
+    private volatile InputSource.Sink sink;
+    private volatile boolean running;
+    private Thread generatorThread;
+
+    /**
+     * 只用于手动投递事件的合成源。
+     */
+    public SyntheticInputSource() {
+        this(new int[0], 0, 0, 0, 0);
+    }
+
+    /**
+     * @param vkCodes   随机选取的虚拟键码
+     * @param count     生成的按键次数（每次包含按下和抬起）
+     * @param holdNanos 按下到抬起的间隔
+     * @param gapNanos  抬起到下一次按下的间隔，0 表示不限速
+     * @param seed      随机种子，相同种子生成相同序列
+     */
+    public SyntheticInputSource(int[] vkCodes, int count, long holdNanos, long gapNanos, long seed) {
+        if (count > 0 && (vkCodes == null || vkCodes.length == 0)) {
+            throw new IllegalArgumentException("需要至少一个虚拟键码");
+        }
+        this.vkCodes = vkCodes == null ? new int[0] : vkCodes.clone();
+        this.count = count;
+        this.holdNanos = Math.max(0, holdNanos);
+        this.gapNanos = Math.max(0, gapNanos);
+        this.seed = seed;
+    }
+
+    @Override
+    public String getName() {
+        return "synthetic";
+    }
+
+    @Override
+    public synchronized void start(InputSource.Sink sink) {
+        if (running) {
+            return;
+        }
+        this.sink = sink;
+        running = true;
+        if (count > 0) {
+            generatorThread = new Thread(this::generate, "minpad-synthetic-input");
+            generatorThread.setDaemon(true);
+            generatorThread.start();
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (generatorThread != null) {
+            LockSupport.unpark(generatorThread);
+        } else if (sink != null) {
+            sink.onSourceStopped();
+        }
+    }
+
+    /**
+     * 在调用线程投递一次按下事件。
+     */
+    public boolean press(int vkCode) {
+        return deliver(vkCode, defaultFlags(vkCode), true);
+    }
+
+    /**
+     * 在调用线程投递一次抬起事件。
+     */
+    public boolean release(int vkCode) {
+        return deliver(vkCode, defaultFlags(vkCode), false);
+    }
+
+    /**
+     * 在调用线程投递一次完整按键（按下 + 抬起）。
+     */
+    public void tap(int vkCode) {
+        press(vkCode);
+        release(vkCode);
+    }
+
+    /**
+     * 在调用线程投递一次事件，flags 按 KBDLLHOOKSTRUCT.flags 解释。
+     */
+    public boolean deliver(int vkCode, int flags, boolean keyDown) {
+        InputSource.Sink target = sink;
+        if (target == null) {
+            throw new IllegalStateException("输入源尚未启动");
+        }
+        eventCount.incrementAndGet();
+        return target.onKeyEvent(vkCode, flags, keyDown);
+    }
+
+    /**
+     * 等待后台生成结束。
+     *
+     * @return true 表示已结束
+     */
+    public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            thread = generatorThread;
+        }
+        if (thread == null) {
+            return true;
+        }
+        thread.join(Math.max(1, unit.toMillis(timeout)));
+        return !thread.isAlive();
+    }
+
+    /** 已投递的事件数（按下和抬起分别计数）。 */
+    public long getEventCount() {
+        return eventCount.get();
+    }
+
+    private void generate() {
+        SplittableRandom random = new SplittableRandom(seed);
+        long deadline = System.nanoTime();
+        try {
+            for (int i = 0; i < count && running; i++) {
+                int vkCode = vkCodes[random.nextInt(vkCodes.length)];
+                int flags = defaultFlags(vkCode);
+
+                deliver(vkCode, flags, true);
+                deadline += holdNanos;
+                parkUntil(deadline);
+
+                deliver(vkCode, flags, false);
+                deadline += gapNanos;
+                parkUntil(deadline);
+            }
+        } finally {
+            running = false;
+            sink.onSourceStopped();
+        }
+    }
+
+    private void parkUntil(long deadline) {
+        long remaining;
+        while (running && (remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(this, remaining);
+        }
+    }
+
+    private static int defaultFlags(int vkCode) {
+        // 合成的 Enter 视为数字键盘 Enter
+        return vkCode == KeyRouter.VK_RETURN ? KeyRouter.LLKHF_EXTENDED : 0;
+    }
+}
@@ -6,6 +6,12 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import javax.swing.event.PopupMenuEvent;
 import javax.swing.event.PopupMenuListener;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Date;
 
 /**
  * 系统托盘管理器
@@ -14,16 +20,26 @@ import javax.swing.event.PopupMenuListener;
 public class SystemTrayManager {
     
     private TrayIcon trayIcon;
-    private NumPadListener listener;
-    private KeyboardHook keyboardHook;
+    private final ActionExecutor executor;
+    private final InputSource inputSource;
+    private final KeyMetrics keyMetrics;
     private JPopupMenu swingMenu;
     private JWindow popupWindow;
     private PopupMenuListener popupCloseListener;
     private final ThemeManager.ThemeChangeListener themeChangeListener;
     
-    public SystemTrayManager(NumPadListener listener, KeyboardHook keyboardHook) {
-        this.listener = listener;
-        this.keyboardHook = keyboardHook;
+    public SystemTrayManager(ActionExecutor executor, InputSource inputSource) {
+        this(executor, inputSource, null);
+    }
+    
+    /**
+     * @param inputSource 退出时停止的输入源
+     * @param keyMetrics  按键统计，非 null 时菜单中可以导出
+     */
+    public SystemTrayManager(ActionExecutor executor, InputSource inputSource, KeyMetrics keyMetrics) {
+        this.executor = executor;
+        this.inputSource = inputSource;
+        this.keyMetrics = keyMetrics;
         this.themeChangeListener = (requestedMode, effectiveMode) -> refreshTrayTheme();
     }
     
@@ -32,7 +48,7 @@ public class SystemTrayManager {
      */
     public void initialize() {
         if (!SystemTray.isSupported()) {
-            System.err.println("系统不支持托盘图标");
+            Log.warn("系统不支持托盘图标");
             return;
         }
         
@@ -75,7 +91,17 @@ public class SystemTrayManager {
                 TrayIcon.MessageType.INFO);
             
         } catch (AWTException e) {
-            e.printStackTrace();
+            Log.error("添加托盘图标失败: {}", e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * 显示托盘通知，托盘未初始化时只打印日志
+     */
+    public void showMessage(String message, TrayIcon.MessageType type) {
+        TrayIcon icon = trayIcon;
+        if (icon != null) {
+            icon.displayMessage("MinPad", message, type);
         }
     }
     
@@ -98,16 +124,12 @@ public class SystemTrayManager {
                 "Arial Unicode MS",
                 "Dialog" // JVM 默认对话字体
         };
-        String[] available = GraphicsEnvironment.getLocalGraphicsEnvironment().getAvailableFontFamilyNames();
-        for (String name : candidates) {
-            for (String avail : available) {
-                if (avail.equalsIgnoreCase(name)) {
-                    System.out.println("Tray menu font: " + avail);
-                    return new Font(avail, Font.PLAIN, 12);
-                }
-            }
+        String family = FontResolver.find(candidates);
+        if (family != null) {
+            Log.debug("Tray menu font: {}", family);
+            return new Font(family, Font.PLAIN, 12);
         }
-        System.out.println("Tray menu font fallback: " + Font.SANS_SERIF);
+        Log.debug("Tray menu font fallback: {}", Font.SANS_SERIF);
         return new Font(Font.SANS_SERIF, Font.PLAIN, 12);
     }
     
@@ -132,6 +154,14 @@ public class SystemTrayManager {
         addThemeMenuItems(appearanceMenu, popupFont);
         menu.add(appearanceMenu);
 
+        if (keyMetrics != null) {
+            JMenuItem metricsItem = new JMenuItem("导出按键统计");
+            metricsItem.setFont(popupFont);
+            metricsItem.setIcon(IconFactory.createMenuItemIcon('\uE9D2'));
+            metricsItem.addActionListener(e -> exportKeyMetrics());
+            menu.add(metricsItem);
+        }
+
         JMenuItem aboutItem = new JMenuItem("关于");
         aboutItem.setFont(popupFont);
         aboutItem.setIcon(IconFactory.createMenuItemIcon('\uE946'));
@@ -231,11 +261,28 @@ public class SystemTrayManager {
      */
     private void showSettings() {
         SwingUtilities.invokeLater(() -> {
-            SettingsDialog dialog = new SettingsDialog(listener.getActionExecutor());
+            SettingsDialog dialog = new SettingsDialog(executor);
             dialog.setVisible(true);
         });
     }
     
+    /**
+     * 把按键统计写成 JSON 文件，放在配置目录
+     */
+    private void exportKeyMetrics() {
+        String name = "key-metrics-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".json";
+        Path file = ConfigManager.getConfigDirectory().resolve(name);
+        try {
+            Files.createDirectories(file.getParent());
+            Files.write(file, keyMetrics.toJson().getBytes(StandardCharsets.UTF_8));
+            Log.info("按键统计已导出: {}", file);
+            showMessage("按键统计已导出:\n" + file, TrayIcon.MessageType.INFO);
+        } catch (IOException e) {
+            Log.error("导出按键统计失败: {}", e.getMessage());
+            showMessage("导出按键统计失败: " + e.getMessage(), TrayIcon.MessageType.ERROR);
+        }
+    }
+    
     /**
      * 显示关于对话框
      */
@@ -263,16 +310,16 @@ public class SystemTrayManager {
         int result = FluentDialogs.yesNo(null, "确认退出", "确定要退出 MinPad 吗？");
         
         if (result == JOptionPane.YES_OPTION) {
-            // 保存配置
-            ConfigManager.saveConfig(listener.getActionExecutor().getAllActions());
+            // 保存配置并等待写盘完成
+            ConfigManager.saveConfig(executor.getAllActions());
+            ConfigManager.flush();
             
             if (trayIcon != null) {
                 SystemTray.getSystemTray().remove(trayIcon);
             }
             ThemeManager.removeThemeChangeListener(themeChangeListener);
-            listener.stop();
-            if (keyboardHook != null) {
-                keyboardHook.stop();
+            if (inputSource != null) {
+                inputSource.stop();
             }
             
             // 释放单实例锁
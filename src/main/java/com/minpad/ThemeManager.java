@@ -102,7 +102,7 @@ public final class ThemeManager {
                 try {
                     listener.onThemeChanged(requestedMode, effectiveMode);
                 } catch (Exception e) {
-                    System.err.println("主题监听器执行失败: " + e.getMessage());
+                    Log.error("主题监听器执行失败: {}", e.getMessage());
                 }
             }
         };
@@ -122,7 +122,7 @@ public final class ThemeManager {
                 FlatLightLaf.setup();
             }
         } catch (Exception e) {
-            System.err.println("设置 FlatLaf 失败，回退系统主题: " + e.getMessage());
+            Log.error("设置 FlatLaf 失败，回退系统主题: {}", e.getMessage());
             try {
                 UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
             } catch (Exception ignored) {
@@ -0,0 +1,197 @@
+package com.minpad;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 按键轨迹回放输入源
+ * 读取录制的按键轨迹，并按原始时间间隔（可加速/减速）在后台线程回放。
+ *
+ * <p>轨迹为文本格式，每行一个事件，# 开头为注释：</p>
+ * <pre>
+ * # 时间(微秒)  d/u  虚拟键码  [flags]
+ * 0        d  0x61
+ * 85000    u  0x61
+ * 240000   d  0x0D  0x01
+ * </pre>
+ * 时间相对于轨迹开始，必须单调不减；虚拟键码和 flags 支持十进制或 0x 开头的十六进制。
+ */
+public class TraceReplayInputSource implements InputSource {
+
+    private final long[] timesMicros;
+    private final int[] vkCodes;
+    private final int[] flags;
+    private final boolean[] keyDowns;
+    private final int size;
+    private final double speed;
+
+    private volatile InputSource.Sink sink;
+    private volatile boolean running;
+    private volatile int replayed;
+    private Thread replayThread;
+
+    private TraceReplayInputSource(long[] timesMicros, int[] vkCodes, int[] flags, boolean[] keyDowns,
+                                   int size, double speed) {
+        this.timesMicros = timesMicros;
+        this.vkCodes = vkCodes;
+        this.flags = flags;
+        this.keyDowns = keyDowns;
+        this.size = size;
+        this.speed = speed;
+    }
+
+    /**
+     * 从文件加载轨迹。
+     *
+     * @param speed 回放速度倍率，1 为原速，2 为两倍速，0 表示忽略时间间隔全速回放
+     */
+    public static TraceReplayInputSource load(Path trace, double speed) throws IOException {
+        if (speed < 0 || Double.isNaN(speed)) {
+            throw new IllegalArgumentException("回放速度不能为负: " + speed);
+        }
+        long[] times = new long[64];
+        int[] vks = new int[64];
+        int[] eventFlags = new int[64];
+        boolean[] downs = new boolean[64];
+        int size = 0;
+        long lastTime = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(trace, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split("\\s+");
+                if (parts.length < 3 || parts.length > 4) {
+                    throw new IOException("轨迹第 " + lineNumber + " 行格式错误: " + line);
+                }
+                try {
+                    long time = Long.parseLong(parts[0]);
+                    if (time < lastTime) {
+                        throw new IOException("轨迹第 " + lineNumber + " 行时间倒退: " + line);
+                    }
+                    String direction = parts[1].toLowerCase(Locale.ROOT);
+                    if (!"d".equals(direction) && !"u".equals(direction)) {
+                        throw new IOException("轨迹第 " + lineNumber + " 行方向应为 d 或 u: " + line);
+                    }
+
+                    if (size == times.length) {
+                        int newLength = size * 2;
+                        times = Arrays.copyOf(times, newLength);
+                        vks = Arrays.copyOf(vks, newLength);
+                        eventFlags = Arrays.copyOf(eventFlags, newLength);
+                        downs = Arrays.copyOf(downs, newLength);
+                    }
+                    times[size] = time;
+                    vks[size] = parseInt(parts[2]);
+                    eventFlags[size] = parts.length == 4 ? parseInt(parts[3]) : 0;
+                    downs[size] = "d".equals(direction);
+                    size++;
+                    lastTime = time;
+                } catch (NumberFormatException e) {
+                    throw new IOException("轨迹第 " + lineNumber + " 行数字无效: " + line, e);
+                }
+            }
+        }
+        return new TraceReplayInputSource(times, vks, eventFlags, downs, size, speed);
+    }
+
+    private static int parseInt(String value) {
+        if (value.startsWith("0x") || value.startsWith("0X")) {
+            return Integer.parseInt(value.substring(2), 16);
+        }
+        return Integer.parseInt(value);
+    }
+
+    @Override
+    public String getName() {
+        return "trace-replay";
+    }
+
+    @Override
+    public synchronized void start(InputSource.Sink sink) {
+        if (running) {
+            return;
+        }
+        this.sink = sink;
+        running = true;
+        replayed = 0;
+        replayThread = new Thread(this::replay, "minpad-trace-replay");
+        replayThread.setDaemon(true);
+        replayThread.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (replayThread != null) {
+            LockSupport.unpark(replayThread);
+        }
+    }
+
+    /**
+     * 等待回放结束。
+     *
+     * @return true 表示已结束
+     */
+    public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            thread = replayThread;
+        }
+        if (thread == null) {
+            return true;
+        }
+        thread.join(Math.max(1, unit.toMillis(timeout)));
+        return !thread.isAlive();
+    }
+
+    /** 轨迹中的事件总数。 */
+    public int getEventCount() {
+        return size;
+    }
+
+    /** 已回放的事件数。 */
+    public int getReplayedCount() {
+        return replayed;
+    }
+
+    /** 轨迹按原速回放的总时长（微秒）。 */
+    public long getDurationMicros() {
+        return size == 0 ? 0 : timesMicros[size - 1];
+    }
+
+    private void replay() {
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < size && running; i++) {
+                if (speed > 0) {
+                    long deadline = start + (long) (timesMicros[i] * 1000L / speed);
+                    long remaining;
+                    while (running && (remaining = deadline - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(this, remaining);
+                    }
+                    if (!running) {
+                        break;
+                    }
+                }
+                sink.onKeyEvent(vkCodes[i], flags[i], keyDowns[i]);
+                replayed = i + 1;
+            }
+        } finally {
+            running = false;
+            sink.onSourceStopped();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.minpad;
+
+import com.sun.jna.Native;
+import com.sun.jna.Platform;
+import com.sun.jna.Pointer;
+
+/**
+ * user32 的 JNA 直接映射。
+ * 参数全部是基本类型或已有的 Pointer，调用时不创建参数数组、不装箱，适合在键盘钩子回调里使用。
+ * 非 Windows 平台注册会失败，此时 {@link #isAvailable()} 返回 false，调用方应走普通的 JNA 接口。
+ */
+final class User32Direct {
+
+    private static final boolean AVAILABLE;
+
+    static {
+        boolean available = false;
+        if (Platform.isWindows()) {
+            try {
+                Native.register(User32Direct.class, "user32");
+                available = true;
+            } catch (Throwable e) {
+                Log.error("注册 user32 直接映射失败: {}", e.getMessage());
+            }
+        }
+        AVAILABLE = available;
+    }
+
+    private User32Direct() {
+    }
+
+    static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    /**
+     * LRESULT CallNextHookEx(HHOOK hhk, int nCode, WPARAM wParam, LPARAM lParam)
+     * 仅适用于 64 位进程（WPARAM/LPARAM/LRESULT 均为 64 位）。
+     */
+    static native long CallNextHookEx(Pointer hhk, int nCode, long wParam, long lParam);
+
+    /**
+     * UINT SendInput(UINT cInputs, LPINPUT pInputs, int cbSize)
+     */
+    static native int SendInput(int cInputs, Pointer pInputs, int cbSize);
+
+    /**
+     * SHORT GetAsyncKeyState(int vKey)
+     */
+    static native short GetAsyncKeyState(int vKey);
+}
@@ -0,0 +1,53 @@
+package com.minpad;
+
+import com.sun.jna.Platform;
+
+/**
+ * 音量后端
+ * 直接读写系统主音量（0.0 ~ 1.0），一次调用完成，不经过模拟按键。
+ */
+public interface VolumeBackend {
+
+    /** 后端名称，用于日志 */
+    String getName();
+
+    /**
+     * 读取当前主音量
+     *
+     * @throws IllegalStateException 读取失败（如音频设备不可用）
+     */
+    float getLevel();
+
+    /**
+     * 设置主音量，超出 0.0 ~ 1.0 的值会被截断
+     *
+     * @throws IllegalStateException 设置失败
+     */
+    void setLevel(float level);
+
+    /** 释放后端持有的系统资源 */
+    default void close() {
+    }
+
+    /** 把音量截断到 0.0 ~ 1.0，NaN 视为 0 */
+    static float clamp(float level) {
+        if (Float.isNaN(level)) {
+            return 0f;
+        }
+        return Math.max(0f, Math.min(1f, level));
+    }
+
+    /**
+     * 创建当前平台的默认后端：Windows 上使用 Core Audio 端点音量，其他平台返回 null（退回媒体键）。
+     */
+    static VolumeBackend createDefault() {
+        if (Platform.isWindows()) {
+            try {
+                return new CoreAudioVolumeBackend();
+            } catch (RuntimeException | UnsatisfiedLinkError e) {
+                Log.error("初始化端点音量失败，使用音量媒体键: {}", e.getMessage());
+            }
+        }
+        return null;
+    }
+}
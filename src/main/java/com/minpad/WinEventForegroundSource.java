@@ -0,0 +1,117 @@
+package com.minpad;
+
+import com.sun.jna.Native;
+import com.sun.jna.platform.win32.Kernel32;
+import com.sun.jna.platform.win32.User32;
+import com.sun.jna.platform.win32.WinDef;
+import com.sun.jna.platform.win32.WinNT;
+import com.sun.jna.platform.win32.WinUser;
+import com.sun.jna.ptr.IntByReference;
+
+/**
+ * 基于 SetWinEventHook(EVENT_SYSTEM_FOREGROUND) 的前台窗口来源
+ * 只在焦点切换时由系统回调，在专用线程的消息循环中查询窗口类和进程名，按键路径上没有任何原生调用。
+ */
+public class WinEventForegroundSource implements ForegroundTracker.Source {
+
+    private static final int EVENT_SYSTEM_FOREGROUND = 0x0003;
+    private static final int WINEVENT_OUTOFCONTEXT = 0x0000;
+    // 不接收本进程窗口（设置对话框等）的切换，保持之前的配置档
+    private static final int WINEVENT_SKIPOWNPROCESS = 0x0002;
+    private static final int CLASS_NAME_LENGTH = 256;
+    private static final int PATH_LENGTH = 1024;
+
+    private ForegroundTracker.Listener listener;
+    private Thread eventThread;
+    private volatile boolean running;
+    private volatile int threadId;
+
+    @Override
+    public String getName() {
+        return "win-event";
+    }
+
+    @Override
+    public synchronized void start(ForegroundTracker.Listener listener) {
+        if (running) {
+            return;
+        }
+        this.listener = listener;
+        running = true;
+        eventThread = new Thread(this::runLoop, "minpad-foreground");
+        eventThread.setDaemon(true);
+        eventThread.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (threadId != 0) {
+            User32.INSTANCE.PostThreadMessage(threadId, WinUser.WM_QUIT, null, null);
+        }
+    }
+
+    private void runLoop() {
+        threadId = Kernel32.INSTANCE.GetCurrentThreadId();
+
+        // 回调对象必须保持强引用，否则被 GC 后钩子会失效
+        WinUser.WinEventProc eventProc = (hook, event, hwnd, idObject, idChild, eventThreadId, eventTime) -> {
+            if (hwnd != null) {
+                report(hwnd);
+            }
+        };
+        WinNT.HANDLE hook = User32.INSTANCE.SetWinEventHook(EVENT_SYSTEM_FOREGROUND, EVENT_SYSTEM_FOREGROUND,
+            null, eventProc, 0, 0, WINEVENT_OUTOFCONTEXT | WINEVENT_SKIPOWNPROCESS);
+        if (hook == null) {
+            Log.error("安装前台窗口钩子失败: {}", Native.getLastError());
+            running = false;
+            return;
+        }
+
+        // 先推送当前前台窗口
+        WinDef.HWND current = User32.INSTANCE.GetForegroundWindow();
+        if (current != null) {
+            report(current);
+        }
+
+        WinUser.MSG msg = new WinUser.MSG();
+        while (running && User32.INSTANCE.GetMessage(msg, null, 0, 0) != 0) {
+            User32.INSTANCE.TranslateMessage(msg);
+            User32.INSTANCE.DispatchMessage(msg);
+        }
+        User32.INSTANCE.UnhookWinEvent(hook);
+        threadId = 0;
+    }
+
+    private void report(WinDef.HWND hwnd) {
+        char[] className = new char[CLASS_NAME_LENGTH];
+        int length = User32.INSTANCE.GetClassName(hwnd, className, className.length);
+        String windowClass = length > 0 ? new String(className, 0, length) : null;
+        listener.onForegroundChanged(queryProcessName(hwnd), windowClass);
+    }
+
+    /** 窗口所属进程的可执行文件名，无权限查询时返回 null */
+    private static String queryProcessName(WinDef.HWND hwnd) {
+        IntByReference pid = new IntByReference();
+        User32.INSTANCE.GetWindowThreadProcessId(hwnd, pid);
+        if (pid.getValue() == 0) {
+            return null;
+        }
+        WinNT.HANDLE process = Kernel32.INSTANCE.OpenProcess(
+            WinNT.PROCESS_QUERY_LIMITED_INFORMATION, false, pid.getValue());
+        if (process == null) {
+            return null;
+        }
+        try {
+            char[] path = new char[PATH_LENGTH];
+            IntByReference size = new IntByReference(path.length);
+            if (!Kernel32.INSTANCE.QueryFullProcessImageName(process, 0, path, size)) {
+                return null;
+            }
+            String fullPath = new String(path, 0, size.getValue());
+            return fullPath.substring(fullPath.lastIndexOf('\\') + 1);
+        } finally {
+            Kernel32.INSTANCE.CloseHandle(process);
+        }
+    }
+}